@@ -0,0 +1,12 @@
+package com.example.demo.Exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/** The idempotency key was already used for a different request. */
+@ResponseStatus(HttpStatus.UNPROCESSABLE_CONTENT)
+public class IdempotencyKeyMismatchException extends RuntimeException {
+    public IdempotencyKeyMismatchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.demo.Exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/** A debit would take the account or its customer over a velocity limit. */
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class VelocityLimitExceededException extends RuntimeException {
+    public VelocityLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.demo.cache;
+
+import com.example.demo.dtos.CacheStatsDTO;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * LRU cache bounded by size and time-to-live.
+ * <p>
+ * Every invalidation bumps a generation counter. A loader reads the generation before
+ * going to the database and passes it back to {@link #put}; if anything was invalidated
+ * in between, the value may predate a committed write and is not cached.
+ * <p>
+ * Guarded by a {@link ReentrantLock} rather than {@code synchronized} so contended
+ * virtual threads park instead of pinning their carrier.
+ */
+public class BoundedCache<K, V> {
+    private final String name;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final ReentrantLock lock = new ReentrantLock();
+    private long generation;
+
+    public BoundedCache(String name, int maxSize, long ttlMillis) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > BoundedCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public V get(K key) {
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            if (System.nanoTime() - entry.createdAt > ttlNanos) {
+                entries.remove(key);
+                evictions.increment();
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long generation() {
+        lock.lock();
+        try {
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(K key, V value, long loadedAtGeneration) {
+        lock.lock();
+        try {
+            if (maxSize <= 0 || loadedAtGeneration != generation) return;
+            entries.put(key, new Entry<>(value, System.nanoTime()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            generation++;
+            entries.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            generation++;
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public CacheStatsDTO stats() {
+        lock.lock();
+        try {
+            CacheStatsDTO cacheStatsDTO = new CacheStatsDTO();
+            cacheStatsDTO.setName(name);
+            cacheStatsDTO.setSize(entries.size());
+            cacheStatsDTO.setHits(hits.sum());
+            cacheStatsDTO.setMisses(misses.sum());
+            cacheStatsDTO.setEvictions(evictions.sum());
+            return cacheStatsDTO;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private record Entry<V>(V value, long createdAt) {
+    }
+}
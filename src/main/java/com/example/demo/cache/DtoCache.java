@@ -0,0 +1,60 @@
+package com.example.demo.cache;
+
+import com.example.demo.dtos.BankAccountDTO;
+import com.example.demo.dtos.CacheStatsDTO;
+import com.example.demo.dtos.CustomerDTO;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+/**
+ * Read-through caches for account and customer DTOs. Invalidation happens right away
+ * and again once the surrounding transaction completes, so a read that raced with the
+ * write cannot leave the pre-commit value behind.
+ */
+@Component
+@Getter
+public class DtoCache {
+    private final BoundedCache<String, BankAccountDTO> accounts;
+    private final BoundedCache<Long, CustomerDTO> customers;
+
+    public DtoCache(@Value("${cache.accounts.max-size:10000}") int accountsMaxSize,
+                    @Value("${cache.customers.max-size:10000}") int customersMaxSize,
+                    @Value("${cache.ttl-millis:30000}") long ttlMillis) {
+        this.accounts = new BoundedCache<>("accounts", accountsMaxSize, ttlMillis);
+        this.customers = new BoundedCache<>("customers", customersMaxSize, ttlMillis);
+    }
+
+    public void invalidateAccount(String accountId) {
+        accounts.invalidate(accountId);
+        afterCompletion(() -> accounts.invalidate(accountId));
+    }
+
+    public void invalidateCustomer(Long customerId) {
+        customers.invalidate(customerId);
+        // account DTOs embed their customer
+        accounts.clear();
+        afterCompletion(() -> {
+            customers.invalidate(customerId);
+            accounts.clear();
+        });
+    }
+
+    public List<CacheStatsDTO> stats() {
+        return List.of(accounts.stats(), customers.stats());
+    }
+
+    private void afterCompletion(Runnable runnable) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                runnable.run();
+            }
+        });
+    }
+}
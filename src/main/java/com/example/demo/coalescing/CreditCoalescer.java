@@ -0,0 +1,146 @@
+package com.example.demo.coalescing;
+
+import com.example.demo.Exception.BankAccountNotFoundException;
+import com.example.demo.entities.AccountOperation;
+import com.example.demo.entities.BankAccount;
+import com.example.demo.entities.OperationType;
+import com.example.demo.journal.OperationJournal;
+import com.example.demo.metrics.MetricsRegistry;
+import com.example.demo.repositories.AccountOperationRepository;
+import com.example.demo.repositories.BankAccountRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Credit coalescing for designated hot accounts, typically merchants. Credits that arrive
+ * within {@code credit.coalescing.window-micros} of each other are applied with one
+ * balance update in one transaction, each still with its own operation row, and the
+ * callers return once that transaction has committed.
+ */
+@Component
+@Slf4j
+public class CreditCoalescer {
+    private final Map<String, HotAccount> hotAccounts = new ConcurrentHashMap<>();
+    private final BankAccountRepository bankAccountRepository;
+    private final AccountOperationRepository accountOperationRepository;
+    private final OperationJournal operationJournal;
+    private final TransactionTemplate requiresNew;
+    private final MetricsRegistry metricsRegistry;
+    private final long windowMicros;
+    private final int maxBatch;
+
+    public CreditCoalescer(BankAccountRepository bankAccountRepository,
+                           AccountOperationRepository accountOperationRepository,
+                           OperationJournal operationJournal,
+                           PlatformTransactionManager transactionManager,
+                           MetricsRegistry metricsRegistry,
+                           @Value("${credit.coalescing.accounts:}") List<String> accountIds,
+                           @Value("${credit.coalescing.window-micros:2000}") long windowMicros,
+                           @Value("${credit.coalescing.max-batch:500}") int maxBatch) {
+        this.bankAccountRepository = bankAccountRepository;
+        this.accountOperationRepository = accountOperationRepository;
+        this.operationJournal = operationJournal;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.metricsRegistry = metricsRegistry;
+        this.windowMicros = windowMicros;
+        this.maxBatch = Math.max(1, maxBatch);
+        for (String accountId : accountIds) {
+            if (!accountId.isBlank()) {
+                designate(accountId.trim());
+            }
+        }
+        if (!hotAccounts.isEmpty()) {
+            log.info("Coalescing credits for {} hot accounts", hotAccounts.size());
+        }
+    }
+
+    /** Starts coalescing credits for the account; designating an account twice has no effect. */
+    public void designate(String accountId) {
+        hotAccounts.computeIfAbsent(accountId, id -> {
+            String labels = MetricsRegistry.labels("account", id);
+            LongAdder credits = metricsRegistry.counter("ebank_coalesced_credits_total",
+                    "Credits applied through coalescing", labels);
+            LongAdder flushes = metricsRegistry.counter("ebank_coalesced_balance_updates_total",
+                    "Balance updates issued for coalesced credits", labels);
+            HotAccount hotAccount = new HotAccount(id, windowMicros, maxBatch, this, credits, flushes);
+            metricsRegistry.gauge("ebank_credit_coalescing_ratio", "Credits per balance update on a hot account", labels,
+                    hotAccount::coalescingRatio);
+            return hotAccount;
+        });
+    }
+
+    public boolean isHot(String accountId) {
+        return hotAccounts.containsKey(accountId);
+    }
+
+    public void credit(String accountId, long amount, String description) throws BankAccountNotFoundException {
+        PendingCredit credit = new PendingCredit(amount, description, new Date(), new CompletableFuture<>());
+        hotAccounts.get(accountId).submit(credit);
+        try {
+            credit.applied().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a coalesced credit", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof BankAccountNotFoundException notFound) throw notFound;
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    void apply(String accountId, List<PendingCredit> batch) throws BankAccountNotFoundException {
+        long total = 0;
+        for (PendingCredit credit : batch) {
+            total += credit.amount();
+        }
+        long amount = total;
+        boolean found = Boolean.TRUE.equals(requiresNew.execute(status -> {
+            if (bankAccountRepository.creditBalance(accountId, amount) == 0) {
+                return false;
+            }
+            BankAccount bankAccount = bankAccountRepository.getReferenceById(accountId);
+            List<AccountOperation> operations = new ArrayList<>(batch.size());
+            for (PendingCredit credit : batch) {
+                AccountOperation accountOperation = new AccountOperation();
+                accountOperation.setType(OperationType.CREDIT);
+                accountOperation.setAmount(credit.amount());
+                accountOperation.setDescription(credit.description());
+                accountOperation.setDate(credit.date());
+                accountOperation.setBankAccount(bankAccount);
+                operations.add(accountOperation);
+            }
+            if (operationJournal.isEnabled()) {
+                operations.forEach(operationJournal::record);
+            } else {
+                accountOperationRepository.saveAll(operations);
+            }
+            return true;
+        }));
+        if (!found) {
+            throw new BankAccountNotFoundException("BankAccount not found");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (HotAccount hotAccount : hotAccounts.values()) {
+            hotAccount.shutdown();
+        }
+    }
+}
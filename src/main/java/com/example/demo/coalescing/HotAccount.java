@@ -0,0 +1,93 @@
+package com.example.demo.coalescing;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the credits of one account on its own thread. The first credit opens a window;
+ * whatever arrives before it closes, or until the batch is full, is applied together.
+ */
+@Slf4j
+class HotAccount {
+    private final String accountId;
+    private final BlockingQueue<PendingCredit> queue = new LinkedBlockingQueue<>();
+    private final long windowNanos;
+    private final int maxBatch;
+    private final CreditCoalescer coalescer;
+    private final LongAdder credits;
+    private final LongAdder flushes;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    HotAccount(String accountId, long windowMicros, int maxBatch, CreditCoalescer coalescer,
+               LongAdder credits, LongAdder flushes) {
+        this.accountId = accountId;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.maxBatch = maxBatch;
+        this.coalescer = coalescer;
+        this.credits = credits;
+        this.flushes = flushes;
+        this.thread = new Thread(this::run, "credit-coalescer-" + accountId);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    void submit(PendingCredit credit) {
+        if (!running) throw new IllegalStateException("Credit coalescer is shut down");
+        queue.add(credit);
+    }
+
+    double coalescingRatio() {
+        long flushCount = flushes.sum();
+        return flushCount == 0 ? 0 : (double) credits.sum() / flushCount;
+    }
+
+    void shutdown() throws InterruptedException {
+        running = false;
+        thread.interrupt();
+        thread.join();
+        List<PendingCredit> remaining = new ArrayList<>();
+        while (queue.drainTo(remaining, maxBatch) > 0) {
+            flush(remaining);
+            remaining = new ArrayList<>();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            List<PendingCredit> batch = new ArrayList<>(maxBatch);
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatch) {
+                    PendingCredit credit = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (credit == null) break;
+                    batch.add(credit);
+                    queue.drainTo(batch, maxBatch - batch.size());
+                }
+            } catch (InterruptedException e) {
+                // shutdown() flushes whatever is still queued, including a batch taken but not applied
+                queue.addAll(batch);
+                return;
+            }
+            flush(batch);
+        }
+    }
+
+    private void flush(List<PendingCredit> batch) {
+        try {
+            coalescer.apply(accountId, batch);
+            credits.add(batch.size());
+            flushes.increment();
+            batch.forEach(credit -> credit.applied().complete(null));
+        } catch (Throwable e) {
+            batch.forEach(credit -> credit.applied().completeExceptionally(e));
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.demo.coalescing;
+
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+
+record PendingCredit(long amount, String description, Date date, CompletableFuture<Void> applied) {
+}
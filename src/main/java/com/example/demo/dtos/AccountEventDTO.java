@@ -0,0 +1,13 @@
+package com.example.demo.dtos;
+
+import com.example.demo.money.MoneyAmount;
+import lombok.Data;
+
+@Data
+public class AccountEventDTO {
+    private String accountId;
+    /** Balance right after this operation, {@code null} when the journal writes operations later. */
+    @MoneyAmount
+    private Long balance;
+    private OperationDTO operation;
+}
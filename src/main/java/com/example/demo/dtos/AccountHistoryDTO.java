@@ -1,6 +1,7 @@
 package com.example.demo.dtos;
 
 
+import com.example.demo.money.MoneyAmount;
 import lombok.Data;
 
 import java.util.List;
@@ -8,9 +9,11 @@ import java.util.List;
 @Data
 public class AccountHistoryDTO {
     private String accountId;
-    private double balance;
+    @MoneyAmount
+    private long balance;
     private int currentPage;
     private int totalPages;
     private int pageSize;
     private List<OperationDTO> accountOperationDTOS;
+    private String nextCursor;
 }
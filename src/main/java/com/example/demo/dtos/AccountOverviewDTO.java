@@ -0,0 +1,11 @@
+package com.example.demo.dtos;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class AccountOverviewDTO {
+    private BankAccountDTO account;
+    private List<OperationDTO> recentOperations;
+}
@@ -0,0 +1,14 @@
+package com.example.demo.dtos;
+
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class AccountPageDTO {
+    private int currentPage;
+    private int pageSize;
+    private boolean hasNext;
+    private List<BankAccountDTO> accounts;
+}
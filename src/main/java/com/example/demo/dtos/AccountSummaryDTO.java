@@ -0,0 +1,22 @@
+package com.example.demo.dtos;
+
+import com.example.demo.entities.RollupGranularity;
+import com.example.demo.money.MoneyAmount;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+public class AccountSummaryDTO {
+    private String accountId;
+    private RollupGranularity granularity;
+    private LocalDate from;
+    private LocalDate to;
+    @MoneyAmount
+    private long totalCredits;
+    @MoneyAmount
+    private long totalDebits;
+    private long operationCount;
+    private List<PeriodSummaryDTO> periods;
+}
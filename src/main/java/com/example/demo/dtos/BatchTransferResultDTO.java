@@ -0,0 +1,14 @@
+package com.example.demo.dtos;
+
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchTransferResultDTO {
+    private int total;
+    private int succeeded;
+    private int failed;
+    private List<TransferResultDTO> results;
+}
@@ -0,0 +1,13 @@
+package com.example.demo.dtos;
+
+
+import lombok.Data;
+
+@Data
+public class CacheStatsDTO {
+    private String name;
+    private int size;
+    private long hits;
+    private long misses;
+    private long evictions;
+}
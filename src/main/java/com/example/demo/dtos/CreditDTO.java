@@ -1,11 +1,13 @@
 package com.example.demo.dtos;
 
 
+import com.example.demo.money.MoneyAmount;
 import lombok.Data;
 
 @Data
 public class CreditDTO {
     private String accountId;
-    private double amount;
+    @MoneyAmount
+    private long amount;
     private String description;
 }
@@ -1,6 +1,7 @@
 package com.example.demo.dtos;
 
 import com.example.demo.entities.AccountStatus;
+import com.example.demo.money.MoneyAmount;
 import lombok.Data;
 
 import java.util.Date;
@@ -9,9 +10,11 @@ import java.util.Date;
 @Data
 public class CurrentAccountDTO extends BankAccountDTO {
     private String id;
-    private double balance;
+    @MoneyAmount
+    private long balance;
     private Date createdAt;
     private AccountStatus status;
     private CustomerDTO customerDTO;
-    private double overDraft;
+    @MoneyAmount
+    private long overDraft;
 }
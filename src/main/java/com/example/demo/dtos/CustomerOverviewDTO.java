@@ -0,0 +1,11 @@
+package com.example.demo.dtos;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class CustomerOverviewDTO {
+    private CustomerDTO customer;
+    private List<AccountOverviewDTO> accounts;
+}
@@ -1,10 +1,12 @@
 package com.example.demo.dtos;
 
+import com.example.demo.money.MoneyAmount;
 import lombok.Data;
 
 @Data
 public class DebitDTO {
     private String accountId;
-    private double amount;
+    @MoneyAmount
+    private long amount;
     private String description;
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.example.demo.dtos;
+
+import com.example.demo.money.MoneyAmount;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+public class InterestAccrualResultDTO {
+    private LocalDate runDate;
+    private long accounts;
+    @MoneyAmount
+    private long totalInterest;
+    private int chunks;
+    private int failedChunks;
+    private long elapsedMillis;
+}
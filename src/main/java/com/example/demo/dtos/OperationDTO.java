@@ -1,6 +1,7 @@
 package com.example.demo.dtos;
 
 import com.example.demo.entities.OperationType;
+import com.example.demo.money.MoneyAmount;
 import lombok.Data;
 
 import java.util.Date;
@@ -9,7 +10,8 @@ import java.util.Date;
 public class OperationDTO {
     private Long id;
     private Date date;
-    private double amount;
+    @MoneyAmount
+    private long amount;
     private OperationType type;
     private String description;
 }
@@ -0,0 +1,17 @@
+package com.example.demo.dtos;
+
+import com.example.demo.money.MoneyAmount;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+public class PeriodSummaryDTO {
+    private LocalDate periodStart;
+    @MoneyAmount
+    private long totalCredits;
+    @MoneyAmount
+    private long totalDebits;
+    private long creditCount;
+    private long debitCount;
+}
@@ -0,0 +1,17 @@
+package com.example.demo.dtos;
+
+import com.example.demo.entities.DiscrepancyKind;
+import com.example.demo.money.MoneyAmount;
+import lombok.Data;
+
+@Data
+public class ReconciliationDiscrepancyDTO {
+    private String accountId;
+    private DiscrepancyKind kind;
+    @MoneyAmount
+    private long balance;
+    @MoneyAmount
+    private long expected;
+    @MoneyAmount
+    private long difference;
+}
@@ -0,0 +1,21 @@
+package com.example.demo.dtos;
+
+import lombok.Data;
+
+import java.util.Date;
+import java.util.List;
+
+@Data
+public class ReconciliationReportDTO {
+    private Long runId;
+    private boolean full;
+    private Date startedAt;
+    private Date settledBefore;
+    private long accountsChecked;
+    private long baselinesAdopted;
+    private int discrepancies;
+    private int partitions;
+    private int failedPartitions;
+    private long elapsedMillis;
+    private List<ReconciliationDiscrepancyDTO> discrepancyList;
+}
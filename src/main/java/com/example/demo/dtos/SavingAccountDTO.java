@@ -1,6 +1,7 @@
 package com.example.demo.dtos;
 
 import com.example.demo.entities.AccountStatus;
+import com.example.demo.money.MoneyAmount;
 import lombok.Data;
 
 import java.util.Date;
@@ -8,7 +9,8 @@ import java.util.Date;
 @Data
 public class SavingAccountDTO extends BankAccountDTO {
     private String id;
-    private double balance;
+    @MoneyAmount
+    private long balance;
     private Date createdAt;
     private AccountStatus status;
     private CustomerDTO customerDTO;
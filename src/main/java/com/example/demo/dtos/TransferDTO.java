@@ -1,12 +1,14 @@
 package com.example.demo.dtos;
 
 
+import com.example.demo.money.MoneyAmount;
 import lombok.Data;
 
 @Data
 public class TransferDTO {
     private String accountSource;
     private String accountDestination;
-    private double amount;
+    @MoneyAmount
+    private long amount;
     private String description;
 }
@@ -0,0 +1,16 @@
+package com.example.demo.dtos;
+
+
+import com.example.demo.money.MoneyAmount;
+import lombok.Data;
+
+@Data
+public class TransferResultDTO {
+    private int index;
+    private String accountSource;
+    private String accountDestination;
+    @MoneyAmount
+    private long amount;
+    private boolean success;
+    private String error;
+}
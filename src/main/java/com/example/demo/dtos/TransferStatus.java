@@ -0,0 +1,5 @@
+package com.example.demo.dtos;
+
+public enum TransferStatus {
+    QUEUED, RUNNING, SUCCEEDED, FAILED
+}
@@ -0,0 +1,19 @@
+package com.example.demo.dtos;
+
+import com.example.demo.money.MoneyAmount;
+import lombok.Data;
+
+import java.util.Date;
+
+@Data
+public class TransferStatusDTO {
+    private String id;
+    private String accountSource;
+    private String accountDestination;
+    @MoneyAmount
+    private long amount;
+    private TransferStatus status;
+    private String error;
+    private Date submittedAt;
+    private Date completedAt;
+}
@@ -1,5 +1,7 @@
 package com.example.demo.entities;
 
+import com.example.demo.money.MoneyConverter;
+import com.example.demo.rollup.AccountOperationListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -10,12 +12,18 @@ import java.util.Date;
 
 
 @Entity
+@EntityListeners(AccountOperationListener.class)
+@Table(indexes = @Index(name = "idx_operation_account_date_id", columnList = "bank_account_id, date, id"))
 @NoArgsConstructor @AllArgsConstructor @Data
 public class AccountOperation {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "account_operation_seq")
+    @SequenceGenerator(name = "account_operation_seq", sequenceName = "account_operation_seq", allocationSize = 50)
     private Long id;
     private Date date;
-    private  double amount;
+    @Convert(converter = MoneyConverter.class)
+    @Column(precision = 19, scale = 2)
+    private long amount;
     @Enumerated(EnumType.STRING)
     private  OperationType type;
     @ManyToOne
@@ -0,0 +1,29 @@
+package com.example.demo.entities;
+
+import com.example.demo.money.MoneyConverter;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Credit and debit totals of one account over one day or month, kept up to date by
+ * every transaction that writes operations for it.
+ */
+@Entity
+@Data @NoArgsConstructor @AllArgsConstructor
+public class AccountRollup {
+    @EmbeddedId
+    private AccountRollupId id;
+    @Convert(converter = MoneyConverter.class)
+    @Column(precision = 19, scale = 2)
+    private long totalCredits;
+    @Convert(converter = MoneyConverter.class)
+    @Column(precision = 19, scale = 2)
+    private long totalDebits;
+    private long creditCount;
+    private long debitCount;
+}
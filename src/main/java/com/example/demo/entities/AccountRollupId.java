@@ -0,0 +1,22 @@
+package com.example.demo.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Embeddable
+@Data @NoArgsConstructor @AllArgsConstructor
+public class AccountRollupId implements Serializable {
+    private String accountId;
+    @Enumerated(EnumType.STRING)
+    @Column(length = 5)
+    private RollupGranularity granularity;
+    private LocalDate periodStart;
+}
@@ -0,0 +1,52 @@
+package com.example.demo.entities;
+
+import com.example.demo.dtos.TransferStatus;
+import com.example.demo.money.MoneyConverter;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.util.Date;
+
+/**
+ * A transfer accepted by {@code POST /api/transfers}. It is written before the submission
+ * is acknowledged, so a restart picks queued and running ones up again and their status
+ * stays readable after it has left memory.
+ */
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_async_transfer_status", columnList = "status"),
+        @Index(name = "idx_async_transfer_completed_at", columnList = "completedAt")
+})
+@Data @NoArgsConstructor @AllArgsConstructor
+public class AsyncTransfer implements Persistable<String> {
+    @Id
+    @Column(length = 36)
+    private String id;
+    private String accountSource;
+    private String accountDestination;
+    @Convert(converter = MoneyConverter.class)
+    @Column(precision = 19, scale = 2)
+    private long amount;
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private TransferStatus status;
+    private String error;
+    private Date submittedAt;
+    private Date completedAt;
+
+    /** Inserted once on submission; status changes go through the repository's update. */
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
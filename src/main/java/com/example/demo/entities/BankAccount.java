@@ -1,5 +1,6 @@
 package com.example.demo.entities;
 
+import com.example.demo.money.MoneyConverter;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -15,9 +16,13 @@ import java.util.List;
 public abstract class BankAccount {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private String id;
-    private double balance;
+    @Convert(converter = MoneyConverter.class)
+    @Column(precision = 19, scale = 2)
+    private long balance;
+    @Convert(converter = MoneyConverter.class)
+    @Column(precision = 19, scale = 2)
+    private Long openingBalance;
     private Date createdAt;
     private String currency;
     @Enumerated(EnumType.STRING)
@@ -26,6 +31,10 @@ public abstract class BankAccount {
     private List<AccountOperation> operations;
     @ManyToOne()
     private Customer customer;
+    // a default, so adding the column to a table with accounts does not leave it NULL
+    @Version
+    @Column(columnDefinition = "bigint default 0 not null")
+    private Long version;
 
 
 }
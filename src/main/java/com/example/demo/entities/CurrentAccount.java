@@ -1,5 +1,8 @@
 package com.example.demo.entities;
 
+import com.example.demo.money.MoneyConverter;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.DiscriminatorValue;
 import jakarta.persistence.Entity;
 import lombok.AllArgsConstructor;
@@ -12,5 +15,7 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @Data
 public class CurrentAccount extends BankAccount{
-    private double overDraft;
+    @Convert(converter = MoneyConverter.class)
+    @Column(precision = 19, scale = 2)
+    private long overDraft;
 }
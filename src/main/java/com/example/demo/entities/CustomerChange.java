@@ -0,0 +1,29 @@
+package com.example.demo.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * Outbox row written on the first shard in the same transaction as a customer insert,
+ * update or delete. It is removed once the copies on the other shards match the first
+ * shard's row, so a change that could not be pushed right after the commit is retried.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_customer_change_created_at", columnList = "createdAt"))
+@Data @NoArgsConstructor @AllArgsConstructor
+public class CustomerChange {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private Long customerId;
+    private Date createdAt;
+}
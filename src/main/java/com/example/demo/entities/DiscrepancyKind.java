@@ -0,0 +1,12 @@
+package com.example.demo.entities;
+
+/**
+ * Why an account is listed in a reconciliation report. Reports list mismatches first,
+ * which relies on the names sorting in this order.
+ */
+public enum DiscrepancyKind {
+    /** The balance differs from the opening balance plus the operations. */
+    MISMATCH,
+    /** No opening balance was recorded, so the current balance was adopted unverified. */
+    UNVERIFIED_BASELINE
+}
@@ -0,0 +1,5 @@
+package com.example.demo.entities;
+
+public enum IdempotencyOutcome {
+    SUCCEEDED, ACCOUNT_NOT_FOUND, BALANCE_NOT_SUFFICIENT, INVALID_REQUEST
+}
@@ -0,0 +1,46 @@
+package com.example.demo.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.util.Date;
+
+/**
+ * Outcome of a request made with an {@code Idempotency-Key}. A successful one is
+ * inserted in the same transaction as the money movement, so the primary key also stops
+ * two concurrent requests with the same key from both committing.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_idempotency_created_at", columnList = "createdAt"))
+@Data @NoArgsConstructor @AllArgsConstructor
+public class IdempotencyRecord implements Persistable<String> {
+    @Id
+    @Column(length = 255)
+    private String idempotencyKey;
+    private long fingerprint;
+    @Enumerated(EnumType.STRING)
+    @Column(length = 32)
+    private IdempotencyOutcome outcome;
+    private String error;
+    private Date createdAt;
+
+    @Override
+    public String getId() {
+        return idempotencyKey;
+    }
+
+    /** Always inserted, never merged: an existing key must fail on the primary key. */
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
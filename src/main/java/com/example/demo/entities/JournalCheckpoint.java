@@ -0,0 +1,19 @@
+package com.example.demo.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Highest journal sequence already written to the database, updated in the same
+ * transaction as the rows it covers.
+ */
+@Entity
+@Data @NoArgsConstructor @AllArgsConstructor
+public class JournalCheckpoint {
+    @Id
+    private String name;
+    private long drainedSeq;
+}
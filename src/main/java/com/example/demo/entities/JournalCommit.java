@@ -0,0 +1,20 @@
+package com.example.demo.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Marks the journal sequences {@code firstSeq..lastSeq} as written by a transaction that
+ * committed. It is inserted in that transaction, so it exists exactly when the balance
+ * changes the operations go with do, and is removed once the operations are drained.
+ */
+@Entity
+@Data @NoArgsConstructor @AllArgsConstructor
+public class JournalCommit {
+    @Id
+    private long firstSeq;
+    private long lastSeq;
+}
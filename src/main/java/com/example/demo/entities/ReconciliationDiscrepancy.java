@@ -0,0 +1,39 @@
+package com.example.demo.entities;
+
+import com.example.demo.money.MoneyConverter;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.ManyToOne;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * An account whose balance did not match its operations in a reconciliation run, or whose
+ * baseline the run had to adopt without being able to check it.
+ */
+@Entity
+@Data @NoArgsConstructor @AllArgsConstructor
+public class ReconciliationDiscrepancy {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @ManyToOne
+    private ReconciliationRun run;
+    private String accountId;
+    @Convert(converter = MoneyConverter.class)
+    @Column(precision = 19, scale = 2)
+    private long balance;
+    @Convert(converter = MoneyConverter.class)
+    @Column(precision = 19, scale = 2)
+    private long expected;
+    @Enumerated(EnumType.STRING)
+    @Column(length = 24)
+    private DiscrepancyKind kind;
+}
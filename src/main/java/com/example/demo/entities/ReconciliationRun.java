@@ -0,0 +1,28 @@
+package com.example.demo.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+@Entity
+@Data @NoArgsConstructor @AllArgsConstructor
+public class ReconciliationRun {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private boolean fullRun;
+    private Date startedAt;
+    private Date settledBefore;
+    private long accountsChecked;
+    private long baselinesAdopted;
+    private int discrepancies;
+    private int partitions;
+    private int failedPartitions;
+    private long elapsedMillis;
+}
@@ -0,0 +1,33 @@
+package com.example.demo.entities;
+
+import com.example.demo.money.MoneyConverter;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * Reconciliation checkpoint of one account: its opening balance plus the signed sum of
+ * its operations dated before {@code settledBefore}. A later run only adds up the
+ * operations from that date on.
+ */
+@Entity
+@Data @NoArgsConstructor @AllArgsConstructor
+public class ReconciliationState {
+    @Id
+    private String accountId;
+    @Convert(converter = MoneyConverter.class)
+    @Column(precision = 19, scale = 2)
+    private long openingBalance;
+    @Convert(converter = MoneyConverter.class)
+    @Column(precision = 19, scale = 2)
+    private long settledBalance;
+    private Date settledBefore;
+    private boolean mismatched;
+    private Date checkedAt;
+}
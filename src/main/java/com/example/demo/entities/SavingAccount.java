@@ -7,11 +7,15 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDate;
+
 @Entity
 @DiscriminatorValue("CC")
 @NoArgsConstructor
 @AllArgsConstructor @Data
 public class SavingAccount extends BankAccount{
     private double interestRate ;
+    /** Last day interest was credited for; the accrual batch skips accounts already at its run date. */
+    private LocalDate lastAccruedOn;
 
 }
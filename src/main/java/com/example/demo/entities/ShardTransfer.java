@@ -0,0 +1,47 @@
+package com.example.demo.entities;
+
+import com.example.demo.money.MoneyConverter;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.util.Date;
+
+/**
+ * A transfer between accounts on different shards. On the source shard it is the outbox
+ * row written with the debit, PENDING until the credit landed (SETTLED) or was given up
+ * and the debit reversed (COMPENSATED). On the destination shard the same id is written
+ * as DELIVERED with the credit, so the primary key stops a credit from being applied twice.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_shard_transfer_status_created_at", columnList = "status, createdAt"))
+@Data @NoArgsConstructor @AllArgsConstructor
+public class ShardTransfer implements Persistable<String> {
+    @Id
+    @Column(length = 36)
+    private String id;
+    private String sourceAccountId;
+    private String destinationAccountId;
+    @Convert(converter = MoneyConverter.class)
+    @Column(precision = 19, scale = 2)
+    private long amount;
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private ShardTransferStatus status;
+    private Date createdAt;
+
+    /** Always inserted, never merged: a second delivery must fail on the primary key. */
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
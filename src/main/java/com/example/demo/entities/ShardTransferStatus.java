@@ -0,0 +1,5 @@
+package com.example.demo.entities;
+
+public enum ShardTransferStatus {
+    PENDING, DELIVERED, SETTLED, COMPENSATED
+}
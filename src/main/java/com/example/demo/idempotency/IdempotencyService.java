@@ -0,0 +1,188 @@
+package com.example.demo.idempotency;
+
+import com.example.demo.Exception.BalanceNotSufficientException;
+import com.example.demo.Exception.BankAccountNotFoundException;
+import com.example.demo.Exception.IdempotencyKeyConflictException;
+import com.example.demo.Exception.IdempotencyKeyMismatchException;
+import com.example.demo.entities.IdempotencyOutcome;
+import com.example.demo.entities.IdempotencyRecord;
+import com.example.demo.metrics.MetricsRegistry;
+import com.example.demo.repositories.IdempotencyRecordRepository;
+import com.example.demo.sharding.Shards;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs debit, credit and transfer requests at most once per {@code Idempotency-Key}.
+ * A retry with the same key and payload gets the first outcome back, from memory or,
+ * once the key has left the {@link IdempotencyStore}, from the {@link IdempotencyRecord}
+ * table, without touching the accounts. A retry that arrives while the first attempt is
+ * still running is refused with a conflict.
+ * <p>
+ * The success record commits together with the money movement. Paths that commit on
+ * their own (the ledger engine, coalesced credits, optimistic retries) can still apply a
+ * retry twice if the process dies between their commit and the record's.
+ */
+@Component
+@Slf4j
+public class IdempotencyService {
+    public static final String HEADER = "Idempotency-Key";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore store;
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final Shards shards;
+    private final TransactionTemplate transactionTemplate;
+    private final long retentionMillis;
+    private final LongAdder memoryReplays;
+    private final LongAdder databaseReplays;
+    private final LongAdder conflicts;
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              Shards shards,
+                              PlatformTransactionManager transactionManager,
+                              MetricsRegistry metricsRegistry,
+                              @Value("${idempotency.cache.max-entries:100000}") int maxEntries,
+                              @Value("${idempotency.cache.ttl-millis:600000}") long ttlMillis,
+                              @Value("${idempotency.retention-hours:24}") long retentionHours) {
+        this.store = new IdempotencyStore(maxEntries, ttlMillis);
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.shards = shards;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retentionMillis = TimeUnit.HOURS.toMillis(retentionHours);
+        String help = "Keyed requests answered with a recorded outcome";
+        this.memoryReplays = metricsRegistry.counter("ebank_idempotent_replays_total", help,
+                MetricsRegistry.labels("source", "memory"));
+        this.databaseReplays = metricsRegistry.counter("ebank_idempotent_replays_total", help,
+                MetricsRegistry.labels("source", "database"));
+        this.conflicts = metricsRegistry.counter("ebank_idempotent_conflicts_total",
+                "Keyed requests refused because the same key was still in flight", "");
+        metricsRegistry.gauge("ebank_idempotency_keys", "Idempotency keys held in memory", "", store::size);
+    }
+
+    /** FNV-1a hash of the request fields, to tell a genuine retry from a reused key. */
+    public static long fingerprint(Object... parts) {
+        long hash = 0xcbf29ce484222325L;
+        for (Object part : parts) {
+            String value = String.valueOf(part);
+            for (int i = 0; i < value.length(); i++) {
+                hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+            }
+            hash = (hash ^ 0x1f) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Runs the operation, or replays the outcome recorded for the key. Without a key the
+     * operation simply runs.
+     *
+     * @throws IdempotencyKeyConflictException when the key is held by a request still running
+     * @throws IdempotencyKeyMismatchException when the key was used for a different request
+     */
+    public void execute(String key, long fingerprint, IdempotentOperation operation)
+            throws BankAccountNotFoundException, BalanceNotSufficientException {
+        if (key == null) {
+            operation.run();
+            return;
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        Object existing = store.claim(key);
+        if (existing == IdempotencyStore.IN_FLIGHT) {
+            conflicts.increment();
+            throw new IdempotencyKeyConflictException("A request with this " + HEADER + " is in progress");
+        }
+        if (existing != null) {
+            memoryReplays.increment();
+            replay((StoredOutcome) existing, fingerprint);
+            return;
+        }
+        boolean completed = false;
+        try {
+            // a record is written on the shard its request ran on
+            StoredOutcome outcome = shards.fanOut(() -> idempotencyRecordRepository.findById(key)).stream()
+                    .flatMap(Optional::stream)
+                    .findFirst()
+                    .map(record -> new StoredOutcome(record.getFingerprint(), record.getOutcome(), record.getError()))
+                    .orElse(null);
+            if (outcome != null) {
+                databaseReplays.increment();
+            } else {
+                outcome = run(key, fingerprint, operation);
+            }
+            store.complete(key, outcome);
+            completed = true;
+            replay(outcome, fingerprint);
+        } finally {
+            if (!completed) store.release(key);
+        }
+    }
+
+    private StoredOutcome run(String key, long fingerprint, IdempotentOperation operation) {
+        Throwable failure;
+        try {
+            failure = transactionTemplate.execute(status -> {
+                try {
+                    operation.run();
+                } catch (BankAccountNotFoundException | BalanceNotSufficientException | IllegalArgumentException e) {
+                    status.setRollbackOnly();
+                    return e;
+                }
+                idempotencyRecordRepository.saveAndFlush(
+                        new IdempotencyRecord(key, fingerprint, IdempotencyOutcome.SUCCEEDED, null, new Date()));
+                return null;
+            });
+        } catch (DataIntegrityViolationException e) {
+            // another instance committed this key first, and our movement rolled back
+            conflicts.increment();
+            throw new IdempotencyKeyConflictException("A request with this " + HEADER + " was already processed");
+        }
+        if (failure == null) {
+            return new StoredOutcome(fingerprint, IdempotencyOutcome.SUCCEEDED, null);
+        }
+        IdempotencyOutcome outcome = failure instanceof BankAccountNotFoundException ? IdempotencyOutcome.ACCOUNT_NOT_FOUND
+                : failure instanceof BalanceNotSufficientException ? IdempotencyOutcome.BALANCE_NOT_SUFFICIENT
+                : IdempotencyOutcome.INVALID_REQUEST;
+        try {
+            idempotencyRecordRepository.save(new IdempotencyRecord(key, fingerprint, outcome, failure.getMessage(), new Date()));
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Outcome of idempotency key {} already recorded", key);
+        }
+        return new StoredOutcome(fingerprint, outcome, failure.getMessage());
+    }
+
+    private void replay(StoredOutcome stored, long fingerprint) throws BankAccountNotFoundException, BalanceNotSufficientException {
+        if (stored.fingerprint() != fingerprint) {
+            throw new IdempotencyKeyMismatchException(HEADER + " was already used for a different request");
+        }
+        switch (stored.outcome()) {
+            case SUCCEEDED -> {
+            }
+            case ACCOUNT_NOT_FOUND -> throw new BankAccountNotFoundException(stored.error());
+            case BALANCE_NOT_SUFFICIENT -> throw new BalanceNotSufficientException(stored.error());
+            case INVALID_REQUEST -> throw new IllegalArgumentException(stored.error());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-millis:3600000}")
+    public void purgeExpired() {
+        Date before = new Date(System.currentTimeMillis() - retentionMillis);
+        LongAdder purged = new LongAdder();
+        shards.forEachShard(() -> purged.add(idempotencyRecordRepository.deleteCreatedBefore(before)));
+        if (purged.sum() > 0) {
+            log.info("Purged {} expired idempotency records", purged);
+        }
+    }
+}
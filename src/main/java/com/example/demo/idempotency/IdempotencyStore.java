@@ -0,0 +1,101 @@
+package com.example.demo.idempotency;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory idempotency keys, bounded by time and size without locks. Keys live in a
+ * short ring of generations, each a {@link ConcurrentHashMap}, and the ring rotates
+ * once the newest generation is a slice of the TTL old or holds its share of the
+ * maximum size: the oldest generation is then dropped whole, so expiry costs nothing
+ * per entry. A key is kept for at least the TTL unless sustained traffic forces an
+ * earlier rotation, in which case lookups fall back to the database.
+ */
+final class IdempotencyStore {
+    /** Marks a key whose request is still running. */
+    static final Object IN_FLIGHT = new Object();
+
+    private static final int GENERATIONS = 4;
+
+    private final AtomicReference<Generation[]> ring;
+    private final long sliceNanos;
+    private final long maxPerGeneration;
+
+    IdempotencyStore(int maxEntries, long ttlMillis) {
+        this.sliceNanos = ttlMillis * 1_000_000L / (GENERATIONS - 1);
+        this.maxPerGeneration = Math.max(1, maxEntries / GENERATIONS);
+        Generation[] generations = new Generation[GENERATIONS];
+        for (int i = 0; i < GENERATIONS; i++) {
+            generations[i] = new Generation(System.nanoTime());
+        }
+        this.ring = new AtomicReference<>(generations);
+    }
+
+    /** The recorded {@link StoredOutcome}, {@link #IN_FLIGHT}, or null when the key is unknown. */
+    Object get(String key) {
+        for (Generation generation : current()) {
+            Object value = generation.entries.get(key);
+            if (value != null) return value;
+        }
+        return null;
+    }
+
+    /** Claims the key for a new request; returns what is already there when it is taken, or null. */
+    Object claim(String key) {
+        Generation[] generations = current();
+        for (int i = 1; i < generations.length; i++) {
+            Object value = generations[i].entries.get(key);
+            if (value != null) return value;
+        }
+        return generations[0].entries.putIfAbsent(key, IN_FLIGHT);
+    }
+
+    void complete(String key, StoredOutcome outcome) {
+        Generation[] generations = current();
+        generations[0].entries.put(key, outcome);
+        for (int i = 1; i < generations.length; i++) {
+            generations[i].entries.remove(key, IN_FLIGHT);
+        }
+    }
+
+    void release(String key) {
+        for (Generation generation : current()) {
+            generation.entries.remove(key, IN_FLIGHT);
+        }
+    }
+
+    long size() {
+        long size = 0;
+        for (Generation generation : ring.get()) {
+            size += generation.entries.mappingCount();
+        }
+        return size;
+    }
+
+    private Generation[] current() {
+        while (true) {
+            Generation[] generations = ring.get();
+            long now = System.nanoTime();
+            Generation newest = generations[0];
+            if (now - newest.createdAt < sliceNanos && newest.entries.mappingCount() < maxPerGeneration) {
+                return generations;
+            }
+            // after an idle spell shift by every slice that went by, not just one
+            int shift = (int) Math.max(1, Math.min(GENERATIONS, (now - newest.createdAt) / sliceNanos));
+            Generation[] rotated = new Generation[GENERATIONS];
+            for (int i = 0; i < shift; i++) {
+                rotated[i] = new Generation(now);
+            }
+            System.arraycopy(generations, 0, rotated, shift, GENERATIONS - shift);
+            if (ring.compareAndSet(generations, rotated)) {
+                return rotated;
+            }
+        }
+    }
+
+    private record Generation(long createdAt, ConcurrentHashMap<String, Object> entries) {
+        Generation(long createdAt) {
+            this(createdAt, new ConcurrentHashMap<>());
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.demo.idempotency;
+
+import com.example.demo.Exception.BalanceNotSufficientException;
+import com.example.demo.Exception.BankAccountNotFoundException;
+
+@FunctionalInterface
+public interface IdempotentOperation {
+    void run() throws BankAccountNotFoundException, BalanceNotSufficientException;
+}
@@ -0,0 +1,7 @@
+package com.example.demo.idempotency;
+
+import com.example.demo.entities.IdempotencyOutcome;
+
+/** What a keyed request did, kept so a retry can be answered the same way. */
+record StoredOutcome(long fingerprint, IdempotencyOutcome outcome, String error) {
+}
@@ -0,0 +1,274 @@
+package com.example.demo.interest;
+
+import com.example.demo.cache.DtoCache;
+import com.example.demo.dtos.InterestAccrualResultDTO;
+import com.example.demo.entities.AccountOperation;
+import com.example.demo.entities.BankAccount;
+import com.example.demo.entities.OperationType;
+import com.example.demo.entities.SavingAccount;
+import com.example.demo.journal.OperationJournal;
+import com.example.demo.ledger.LedgerEngine;
+import com.example.demo.metrics.MetricsRegistry;
+import com.example.demo.repositories.AccountOperationRepository;
+import com.example.demo.repositories.BankAccountRepository;
+import com.example.demo.sharding.Shards;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Daily interest accrual for saving accounts. The coordinator pages through the accounts
+ * not yet accrued for the run date in id order and hands each chunk to a worker pool;
+ * a worker credits a whole chunk in one transaction, with batched balance updates and
+ * operation inserts. Each account's {@code lastAccruedOn} is set in that same
+ * transaction and is the checkpoint: a run that is interrupted, or a chunk that failed,
+ * is completed by running again for the same date without crediting anyone twice.
+ * Days missed since the last accrual are credited together, and so are days whose
+ * interest still rounds to less than a cent: the checkpoint only moves once something is
+ * credited, so small balances earn a cent every few days. With sharding, each shard's
+ * accounts are paged through in turn.
+ */
+@Component
+@Slf4j
+public class InterestAccrualService {
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final BankAccountRepository bankAccountRepository;
+    private final AccountOperationRepository accountOperationRepository;
+    private final OperationJournal operationJournal;
+    private final LedgerEngine ledgerEngine;
+    private final DtoCache dtoCache;
+    private final Shards shards;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final LongAdder accruedAccounts;
+    private final LongAdder failedChunks;
+    private final int chunkSize;
+    private final int parallelism;
+    private final int daysPerYear;
+    private final ZoneId zone;
+
+    public InterestAccrualService(BankAccountRepository bankAccountRepository,
+                                  AccountOperationRepository accountOperationRepository,
+                                  OperationJournal operationJournal,
+                                  LedgerEngine ledgerEngine,
+                                  DtoCache dtoCache,
+                                  Shards shards,
+                                  PlatformTransactionManager transactionManager,
+                                  MetricsRegistry metricsRegistry,
+                                  @Value("${interest.accrual.chunk-size:1000}") int chunkSize,
+                                  @Value("${interest.accrual.parallelism:0}") int parallelism,
+                                  @Value("${interest.accrual.days-per-year:365}") int daysPerYear,
+                                  @Value("${interest.accrual.time-zone:}") String timeZone) {
+        this.bankAccountRepository = bankAccountRepository;
+        this.accountOperationRepository = accountOperationRepository;
+        this.operationJournal = operationJournal;
+        this.ledgerEngine = ledgerEngine;
+        this.dtoCache = dtoCache;
+        this.shards = shards;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.daysPerYear = daysPerYear;
+        this.zone = timeZone.isBlank() ? ZoneId.systemDefault() : ZoneId.of(timeZone);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "interest-accrual-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.accruedAccounts = metricsRegistry.counter("ebank_interest_accrued_accounts_total",
+                "Saving accounts credited with interest", "");
+        this.failedChunks = metricsRegistry.counter("ebank_interest_failed_chunks_total",
+                "Accrual chunks that gave up after retrying, left for the next run", "");
+    }
+
+    @Scheduled(cron = "${interest.accrual.cron:-}")
+    public void scheduledAccrual() {
+        try {
+            accrue(today());
+        } catch (IllegalStateException e) {
+            log.warn("Scheduled interest accrual skipped: {}", e.getMessage());
+        }
+    }
+
+    public LocalDate today() {
+        return LocalDate.now(zone);
+    }
+
+    /**
+     * Credits interest up to {@code runDate} to every saving account not already accrued
+     * for it.
+     *
+     * @throws IllegalStateException when another run is in progress or the ledger engine owns balances
+     */
+    public InterestAccrualResultDTO accrue(LocalDate runDate) {
+        if (ledgerEngine.isEnabled()) {
+            throw new IllegalStateException("Interest accrual is not supported while the ledger engine is enabled");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("An interest accrual run is already in progress");
+        }
+        try {
+            return run(runDate);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private InterestAccrualResultDTO run(LocalDate runDate) {
+        long start = System.nanoTime();
+        int maxInFlight = parallelism * 2;
+        Semaphore slots = new Semaphore(maxInFlight);
+        Totals totals = new Totals();
+        try {
+            for (int shard = 0; shard < shards.count(); shard++) {
+                int target = shard;
+                String after = "";
+                while (true) {
+                    String from = after;
+                    List<String> ids = shards.onShard(target,
+                            () -> bankAccountRepository.findSavingAccountsToAccrue(from, runDate, Limit.of(chunkSize)));
+                    if (ids.isEmpty()) break;
+                    after = ids.getLast();
+                    slots.acquire();
+                    totals.chunks++;
+                    executor.execute(() -> {
+                        try {
+                            totals.add(shards.onShard(target, () -> accrueChunk(ids, runDate)));
+                        } catch (RuntimeException e) {
+                            log.error("Interest accrual failed for the chunk starting at account {}", ids.getFirst(), e);
+                            failedChunks.increment();
+                            totals.failed();
+                        } finally {
+                            slots.release();
+                        }
+                    });
+                }
+            }
+            slots.acquire(maxInFlight);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during interest accrual, run it again to finish", e);
+        }
+        InterestAccrualResultDTO resultDTO = totals.result(runDate);
+        resultDTO.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+        log.info("Interest accrual for {}: {} accounts credited {} in {} chunks ({} failed), {} ms",
+                runDate, resultDTO.getAccounts(), resultDTO.getTotalInterest(), resultDTO.getChunks(),
+                resultDTO.getFailedChunks(), resultDTO.getElapsedMillis());
+        return resultDTO;
+    }
+
+    private ChunkResult accrueChunk(List<String> ids, LocalDate runDate) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> applyChunk(ids, runDate));
+            } catch (OptimisticLockingFailureException e) {
+                // an account changed under us, the whole chunk rolled back so it is simply redone
+                if (attempt == MAX_ATTEMPTS) throw e;
+            }
+        }
+    }
+
+    private ChunkResult applyChunk(List<String> ids, LocalDate runDate) {
+        List<AccountOperation> accountOperations = new ArrayList<>();
+        long total = 0;
+        Date date = new Date();
+        for (BankAccount bankAccount : bankAccountRepository.findAllById(ids)) {
+            if (!(bankAccount instanceof SavingAccount savingAccount)) continue;
+            LocalDate lastAccruedOn = savingAccount.getLastAccruedOn();
+            if (lastAccruedOn != null && !lastAccruedOn.isBefore(runDate)) continue;
+            if (savingAccount.getBalance() <= 0 || savingAccount.getInterestRate() <= 0) {
+                // nothing is earned, so there is nothing to carry over either
+                savingAccount.setLastAccruedOn(runDate);
+                continue;
+            }
+            if (lastAccruedOn == null) lastAccruedOn = runDate.minusDays(1);
+            long days = ChronoUnit.DAYS.between(lastAccruedOn, runDate);
+            long interest = BigDecimal.valueOf(savingAccount.getBalance())
+                    .multiply(BigDecimal.valueOf(savingAccount.getInterestRate()))
+                    .multiply(BigDecimal.valueOf(days))
+                    .divide(BigDecimal.valueOf(100L * daysPerYear), 0, RoundingMode.HALF_EVEN)
+                    .longValueExact();
+            if (interest <= 0) {
+                // under half a cent so far: keep the days and let them add up to at least a cent
+                savingAccount.setLastAccruedOn(lastAccruedOn);
+                continue;
+            }
+            savingAccount.setLastAccruedOn(runDate);
+            savingAccount.setBalance(savingAccount.getBalance() + interest);
+            AccountOperation accountOperation = new AccountOperation();
+            accountOperation.setType(OperationType.CREDIT);
+            accountOperation.setAmount(interest);
+            accountOperation.setDescription("Interest up to " + runDate);
+            accountOperation.setDate(date);
+            accountOperation.setBankAccount(savingAccount);
+            accountOperations.add(accountOperation);
+            total += interest;
+            dtoCache.invalidateAccount(savingAccount.getId());
+        }
+        if (operationJournal.isEnabled()) {
+            accountOperations.forEach(operationJournal::record);
+        } else {
+            accountOperationRepository.saveAll(accountOperations);
+        }
+        return new ChunkResult(accountOperations.size(), total);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private record ChunkResult(int accounts, long interest) {
+    }
+
+    private final class Totals {
+        private long accounts;
+        private long interest;
+        private int chunks;
+        private int failedChunks;
+
+        synchronized void add(ChunkResult chunkResult) {
+            accounts += chunkResult.accounts();
+            interest += chunkResult.interest();
+            accruedAccounts.add(chunkResult.accounts());
+        }
+
+        synchronized void failed() {
+            failedChunks++;
+        }
+
+        synchronized InterestAccrualResultDTO result(LocalDate runDate) {
+            InterestAccrualResultDTO resultDTO = new InterestAccrualResultDTO();
+            resultDTO.setRunDate(runDate);
+            resultDTO.setAccounts(accounts);
+            resultDTO.setTotalInterest(interest);
+            resultDTO.setChunks(chunks);
+            resultDTO.setFailedChunks(failedChunks);
+            return resultDTO;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.demo.journal;
+
+import com.example.demo.entities.AccountOperation;
+import com.example.demo.entities.JournalCheckpoint;
+import com.example.demo.repositories.AccountOperationRepository;
+import com.example.demo.repositories.BankAccountRepository;
+import com.example.demo.repositories.JournalCheckpointRepository;
+import com.example.demo.repositories.JournalCommitRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Writes journaled operations to the database in batches, together with the checkpoint
+ * that stops them from being replayed again; the commit markers it covers go with it.
+ */
+@Slf4j
+class JournalDrainer {
+    private final OperationJournal journal;
+    private final AccountOperationRepository accountOperationRepository;
+    private final BankAccountRepository bankAccountRepository;
+    private final JournalCheckpointRepository journalCheckpointRepository;
+    private final JournalCommitRepository journalCommitRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long intervalMillis;
+    private volatile boolean running;
+    private Thread thread;
+
+    JournalDrainer(OperationJournal journal,
+                   AccountOperationRepository accountOperationRepository,
+                   BankAccountRepository bankAccountRepository,
+                   JournalCheckpointRepository journalCheckpointRepository,
+                   JournalCommitRepository journalCommitRepository,
+                   TransactionTemplate transactionTemplate,
+                   int batchSize,
+                   long intervalMillis) {
+        this.journal = journal;
+        this.accountOperationRepository = accountOperationRepository;
+        this.bankAccountRepository = bankAccountRepository;
+        this.journalCheckpointRepository = journalCheckpointRepository;
+        this.journalCommitRepository = journalCommitRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.intervalMillis = intervalMillis;
+    }
+
+    synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this::run, "journal-drainer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    synchronized void stop() throws InterruptedException {
+        if (!running) return;
+        running = false;
+        thread.interrupt();
+        thread.join();
+        try {
+            while (drainOnce() > 0) {
+                // the journal is closed and fully forced, so every decided record can go
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not drain the operation journal on shutdown, it will be replayed on the next start", e);
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                if (drainOnce() < batchSize) {
+                    Thread.sleep(intervalMillis);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.error("Failed to drain the operation journal, retrying", e);
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /** Writes one batch of drainable records and returns how many records it consumed. */
+    private int drainOnce() {
+        journal.resolveInDoubt();
+        Queue<JournalRecord> undrained = journal.undrained();
+        long limit = journal.drainableSeq();
+        List<JournalRecord> batch = new ArrayList<>(batchSize);
+        for (JournalRecord record : undrained) {
+            if (record.seq() > limit || batch.size() == batchSize) break;
+            batch.add(record);
+        }
+        if (batch.isEmpty()) return 0;
+
+        long drainedSeq = batch.getLast().seq();
+        transactionTemplate.executeWithoutResult(status -> {
+            List<AccountOperation> operations = new ArrayList<>(batch.size());
+            for (JournalRecord record : batch) {
+                if (journal.isAborted(record.seq())) continue;
+                AccountOperation accountOperation = new AccountOperation();
+                accountOperation.setType(record.type());
+                accountOperation.setAmount(record.amount());
+                accountOperation.setDescription(record.description());
+                accountOperation.setDate(new Date(record.date()));
+                accountOperation.setBankAccount(bankAccountRepository.getReferenceById(record.accountId()));
+                operations.add(accountOperation);
+            }
+            accountOperationRepository.saveAll(operations);
+            journalCheckpointRepository.save(new JournalCheckpoint(OperationJournal.CHECKPOINT, drainedSeq));
+            journalCommitRepository.deleteUpTo(drainedSeq);
+        });
+        for (int i = 0; i < batch.size(); i++) {
+            undrained.poll();
+        }
+        journal.drained(batch);
+        log.debug("Drained {} journaled operations up to {}", batch.size(), drainedSeq);
+        return batch.size();
+    }
+}
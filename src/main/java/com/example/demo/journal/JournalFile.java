@@ -0,0 +1,233 @@
+package com.example.demo.journal;
+
+import com.example.demo.entities.OperationType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Fixed-size memory-mapped segments named after the first sequence they hold. Each record
+ * is {@code [int length][int crc32c][body]}; a zero length marks the end of the written
+ * part of a segment, a bad checksum marks a write torn by a crash. Not thread-safe, the
+ * journal serializes appends and only forces a buffer snapshot outside its lock.
+ */
+@Slf4j
+final class JournalFile {
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".log";
+    private static final int HEADER = 8;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+    private MappedByteBuffer buffer;
+    private int forcedPosition;
+
+    JournalFile(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Reads every valid record back in file order and maps the last segment for appends,
+     * positioned after its last valid record.
+     */
+    List<JournalRecord> open(long nextSeq) throws IOException {
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> path.getFileName().toString().startsWith(PREFIX)
+                            && path.getFileName().toString().endsWith(SUFFIX))
+                    .forEach(path -> segments.put(baseSeq(path), path));
+        }
+        List<JournalRecord> records = new ArrayList<>();
+        for (Map.Entry<Long, Path> segment : segments.entrySet()) {
+            boolean last = segment.getKey().equals(segments.lastKey());
+            MappedByteBuffer mapped = map(segment.getValue(), last);
+            int end = scan(mapped, records);
+            if (last) {
+                if (end < mapped.limit() && mapped.getInt(end) != 0) {
+                    log.warn("Discarding torn journal tail in {} at offset {}", segment.getValue(), end);
+                    for (int i = end; i < mapped.limit(); i++) mapped.put(i, (byte) 0);
+                    mapped.force();
+                }
+                buffer = mapped.position(end);
+                forcedPosition = end;
+            } else if (end < mapped.limit() && mapped.getInt(end) != 0) {
+                log.warn("Corrupt record in sealed journal segment {} at offset {}", segment.getValue(), end);
+            }
+        }
+        if (buffer == null) {
+            roll(nextSeq);
+        }
+        return records;
+    }
+
+    boolean fits(JournalRecord record) {
+        return buffer.remaining() >= HEADER + bodySize(record);
+    }
+
+    /** Seals the current segment durably and starts a new one for the operations from {@code baseSeq} on. */
+    void roll(long baseSeq) throws IOException {
+        if (buffer != null) {
+            buffer.force();
+            // a segment holding only aborts leaves the next sequence unchanged
+            baseSeq = Math.max(baseSeq, segments.lastKey() + 1);
+        }
+        Path path = directory.resolve(String.format("%s%020d%s", PREFIX, baseSeq, SUFFIX));
+        segments.put(baseSeq, path);
+        buffer = map(path, true);
+        forcedPosition = 0;
+    }
+
+    void append(JournalRecord record) {
+        int size = bodySize(record);
+        if (HEADER + size > segmentSize) {
+            throw new IllegalArgumentException("Journal record of " + size + " bytes exceeds the segment size");
+        }
+        int start = buffer.position();
+        buffer.position(start + HEADER);
+        buffer.putLong(record.seq());
+        buffer.put((byte) record.kind().ordinal());
+        if (record.kind() == JournalRecord.Kind.OPERATION) {
+            buffer.putLong(record.date());
+            buffer.put((byte) record.type().ordinal());
+            buffer.putLong(record.amount());
+            putString(buffer, record.accountId());
+            putString(buffer, record.description());
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(start + HEADER, size));
+        buffer.putInt(start + 4, (int) crc.getValue());
+        // the length goes in last so a reader never sees a length without its body
+        buffer.putInt(start, size);
+    }
+
+    /** The part of the active segment written since the last force, to be forced outside the lock. */
+    ForceRange pendingForce() {
+        ForceRange range = new ForceRange(buffer, forcedPosition, buffer.position() - forcedPosition);
+        forcedPosition = buffer.position();
+        return range;
+    }
+
+    /** Puts a range whose force failed back in front of the next {@link #pendingForce()}. */
+    void forceFailed(ForceRange range) {
+        // after a roll the range's segment was forced as it was sealed
+        if (range.buffer() == buffer) {
+            forcedPosition = Math.min(forcedPosition, range.offset());
+        }
+    }
+
+    /** Deletes sealed segments that hold nothing after {@code drainedSeq}. */
+    void deleteSegmentsUpTo(long drainedSeq) {
+        while (segments.size() > 1) {
+            Map.Entry<Long, Path> first = segments.firstEntry();
+            Long nextBase = segments.higherKey(first.getKey());
+            if (nextBase - 1 > drainedSeq) return;
+            try {
+                Files.deleteIfExists(first.getValue());
+            } catch (IOException e) {
+                log.warn("Could not delete drained journal segment {}", first.getValue(), e);
+                return;
+            }
+            segments.pollFirstEntry();
+        }
+    }
+
+    private MappedByteBuffer map(Path path, boolean writable) throws IOException {
+        if (writable) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentSize, channel.size()));
+            }
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static int scan(ByteBuffer segment, List<JournalRecord> records) {
+        int position = 0;
+        CRC32C crc = new CRC32C();
+        while (position + HEADER <= segment.limit()) {
+            int length = segment.getInt(position);
+            if (length <= 0 || position + HEADER + length > segment.limit()) return position;
+            ByteBuffer body = segment.slice(position + HEADER, length);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != segment.getInt(position + 4)) return position;
+            records.add(read(body));
+            position += HEADER + length;
+        }
+        return position;
+    }
+
+    private static JournalRecord read(ByteBuffer body) {
+        long seq = body.getLong();
+        JournalRecord.Kind kind = JournalRecord.Kind.values()[body.get()];
+        if (kind == JournalRecord.Kind.ABORT) {
+            return JournalRecord.abort(seq);
+        }
+        long date = body.getLong();
+        OperationType type = OperationType.values()[body.get()];
+        long amount = body.getLong();
+        String accountId = getString(body);
+        String description = getString(body);
+        return new JournalRecord(seq, kind, accountId, type, amount, date, description);
+    }
+
+    private static int bodySize(JournalRecord record) {
+        int size = Long.BYTES + 1;
+        if (record.kind() == JournalRecord.Kind.OPERATION) {
+            size += Long.BYTES + 1 + Long.BYTES + stringSize(record.accountId()) + stringSize(record.description());
+        }
+        return size;
+    }
+
+    private static int stringSize(String value) {
+        return Integer.BYTES + (value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long baseSeq(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    record ForceRange(MappedByteBuffer buffer, int offset, int length) {
+        void force() {
+            if (length > 0) {
+                buffer.force(offset, length);
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.demo.journal;
+
+import com.example.demo.entities.OperationType;
+
+/**
+ * One journal entry. An {@code OPERATION} carries an account operation; an {@code ABORT}
+ * carries only the sequence of an operation whose transaction rolled back.
+ */
+record JournalRecord(long seq, Kind kind, String accountId, OperationType type, long amount,
+                     long date, String description) {
+
+    enum Kind { OPERATION, ABORT }
+
+    static JournalRecord abort(long seq) {
+        return new JournalRecord(seq, Kind.ABORT, null, null, 0, 0, null);
+    }
+}
@@ -0,0 +1,401 @@
+package com.example.demo.journal;
+
+import com.example.demo.entities.AccountOperation;
+import com.example.demo.entities.JournalCheckpoint;
+import com.example.demo.entities.JournalCommit;
+import com.example.demo.metrics.MetricsRegistry;
+import com.example.demo.repositories.AccountOperationRepository;
+import com.example.demo.repositories.BankAccountRepository;
+import com.example.demo.repositories.JournalCheckpointRepository;
+import com.example.demo.repositories.JournalCommitRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Optional write-ahead journal for account operations. Instead of inserting operation rows
+ * in the request transaction, the operations of a transaction are appended to a
+ * memory-mapped journal just before it commits, and the commit waits until they are
+ * forced to disk. One flusher thread forces everything appended since its last pass, so
+ * concurrent committers share a single fsync. A {@link JournalDrainer} later writes the
+ * operations to the database in large batches.
+ * <p>
+ * A transaction that rolls back after appending leaves an abort record, and nothing is
+ * drained while a transaction that appended it is still undecided. Once its records are
+ * forced, a transaction also inserts a {@link JournalCommit} covering them, so the
+ * database tells whether their balance changes committed. On startup the journal is read
+ * back and the operations past the database checkpoint are drained again only if such a
+ * marker covers them; a crash between the force and the commit drops them. A commit
+ * whose outcome is unknown holds the drainer back until the marker has been looked up.
+ */
+@Component
+@Slf4j
+public class OperationJournal {
+    static final String CHECKPOINT = "operations";
+    private static final long FORCE_RETRY_MILLIS = 100;
+
+    private final boolean enabled;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private final Condition forced = lock.newCondition();
+    private final Queue<JournalRecord> undrained = new ConcurrentLinkedQueue<>();
+    private final ConcurrentSkipListSet<Long> undecided = new ConcurrentSkipListSet<>();
+    private final Set<Long> aborted = ConcurrentHashMap.newKeySet();
+    private final Queue<List<Long>> inDoubt = new ConcurrentLinkedQueue<>();
+    private final LongAdder records;
+    private final LongAdder fsyncs;
+    private JournalCommitRepository journalCommitRepository;
+    private TransactionTemplate transactionTemplate;
+    private JournalFile file;
+    private JournalDrainer drainer;
+    private Thread flusher;
+    private long nextSeq = 1;
+    private long lastSeq;
+    private long appendCount;
+    private volatile long durableSeq;
+    private volatile long forcedCount;
+    private volatile boolean closed;
+
+    public OperationJournal(AccountOperationRepository accountOperationRepository,
+                            BankAccountRepository bankAccountRepository,
+                            JournalCheckpointRepository journalCheckpointRepository,
+                            JournalCommitRepository journalCommitRepository,
+                            PlatformTransactionManager transactionManager,
+                            MetricsRegistry metricsRegistry,
+                            @Value("${journal.enabled:false}") boolean enabled,
+                            @Value("${journal.directory:data/journal}") String directory,
+                            @Value("${journal.segment-size-bytes:67108864}") int segmentSize,
+                            @Value("${journal.drain.batch-size:1000}") int drainBatchSize,
+                            @Value("${journal.drain.interval-millis:100}") long drainIntervalMillis) throws IOException {
+        this.enabled = enabled;
+        this.records = metricsRegistry.counter("ebank_journal_records_total", "Operations appended to the journal", "");
+        this.fsyncs = metricsRegistry.counter("ebank_journal_fsyncs_total", "Journal forces to disk, each covering a group of commits", "");
+        metricsRegistry.gauge("ebank_journal_undrained", "Journaled operations not yet written to the database", "",
+                undrained::size);
+        if (!enabled) return;
+
+        this.journalCommitRepository = journalCommitRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        long checkpoint = transactionTemplate.execute(status -> journalCheckpointRepository.findById(CHECKPOINT)
+                .map(JournalCheckpoint::getDrainedSeq).orElse(0L));
+        List<JournalCommit> commits = transactionTemplate.execute(status ->
+                journalCommitRepository.findByLastSeqGreaterThan(checkpoint));
+        file = new JournalFile(Path.of(directory), segmentSize);
+        List<JournalRecord> recovered = file.open(checkpoint + 1);
+        recover(recovered, checkpoint, commits);
+
+        drainer = new JournalDrainer(this, accountOperationRepository, bankAccountRepository,
+                journalCheckpointRepository, journalCommitRepository, transactionTemplate,
+                drainBatchSize, drainIntervalMillis);
+        flusher = new Thread(this::flushLoop, "journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        drainer.start();
+        log.info("Operation journal opened in {}, {} operations to replay", directory, undrained.size());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Journals the operation as part of the current transaction, which will not commit
+     * before the record is durable. Outside a transaction the record is made durable
+     * right away.
+     */
+    public void record(AccountOperation accountOperation) {
+        JournalRecord record = new JournalRecord(0, JournalRecord.Kind.OPERATION,
+                accountOperation.getBankAccount().getId(), accountOperation.getType(), accountOperation.getAmount(),
+                accountOperation.getDate().getTime(), accountOperation.getDescription());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<Long> seqs = append(List.of(record));
+            try {
+                awaitDurable(seqs.getLast());
+                transactionTemplate.executeWithoutResult(status -> committing(seqs));
+            } catch (RuntimeException e) {
+                abort(seqs);
+                throw e;
+            } finally {
+                undecided.remove(seqs.getFirst());
+            }
+            return;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof JournalSynchronization journalSynchronization) {
+                journalSynchronization.pending.add(record);
+                return;
+            }
+        }
+        JournalSynchronization journalSynchronization = new JournalSynchronization();
+        journalSynchronization.pending.add(record);
+        TransactionSynchronizationManager.registerSynchronization(journalSynchronization);
+    }
+
+    private void recover(List<JournalRecord> recovered, long checkpoint, List<JournalCommit> commits) {
+        TreeMap<Long, Long> committed = new TreeMap<>();
+        commits.forEach(commit -> committed.put(commit.getFirstSeq(), commit.getLastSeq()));
+        for (JournalRecord record : recovered) {
+            if (record.kind() == JournalRecord.Kind.ABORT) {
+                aborted.add(record.seq());
+            }
+            lastSeq = Math.max(lastSeq, record.seq());
+        }
+        List<Long> dropped = new ArrayList<>();
+        for (JournalRecord record : recovered) {
+            if (record.kind() != JournalRecord.Kind.OPERATION || record.seq() <= checkpoint || aborted.remove(record.seq())) {
+                continue;
+            }
+            Map.Entry<Long, Long> commit = committed.floorEntry(record.seq());
+            if (commit == null || record.seq() > commit.getValue()) {
+                dropped.add(record.seq());
+            }
+            undrained.add(record);
+        }
+        aborted.clear();
+        // drained as aborted, so the checkpoint moves past them
+        aborted.addAll(dropped);
+        if (!dropped.isEmpty()) {
+            log.warn("Dropping {} journaled operations whose transactions did not commit", dropped.size());
+        }
+        lastSeq = Math.max(lastSeq, checkpoint);
+        nextSeq = lastSeq + 1;
+        durableSeq = lastSeq;
+    }
+
+    /** Appends the records with consecutive sequences and returns them; they stay undecided until resolved. */
+    private List<Long> append(List<JournalRecord> pending) {
+        List<Long> seqs = new ArrayList<>(pending.size());
+        lock.lock();
+        try {
+            if (closed) throw new IllegalStateException("Operation journal is closed");
+            for (JournalRecord record : pending) {
+                JournalRecord sequenced = new JournalRecord(nextSeq, record.kind(), record.accountId(), record.type(),
+                        record.amount(), record.date(), record.description());
+                write(sequenced);
+                nextSeq++;
+                if (seqs.isEmpty()) undecided.add(sequenced.seq());
+                seqs.add(sequenced.seq());
+                undrained.add(sequenced);
+                lastSeq = sequenced.seq();
+            }
+            records.add(pending.size());
+            appended.signal();
+        } catch (RuntimeException e) {
+            if (!seqs.isEmpty()) {
+                aborted.addAll(seqs);
+                undecided.remove(seqs.getFirst());
+            }
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+        return seqs;
+    }
+
+    private void abort(List<Long> seqs) {
+        aborted.addAll(seqs);
+        lock.lock();
+        try {
+            if (closed) return;
+            for (Long seq : seqs) {
+                write(JournalRecord.abort(seq));
+            }
+            appended.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Marks the forced records as committed in the database transaction that is about to commit. */
+    private void committing(List<Long> seqs) {
+        journalCommitRepository.insert(seqs.getFirst(), seqs.getLast());
+    }
+
+    /**
+     * Settles the transactions whose commit outcome was unknown from their commit marker,
+     * aborting the records of those that did not commit. Called by the drainer, which
+     * retries when the database cannot be read.
+     */
+    void resolveInDoubt() {
+        List<Long> seqs;
+        while ((seqs = inDoubt.peek()) != null) {
+            long firstSeq = seqs.getFirst();
+            boolean committed = Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                    journalCommitRepository.existsById(firstSeq)));
+            if (!committed) {
+                abort(seqs);
+            }
+            log.warn("Transaction with journal records {}..{} {}", firstSeq, seqs.getLast(),
+                    committed ? "committed, keeping them" : "did not commit, aborting them");
+            undecided.remove(firstSeq);
+            inDoubt.poll();
+        }
+    }
+
+    private void write(JournalRecord record) {
+        try {
+            if (!file.fits(record)) {
+                file.roll(nextSeq);
+            }
+            file.append(record);
+            appendCount++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to the operation journal", e);
+        }
+    }
+
+    private void awaitDurable(long seq) {
+        lock.lock();
+        try {
+            while (durableSeq < seq) {
+                if (closed) throw new IllegalStateException("Operation journal closed before the record was forced");
+                forced.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the journal", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        while (!closed) {
+            JournalFile.ForceRange range;
+            long seq;
+            long count;
+            lock.lock();
+            try {
+                while (forcedCount == appendCount && !closed) {
+                    appended.await();
+                }
+                range = file.pendingForce();
+                seq = lastSeq;
+                count = appendCount;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                range.force();
+            } catch (RuntimeException e) {
+                log.error("Could not force the operation journal, retrying", e);
+                // nothing is durable until the failed range has been forced
+                lock.lock();
+                try {
+                    file.forceFailed(range);
+                } finally {
+                    lock.unlock();
+                }
+                try {
+                    Thread.sleep(FORCE_RETRY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                continue;
+            }
+            fsyncs.increment();
+            lock.lock();
+            try {
+                durableSeq = Math.max(durableSeq, seq);
+                forcedCount = Math.max(forcedCount, count);
+                forced.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /** Highest sequence the drainer may write: durable, and below any transaction still undecided. */
+    long drainableSeq() {
+        long limit = durableSeq;
+        Long oldestUndecided = undecided.isEmpty() ? null : undecided.first();
+        return oldestUndecided == null ? limit : Math.min(limit, oldestUndecided - 1);
+    }
+
+    Queue<JournalRecord> undrained() {
+        return undrained;
+    }
+
+    boolean isAborted(long seq) {
+        return aborted.contains(seq);
+    }
+
+    void drained(List<JournalRecord> batch) {
+        batch.forEach(record -> aborted.remove(record.seq()));
+        lock.lock();
+        try {
+            if (!closed) file.deleteSegmentsUpTo(batch.getLast().seq());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (!enabled) return;
+        lock.lock();
+        try {
+            // everything appended so far must be durable before the drainer's last pass
+            file.pendingForce().force();
+            durableSeq = lastSeq;
+            forcedCount = appendCount;
+            closed = true;
+            appended.signalAll();
+            forced.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        flusher.join(TimeUnit.SECONDS.toMillis(5));
+        drainer.stop();
+    }
+
+    private final class JournalSynchronization implements TransactionSynchronization {
+        private final List<JournalRecord> pending = new ArrayList<>();
+        private List<Long> seqs = List.of();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            seqs = append(pending);
+            awaitDurable(seqs.getLast());
+            committing(seqs);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (seqs.isEmpty()) return;
+            if (status == STATUS_UNKNOWN) {
+                // stays undecided until the drainer has looked up its commit marker
+                inDoubt.add(seqs);
+                return;
+            }
+            if (status != STATUS_COMMITTED) {
+                abort(seqs);
+            }
+            undecided.remove(seqs.getFirst());
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.demo.ledger;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory state of one account. Only the owning partition thread writes it,
+ * the balance is volatile so readers on other threads see the latest value.
+ * Entries applied to it but not yet written or dead-lettered are counted, an
+ * account is only evicted once it has none.
+ */
+@Getter
+class LedgerAccount {
+    private final String id;
+    private final long overDraft;
+    private volatile long balance;
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger unwritten = new AtomicInteger();
+
+    LedgerAccount(String id, long balance, long overDraft) {
+        this.id = id;
+        this.balance = balance;
+        this.overDraft = overDraft;
+    }
+
+    void setBalance(long balance) {
+        this.balance = balance;
+    }
+
+    void queued() {
+        unwritten.incrementAndGet();
+    }
+
+    void written() {
+        unwritten.decrementAndGet();
+    }
+
+    boolean hasUnwritten() {
+        return unwritten.get() > 0;
+    }
+}
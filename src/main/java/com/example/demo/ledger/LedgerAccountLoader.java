@@ -0,0 +1,21 @@
+package com.example.demo.ledger;
+
+import com.example.demo.Exception.BankAccountNotFoundException;
+import com.example.demo.entities.BankAccount;
+import com.example.demo.entities.CurrentAccount;
+import com.example.demo.repositories.BankAccountRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+@Component
+@AllArgsConstructor
+public class LedgerAccountLoader {
+    private BankAccountRepository bankAccountRepository;
+
+    LedgerAccount load(String accountId) throws BankAccountNotFoundException {
+        BankAccount bankAccount = bankAccountRepository.findById(accountId)
+                .orElseThrow(() -> new BankAccountNotFoundException("BankAccount not found"));
+        long overDraft = bankAccount instanceof CurrentAccount currentAccount ? currentAccount.getOverDraft() : 0;
+        return new LedgerAccount(accountId, bankAccount.getBalance(), overDraft);
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.demo.ledger;
+
+import com.example.demo.Exception.BalanceNotSufficientException;
+import com.example.demo.Exception.BankAccountNotFoundException;
+import com.example.demo.entities.OperationType;
+import com.example.demo.metrics.LedgerMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Single-writer ledger. Account state is sharded across a fixed set of partitions
+ * by account id hash; each partition applies its operations in order on one thread.
+ * Callers are acknowledged once the operation is applied in memory, the
+ * {@link LedgerWriter} persists it asynchronously.
+ */
+@Component
+@Slf4j
+public class LedgerEngine {
+    private final boolean enabled;
+    private final LedgerPartition[] partitions;
+    private final LedgerWriter writer;
+
+    public LedgerEngine(LedgerAccountLoader loader,
+                        LedgerWriter writer,
+                        LedgerMetrics ledgerMetrics,
+                        @Value("${ledger.enabled:false}") boolean enabled,
+                        @Value("${ledger.partitions:0}") int partitionCount,
+                        @Value("${ledger.partition.max-accounts:100000}") int maxAccounts) {
+        this.enabled = enabled;
+        this.writer = writer;
+        if (!enabled) {
+            this.partitions = new LedgerPartition[0];
+            return;
+        }
+        int count = partitionCount > 0 ? partitionCount : Runtime.getRuntime().availableProcessors();
+        this.partitions = new LedgerPartition[count];
+        for (int i = 0; i < count; i++) {
+            partitions[i] = new LedgerPartition(i, loader, writer, ledgerMetrics, maxAccounts);
+        }
+        writer.start(new LedgerWriter.Listener() {
+            @Override
+            public void written(LedgerEntry entry) {
+                partition(entry.getAccountId()).written(entry);
+            }
+
+            @Override
+            public void deadLettered(LedgerEntry entry) {
+                partition(entry.getAccountId()).deadLettered(entry);
+            }
+        });
+        log.info("Ledger engine started with {} partitions", count);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public LedgerEntry debit(String accountId, long amount, String description)
+            throws BankAccountNotFoundException, BalanceNotSufficientException {
+        return await(partition(accountId).submit(accountId, OperationType.DEBIT, amount, description));
+    }
+
+    public LedgerEntry credit(String accountId, long amount, String description) throws BankAccountNotFoundException {
+        try {
+            return await(partition(accountId).submit(accountId, OperationType.CREDIT, amount, description));
+        } catch (BalanceNotSufficientException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void transfer(String accountIdSource, String accountIdDestination, long amount)
+            throws BankAccountNotFoundException, BalanceNotSufficientException {
+        // load the destination first so the credit can no longer fail once the debit is applied
+        await(partition(accountIdDestination).touch(accountIdDestination));
+        debit(accountIdSource, amount, "Transfer to " + accountIdDestination);
+        credit(accountIdDestination, amount, "Transfer from " + accountIdSource);
+    }
+
+    /**
+     * Balance held by the ledger, which may be ahead of the database while the writer catches up.
+     */
+    public OptionalLong balance(String accountId) {
+        if (!enabled) return OptionalLong.empty();
+        LedgerAccount account = partition(accountId).peek(accountId);
+        return account == null ? OptionalLong.empty() : OptionalLong.of(account.getBalance());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (LedgerPartition partition : partitions) {
+            partition.shutdown();
+        }
+        writer.stop();
+    }
+
+    private LedgerPartition partition(String accountId) {
+        return partitions[Math.floorMod(accountId.hashCode(), partitions.length)];
+    }
+
+    private <T> T await(CompletableFuture<T> future) throws BankAccountNotFoundException, BalanceNotSufficientException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the ledger", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof BankAccountNotFoundException notFound) throw notFound;
+            if (cause instanceof BalanceNotSufficientException notSufficient) throw notSufficient;
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            throw new IllegalStateException(cause);
+        }
+    }
+}
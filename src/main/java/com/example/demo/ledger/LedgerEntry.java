@@ -0,0 +1,18 @@
+package com.example.demo.ledger;
+
+import com.example.demo.entities.OperationType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Date;
+
+@Data
+@AllArgsConstructor
+public class LedgerEntry {
+    private String accountId;
+    private OperationType type;
+    private long amount;
+    private String description;
+    private Date date;
+    private long balanceAfter;
+}
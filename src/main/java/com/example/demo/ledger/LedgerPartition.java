@@ -0,0 +1,160 @@
+package com.example.demo.ledger;
+
+import com.example.demo.Exception.BalanceNotSufficientException;
+import com.example.demo.Exception.BankAccountNotFoundException;
+import com.example.demo.entities.OperationType;
+import com.example.demo.metrics.LedgerMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single-threaded shard of the ledger. Every operation on the accounts it owns
+ * runs on its one thread, in submission order, so no locking is needed.
+ * <p>
+ * At most {@code maxAccounts} accounts are held; past that the least recently used ones
+ * with nothing left to write are dropped and reloaded from the database when next used.
+ */
+@Slf4j
+class LedgerPartition {
+    // eldest accounts looked at per load, so a run of accounts still being written is not scanned in full
+    private static final int EVICTION_SCAN = 16;
+
+    private final ExecutorService executor;
+    private final Map<String, LedgerAccount> accounts = new ConcurrentHashMap<>();
+    // partition thread only, least recently used first
+    private final LinkedHashMap<String, LedgerAccount> recency = new LinkedHashMap<>(16, 0.75f, true);
+    private final LedgerAccountLoader loader;
+    private final LedgerWriter writer;
+    private final LedgerMetrics ledgerMetrics;
+    private final int maxAccounts;
+
+    LedgerPartition(int index, LedgerAccountLoader loader, LedgerWriter writer, LedgerMetrics ledgerMetrics, int maxAccounts) {
+        this.loader = loader;
+        this.writer = writer;
+        this.ledgerMetrics = ledgerMetrics;
+        this.maxAccounts = Math.max(1, maxAccounts);
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ledger-partition-" + index);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    CompletableFuture<LedgerEntry> submit(String accountId, OperationType type, long amount, String description) {
+        CompletableFuture<LedgerEntry> result = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                result.complete(apply(accountId, type, amount, description));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    CompletableFuture<Void> touch(String accountId) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                account(accountId);
+                result.complete(null);
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    LedgerAccount peek(String accountId) {
+        return accounts.get(accountId);
+    }
+
+    /** Called by the writer once the entry is in the database. */
+    void written(LedgerEntry entry) {
+        LedgerAccount account = accounts.get(entry.getAccountId());
+        if (account != null) account.written();
+    }
+
+    /**
+     * Called by the writer for an entry it gave up on. The database never got its movement,
+     * so it is taken back out of the in-memory balance too, on the partition thread.
+     */
+    void deadLettered(LedgerEntry entry) {
+        try {
+            executor.execute(() -> {
+                LedgerAccount account = accounts.get(entry.getAccountId());
+                if (account == null) return;
+                long movement = entry.getType() == OperationType.DEBIT ? -entry.getAmount() : entry.getAmount();
+                account.setBalance(account.getBalance() - movement);
+                account.written();
+                log.error("Reverted the unwritten {} of {} on account {}, its balance is now {}",
+                        entry.getType(), entry.getAmount(), entry.getAccountId(), account.getBalance());
+            });
+        } catch (RejectedExecutionException e) {
+            // shutting down, the in-memory balances are dropped anyway
+        }
+    }
+
+    void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private LedgerEntry apply(String accountId, OperationType type, long amount, String description)
+            throws BankAccountNotFoundException, BalanceNotSufficientException {
+        LedgerAccount account = account(accountId);
+        long balance = account.getBalance();
+        if (type == OperationType.DEBIT) {
+            if (balance + account.getOverDraft() < amount) {
+                throw new BalanceNotSufficientException("Balance not sufficient");
+            }
+            balance -= amount;
+        } else {
+            balance += amount;
+        }
+        LedgerEntry entry = new LedgerEntry(accountId, type, amount, description, new Date(), balance);
+        account.queued();
+        try {
+            // may wait for the writer; the balance only moves once the entry is queued
+            writer.enqueue(entry);
+        } catch (RuntimeException e) {
+            account.written();
+            throw e;
+        }
+        account.setBalance(balance);
+        ledgerMetrics.applied(1);
+        return entry;
+    }
+
+    private LedgerAccount account(String accountId) throws BankAccountNotFoundException {
+        LedgerAccount account = recency.get(accountId);
+        if (account == null) {
+            account = loader.load(accountId);
+            makeRoom();
+            accounts.put(accountId, account);
+            recency.put(accountId, account);
+        }
+        return account;
+    }
+
+    private void makeRoom() {
+        Iterator<LedgerAccount> eldest = recency.values().iterator();
+        for (int scanned = 0; scanned < EVICTION_SCAN && recency.size() >= maxAccounts && eldest.hasNext(); scanned++) {
+            LedgerAccount account = eldest.next();
+            // its balance would be reloaded without the entries still queued for it
+            if (account.hasUnwritten()) continue;
+            eldest.remove();
+            accounts.remove(account.getId());
+        }
+    }
+}
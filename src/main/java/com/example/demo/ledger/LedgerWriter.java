@@ -0,0 +1,211 @@
+package com.example.demo.ledger;
+
+import com.example.demo.entities.AccountOperation;
+import com.example.demo.entities.OperationType;
+import com.example.demo.metrics.MetricsRegistry;
+import com.example.demo.repositories.AccountOperationRepository;
+import com.example.demo.repositories.BankAccountRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Persists applied ledger entries in the background. Entries are drained in batches
+ * and written in one transaction: one operation row per entry and one balance update
+ * per account, adding the net movement of that account's entries in the batch.
+ * <p>
+ * The queue is bounded; when it is full the partition threads wait for the writer, so
+ * callers are slowed down rather than memory growing without limit. A batch that keeps
+ * failing is retried with backoff a few times, then entry by entry; entries that still
+ * cannot be written are appended to the dead-letter file and the writer moves on. As
+ * balances are only ever moved by the entries written, the database balance stays the
+ * opening balance plus the operation rows, and the {@link Listener} takes a dead-lettered
+ * entry back out of the in-memory balance. Entries are held in memory only, so those
+ * acknowledged but not yet written are lost if the process dies.
+ */
+@Component
+@Slf4j
+public class LedgerWriter {
+    private static final long RETRY_BACKOFF_MILLIS = 1000;
+
+    private final BlockingQueue<LedgerEntry> queue;
+    private final BankAccountRepository bankAccountRepository;
+    private final AccountOperationRepository accountOperationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final JsonMapper jsonMapper;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Path deadLetterFile;
+    private final LongAdder deadLetters;
+    private volatile boolean running;
+    private Listener listener;
+    private Thread thread;
+    private List<LedgerEntry> unwritten = List.of();
+
+    public LedgerWriter(BankAccountRepository bankAccountRepository,
+                        AccountOperationRepository accountOperationRepository,
+                        PlatformTransactionManager transactionManager,
+                        JsonMapper jsonMapper,
+                        MetricsRegistry metricsRegistry,
+                        @Value("${ledger.writer.batch-size:500}") int batchSize,
+                        @Value("${ledger.writer.queue-capacity:100000}") int queueCapacity,
+                        @Value("${ledger.writer.max-attempts:5}") int maxAttempts,
+                        @Value("${ledger.writer.dead-letter-file:data/ledger-dead-letters.ndjson}") String deadLetterFile) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.bankAccountRepository = bankAccountRepository;
+        this.accountOperationRepository = accountOperationRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jsonMapper = jsonMapper;
+        this.batchSize = batchSize;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.deadLetterFile = Path.of(deadLetterFile);
+        this.deadLetters = metricsRegistry.counter("ebank_ledger_dead_letters_total",
+                "Ledger entries that could not be persisted and were written to the dead-letter file", "");
+        metricsRegistry.gauge("ebank_ledger_writer_queue", "Applied ledger entries waiting to be persisted", "",
+                queue::size);
+    }
+
+    /** Queues the entry, waiting while the queue is full. */
+    void enqueue(LedgerEntry entry) {
+        try {
+            queue.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the ledger writer", e);
+        }
+    }
+
+    synchronized void start(Listener listener) {
+        if (running) return;
+        this.listener = listener;
+        running = true;
+        thread = new Thread(this::run, "ledger-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    synchronized void stop() throws InterruptedException {
+        if (!running) return;
+        running = false;
+        thread.interrupt();
+        thread.join();
+        List<LedgerEntry> remaining = new ArrayList<>(unwritten);
+        queue.drainTo(remaining);
+        for (int from = 0; from < remaining.size(); from += batchSize) {
+            List<LedgerEntry> batch = remaining.subList(from, Math.min(remaining.size(), from + batchSize));
+            try {
+                persist(batch);
+            } catch (RuntimeException e) {
+                persistOneByOne(batch);
+            }
+        }
+    }
+
+    private void run() {
+        List<LedgerEntry> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+                persistWithRetry(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                // stop() writes this batch first, then whatever is still queued
+                unwritten = new ArrayList<>(batch);
+                return;
+            }
+        }
+    }
+
+    private void persistWithRetry(List<LedgerEntry> batch) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                persist(batch);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt == maxAttempts) {
+                    log.error("Failed to persist {} ledger entries after {} attempts, writing them one by one",
+                            batch.size(), attempt, e);
+                    persistOneByOne(batch);
+                    return;
+                }
+                log.warn("Failed to persist {} ledger entries, retrying", batch.size(), e);
+                Thread.sleep(RETRY_BACKOFF_MILLIS << (attempt - 1));
+            }
+        }
+    }
+
+    private void persistOneByOne(List<LedgerEntry> batch) {
+        for (LedgerEntry entry : batch) {
+            try {
+                persist(List.of(entry));
+            } catch (RuntimeException e) {
+                deadLetter(entry, e);
+                listener.deadLettered(entry);
+            }
+        }
+    }
+
+    private void persist(List<LedgerEntry> batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<AccountOperation> operations = new ArrayList<>(batch.size());
+            Map<String, Long> movements = new LinkedHashMap<>();
+            for (LedgerEntry entry : batch) {
+                AccountOperation accountOperation = new AccountOperation();
+                accountOperation.setType(entry.getType());
+                accountOperation.setAmount(entry.getAmount());
+                accountOperation.setDescription(entry.getDescription());
+                accountOperation.setDate(entry.getDate());
+                accountOperation.setBankAccount(bankAccountRepository.getReferenceById(entry.getAccountId()));
+                operations.add(accountOperation);
+                long movement = entry.getType() == OperationType.DEBIT ? -entry.getAmount() : entry.getAmount();
+                movements.merge(entry.getAccountId(), movement, Long::sum);
+            }
+            accountOperationRepository.saveAll(operations);
+            // a net debit is a negative credit
+            movements.forEach(bankAccountRepository::creditBalance);
+        });
+        batch.forEach(listener::written);
+        log.debug("Persisted {} ledger entries", batch.size());
+    }
+
+    private void deadLetter(LedgerEntry entry, RuntimeException cause) {
+        deadLetters.increment();
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("entry", entry);
+        line.put("error", String.valueOf(cause.getMessage()));
+        try {
+            Path parent = deadLetterFile.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            Files.writeString(deadLetterFile, jsonMapper.writeValueAsString(line) + "\n", StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            log.error("Ledger entry for account {} could not be persisted, written to {}",
+                    entry.getAccountId(), deadLetterFile, cause);
+        } catch (IOException | RuntimeException e) {
+            log.error("Ledger entry {} could not be persisted nor dead-lettered", entry, e);
+        }
+    }
+
+    /** Told on the writer thread what became of each entry. */
+    interface Listener {
+        void written(LedgerEntry entry);
+
+        void deadLettered(LedgerEntry entry);
+    }
+}
@@ -1,20 +1,22 @@
 package com.example.demo.mappers;
 
 
+import com.example.demo.dtos.BankAccountDTO;
 import com.example.demo.dtos.CurrentAccountDTO;
 import com.example.demo.dtos.CustomerDTO;
 import com.example.demo.dtos.OperationDTO;
 import com.example.demo.dtos.SavingAccountDTO;
 import com.example.demo.entities.AccountOperation;
+import com.example.demo.entities.BankAccount;
 import com.example.demo.entities.CurrentAccount;
 import com.example.demo.entities.Customer;
 import com.example.demo.entities.SavingAccount;
-import org.springframework.beans.BeanUtils;
 import org.springframework.stereotype.Service;
 
 @Service
 public class BankAccountMapperImpl {
     public CustomerDTO fromCustomer(Customer customer){
+        if (customer == null) return null;
         CustomerDTO customerDTO = new CustomerDTO();
         customerDTO.setId(customer.getId());
         customerDTO.setName(customer.getName());
@@ -23,39 +25,105 @@ public class BankAccountMapperImpl {
     }
 
     public Customer fromCustomerDTO(CustomerDTO customerDTO){
+        if (customerDTO == null) return null;
         Customer customer = new Customer();
-        BeanUtils.copyProperties(customerDTO, customer);
+        customer.setId(customerDTO.getId());
+        customer.setName(customerDTO.getName());
+        customer.setEmail(customerDTO.getEmail());
         return customer;
     }
 
+    public BankAccountDTO fromBankAccount(BankAccount bankAccount){
+        return switch (bankAccount) {
+            case SavingAccount savingAccount -> fromSavingAccount(savingAccount);
+            case CurrentAccount currentAccount -> fromCurrentAccount(currentAccount);
+            default -> throw new IllegalArgumentException("Unknown account type " + bankAccount.getClass().getSimpleName());
+        };
+    }
+
     public SavingAccountDTO fromSavingAccount(SavingAccount savingAccount){
         SavingAccountDTO savingAccountDTO = new SavingAccountDTO();
-        BeanUtils.copyProperties(savingAccount , savingAccountDTO);
+        savingAccountDTO.setId(savingAccount.getId());
+        savingAccountDTO.setBalance(savingAccount.getBalance());
+        savingAccountDTO.setCreatedAt(savingAccount.getCreatedAt());
+        savingAccountDTO.setStatus(savingAccount.getStatus());
+        savingAccountDTO.setInterestRate(savingAccount.getInterestRate());
         savingAccountDTO.setCustomerDTO(fromCustomer(savingAccount.getCustomer()));
-                return savingAccountDTO;
+        savingAccountDTO.setType(SavingAccount.class.getSimpleName());
+        return savingAccountDTO;
     }
     public SavingAccount fromSavingAccountDTO(SavingAccountDTO savingAccountDTO){
         SavingAccount savingAccount = new SavingAccount();
-        BeanUtils.copyProperties(savingAccountDTO , savingAccount);
+        savingAccount.setId(savingAccountDTO.getId());
+        savingAccount.setBalance(savingAccountDTO.getBalance());
+        savingAccount.setCreatedAt(savingAccountDTO.getCreatedAt());
+        savingAccount.setStatus(savingAccountDTO.getStatus());
+        savingAccount.setInterestRate(savingAccountDTO.getInterestRate());
         savingAccount.setCustomer(fromCustomerDTO(savingAccountDTO.getCustomerDTO()));
         return savingAccount;
     }
 
     public CurrentAccountDTO fromCurrentAccount(CurrentAccount currentAccount){
         CurrentAccountDTO currentAccountDTO = new CurrentAccountDTO();
-        BeanUtils.copyProperties(currentAccount , currentAccountDTO);
+        currentAccountDTO.setId(currentAccount.getId());
+        currentAccountDTO.setBalance(currentAccount.getBalance());
+        currentAccountDTO.setCreatedAt(currentAccount.getCreatedAt());
+        currentAccountDTO.setStatus(currentAccount.getStatus());
+        currentAccountDTO.setOverDraft(currentAccount.getOverDraft());
         currentAccountDTO.setCustomerDTO(fromCustomer(currentAccount.getCustomer()));
-        currentAccountDTO.setType(currentAccount.getClass().getSimpleName());
+        currentAccountDTO.setType(CurrentAccount.class.getSimpleName());
         return currentAccountDTO;
     }
 
     public CurrentAccount fromCurrentBankAccountDTO(CurrentAccountDTO currentBankAccountDTO){
         CurrentAccount currentAccount=new CurrentAccount();
-        BeanUtils.copyProperties(currentBankAccountDTO,currentAccount);
+        currentAccount.setId(currentBankAccountDTO.getId());
+        currentAccount.setBalance(currentBankAccountDTO.getBalance());
+        currentAccount.setCreatedAt(currentBankAccountDTO.getCreatedAt());
+        currentAccount.setStatus(currentBankAccountDTO.getStatus());
+        currentAccount.setOverDraft(currentBankAccountDTO.getOverDraft());
         currentAccount.setCustomer(fromCustomerDTO(currentBankAccountDTO.getCustomerDTO()));
         return currentAccount;
     }
 
+    /** A copy that can be changed without touching the original, e.g. one held in a cache. */
+    public BankAccountDTO copyOf(BankAccountDTO bankAccountDTO){
+        return switch (bankAccountDTO) {
+            case SavingAccountDTO savingAccountDTO -> {
+                SavingAccountDTO copy = new SavingAccountDTO();
+                copy.setId(savingAccountDTO.getId());
+                copy.setBalance(savingAccountDTO.getBalance());
+                copy.setCreatedAt(savingAccountDTO.getCreatedAt());
+                copy.setStatus(savingAccountDTO.getStatus());
+                copy.setInterestRate(savingAccountDTO.getInterestRate());
+                copy.setCustomerDTO(copyOf(savingAccountDTO.getCustomerDTO()));
+                copy.setType(savingAccountDTO.getType());
+                yield copy;
+            }
+            case CurrentAccountDTO currentAccountDTO -> {
+                CurrentAccountDTO copy = new CurrentAccountDTO();
+                copy.setId(currentAccountDTO.getId());
+                copy.setBalance(currentAccountDTO.getBalance());
+                copy.setCreatedAt(currentAccountDTO.getCreatedAt());
+                copy.setStatus(currentAccountDTO.getStatus());
+                copy.setOverDraft(currentAccountDTO.getOverDraft());
+                copy.setCustomerDTO(copyOf(currentAccountDTO.getCustomerDTO()));
+                copy.setType(currentAccountDTO.getType());
+                yield copy;
+            }
+            default -> throw new IllegalArgumentException("Unknown account type " + bankAccountDTO.getClass().getSimpleName());
+        };
+    }
+
+    public CustomerDTO copyOf(CustomerDTO customerDTO){
+        if (customerDTO == null) return null;
+        CustomerDTO copy = new CustomerDTO();
+        copy.setId(customerDTO.getId());
+        copy.setName(customerDTO.getName());
+        copy.setEmail(customerDTO.getEmail());
+        return copy;
+    }
+
     public OperationDTO fromAccountOperation(AccountOperation accountOperation){
         OperationDTO accountOperationDTO=new OperationDTO();
         accountOperationDTO.setId(accountOperation.getId());
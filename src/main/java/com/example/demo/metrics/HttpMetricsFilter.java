@@ -0,0 +1,46 @@
+package com.example.demo.metrics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Records latency, JDBC statements and fetched rows per endpoint, keyed by the
+ * matched handler pattern so path variables do not explode the label set.
+ */
+@Component
+@AllArgsConstructor
+public class HttpMetricsFilter extends OncePerRequestFilter {
+    private MetricsRegistry metricsRegistry;
+    private JdbcMetrics jdbcMetrics;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        JdbcMetrics.RequestStats requestStats = jdbcMetrics.begin();
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            jdbcMetrics.end();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String labels = MetricsRegistry.labels(
+                    "method", request.getMethod(),
+                    "uri", pattern == null ? "UNMATCHED" : pattern.toString());
+            metricsRegistry.summary("ebank_http_latency_seconds", "REST endpoint latency", 1e-9, labels)
+                    .record(elapsed);
+            metricsRegistry.summary("ebank_http_statements", "JDBC statements per request", 1, labels)
+                    .record(requestStats.getStatements());
+            metricsRegistry.summary("ebank_http_rows_fetched", "JDBC rows fetched per request", 1, labels)
+                    .record(requestStats.getRows());
+        }
+    }
+}
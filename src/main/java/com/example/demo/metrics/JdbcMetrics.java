@@ -0,0 +1,57 @@
+package com.example.demo.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * JDBC statement and row counters, both global and for the request bound to the
+ * current thread by {@link HttpMetricsFilter}.
+ */
+@Component
+public class JdbcMetrics {
+    private static final ThreadLocal<RequestStats> CURRENT = new ThreadLocal<>();
+
+    private final LongAdder statements;
+    private final LongAdder rows;
+
+    public JdbcMetrics(MetricsRegistry metricsRegistry) {
+        this.statements = metricsRegistry.counter("ebank_jdbc_statements_total", "JDBC statements executed", "");
+        this.rows = metricsRegistry.counter("ebank_jdbc_rows_fetched_total", "Rows read from JDBC result sets", "");
+    }
+
+    public RequestStats begin() {
+        RequestStats requestStats = new RequestStats();
+        CURRENT.set(requestStats);
+        return requestStats;
+    }
+
+    public void end() {
+        CURRENT.remove();
+    }
+
+    void statementExecuted() {
+        statements.increment();
+        RequestStats requestStats = CURRENT.get();
+        if (requestStats != null) requestStats.statements++;
+    }
+
+    void rowFetched() {
+        rows.increment();
+        RequestStats requestStats = CURRENT.get();
+        if (requestStats != null) requestStats.rows++;
+    }
+
+    public static class RequestStats {
+        private long statements;
+        private long rows;
+
+        public long getStatements() {
+            return statements;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+    }
+}
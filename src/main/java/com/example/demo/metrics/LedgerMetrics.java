@@ -0,0 +1,26 @@
+package com.example.demo.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts account operations applied, whichever path (ledger engine, single or batch
+ * database path) applied them.
+ */
+@Component
+public class LedgerMetrics {
+    private final LongAdder total;
+    private final ThroughputMeter throughput = new ThroughputMeter();
+
+    public LedgerMetrics(MetricsRegistry metricsRegistry) {
+        this.total = metricsRegistry.counter("ebank_ledger_operations_total", "Account operations applied", "");
+        metricsRegistry.gauge("ebank_ledger_operations_per_second", "Account operations applied per second over the last 10s", "",
+                throughput::ratePerSecond);
+    }
+
+    public void applied(long operations) {
+        total.add(operations);
+        throughput.mark(operations);
+    }
+}
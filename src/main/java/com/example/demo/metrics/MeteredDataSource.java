@@ -0,0 +1,85 @@
+package com.example.demo.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Wraps connections, statements and result sets in thin proxies that count executed
+ * statements and fetched rows. A batch counts as one statement, as it is one round trip.
+ */
+public class MeteredDataSource extends DelegatingDataSource {
+    private final JdbcMetrics jdbcMetrics;
+
+    public MeteredDataSource(DataSource targetDataSource, JdbcMetrics jdbcMetrics) {
+        super(targetDataSource);
+        this.jdbcMetrics = jdbcMetrics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(Connection.class, super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(Connection.class, super.getConnection(username, password));
+    }
+
+    private <T> T wrap(Class<T> type, T target) {
+        if (target == null) return null;
+        return type.cast(Proxy.newProxyInstance(MeteredDataSource.class.getClassLoader(), new Class<?>[]{type},
+                new Handler(target)));
+    }
+
+    private class Handler implements InvocationHandler {
+        private final Object target;
+
+        Handler(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+            String name = method.getName();
+            if (target instanceof Connection) {
+                return switch (name) {
+                    case "createStatement" -> wrap(Statement.class, (Statement) result);
+                    case "prepareStatement" -> wrap(PreparedStatement.class, (PreparedStatement) result);
+                    case "prepareCall" -> wrap(CallableStatement.class, (CallableStatement) result);
+                    default -> result;
+                };
+            }
+            if (target instanceof Statement) {
+                if (name.startsWith("execute")) {
+                    jdbcMetrics.statementExecuted();
+                }
+                if (result instanceof ResultSet resultSet
+                        && (name.equals("executeQuery") || name.equals("getResultSet") || name.equals("getGeneratedKeys"))) {
+                    return wrap(ResultSet.class, resultSet);
+                }
+                return result;
+            }
+            if (target instanceof ResultSet && name.equals("next") && Boolean.TRUE.equals(result)) {
+                jdbcMetrics.rowFetched();
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.demo.metrics;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+@Component
+public class MeteredDataSourcePostProcessor implements BeanPostProcessor {
+    private final ObjectProvider<JdbcMetrics> jdbcMetrics;
+    private final boolean enabled;
+
+    public MeteredDataSourcePostProcessor(ObjectProvider<JdbcMetrics> jdbcMetrics, Environment environment) {
+        this.jdbcMetrics = jdbcMetrics;
+        this.enabled = environment.getProperty("metrics.jdbc.enabled", Boolean.class, true);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (enabled && bean instanceof DataSource dataSource && !(bean instanceof MeteredDataSource)) {
+            return new MeteredDataSource(dataSource, jdbcMetrics.getObject());
+        }
+        return bean;
+    }
+}
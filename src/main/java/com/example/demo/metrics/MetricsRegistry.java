@@ -0,0 +1,102 @@
+package com.example.demo.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Minimal in-process registry rendered in the Prometheus text exposition format.
+ * Summaries hold a {@link Histogram} per label set; a unit scale turns recorded
+ * nanoseconds into seconds when rendering.
+ */
+@Component
+public class MetricsRegistry {
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+
+    private final Map<String, Family<Histogram>> summaries = new ConcurrentHashMap<>();
+    private final Map<String, Family<LongAdder>> counters = new ConcurrentHashMap<>();
+    private final Map<String, Family<DoubleSupplier>> gauges = new ConcurrentHashMap<>();
+    private final Map<String, Double> scales = new ConcurrentHashMap<>();
+
+    public Histogram summary(String name, String help, double scale, String labels) {
+        scales.putIfAbsent(name, scale);
+        return summaries.computeIfAbsent(name, key -> new Family<>(help))
+                .series.computeIfAbsent(labels, key -> new Histogram());
+    }
+
+    public LongAdder counter(String name, String help, String labels) {
+        return counters.computeIfAbsent(name, key -> new Family<>(help))
+                .series.computeIfAbsent(labels, key -> new LongAdder());
+    }
+
+    public void gauge(String name, String help, String labels, DoubleSupplier supplier) {
+        gauges.computeIfAbsent(name, key -> new Family<>(help)).series.put(labels, supplier);
+    }
+
+    public static String labels(String... keyValues) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i + 1 < keyValues.length; i += 2) {
+            if (!builder.isEmpty()) builder.append(',');
+            builder.append(keyValues[i]).append("=\"")
+                    .append(keyValues[i + 1].replace("\\", "\\\\").replace("\"", "\\\""))
+                    .append('"');
+        }
+        return builder.toString();
+    }
+
+    public String scrape() {
+        StringBuilder out = new StringBuilder();
+        new TreeMap<>(summaries).forEach((name, family) -> {
+            double scale = scales.getOrDefault(name, 1.0);
+            header(out, name, family.help, "summary");
+            new TreeMap<>(family.series).forEach((labels, histogram) -> {
+                for (double quantile : QUANTILES) {
+                    String quantileLabel = "quantile=\"" + quantile + "\"";
+                    sample(out, name, labels.isEmpty() ? quantileLabel : labels + "," + quantileLabel,
+                            histogram.quantile(quantile) * scale);
+                }
+                sample(out, name + "_sum", labels, histogram.sum() * scale);
+                sample(out, name + "_count", labels, histogram.count());
+            });
+        });
+        new TreeMap<>(counters).forEach((name, family) -> {
+            header(out, name, family.help, "counter");
+            new TreeMap<>(family.series).forEach((labels, adder) -> sample(out, name, labels, adder.sum()));
+        });
+        new TreeMap<>(gauges).forEach((name, family) -> {
+            header(out, name, family.help, "gauge");
+            new TreeMap<>(family.series).forEach((labels, supplier) -> sample(out, name, labels, supplier.getAsDouble()));
+        });
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (!labels.isEmpty()) out.append('{').append(labels).append('}');
+        out.append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    private static class Family<T> {
+        private final String help;
+        private final Map<String, T> series = new ConcurrentHashMap<>();
+
+        Family(String help) {
+            this.help = help;
+        }
+    }
+}
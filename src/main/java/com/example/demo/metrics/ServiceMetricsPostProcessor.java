@@ -0,0 +1,53 @@
+package com.example.demo.metrics;
+
+import com.example.demo.services.BankAccountService;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Adds a timing interceptor in front of {@link BankAccountService}, outside the
+ * transaction interceptor so commit time is included.
+ */
+@Component
+public class ServiceMetricsPostProcessor implements BeanPostProcessor {
+    private final ObjectProvider<MetricsRegistry> metricsRegistry;
+    private final Map<Method, Histogram> histograms = new ConcurrentHashMap<>();
+
+    public ServiceMetricsPostProcessor(ObjectProvider<MetricsRegistry> metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof BankAccountService)) return bean;
+        MethodInterceptor interceptor = invocation -> {
+            long start = System.nanoTime();
+            try {
+                return invocation.proceed();
+            } finally {
+                histogram(invocation.getMethod()).record(System.nanoTime() - start);
+            }
+        };
+        if (bean instanceof Advised advised) {
+            advised.addAdvice(0, interceptor);
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.addAdvice(interceptor);
+        return proxyFactory.getProxy();
+    }
+
+    private Histogram histogram(Method method) {
+        return histograms.computeIfAbsent(method, key -> metricsRegistry.getObject().summary(
+                "ebank_service_latency_seconds", "BankAccountService method latency", 1e-9,
+                MetricsRegistry.labels("method", key.getName())));
+    }
+}
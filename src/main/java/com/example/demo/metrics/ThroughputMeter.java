@@ -0,0 +1,49 @@
+package com.example.demo.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts events in one-second slots to report the per-second rate over the last
+ * {@value #WINDOW_SECONDS} seconds.
+ */
+public class ThroughputMeter {
+    private static final int SLOTS = 64;
+    private static final int WINDOW_SECONDS = 10;
+    private static final long RESETTING = -1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(SLOTS);
+    private final AtomicLongArray seconds = new AtomicLongArray(SLOTS);
+
+    public void mark(long events) {
+        long second = System.currentTimeMillis() / 1000;
+        int slot = (int) (second % SLOTS);
+        long slotSecond = seconds.get(slot);
+        // the slot is zeroed before its new second is published, so nothing counted for that
+        // second can be wiped; markers arriving meanwhile wait for the publication
+        while (slotSecond < second) {
+            if (slotSecond != RESETTING && seconds.compareAndSet(slot, slotSecond, RESETTING)) {
+                counts.set(slot, 0);
+                seconds.set(slot, second);
+                break;
+            }
+            Thread.onSpinWait();
+            slotSecond = seconds.get(slot);
+        }
+        counts.addAndGet(slot, events);
+    }
+
+    /**
+     * Average rate over the last complete seconds, excluding the one in progress.
+     */
+    public double ratePerSecond() {
+        long now = System.currentTimeMillis() / 1000;
+        long events = 0;
+        for (long second = now - WINDOW_SECONDS; second < now; second++) {
+            int slot = (int) (second % SLOTS);
+            if (seconds.get(slot) == second) {
+                events += counts.get(slot);
+            }
+        }
+        return (double) events / WINDOW_SECONDS;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.demo.money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Amounts are carried as a primitive {@code long} of minor units (cents), so sums and
+ * balance checks are exact and allocate nothing. This class holds the conversions to and
+ * from the decimal major-unit form used in the database and in JSON; parsing and
+ * formatting work on caller-supplied char buffers.
+ */
+public final class Money {
+    public static final int SCALE = 2;
+    public static final long MINOR_PER_MAJOR = 100;
+    /** Longest formatted amount: sign, 17 integer digits, point, 2 decimals. */
+    public static final int MAX_CHARS = 21;
+
+    private Money() {
+    }
+
+    public static long ofMajor(long major) {
+        return Math.multiplyExact(major, MINOR_PER_MAJOR);
+    }
+
+    /** Rounds half-even to the nearest minor unit. */
+    public static long ofMajor(BigDecimal major) {
+        return major.setScale(SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Rounds half-even to the nearest minor unit whatever numeric type a native query
+     * returned, {@code DECIMAL} or the {@code DOUBLE} of a schema not yet migrated.
+     */
+    public static long ofMajor(Number major) {
+        return ofMajor(major instanceof BigDecimal decimal ? decimal : new BigDecimal(major.toString()));
+    }
+
+    public static BigDecimal toBigDecimal(long minor) {
+        return BigDecimal.valueOf(minor, SCALE);
+    }
+
+    public static String toString(long minor) {
+        char[] buffer = new char[MAX_CHARS];
+        return new String(buffer, 0, format(minor, buffer, 0));
+    }
+
+    public static long parse(CharSequence text) {
+        char[] buffer = new char[text.length()];
+        for (int i = 0; i < buffer.length; i++) buffer[i] = text.charAt(i);
+        return parse(buffer, 0, buffer.length);
+    }
+
+    /**
+     * Parses a plain decimal such as {@code -12.5} or {@code 100.00}. Digits past the
+     * second decimal must be zeros; exponents are not accepted.
+     *
+     * @throws IllegalArgumentException when the text is not such an amount or overflows
+     */
+    public static long parse(char[] text, int offset, int length) {
+        try {
+            return parseExact(text, offset, length);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount out of range");
+        }
+    }
+
+    private static long parseExact(char[] text, int offset, int length) {
+        int i = offset;
+        int end = offset + length;
+        boolean negative = false;
+        if (i < end && (text[i] == '-' || text[i] == '+')) {
+            negative = text[i] == '-';
+            i++;
+        }
+        long major = 0;
+        int integerDigits = 0;
+        while (i < end && text[i] >= '0' && text[i] <= '9') {
+            major = Math.addExact(Math.multiplyExact(major, 10), text[i] - '0');
+            integerDigits++;
+            i++;
+        }
+        long fraction = 0;
+        int fractionDigits = 0;
+        if (i < end && text[i] == '.') {
+            i++;
+            while (i < end && text[i] >= '0' && text[i] <= '9') {
+                if (fractionDigits < SCALE) {
+                    fraction = fraction * 10 + (text[i] - '0');
+                } else if (text[i] != '0') {
+                    throw new IllegalArgumentException("Amount has more than " + SCALE + " decimal places");
+                }
+                fractionDigits++;
+                i++;
+            }
+        }
+        if (i != end || integerDigits + fractionDigits == 0) {
+            throw new IllegalArgumentException("Not a decimal amount");
+        }
+        for (int d = Math.min(fractionDigits, SCALE); d < SCALE; d++) fraction *= 10;
+        long minor = Math.addExact(Math.multiplyExact(major, MINOR_PER_MAJOR), fraction);
+        return negative ? -minor : minor;
+    }
+
+    /**
+     * Writes the amount in major units with exactly two decimals and returns the number of
+     * chars written; {@code buffer} needs {@link #MAX_CHARS} free from {@code offset}.
+     */
+    public static int format(long minor, char[] buffer, int offset) {
+        int end = offset + MAX_CHARS;
+        int i = end;
+        // work on the negative value so Long.MIN_VALUE needs no special case
+        long value = minor < 0 ? minor : -minor;
+        for (int d = 0; d < SCALE; d++) {
+            buffer[--i] = (char) ('0' - value % 10);
+            value /= 10;
+        }
+        buffer[--i] = '.';
+        do {
+            buffer[--i] = (char) ('0' - value % 10);
+            value /= 10;
+        } while (value != 0);
+        if (minor < 0) buffer[--i] = '-';
+        int length = end - i;
+        System.arraycopy(buffer, i, buffer, offset, length);
+        return length;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.demo.money;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.math.BigDecimal;
+
+/**
+ * Stores minor-unit amounts as exact {@code DECIMAL} major units, so the columns stay
+ * readable and database-side arithmetic stays exact.
+ */
+@Converter
+public class MoneyConverter implements AttributeConverter<Long, BigDecimal> {
+    @Override
+    public BigDecimal convertToDatabaseColumn(Long minor) {
+        return minor == null ? null : Money.toBigDecimal(minor);
+    }
+
+    @Override
+    public Long convertToEntityAttribute(BigDecimal major) {
+        return major == null ? null : Money.ofMajor(major);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.demo.money;
+
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.DeserializationContext;
+import tools.jackson.databind.ValueDeserializer;
+
+/**
+ * Reads a major-unit JSON number, or a numeric string, into minor units straight from the
+ * parser's text buffer, without going through {@code double} or {@code BigDecimal}.
+ */
+public class MoneyDeserializer extends ValueDeserializer<Long> {
+    @Override
+    public Long deserialize(JsonParser parser, DeserializationContext context) throws JacksonException {
+        JsonToken token = parser.currentToken();
+        if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT && token != JsonToken.VALUE_STRING) {
+            return context.reportInputMismatch(Long.class, "Expected an amount, got %s", token);
+        }
+        try {
+            return Money.parse(parser.getStringCharacters(), parser.getStringOffset(), parser.getStringLength());
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            return context.reportInputMismatch(Long.class, "Invalid amount: %s", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.demo.money;
+
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.SerializationContext;
+import tools.jackson.databind.ValueSerializer;
+
+/** Writes a minor-unit amount as a JSON number in major units, e.g. {@code 1250} as {@code 12.50}. */
+public class MoneySerializer extends ValueSerializer<Long> {
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[Money.MAX_CHARS]);
+
+    @Override
+    public void serialize(Long minor, JsonGenerator generator, SerializationContext context) throws JacksonException {
+        char[] buffer = BUFFER.get();
+        generator.writeNumber(buffer, 0, Money.format(minor, buffer, 0));
+    }
+}
@@ -0,0 +1,333 @@
+package com.example.demo.reconciliation;
+
+import com.example.demo.dtos.ReconciliationDiscrepancyDTO;
+import com.example.demo.dtos.ReconciliationReportDTO;
+import com.example.demo.entities.DiscrepancyKind;
+import com.example.demo.entities.ReconciliationDiscrepancy;
+import com.example.demo.entities.ReconciliationRun;
+import com.example.demo.entities.ReconciliationState;
+import com.example.demo.metrics.MetricsRegistry;
+import com.example.demo.money.Money;
+import com.example.demo.repositories.ReconciliationDiscrepancyRepository;
+import com.example.demo.repositories.ReconciliationRunRepository;
+import com.example.demo.repositories.ReconciliationStateRepository;
+import com.example.demo.sharding.Shards;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Checks that every account's balance equals its opening balance plus the signed sum of
+ * its operations.
+ * <p>
+ * Accounts are cut into id ranges of {@code partition-size} accounts, per shard when
+ * sharded, which a fork-join pool splits down to single partitions. Each partition is one grouped query streaming
+ * an account row with its operation sums, then one transaction updating the
+ * checkpoints. A checkpoint folds in the operations dated before the run's cutoff, a
+ * settling delay in the past so late commits are not missed, and an incremental run
+ * only reads operations from there on and skips accounts without new ones. A full run
+ * recomputes everything. Accounts created before opening balances were recorded adopt
+ * their first reconciled balance as the baseline; nothing can be checked for them on
+ * that run, so the report lists them as unverified baselines rather than counting them
+ * as clean.
+ * <p>
+ * A balance written ahead of its operation rows (the operation journal drains them
+ * later) can show up as a discrepancy; it is rechecked by the next run.
+ */
+@Component
+@Slf4j
+public class ReconciliationService {
+    private static final Date EPOCH = new Date(0);
+
+    private final ReconciliationStateRepository reconciliationStateRepository;
+    private final ReconciliationRunRepository reconciliationRunRepository;
+    private final ReconciliationDiscrepancyRepository reconciliationDiscrepancyRepository;
+    private final Shards shards;
+    private final TransactionTemplate transactionTemplate;
+    private final ForkJoinPool pool;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final LongAdder accountsChecked;
+    private final int partitionSize;
+    private final long settleMillis;
+    private final int reportLimit;
+    private volatile int lastDiscrepancies;
+
+    public ReconciliationService(ReconciliationStateRepository reconciliationStateRepository,
+                                 ReconciliationRunRepository reconciliationRunRepository,
+                                 ReconciliationDiscrepancyRepository reconciliationDiscrepancyRepository,
+                                 Shards shards,
+                                 PlatformTransactionManager transactionManager,
+                                 MetricsRegistry metricsRegistry,
+                                 @Value("${reconciliation.partition-size:5000}") int partitionSize,
+                                 @Value("${reconciliation.parallelism:4}") int parallelism,
+                                 @Value("${reconciliation.settle-millis:300000}") long settleMillis,
+                                 @Value("${reconciliation.report-limit:1000}") int reportLimit) {
+        this.reconciliationStateRepository = reconciliationStateRepository;
+        this.reconciliationRunRepository = reconciliationRunRepository;
+        this.reconciliationDiscrepancyRepository = reconciliationDiscrepancyRepository;
+        this.shards = shards;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.pool = new ForkJoinPool(parallelism);
+        this.partitionSize = partitionSize;
+        this.settleMillis = settleMillis;
+        this.reportLimit = reportLimit;
+        this.accountsChecked = metricsRegistry.counter("ebank_reconciliation_accounts_checked_total",
+                "Accounts whose balance was checked against their operations", "");
+        metricsRegistry.gauge("ebank_reconciliation_discrepancies", "Discrepancies found by the last reconciliation run", "",
+                () -> lastDiscrepancies);
+    }
+
+    @Scheduled(cron = "${reconciliation.cron:-}")
+    public void scheduledRun() {
+        try {
+            reconcile(false);
+        } catch (IllegalStateException e) {
+            log.warn("Scheduled reconciliation skipped: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reconciles the accounts with new operations since their checkpoint, or every
+     * account when {@code full}, and records the run with its discrepancies.
+     *
+     * @throws IllegalStateException when another run is in progress
+     */
+    public ReconciliationReportDTO reconcile(boolean full) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A reconciliation run is already in progress");
+        }
+        try {
+            return run(full);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public ReconciliationReportDTO latestReport() {
+        return reconciliationRunRepository.findFirstByOrderByIdDesc().map(this::report).orElse(null);
+    }
+
+    private ReconciliationReportDTO run(boolean full) {
+        long start = System.nanoTime();
+        Date startedAt = new Date();
+        Run run = new Run(full, new Date(startedAt.getTime() - settleMillis), partitions());
+        pool.invoke(new PartitionTask(run, 0, run.partitions.size()));
+
+        ReconciliationRun reconciliationRun = new ReconciliationRun();
+        reconciliationRun.setFullRun(full);
+        reconciliationRun.setStartedAt(startedAt);
+        reconciliationRun.setSettledBefore(run.cutoff);
+        reconciliationRun.setAccountsChecked(run.checked.sum());
+        reconciliationRun.setBaselinesAdopted(run.baselines.sum());
+        reconciliationRun.setDiscrepancies(run.mismatches.get());
+        reconciliationRun.setPartitions(run.partitions.size());
+        reconciliationRun.setFailedPartitions(run.failedPartitions.get());
+        reconciliationRun.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+        transactionTemplate.executeWithoutResult(status -> {
+            reconciliationRunRepository.save(reconciliationRun);
+            run.discrepancies.forEach(discrepancy -> discrepancy.setRun(reconciliationRun));
+            reconciliationDiscrepancyRepository.saveAll(run.discrepancies);
+        });
+        lastDiscrepancies = reconciliationRun.getDiscrepancies();
+        log.info("Reconciliation run {} ({}): {} accounts checked, {} discrepancies, {} partitions ({} failed), {} ms",
+                reconciliationRun.getId(), full ? "full" : "incremental", reconciliationRun.getAccountsChecked(),
+                reconciliationRun.getDiscrepancies(), reconciliationRun.getPartitions(),
+                reconciliationRun.getFailedPartitions(), reconciliationRun.getElapsedMillis());
+        return report(reconciliationRun);
+    }
+
+    private List<Partition> partitions() {
+        List<Partition> partitions = new ArrayList<>();
+        for (int shard = 0; shard < shards.count(); shard++) {
+            List<String> starts = shards.onShard(shard, this::partitionStarts);
+            for (int i = 0; i < starts.size(); i++) {
+                boolean last = i == starts.size() - 1;
+                partitions.add(new Partition(shard, starts.get(i), last ? "" : starts.get(i + 1), last));
+            }
+        }
+        return partitions;
+    }
+
+    /** First account id of each partition; the first partition starts before any id. */
+    private List<String> partitionStarts() {
+        List<String> starts = new ArrayList<>();
+        starts.add("");
+        while (true) {
+            String from = starts.getLast();
+            String next = transactionTemplate.execute(status ->
+                    reconciliationStateRepository.findNextPartitionStart(from, partitionSize).orElse(null));
+            if (next == null) return starts;
+            starts.add(next);
+        }
+    }
+
+    private void reconcilePartition(Run run, Partition partition) {
+        shards.onShard(partition.shard(), () -> transactionTemplate.execute(status -> {
+            List<Checked> checked;
+            try (Stream<Object[]> rows = reconciliationStateRepository.streamPartition(
+                    partition.from(), partition.until(), partition.last() ? 1 : 0, run.full ? 1 : 0, EPOCH, run.cutoff)) {
+                checked = rows.map(this::check).toList();
+            }
+            if (checked.isEmpty()) return null;
+            Map<String, ReconciliationState> states = reconciliationStateRepository
+                    .findAllById(checked.stream().map(Checked::accountId).toList()).stream()
+                    .collect(Collectors.toMap(ReconciliationState::getAccountId, Function.identity()));
+            Date now = new Date();
+            List<ReconciliationState> created = new ArrayList<>();
+            for (Checked account : checked) {
+                ReconciliationState state = states.get(account.accountId());
+                if (state == null) {
+                    state = new ReconciliationState();
+                    state.setAccountId(account.accountId());
+                    created.add(state);
+                }
+                if (account.fromScratch()) {
+                    state.setOpeningBalance(account.base());
+                    state.setSettledBefore(run.cutoff);
+                } else if (state.getSettledBefore() == null || state.getSettledBefore().before(run.cutoff)) {
+                    state.setSettledBefore(run.cutoff);
+                }
+                state.setSettledBalance(account.settled());
+                state.setMismatched(account.expected() != account.balance());
+                state.setCheckedAt(now);
+                if (state.isMismatched()) {
+                    run.mismatches.incrementAndGet();
+                    run.discrepancies.add(new ReconciliationDiscrepancy(null, null, account.accountId(),
+                            account.balance(), account.expected(), DiscrepancyKind.MISMATCH));
+                } else if (account.baselineAdopted()) {
+                    run.baselines.increment();
+                    run.discrepancies.add(new ReconciliationDiscrepancy(null, null, account.accountId(),
+                            account.balance(), account.expected(), DiscrepancyKind.UNVERIFIED_BASELINE));
+                }
+            }
+            reconciliationStateRepository.saveAll(created);
+            run.checked.add(checked.size());
+            accountsChecked.add(checked.size());
+            return null;
+        }));
+    }
+
+    private Checked check(Object[] row) {
+        String accountId = (String) row[0];
+        long balance = minor(row[1]);
+        long settledDelta = minor(row[4]);
+        long totalDelta = minor(row[5]);
+        boolean fromScratch = row[3] == null;
+        boolean baselineAdopted = fromScratch && row[2] == null;
+        long base = !fromScratch ? minor(row[3])
+                : baselineAdopted ? balance - totalDelta
+                : minor(row[2]);
+        return new Checked(accountId, balance, fromScratch, baselineAdopted, base,
+                base + settledDelta, base + totalDelta);
+    }
+
+    private static long minor(Object value) {
+        if (value == null) return 0;
+        return Money.ofMajor((Number) value);
+    }
+
+    private ReconciliationReportDTO report(ReconciliationRun reconciliationRun) {
+        ReconciliationReportDTO reportDTO = new ReconciliationReportDTO();
+        reportDTO.setRunId(reconciliationRun.getId());
+        reportDTO.setFull(reconciliationRun.isFullRun());
+        reportDTO.setStartedAt(reconciliationRun.getStartedAt());
+        reportDTO.setSettledBefore(reconciliationRun.getSettledBefore());
+        reportDTO.setAccountsChecked(reconciliationRun.getAccountsChecked());
+        reportDTO.setBaselinesAdopted(reconciliationRun.getBaselinesAdopted());
+        reportDTO.setDiscrepancies(reconciliationRun.getDiscrepancies());
+        reportDTO.setPartitions(reconciliationRun.getPartitions());
+        reportDTO.setFailedPartitions(reconciliationRun.getFailedPartitions());
+        reportDTO.setElapsedMillis(reconciliationRun.getElapsedMillis());
+        reportDTO.setDiscrepancyList(reconciliationDiscrepancyRepository
+                .findByRunIdOrderByKindAscAccountIdAsc(reconciliationRun.getId(), Limit.of(reportLimit)).stream()
+                .map(discrepancy -> {
+                    ReconciliationDiscrepancyDTO discrepancyDTO = new ReconciliationDiscrepancyDTO();
+                    discrepancyDTO.setAccountId(discrepancy.getAccountId());
+                    // rows from before kinds were recorded were all mismatches
+                    discrepancyDTO.setKind(discrepancy.getKind() != null ? discrepancy.getKind() : DiscrepancyKind.MISMATCH);
+                    discrepancyDTO.setBalance(discrepancy.getBalance());
+                    discrepancyDTO.setExpected(discrepancy.getExpected());
+                    discrepancyDTO.setDifference(discrepancy.getBalance() - discrepancy.getExpected());
+                    return discrepancyDTO;
+                })
+                .toList());
+        return reportDTO;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private record Checked(String accountId, long balance, boolean fromScratch, boolean baselineAdopted,
+                           long base, long settled, long expected) {
+    }
+
+    private record Partition(int shard, String from, String until, boolean last) {
+    }
+
+    private static final class Run {
+        private final boolean full;
+        private final Date cutoff;
+        private final List<Partition> partitions;
+        private final LongAdder checked = new LongAdder();
+        private final LongAdder baselines = new LongAdder();
+        private final AtomicInteger failedPartitions = new AtomicInteger();
+        private final AtomicInteger mismatches = new AtomicInteger();
+        private final ConcurrentLinkedQueue<ReconciliationDiscrepancy> discrepancies = new ConcurrentLinkedQueue<>();
+
+        Run(boolean full, Date cutoff, List<Partition> partitions) {
+            this.full = full;
+            this.cutoff = cutoff;
+            this.partitions = partitions;
+        }
+    }
+
+    private final class PartitionTask extends RecursiveAction {
+        private final Run run;
+        private final int from;
+        private final int to;
+
+        PartitionTask(Run run, int from, int to) {
+            this.run = run;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new PartitionTask(run, from, middle), new PartitionTask(run, middle, to));
+                return;
+            }
+            try {
+                reconcilePartition(run, run.partitions.get(from));
+            } catch (RuntimeException e) {
+                // its checkpoints are untouched, so the next run simply covers it again
+                log.error("Reconciliation failed for the partition starting at account '{}' on shard {}",
+                        run.partitions.get(from).from(), run.partitions.get(from).shard(), e);
+                run.failedPartitions.incrementAndGet();
+            }
+        }
+    }
+}
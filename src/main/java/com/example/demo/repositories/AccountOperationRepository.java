@@ -1,13 +1,56 @@
 package com.example.demo.repositories;
 
 import com.example.demo.entities.AccountOperation;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface AccountOperationRepository extends JpaRepository<AccountOperation, Long> {
     List<AccountOperation> findByBankAccountIdOrderByDateDesc(String accountId);
     Page<AccountOperation> findByBankAccountIdOrderByDateDesc(String accountId, Pageable pageable);
+
+    List<AccountOperation> findByBankAccountIdOrderByDateDescIdDesc(String accountId, Limit limit);
+
+    @Query("select o from AccountOperation o where o.bankAccount.id = :accountId " +
+            "and (o.date < :date or (o.date = :date and o.id < :id)) order by o.date desc, o.id desc")
+    List<AccountOperation> findPageAfter(@Param("accountId") String accountId,
+                                         @Param("date") Date date,
+                                         @Param("id") Long id,
+                                         Limit limit);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select o from AccountOperation o where o.bankAccount.id = :accountId order by o.date desc, o.id desc")
+    Stream<AccountOperation> streamByBankAccountId(@Param("accountId") String accountId);
+
+    /**
+     * The latest {@code limit} operations of each of the customer's accounts, newest first:
+     * account id, operation id, date, amount, type and description.
+     */
+    @Query(value = "select bank_account_id, id, date, amount, type, description from (" +
+            "select o.bank_account_id, o.id, o.date, o.amount, o.type, o.description, " +
+            "row_number() over (partition by o.bank_account_id order by o.date desc, o.id desc) as position " +
+            "from account_operation o join bank_account b on b.id = o.bank_account_id " +
+            "where b.customer_id = :customerId) recent " +
+            "where position <= :limit order by bank_account_id, position", nativeQuery = true)
+    List<Object[]> findRecentByCustomer(@Param("customerId") Long customerId, @Param("limit") int limit);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select o.bankAccount.id, o.type, o.amount, o.date from AccountOperation o")
+    Stream<Object[]> streamAllForRollup();
 }
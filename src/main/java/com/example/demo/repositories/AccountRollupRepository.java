@@ -0,0 +1,34 @@
+package com.example.demo.repositories;
+
+import com.example.demo.entities.AccountRollup;
+import com.example.demo.entities.AccountRollupId;
+import com.example.demo.entities.RollupGranularity;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface AccountRollupRepository extends JpaRepository<AccountRollup, AccountRollupId> {
+    /** Locks every rollup row of the accounts over the periods, in primary key order. */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from AccountRollup r where r.id.accountId in :accountIds and r.id.periodStart in :periods " +
+            "order by r.id.accountId, r.id.granularity, r.id.periodStart")
+    List<AccountRollup> lockRows(@Param("accountIds") Collection<String> accountIds,
+                                 @Param("periods") Collection<LocalDate> periods);
+
+    @Query("select r.id from AccountRollup r where r.id.accountId in :accountIds and r.id.periodStart in :periods")
+    List<AccountRollupId> findIds(@Param("accountIds") Collection<String> accountIds,
+                                  @Param("periods") Collection<LocalDate> periods);
+
+    @Query("select r from AccountRollup r where r.id.accountId = :accountId and r.id.granularity = :granularity " +
+            "and r.id.periodStart between :from and :to order by r.id.periodStart")
+    List<AccountRollup> findPeriods(@Param("accountId") String accountId,
+                                    @Param("granularity") RollupGranularity granularity,
+                                    @Param("from") LocalDate from,
+                                    @Param("to") LocalDate to);
+}
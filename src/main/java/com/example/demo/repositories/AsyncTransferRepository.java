@@ -0,0 +1,25 @@
+package com.example.demo.repositories;
+
+import com.example.demo.dtos.TransferStatus;
+import com.example.demo.entities.AsyncTransfer;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+public interface AsyncTransferRepository extends JpaRepository<AsyncTransfer, String> {
+    List<AsyncTransfer> findByStatusInOrderBySubmittedAt(Collection<TransferStatus> statuses);
+
+    @Modifying
+    @Query("update AsyncTransfer t set t.status = :status, t.error = :error, t.completedAt = :completedAt where t.id = :id")
+    int updateStatus(@Param("id") String id, @Param("status") TransferStatus status,
+                     @Param("error") String error, @Param("completedAt") Date completedAt);
+
+    @Modifying
+    @Query("delete from AsyncTransfer t where t.completedAt < :before")
+    int deleteCompletedBefore(@Param("before") Date before);
+}
@@ -1,13 +1,63 @@
 package com.example.demo.repositories;
 
-import com.example.demo.entities.AccountOperation;
+import com.example.demo.entities.AccountStatus;
 import com.example.demo.entities.BankAccount;
-import org.hibernate.query.Page;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 public interface BankAccountRepository extends JpaRepository<BankAccount , String> {
+    /**
+     * Debits only when the balance plus overdraft covers the amount; returns 0 otherwise.
+     * Amounts are in minor units, the columns in exact major units.
+     */
+    @Modifying
+    @Query(value = "update bank_account set balance = balance - :amount * 0.01, version = coalesce(version, 0) + 1 " +
+            "where id = :id and balance + coalesce(over_draft, 0) >= :amount * 0.01", nativeQuery = true)
+    int debitIfCovered(@Param("id") String id, @Param("amount") long amount);
+
+    @Modifying
+    @Query(value = "update bank_account set balance = balance + :amount * 0.01, version = coalesce(version, 0) + 1 " +
+            "where id = :id", nativeQuery = true)
+    int creditBalance(@Param("id") String id, @Param("amount") long amount);
+
+    /** Gives accounts created before the version column existed a version to compare against. */
+    @Modifying
+    @Query(value = "update bank_account set version = 0 where version is null", nativeQuery = true)
+    int backfillVersions();
+
+    /** Keyset page of saving accounts not yet accrued up to {@code runDate}, in id order. */
+    @Query("select s.id from SavingAccount s where s.id > :after " +
+            "and (s.lastAccruedOn is null or s.lastAccruedOn < :runDate) order by s.id")
+    List<String> findSavingAccountsToAccrue(@Param("after") String after, @Param("runDate") LocalDate runDate, Limit limit);
+
+    boolean existsByCustomerId(Long customerId);
+
+    @Query("select b.balance from BankAccount b where b.id = :id")
+    Optional<Long> findBalanceById(@Param("id") String id);
+
+    /** The account's entity class and customer id, as a single row when the account exists. */
+    @Query("select type(b), c.id from BankAccount b left join b.customer c where b.id = :id")
+    List<Object[]> findTypeAndCustomerId(@Param("id") String id);
+
+    @Query("select b from BankAccount b left join fetch b.customer")
+    List<BankAccount> findAllWithCustomer();
+
+    @Query("select b from BankAccount b left join fetch b.customer c " +
+            "where (:type is null or type(b) = :type) " +
+            "and (:status is null or b.status = :status) " +
+            "and (:customerId is null or c.id = :customerId) " +
+            "order by b.createdAt desc, b.id")
+    Slice<BankAccount> findSlice(@Param("type") Class<? extends BankAccount> type,
+                                 @Param("status") AccountStatus status,
+                                 @Param("customerId") Long customerId,
+                                 Pageable pageable);
 }
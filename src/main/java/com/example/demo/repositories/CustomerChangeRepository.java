@@ -0,0 +1,23 @@
+package com.example.demo.repositories;
+
+import com.example.demo.entities.CustomerChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Date;
+import java.util.List;
+
+public interface CustomerChangeRepository extends JpaRepository<CustomerChange, Long> {
+    List<CustomerChange> findByCreatedAtBeforeOrderById(Date before, Limit limit);
+
+    @Query("select max(c.id) from CustomerChange c where c.customerId = :customerId")
+    Long findLastId(@Param("customerId") Long customerId);
+
+    /** Drops the changes a sync has covered; later ones stay for the next sync. */
+    @Modifying
+    @Query("delete from CustomerChange c where c.customerId = :customerId and c.id <= :upTo")
+    int deleteUpTo(@Param("customerId") Long customerId, @Param("upTo") Long upTo);
+}
@@ -1,13 +1,38 @@
 package com.example.demo.repositories;
 
 import com.example.demo.entities.Customer;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface CustomerRepository extends JpaRepository<Customer  , Long> {
     @Query("SELECT c from Customer c where c.name like: kw")
     List<Customer> searcheCustomer(@Param("kw") String keyword);
+
+    @Query("select c from Customer c left join fetch c.bankAccounts where c.id = :id")
+    Optional<Customer> findWithAccounts(@Param("id") Long id);
+
+    /** Copies of a customer kept on the other shards, written with the id the first shard assigned. */
+    @Modifying
+    @Query(value = "update customer set name = :name, email = :email where id = :id", nativeQuery = true)
+    int updateCopy(@Param("id") Long id, @Param("name") String name, @Param("email") String email);
+
+    @Modifying
+    @Query(value = "insert into customer (id, name, email) values (:id, :name, :email)", nativeQuery = true)
+    int insertCopy(@Param("id") Long id, @Param("name") String name, @Param("email") String email);
+
+    @Modifying
+    @Query(value = "delete from customer where id = :id", nativeQuery = true)
+    int deleteCopy(@Param("id") Long id);
+
+    /** Holds off updates and deletes of the customer while its copies are written. */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Customer c where c.id = :id")
+    Optional<Customer> lockById(@Param("id") Long id);
 }
@@ -0,0 +1,7 @@
+package com.example.demo.repositories;
+
+import com.example.demo.entities.JournalCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface JournalCheckpointRepository extends JpaRepository<JournalCheckpoint, String> {
+}
@@ -0,0 +1,22 @@
+package com.example.demo.repositories;
+
+import com.example.demo.entities.JournalCommit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface JournalCommitRepository extends JpaRepository<JournalCommit, Long> {
+    List<JournalCommit> findByLastSeqGreaterThan(long seq);
+
+    /** Inserts without the lookup {@code save} makes for an assigned id. */
+    @Modifying
+    @Query(value = "insert into journal_commit (first_seq, last_seq) values (:firstSeq, :lastSeq)", nativeQuery = true)
+    int insert(@Param("firstSeq") long firstSeq, @Param("lastSeq") long lastSeq);
+
+    @Modifying
+    @Query("delete from JournalCommit c where c.lastSeq <= :seq")
+    int deleteUpTo(@Param("seq") long seq);
+}
@@ -0,0 +1,10 @@
+package com.example.demo.repositories;
+
+import com.example.demo.entities.ReconciliationRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface ReconciliationRunRepository extends JpaRepository<ReconciliationRun, Long> {
+    Optional<ReconciliationRun> findFirstByOrderByIdDesc();
+}
@@ -0,0 +1,50 @@
+package com.example.demo.repositories;
+
+import com.example.demo.entities.ReconciliationState;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Date;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface ReconciliationStateRepository extends JpaRepository<ReconciliationState, String> {
+    /** First id of the partition after the one starting at {@code from}, or empty for the last partition. */
+    @Query(value = "select id from bank_account where id >= :from order by id limit 1 offset :size", nativeQuery = true)
+    Optional<String> findNextPartitionStart(@Param("from") String from, @Param("size") int size);
+
+    /**
+     * One row per account of the partition: id, balance, opening balance, settled balance
+     * (null without a checkpoint), then the signed sum of the operations since the
+     * checkpoint dated before {@code cutoff}, the signed sum of all of them, and their
+     * count. A full run ignores checkpoints; otherwise accounts with no new operations
+     * and no open discrepancy are skipped.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(value = "select b.id, b.balance, coalesce(b.opening_balance, s.opening_balance), " +
+            "case when :full = 1 then null else s.settled_balance end, " +
+            "sum(case when o.date < :cutoff then case when o.type = 'CREDIT' then o.amount else -o.amount end else 0 end), " +
+            "sum(case when o.type = 'CREDIT' then o.amount else -o.amount end), " +
+            "count(o.id) " +
+            "from bank_account b " +
+            "left join reconciliation_state s on s.account_id = b.id " +
+            "left join account_operation o on o.bank_account_id = b.id " +
+            "and o.date >= case when :full = 1 or s.settled_before is null then :epoch else s.settled_before end " +
+            "where b.id >= :from and (:last = 1 or b.id < :until) " +
+            "group by b.id, b.balance, b.opening_balance, s.opening_balance, s.settled_balance, s.settled_before, s.mismatched " +
+            "having :full = 1 or s.settled_before is null or s.mismatched = true or count(o.id) > 0",
+            nativeQuery = true)
+    Stream<Object[]> streamPartition(@Param("from") String from,
+                                     @Param("until") String until,
+                                     @Param("last") int last,
+                                     @Param("full") int full,
+                                     @Param("epoch") Date epoch,
+                                     @Param("cutoff") Date cutoff);
+}
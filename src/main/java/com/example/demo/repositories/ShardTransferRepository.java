@@ -0,0 +1,22 @@
+package com.example.demo.repositories;
+
+import com.example.demo.entities.ShardTransfer;
+import com.example.demo.entities.ShardTransferStatus;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Date;
+import java.util.List;
+
+public interface ShardTransferRepository extends JpaRepository<ShardTransfer, String> {
+    List<ShardTransfer> findByStatusAndCreatedAtBeforeOrderByCreatedAt(ShardTransferStatus status, Date before, Limit limit);
+
+    /** Moves a pending transfer to its final status; returns 0 when someone else already did. */
+    @Modifying
+    @Query("update ShardTransfer t set t.status = :status where t.id = :id " +
+            "and t.status = com.example.demo.entities.ShardTransferStatus.PENDING")
+    int complete(@Param("id") String id, @Param("status") ShardTransferStatus status);
+}
@@ -0,0 +1,29 @@
+package com.example.demo.rollup;
+
+import com.example.demo.entities.AccountOperation;
+import com.example.demo.stream.AccountEventStream;
+import jakarta.persistence.PrePersist;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Feeds every operation row about to be inserted, whichever path writes it, into the
+ * rollups of its transaction and the live account streams. Created by Hibernate through
+ * the Spring bean container; both services are looked up lazily because they depend on
+ * the repositories that are still being built when the listener is.
+ */
+public class AccountOperationListener {
+    private final ObjectProvider<AccountRollupService> accountRollupService;
+    private final ObjectProvider<AccountEventStream> accountEventStream;
+
+    public AccountOperationListener(ObjectProvider<AccountRollupService> accountRollupService,
+                                    ObjectProvider<AccountEventStream> accountEventStream) {
+        this.accountRollupService = accountRollupService;
+        this.accountEventStream = accountEventStream;
+    }
+
+    @PrePersist
+    public void prePersist(AccountOperation accountOperation) {
+        accountRollupService.getObject().record(accountOperation);
+        accountEventStream.getObject().record(accountOperation);
+    }
+}
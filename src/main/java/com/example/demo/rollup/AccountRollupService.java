@@ -0,0 +1,241 @@
+package com.example.demo.rollup;
+
+import com.example.demo.dtos.AccountSummaryDTO;
+import com.example.demo.dtos.PeriodSummaryDTO;
+import com.example.demo.entities.AccountOperation;
+import com.example.demo.entities.AccountRollup;
+import com.example.demo.entities.AccountRollupId;
+import com.example.demo.entities.OperationType;
+import com.example.demo.entities.RollupGranularity;
+import com.example.demo.repositories.AccountOperationRepository;
+import com.example.demo.repositories.AccountRollupRepository;
+import com.example.demo.sharding.Shards;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Per-account daily and monthly credit/debit totals. Operations inserted in a transaction
+ * are summed per rollup row and applied just before it commits: the rows are locked in
+ * primary key order, so concurrent transactions cannot deadlock on them, and written back
+ * by the batched flush at commit. Missing rows are created first, before any row is
+ * locked, in a short transaction of their own; all the rows are then locked in one pass.
+ */
+@Component
+@Slf4j
+public class AccountRollupService {
+    private static final int LOCK_BATCH = 500;
+    private static final Comparator<AccountRollupId> ROW_ORDER = Comparator
+            .comparing(AccountRollupId::getAccountId)
+            .thenComparing(AccountRollupId::getGranularity)
+            .thenComparing(AccountRollupId::getPeriodStart);
+
+    private final AccountRollupRepository accountRollupRepository;
+    private final Shards shards;
+    private final TransactionTemplate requiresNew;
+    private final ZoneId zone;
+    private final boolean enabled;
+
+    public AccountRollupService(AccountRollupRepository accountRollupRepository,
+                                Shards shards,
+                                AccountOperationRepository accountOperationRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${rollup.enabled:true}") boolean enabled,
+                                @Value("${rollup.time-zone:}") String timeZone,
+                                @Value("${rollup.backfill-on-startup:true}") boolean backfill) {
+        this.accountRollupRepository = accountRollupRepository;
+        this.shards = shards;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.zone = timeZone.isBlank() ? ZoneId.systemDefault() : ZoneId.of(timeZone);
+        this.enabled = enabled;
+        if (enabled && backfill) {
+            backfill(accountOperationRepository, new TransactionTemplate(transactionManager));
+        }
+    }
+
+    void record(AccountOperation accountOperation) {
+        if (!enabled) return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            log.warn("Operation for account {} written outside a transaction, rollups not updated",
+                    accountOperation.getBankAccount().getId());
+            return;
+        }
+        RollupSynchronization rollupSynchronization = null;
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof RollupSynchronization existing) {
+                rollupSynchronization = existing;
+                break;
+            }
+        }
+        if (rollupSynchronization == null) {
+            rollupSynchronization = new RollupSynchronization();
+            TransactionSynchronizationManager.registerSynchronization(rollupSynchronization);
+        }
+        add(rollupSynchronization.deltas, accountOperation.getBankAccount().getId(),
+                accountOperation.getType(), accountOperation.getAmount(), accountOperation.getDate());
+    }
+
+    public AccountSummaryDTO summary(String accountId, RollupGranularity granularity, LocalDate from, LocalDate to) {
+        LocalDate periodFrom = periodStart(granularity, from);
+        List<AccountRollup> rollups = shards.onShardOf(accountId,
+                () -> accountRollupRepository.findPeriods(accountId, granularity, periodFrom, to));
+        AccountSummaryDTO accountSummaryDTO = new AccountSummaryDTO();
+        accountSummaryDTO.setAccountId(accountId);
+        accountSummaryDTO.setGranularity(granularity);
+        accountSummaryDTO.setFrom(periodFrom);
+        accountSummaryDTO.setTo(to);
+        List<PeriodSummaryDTO> periods = new ArrayList<>(rollups.size());
+        for (AccountRollup rollup : rollups) {
+            PeriodSummaryDTO periodSummaryDTO = new PeriodSummaryDTO();
+            periodSummaryDTO.setPeriodStart(rollup.getId().getPeriodStart());
+            periodSummaryDTO.setTotalCredits(rollup.getTotalCredits());
+            periodSummaryDTO.setTotalDebits(rollup.getTotalDebits());
+            periodSummaryDTO.setCreditCount(rollup.getCreditCount());
+            periodSummaryDTO.setDebitCount(rollup.getDebitCount());
+            periods.add(periodSummaryDTO);
+            accountSummaryDTO.setTotalCredits(accountSummaryDTO.getTotalCredits() + rollup.getTotalCredits());
+            accountSummaryDTO.setTotalDebits(accountSummaryDTO.getTotalDebits() + rollup.getTotalDebits());
+            accountSummaryDTO.setOperationCount(accountSummaryDTO.getOperationCount() + rollup.getCreditCount() + rollup.getDebitCount());
+        }
+        accountSummaryDTO.setPeriods(periods);
+        return accountSummaryDTO;
+    }
+
+    private void add(Map<AccountRollupId, AccountRollup> deltas, String accountId, OperationType type, long amount, Date date) {
+        LocalDate day = date.toInstant().atZone(zone).toLocalDate();
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            AccountRollupId id = new AccountRollupId(accountId, granularity, periodStart(granularity, day));
+            AccountRollup delta = deltas.computeIfAbsent(id, key -> new AccountRollup(key, 0, 0, 0, 0));
+            if (type == OperationType.CREDIT) {
+                delta.setTotalCredits(delta.getTotalCredits() + amount);
+                delta.setCreditCount(delta.getCreditCount() + 1);
+            } else {
+                delta.setTotalDebits(delta.getTotalDebits() + amount);
+                delta.setDebitCount(delta.getDebitCount() + 1);
+            }
+        }
+    }
+
+    private static LocalDate periodStart(RollupGranularity granularity, LocalDate day) {
+        return granularity == RollupGranularity.MONTH ? day.withDayOfMonth(1) : day;
+    }
+
+    private void apply(Map<AccountRollupId, AccountRollup> deltas) {
+        // create before locking anything, so every row is then locked in a single ordered pass
+        Set<AccountRollupId> existing = existingIds(deltas.keySet());
+        if (existing.size() < deltas.size()) {
+            createRows(deltas.keySet().stream().filter(id -> !existing.contains(id)).toList());
+        }
+        Map<AccountRollupId, AccountRollup> rows = lockRows(deltas.keySet());
+        for (AccountRollup delta : deltas.values()) {
+            AccountRollup row = rows.get(delta.getId());
+            row.setTotalCredits(row.getTotalCredits() + delta.getTotalCredits());
+            row.setTotalDebits(row.getTotalDebits() + delta.getTotalDebits());
+            row.setCreditCount(row.getCreditCount() + delta.getCreditCount());
+            row.setDebitCount(row.getDebitCount() + delta.getDebitCount());
+        }
+    }
+
+    // one locking read per LOCK_BATCH accounts; the managed rows are then written by the batched flush at commit
+    private Map<AccountRollupId, AccountRollup> lockRows(Collection<AccountRollupId> ids) {
+        Map<AccountRollupId, AccountRollup> rows = new TreeMap<>(ROW_ORDER);
+        Set<AccountRollupId> wanted = new HashSet<>(ids);
+        forEachAccountBatch(ids, (accountIds, periods) -> {
+            for (AccountRollup row : accountRollupRepository.lockRows(accountIds, periods)) {
+                if (wanted.contains(row.getId())) {
+                    rows.put(row.getId(), row);
+                }
+            }
+        });
+        return rows;
+    }
+
+    // ids only, so no row becomes managed before it is locked
+    private Set<AccountRollupId> existingIds(Collection<AccountRollupId> ids) {
+        Set<AccountRollupId> existing = new HashSet<>();
+        Set<AccountRollupId> wanted = new HashSet<>(ids);
+        forEachAccountBatch(ids, (accountIds, periods) -> {
+            for (AccountRollupId id : accountRollupRepository.findIds(accountIds, periods)) {
+                if (wanted.contains(id)) {
+                    existing.add(id);
+                }
+            }
+        });
+        return existing;
+    }
+
+    private static void forEachAccountBatch(Collection<AccountRollupId> ids,
+                                            BiConsumer<List<String>, Set<LocalDate>> action) {
+        Set<LocalDate> periods = new TreeSet<>();
+        List<String> accountIds = new ArrayList<>(new TreeSet<String>(
+                ids.stream().map(AccountRollupId::getAccountId).toList()));
+        ids.forEach(id -> periods.add(id.getPeriodStart()));
+        for (int from = 0; from < accountIds.size(); from += LOCK_BATCH) {
+            action.accept(accountIds.subList(from, Math.min(from + LOCK_BATCH, accountIds.size())), periods);
+        }
+    }
+
+    private void createRows(List<AccountRollupId> ids) {
+        try {
+            requiresNew.executeWithoutResult(status -> accountRollupRepository.saveAll(
+                    ids.stream().map(id -> new AccountRollup(id, 0, 0, 0, 0)).toList()));
+        } catch (DataIntegrityViolationException e) {
+            // some were created concurrently by another transaction, create the rest one by one
+            for (AccountRollupId id : ids) {
+                try {
+                    requiresNew.executeWithoutResult(status -> {
+                        if (!accountRollupRepository.existsById(id)) {
+                            accountRollupRepository.save(new AccountRollup(id, 0, 0, 0, 0));
+                        }
+                    });
+                } catch (DataIntegrityViolationException ignored) {
+                    // lost the race for this row
+                }
+            }
+        }
+    }
+
+    private void backfill(AccountOperationRepository accountOperationRepository, TransactionTemplate transactionTemplate) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (accountRollupRepository.count() > 0) return;
+            Map<AccountRollupId, AccountRollup> rollups = new TreeMap<>(ROW_ORDER);
+            try (Stream<Object[]> operations = accountOperationRepository.streamAllForRollup()) {
+                operations.forEach(row -> add(rollups, (String) row[0], (OperationType) row[1], (Long) row[2], (Date) row[3]));
+            }
+            if (rollups.isEmpty()) return;
+            accountRollupRepository.saveAll(rollups.values());
+            log.info("Backfilled {} account rollups from the operation history", rollups.size());
+        });
+    }
+
+    private final class RollupSynchronization implements TransactionSynchronization {
+        private final Map<AccountRollupId, AccountRollup> deltas = new TreeMap<>(ROW_ORDER);
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            apply(deltas);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.demo.routing;
+
+/**
+ * Per-thread routing state: whether the current read-only service call may use the
+ * replica, and whether the client's own recent writes pin it to the primary.
+ */
+public final class DataSourceRouting {
+    private static final ThreadLocal<Boolean> REPLICA = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> PRIMARY_PINNED = new ThreadLocal<>();
+
+    private DataSourceRouting() {
+    }
+
+    /** True while the current call reads from the replica, so what it reads may lag the primary. */
+    public static boolean readsFromReplica() {
+        return REPLICA.get() != null;
+    }
+
+    static void useReplica(boolean replica) {
+        if (replica) {
+            REPLICA.set(Boolean.TRUE);
+        } else {
+            REPLICA.remove();
+        }
+    }
+
+    static boolean isPrimaryPinned() {
+        return PRIMARY_PINNED.get() != null;
+    }
+
+    static void pinPrimary(boolean pinned) {
+        if (pinned) {
+            PRIMARY_PINNED.set(Boolean.TRUE);
+        } else {
+            PRIMARY_PINNED.remove();
+        }
+    }
+}
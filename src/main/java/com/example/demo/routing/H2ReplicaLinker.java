@@ -0,0 +1,79 @@
+package com.example.demo.routing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Local stand-in for a replica: once the schema exists, links every table of the primary
+ * H2 database into the replica one as a read-only linked table. The replica is then a
+ * separate database behind its own pool that sees the primary's committed rows, without
+ * any replication lag, and refuses writes.
+ */
+@Component
+@ConditionalOnProperty(name = "datasource.replica.h2-link-primary", havingValue = "true")
+@Slf4j
+public class H2ReplicaLinker implements SmartInitializingSingleton {
+    private final String primaryUrl;
+    private final String primaryUsername;
+    private final String primaryPassword;
+    private final String replicaUrl;
+    private final String replicaUsername;
+    private final String replicaPassword;
+
+    public H2ReplicaLinker(@Value("${spring.datasource.url}") String primaryUrl,
+                           @Value("${spring.datasource.username:sa}") String primaryUsername,
+                           @Value("${spring.datasource.password:}") String primaryPassword,
+                           @Value("${datasource.replica.url}") String replicaUrl,
+                           @Value("${datasource.replica.username:sa}") String replicaUsername,
+                           @Value("${datasource.replica.password:}") String replicaPassword) {
+        this.primaryUrl = primaryUrl;
+        this.primaryUsername = primaryUsername;
+        this.primaryPassword = primaryPassword;
+        this.replicaUrl = replicaUrl;
+        this.replicaUsername = replicaUsername;
+        this.replicaPassword = replicaPassword;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try (Connection primary = DriverManager.getConnection(primaryUrl, primaryUsername, primaryPassword);
+             Connection replica = DriverManager.getConnection(replicaUrl, replicaUsername, replicaPassword)) {
+            List<String> tables = new ArrayList<>();
+            try (Statement statement = primary.createStatement();
+                 ResultSet rows = statement.executeQuery("select table_name from information_schema.tables "
+                         + "where table_schema = 'PUBLIC' and table_type = 'BASE TABLE'")) {
+                while (rows.next()) tables.add(rows.getString(1));
+            }
+            try (Statement statement = replica.createStatement()) {
+                for (String table : tables) {
+                    // H2 takes no bind parameters here
+                    statement.execute("create linked table if not exists " + identifier(table) + "('org.h2.Driver', "
+                            + literal(primaryUrl) + ", " + literal(primaryUsername) + ", " + literal(primaryPassword)
+                            + ", " + literal(table) + ") readonly");
+                }
+            }
+            log.info("Linked {} primary tables into the H2 replica", tables.size());
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not link the H2 replica to the primary", e);
+        }
+    }
+
+    private static String identifier(String name) {
+        return '"' + name.replace("\"", "\"\"") + '"';
+    }
+
+    private static String literal(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+}
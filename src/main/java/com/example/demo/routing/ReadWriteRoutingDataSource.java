@@ -0,0 +1,48 @@
+package com.example.demo.routing;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Hands out replica connections to calls marked by {@link DataSourceRouting}, primary ones otherwise. */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+    static final String PRIMARY = "primary";
+    static final String REPLICA = "replica";
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final LongAdder primaryConnections;
+    private final LongAdder replicaConnections;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica,
+                                      LongAdder primaryConnections, LongAdder replicaConnections) {
+        this.primary = primary;
+        this.replica = replica;
+        this.primaryConnections = primaryConnections;
+        this.replicaConnections = replicaConnections;
+        setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (DataSourceRouting.readsFromReplica()) {
+            replicaConnections.increment();
+            return REPLICA;
+        }
+        primaryConnections.increment();
+        return PRIMARY;
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (replica instanceof Closeable closeable) closeable.close();
+        if (primary instanceof Closeable closeable) closeable.close();
+    }
+}
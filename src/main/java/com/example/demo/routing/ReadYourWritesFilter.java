@@ -0,0 +1,80 @@
+package com.example.demo.routing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Read-your-writes for replica routing. A write request (any method but GET, HEAD and
+ * OPTIONS) hands the client a deadline, as the {@value #COOKIE} cookie and the
+ * {@value #HEADER} response header; until it passes, the client's requests read from the
+ * primary. Browsers send the cookie back by themselves, other clients echo the header.
+ * The deadline is capped at one window from now, so a forged value cannot pin a client
+ * for longer than its own write would have.
+ */
+@Component
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    public static final String COOKIE = "ebank_primary_until";
+    public static final String HEADER = "X-Primary-Until";
+
+    private final long windowMillis;
+
+    public ReadYourWritesFilter(@Value("${datasource.replica.read-your-writes-millis:5000}") long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        boolean write = switch (request.getMethod()) {
+            case "GET", "HEAD", "OPTIONS" -> false;
+            default -> true;
+        };
+        if (write && windowMillis > 0) {
+            String until = String.valueOf(now + windowMillis);
+            response.setHeader(HEADER, until);
+            response.addHeader("Set-Cookie", ResponseCookie.from(COOKIE, until)
+                    .path("/").httpOnly(true).sameSite("Lax").maxAge(Duration.ofMillis(windowMillis)).build().toString());
+        }
+        if (!write && pinnedUntil(request) <= now) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        DataSourceRouting.pinPrimary(true);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            DataSourceRouting.pinPrimary(false);
+        }
+    }
+
+    private long pinnedUntil(HttpServletRequest request) {
+        String value = request.getHeader(HEADER);
+        if (value == null && request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies()) {
+                if (COOKIE.equals(cookie.getName())) value = cookie.getValue();
+            }
+        }
+        if (value == null) return 0;
+        try {
+            return Math.min(Long.parseLong(value.trim()), System.currentTimeMillis() + windowMillis);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.demo.routing;
+
+import com.example.demo.metrics.MetricsRegistry;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * Replaces the single datasource with a primary and a read replica behind a
+ * {@link ReadWriteRoutingDataSource}. The primary comes from {@code spring.datasource.*},
+ * the replica from {@code datasource.replica.*}; both pools take the
+ * {@code spring.datasource.hikari.*} settings, which {@code datasource.replica.hikari.*}
+ * can override for the replica. Only the routing datasource is a bean, so it is the one
+ * the JDBC metrics wrap.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+    @Bean
+    public DataSource dataSource(DataSourceProperties dataSourceProperties, Environment environment,
+                                 MetricsRegistry metricsRegistry) {
+        Binder binder = Binder.get(environment);
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("primary");
+
+        HikariDataSource replica = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(environment.getRequiredProperty("datasource.replica.url"))
+                .username(environment.getProperty("datasource.replica.username", dataSourceProperties.determineUsername()))
+                .password(environment.getProperty("datasource.replica.password", dataSourceProperties.determinePassword()))
+                .driverClassName(environment.getProperty("datasource.replica.driver-class-name",
+                        dataSourceProperties.determineDriverClassName()))
+                .build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(replica));
+        binder.bind("datasource.replica.hikari", Bindable.ofInstance(replica));
+        replica.setPoolName("replica");
+
+        String help = "Connections handed out by the routing datasource";
+        return new ReadWriteRoutingDataSource(primary, replica,
+                metricsRegistry.counter("ebank_datasource_connections_total", help, MetricsRegistry.labels("target", "primary")),
+                metricsRegistry.counter("ebank_datasource_connections_total", help, MetricsRegistry.labels("target", "replica")));
+    }
+}
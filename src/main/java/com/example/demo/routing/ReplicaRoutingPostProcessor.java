@@ -0,0 +1,61 @@
+package com.example.demo.routing;
+
+import com.example.demo.services.BankAccountService;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sends {@code @Transactional(readOnly = true)} calls on {@link BankAccountService} to the
+ * replica. The interceptor sits outside the transaction interceptor so the flag is set
+ * before a connection is taken. Calls made inside a running transaction, and calls from
+ * clients pinned by {@link ReadYourWritesFilter}, stay on the primary.
+ */
+@Component
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+public class ReplicaRoutingPostProcessor implements BeanPostProcessor {
+    private final Map<Method, Boolean> readOnly = new ConcurrentHashMap<>();
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof BankAccountService)) return bean;
+        Class<?> targetClass = AopUtils.getTargetClass(bean);
+        MethodInterceptor interceptor = invocation -> {
+            if (DataSourceRouting.readsFromReplica() || DataSourceRouting.isPrimaryPinned()
+                    || TransactionSynchronizationManager.isActualTransactionActive()
+                    || !readOnly.computeIfAbsent(invocation.getMethod(), method -> isReadOnly(method, targetClass))) {
+                return invocation.proceed();
+            }
+            DataSourceRouting.useReplica(true);
+            try {
+                return invocation.proceed();
+            } finally {
+                DataSourceRouting.useReplica(false);
+            }
+        };
+        if (bean instanceof Advised advised) {
+            advised.addAdvice(0, interceptor);
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.addAdvice(interceptor);
+        return proxyFactory.getProxy();
+    }
+
+    private static boolean isReadOnly(Method method, Class<?> targetClass) {
+        Transactional transactional = AnnotatedElementUtils.findMergedAnnotation(
+                AopUtils.getMostSpecificMethod(method, targetClass), Transactional.class);
+        return transactional != null && transactional.readOnly();
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.demo.search;
+
+import com.example.demo.dtos.CustomerDTO;
+import com.example.demo.mappers.BankAccountMapperImpl;
+import com.example.demo.repositories.CustomerRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory trigram index over customer name and email.
+ * <p>
+ * Keywords of three characters or more are answered by intersecting the posting lists
+ * of their trigrams, then checking each candidate actually contains the keyword, so the
+ * results are the same as the {@code LIKE '%kw%'} query. Shorter keywords scan the
+ * indexed customers directly.
+ */
+@Component
+@Slf4j
+public class CustomerSearchIndex {
+    private static final int GRAM = 3;
+
+    private final CustomerRepository customerRepository;
+    private final BankAccountMapperImpl bankAccountMapper;
+    private final boolean enabled;
+    private final int defaultLimit;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+    private volatile boolean ready;
+
+    public CustomerSearchIndex(CustomerRepository customerRepository,
+                               BankAccountMapperImpl bankAccountMapper,
+                               @Value("${search.index.enabled:true}") boolean enabled,
+                               @Value("${search.limit:50}") int defaultLimit) {
+        this.customerRepository = customerRepository;
+        this.bankAccountMapper = bankAccountMapper;
+        this.enabled = enabled;
+        this.defaultLimit = defaultLimit;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int getDefaultLimit() {
+        return defaultLimit;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) return;
+        List<CustomerDTO> customers = customerRepository.findAll().stream()
+                .map(bankAccountMapper::fromCustomer)
+                .collect(Collectors.toList());
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            postings.clear();
+            customers.forEach(this::add);
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Customer search index built with {} customers", customers.size());
+    }
+
+    public void indexAfterCommit(CustomerDTO customerDTO) {
+        if (!enabled) return;
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                remove(customerDTO.getId());
+                add(customerDTO);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void removeAfterCommit(Long customerId) {
+        if (!enabled) return;
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                remove(customerId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public List<CustomerDTO> search(String keyword, int limit) {
+        String term = normalize(keyword);
+        lock.readLock().lock();
+        try {
+            List<Document> matches = new ArrayList<>();
+            for (Long id : candidates(term)) {
+                Document document = documents.get(id);
+                if (document != null && document.rank(term) < Integer.MAX_VALUE) {
+                    matches.add(document);
+                }
+            }
+            return matches.stream()
+                    .sorted(Comparator.comparingInt((Document document) -> document.rank(term))
+                            .thenComparing(document -> document.name))
+                    .limit(limit)
+                    .map(document -> document.customerDTO)
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Set<Long> candidates(String term) {
+        if (term.length() < GRAM) {
+            return documents.keySet();
+        }
+        Set<Long> smallest = null;
+        List<Set<Long>> lists = new ArrayList<>();
+        for (String gram : grams(term)) {
+            Set<Long> posting = postings.get(gram);
+            if (posting == null) return Set.of();
+            lists.add(posting);
+            if (smallest == null || posting.size() < smallest.size()) smallest = posting;
+        }
+        Set<Long> result = new HashSet<>(smallest);
+        for (Set<Long> posting : lists) {
+            if (posting != smallest) result.retainAll(posting);
+            if (result.isEmpty()) break;
+        }
+        return result;
+    }
+
+    private void add(CustomerDTO customerDTO) {
+        Document document = new Document(customerDTO);
+        documents.put(customerDTO.getId(), document);
+        for (String gram : document.grams()) {
+            postings.computeIfAbsent(gram, key -> new HashSet<>()).add(customerDTO.getId());
+        }
+    }
+
+    private void remove(Long customerId) {
+        Document document = documents.remove(customerId);
+        if (document == null) return;
+        for (String gram : document.grams()) {
+            Set<Long> posting = postings.get(gram);
+            if (posting == null) continue;
+            posting.remove(customerId);
+            if (posting.isEmpty()) postings.remove(gram);
+        }
+    }
+
+    private void afterCommit(Runnable runnable) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            runnable.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                runnable.run();
+            }
+        });
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<String> grams(String value) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= value.length(); i++) {
+            grams.add(value.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static class Document {
+        private final CustomerDTO customerDTO;
+        private final String name;
+        private final String email;
+
+        Document(CustomerDTO customerDTO) {
+            this.customerDTO = customerDTO;
+            this.name = normalize(customerDTO.getName());
+            this.email = normalize(customerDTO.getEmail());
+        }
+
+        Set<String> grams() {
+            Set<String> grams = CustomerSearchIndex.grams(name);
+            grams.addAll(CustomerSearchIndex.grams(email));
+            return grams;
+        }
+
+        /**
+         * Lower is better: exact name, name prefix, name substring, then email substring.
+         */
+        int rank(String term) {
+            if (name.equals(term)) return 0;
+            if (name.startsWith(term)) return 1;
+            if (name.contains(term)) return 2;
+            if (email.contains(term)) return 3;
+            return Integer.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.demo.services;
+
+import com.example.demo.dtos.OperationDTO;
+import com.example.demo.entities.AccountOperation;
+import com.example.demo.mappers.BankAccountMapperImpl;
+import com.example.demo.money.Money;
+import jakarta.persistence.EntityManager;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.SequenceWriter;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes an operation stream row by row, detaching each entity once written so
+ * the persistence context stays small whatever the size of the history.
+ */
+@Component
+@AllArgsConstructor
+public class AccountHistoryExporter {
+    private static final int FLUSH_EVERY = 500;
+
+    private JsonMapper jsonMapper;
+    private EntityManager entityManager;
+    private BankAccountMapperImpl bankAccountMapper;
+
+    public void writeNdjson(Stream<AccountOperation> accountOperations, OutputStream outputStream) throws IOException {
+        int count = 0;
+        try (SequenceWriter sequenceWriter = jsonMapper.writer()
+                .withRootValueSeparator("\n")
+                .writeValues(new NonClosingOutputStream(outputStream))) {
+            Iterator<AccountOperation> iterator = accountOperations.iterator();
+            while (iterator.hasNext()) {
+                AccountOperation accountOperation = iterator.next();
+                sequenceWriter.write(bankAccountMapper.fromAccountOperation(accountOperation));
+                entityManager.detach(accountOperation);
+                if (++count % FLUSH_EVERY == 0) {
+                    sequenceWriter.flush();
+                }
+            }
+        }
+        if (count > 0) {
+            outputStream.write('\n');
+        }
+        outputStream.flush();
+    }
+
+    public void writeCsv(Stream<AccountOperation> accountOperations, OutputStream outputStream) throws IOException {
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        writer.write("id,date,type,amount,description\n");
+        char[] amount = new char[Money.MAX_CHARS];
+        int count = 0;
+        Iterator<AccountOperation> iterator = accountOperations.iterator();
+        while (iterator.hasNext()) {
+            AccountOperation accountOperation = iterator.next();
+            OperationDTO operationDTO = bankAccountMapper.fromAccountOperation(accountOperation);
+            writer.write(String.valueOf(operationDTO.getId()));
+            writer.write(',');
+            writer.write(operationDTO.getDate() == null ? "" : operationDTO.getDate().toInstant().toString());
+            writer.write(',');
+            writer.write(String.valueOf(operationDTO.getType()));
+            writer.write(',');
+            writer.write(amount, 0, Money.format(operationDTO.getAmount(), amount, 0));
+            writer.write(',');
+            writer.write(csvField(operationDTO.getDescription()));
+            writer.write('\n');
+            entityManager.detach(accountOperation);
+            if (++count % FLUSH_EVERY == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+    }
+
+    private String csvField(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static class NonClosingOutputStream extends OutputStream {
+        private final OutputStream delegate;
+
+        NonClosingOutputStream(OutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
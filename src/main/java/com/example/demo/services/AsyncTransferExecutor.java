@@ -0,0 +1,229 @@
+package com.example.demo.services;
+
+import com.example.demo.Exception.BalanceNotSufficientException;
+import com.example.demo.Exception.BankAccountNotFoundException;
+import com.example.demo.Exception.VelocityLimitExceededException;
+import com.example.demo.cache.BoundedCache;
+import com.example.demo.dtos.TransferDTO;
+import com.example.demo.dtos.TransferStatus;
+import com.example.demo.dtos.TransferStatusDTO;
+import com.example.demo.entities.AsyncTransfer;
+import com.example.demo.idempotency.IdempotencyService;
+import com.example.demo.metrics.Histogram;
+import com.example.demo.metrics.MetricsRegistry;
+import com.example.demo.repositories.AsyncTransferRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs submitted transfers on a fixed worker pool fed by a bounded queue. A full queue
+ * rejects the submission instead of growing, so callers get immediate backpressure and
+ * the database sees at most {@code transfers.async.workers} transfers at a time.
+ * <p>
+ * A submission is written to the {@link AsyncTransfer} table before it is accepted, and
+ * runs under an idempotency key derived from its id. Transfers still queued or running
+ * when the process stops are queued again on the next start; one that had committed
+ * replays its recorded outcome instead of moving the money twice. Statuses are answered
+ * from memory while recent and from the table for {@code transfers.async.retention-hours}.
+ * Each status change publishes a new status object, so readers never see one half-updated.
+ */
+@Component
+@Slf4j
+public class AsyncTransferExecutor {
+    private static final String IDEMPOTENCY_PREFIX = "async-transfer:";
+
+    private final BankAccountService bankAccountService;
+    private final IdempotencyService idempotencyService;
+    private final AsyncTransferRepository asyncTransferRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, TransferStatusDTO> inFlight = new ConcurrentHashMap<>();
+    private final BoundedCache<String, TransferStatusDTO> finished;
+    private final long retentionMillis;
+    private final LongAdder rejected;
+    private final Histogram queueWait;
+
+    public AsyncTransferExecutor(BankAccountService bankAccountService,
+                                 IdempotencyService idempotencyService,
+                                 AsyncTransferRepository asyncTransferRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 MetricsRegistry metricsRegistry,
+                                 @Value("${transfers.async.workers:8}") int workers,
+                                 @Value("${transfers.async.queue-capacity:1000}") int queueCapacity,
+                                 @Value("${transfers.async.status-max-entries:100000}") int statusMaxEntries,
+                                 @Value("${transfers.async.status-retention-millis:600000}") long statusRetentionMillis,
+                                 @Value("${transfers.async.retention-hours:24}") long retentionHours) {
+        this.bankAccountService = bankAccountService;
+        this.idempotencyService = idempotencyService;
+        this.asyncTransferRepository = asyncTransferRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "transfer-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        this.finished = new BoundedCache<>("transfers", statusMaxEntries, statusRetentionMillis);
+        this.retentionMillis = TimeUnit.HOURS.toMillis(retentionHours);
+        this.rejected = metricsRegistry.counter("ebank_async_transfers_rejected_total",
+                "Transfer submissions rejected because the queue was full", "");
+        this.queueWait = metricsRegistry.summary("ebank_async_transfer_queue_wait_seconds",
+                "Time transfers spend queued before a worker picks them up", 1e-9, "");
+        metricsRegistry.gauge("ebank_async_transfer_queue_depth", "Transfers waiting for a worker", "",
+                () -> executor.getQueue().size());
+    }
+
+    /**
+     * Records and queues the transfer and returns its initial status.
+     *
+     * @throws RejectedExecutionException when the queue is full
+     */
+    public TransferStatusDTO submit(TransferDTO transferDTO) {
+        AsyncTransfer asyncTransfer = new AsyncTransfer(UUID.randomUUID().toString(), transferDTO.getAccountSource(),
+                transferDTO.getAccountDestination(), transferDTO.getAmount(), TransferStatus.QUEUED, null, new Date(), null);
+        transactionTemplate.executeWithoutResult(status -> asyncTransferRepository.save(asyncTransfer));
+        TransferStatusDTO queued = statusOf(asyncTransfer);
+        inFlight.put(queued.getId(), queued);
+        long queuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> run(queued, System.nanoTime() - queuedAt));
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(queued.getId());
+            transactionTemplate.executeWithoutResult(status -> asyncTransferRepository.deleteById(queued.getId()));
+            rejected.increment();
+            throw e;
+        }
+        return queued;
+    }
+
+    /** Status of a submitted transfer, or {@code null} when unknown or no longer retained. */
+    public TransferStatusDTO status(String transferId) {
+        TransferStatusDTO transferStatusDTO = inFlight.get(transferId);
+        if (transferStatusDTO == null) {
+            transferStatusDTO = finished.get(transferId);
+        }
+        if (transferStatusDTO == null) {
+            transferStatusDTO = asyncTransferRepository.findById(transferId).map(this::statusOf).orElse(null);
+        }
+        return transferStatusDTO;
+    }
+
+    /** Queues again the transfers a previous run accepted but did not finish. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resume() throws InterruptedException {
+        List<AsyncTransfer> unfinished = asyncTransferRepository.findByStatusInOrderBySubmittedAt(
+                List.of(TransferStatus.QUEUED, TransferStatus.RUNNING));
+        if (unfinished.isEmpty()) return;
+        executor.prestartAllCoreThreads();
+        for (AsyncTransfer asyncTransfer : unfinished) {
+            TransferStatusDTO queued = statusOf(asyncTransfer);
+            queued.setStatus(TransferStatus.QUEUED);
+            inFlight.put(queued.getId(), queued);
+            long queuedAt = System.nanoTime();
+            // wait for room rather than reject what was already accepted
+            executor.getQueue().put(() -> run(queued, System.nanoTime() - queuedAt));
+        }
+        log.info("Resumed {} transfers accepted before the last shutdown", unfinished.size());
+    }
+
+    private void run(TransferStatusDTO queued, long queuedNanos) {
+        queueWait.record(queuedNanos);
+        TransferStatusDTO running = next(queued, TransferStatus.RUNNING, null, null);
+        inFlight.put(running.getId(), running);
+        saveStatus(running);
+        String error = null;
+        try {
+            idempotencyService.execute(IDEMPOTENCY_PREFIX + running.getId(),
+                    IdempotencyService.fingerprint("async-transfer", running.getAccountSource(),
+                            running.getAccountDestination(), running.getAmount()),
+                    () -> bankAccountService.transfer(running.getAccountSource(),
+                            running.getAccountDestination(), running.getAmount()));
+        } catch (BankAccountNotFoundException | BalanceNotSufficientException | VelocityLimitExceededException e) {
+            error = e.getMessage();
+        } catch (RuntimeException e) {
+            log.error("Async transfer {} failed", running.getId(), e);
+            error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        }
+        TransferStatusDTO completed = next(running, error == null ? TransferStatus.SUCCEEDED : TransferStatus.FAILED,
+                error, new Date());
+        saveStatus(completed);
+        finished.put(completed.getId(), completed, finished.generation());
+        inFlight.remove(completed.getId());
+    }
+
+    private void saveStatus(TransferStatusDTO transferStatusDTO) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> asyncTransferRepository.updateStatus(transferStatusDTO.getId(),
+                    transferStatusDTO.getStatus(), transferStatusDTO.getError(), transferStatusDTO.getCompletedAt()));
+        } catch (RuntimeException e) {
+            // the next start runs it again, and the idempotency record keeps that from moving money twice
+            log.warn("Could not record status {} of async transfer {}", transferStatusDTO.getStatus(),
+                    transferStatusDTO.getId(), e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${transfers.async.purge-interval-millis:3600000}")
+    public void purgeCompleted() {
+        Date before = new Date(System.currentTimeMillis() - retentionMillis);
+        Integer purged = transactionTemplate.execute(status -> asyncTransferRepository.deleteCompletedBefore(before));
+        if (purged != null && purged > 0) {
+            log.info("Purged {} completed async transfers", purged);
+        }
+    }
+
+    private TransferStatusDTO statusOf(AsyncTransfer asyncTransfer) {
+        TransferStatusDTO transferStatusDTO = new TransferStatusDTO();
+        transferStatusDTO.setId(asyncTransfer.getId());
+        transferStatusDTO.setAccountSource(asyncTransfer.getAccountSource());
+        transferStatusDTO.setAccountDestination(asyncTransfer.getAccountDestination());
+        transferStatusDTO.setAmount(asyncTransfer.getAmount());
+        transferStatusDTO.setStatus(asyncTransfer.getStatus());
+        transferStatusDTO.setError(asyncTransfer.getError());
+        transferStatusDTO.setSubmittedAt(asyncTransfer.getSubmittedAt());
+        transferStatusDTO.setCompletedAt(asyncTransfer.getCompletedAt());
+        return transferStatusDTO;
+    }
+
+    // a published status is never changed afterwards, the next one is a copy
+    private static TransferStatusDTO next(TransferStatusDTO current, TransferStatus status, String error, Date completedAt) {
+        TransferStatusDTO next = new TransferStatusDTO();
+        next.setId(current.getId());
+        next.setAccountSource(current.getAccountSource());
+        next.setAccountDestination(current.getAccountDestination());
+        next.setAmount(current.getAmount());
+        next.setSubmittedAt(current.getSubmittedAt());
+        next.setStatus(status);
+        next.setError(error);
+        next.setCompletedAt(completedAt);
+        return next;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("{} queued transfers were not run before shutdown, they resume on the next start",
+                    executor.shutdownNow().size());
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.demo.services;
+
+/**
+ * How the database path applies a debit or credit to an account balance.
+ */
+public enum BalanceUpdateMode {
+    /** Load the account, check the balance in Java, write the new balance back. */
+    READ_CHECK_WRITE,
+    /** Check and decrement in one guarded {@code UPDATE ... WHERE balance + overdraft >= amount}. */
+    CONDITIONAL,
+    /** Read-check-write in its own transaction, retried when the account version moved underneath it. */
+    OPTIMISTIC;
+
+    public static BalanceUpdateMode of(String value) {
+        return valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.demo.services;
+
+import com.example.demo.Exception.BalanceNotSufficientException;
+import com.example.demo.Exception.BankAccountNotFoundException;
+import com.example.demo.metrics.MetricsRegistry;
+import com.example.demo.repositories.BankAccountRepository;
+import com.example.demo.sharding.Shards;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Selected {@link BalanceUpdateMode} and the bounded retry used by the optimistic mode.
+ * Each attempt runs in a transaction of its own, since a persistence context that hit a
+ * version conflict cannot be reused.
+ * <p>
+ * Accounts that got the version column before it had a default have it NULL, which a
+ * versioned update can never match; they are given version 0 on every shard at startup.
+ */
+@Component
+@Slf4j
+public class BalanceUpdatePolicy {
+    @Getter
+    private final BalanceUpdateMode mode;
+    private final int maxAttempts;
+    private final TransactionTemplate requiresNew;
+    private final LongAdder retries;
+    private final LongAdder exhausted;
+    private final BankAccountRepository bankAccountRepository;
+    private final Shards shards;
+
+    public BalanceUpdatePolicy(@Value("${balance.update-mode:conditional}") String mode,
+                               @Value("${balance.optimistic.max-attempts:5}") int maxAttempts,
+                               PlatformTransactionManager transactionManager,
+                               MetricsRegistry metricsRegistry,
+                               BankAccountRepository bankAccountRepository,
+                               Shards shards) {
+        this.mode = BalanceUpdateMode.of(mode);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.retries = metricsRegistry.counter("ebank_optimistic_retries_total",
+                "Balance updates retried after a version conflict", "");
+        this.exhausted = metricsRegistry.counter("ebank_optimistic_exhausted_total",
+                "Balance updates that still conflicted after the last attempt", "");
+        this.bankAccountRepository = bankAccountRepository;
+        this.shards = shards;
+    }
+
+    /** Fills in the versions left NULL when the column was added without a default, on every shard. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillVersions() {
+        AtomicInteger backfilled = new AtomicInteger();
+        shards.forEachShard(() -> backfilled.addAndGet(bankAccountRepository.backfillVersions()));
+        if (backfilled.get() > 0) {
+            log.info("Backfilled the version of {} accounts", backfilled.get());
+        }
+    }
+
+    public void retry(BalanceUpdate balanceUpdate) throws BankAccountNotFoundException, BalanceNotSufficientException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Throwable failure = requiresNew.execute(status -> {
+                    try {
+                        balanceUpdate.apply();
+                        return null;
+                    } catch (BankAccountNotFoundException | BalanceNotSufficientException e) {
+                        status.setRollbackOnly();
+                        return e;
+                    }
+                });
+                if (failure instanceof BankAccountNotFoundException e) throw e;
+                if (failure instanceof BalanceNotSufficientException e) throw e;
+                return;
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    throw e;
+                }
+                retries.increment();
+                backOff(attempt, e);
+            }
+        }
+    }
+
+    private void backOff(int attempt, OptimisticLockingFailureException conflict) {
+        try {
+            // jittered so the losers of one conflict do not collide again on the next attempt
+            Thread.sleep(ThreadLocalRandom.current().nextLong(1L << Math.min(attempt, 6)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+
+    @FunctionalInterface
+    public interface BalanceUpdate {
+        void apply() throws BankAccountNotFoundException, BalanceNotSufficientException;
+    }
+}
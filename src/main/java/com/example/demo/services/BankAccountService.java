@@ -5,33 +5,49 @@ import com.example.demo.Exception.BalanceNotSufficientException;
 import com.example.demo.Exception.BankAccountNotFoundException;
 import com.example.demo.Exception.CustomerNotFoundException;
 import com.example.demo.dtos.*;
+import com.example.demo.entities.AccountStatus;
+import com.example.demo.sharding.ShardKey;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 @Service
 public interface BankAccountService {
     CustomerDTO saveCustomer(CustomerDTO customerDTO);
-    CurrentAccountDTO saveCurrentBankAccount(double initialBalance, double overDraft, Long customerId) throws CustomerNotFoundException;
-    SavingAccountDTO saveSavingBankAccount(double initialBalance, double interestRate, Long customerId) throws CustomerNotFoundException;
+    CurrentAccountDTO saveCurrentBankAccount(long initialBalance, long overDraft, Long customerId) throws CustomerNotFoundException;
+    SavingAccountDTO saveSavingBankAccount(long initialBalance, double interestRate, Long customerId) throws CustomerNotFoundException;
     List<CustomerDTO> listCustomers();
-    BankAccountDTO getBankAccount(String accountId) throws BankAccountNotFoundException;
-    void debit(String accountId, double amount, String description) throws BankAccountNotFoundException, BalanceNotSufficientException;
-    void credit(String accountId, double amount, String description) throws BankAccountNotFoundException;
-    void transfer(String accountIdSource, String accountIdDestination, double amount) throws BankAccountNotFoundException, BalanceNotSufficientException;
+    BankAccountDTO getBankAccount(@ShardKey String accountId) throws BankAccountNotFoundException;
+    void debit(@ShardKey String accountId, long amount, String description) throws BankAccountNotFoundException, BalanceNotSufficientException;
+    void credit(@ShardKey String accountId, long amount, String description) throws BankAccountNotFoundException;
+    void transfer(@ShardKey String accountIdSource, @ShardKey String accountIdDestination, long amount) throws BankAccountNotFoundException, BalanceNotSufficientException;
+
+    BatchTransferResultDTO transferBatch(List<TransferDTO> transfers);
 
     List<BankAccountDTO> bankAccountList();
 
+    AccountPageDTO bankAccountPage(String type, AccountStatus status, Long customerId, int page, int size);
+
     CustomerDTO getCustomer(Long customerId) throws CustomerNotFoundException;
 
+    CustomerOverviewDTO getCustomerOverview(Long customerId, int operations) throws CustomerNotFoundException;
+
     CustomerDTO updateCustomer(CustomerDTO customerDTO);
 
     void deleteCustomer(Long customerId);
 
-    List<OperationDTO> accountHistory(String accountId);
+    List<OperationDTO> accountHistory(@ShardKey String accountId);
 
-    AccountHistoryDTO getAccountHistory(String accountId, int page, int size) throws BankAccountNotFoundException;
+    void exportAccountHistory(@ShardKey String accountId, String format, OutputStream outputStream) throws IOException;
+
+    AccountHistoryDTO getAccountHistory(@ShardKey String accountId, int page, int size) throws BankAccountNotFoundException;
+
+    AccountHistoryDTO getAccountHistory(@ShardKey String accountId, String cursor, int size) throws BankAccountNotFoundException;
 
     List<CustomerDTO> searchCustomers(String keyword);
 
+    List<CustomerDTO> searchCustomers(String keyword, int limit);
+
 }
@@ -3,28 +3,57 @@ package com.example.demo.services;
 import com.example.demo.Exception.BalanceNotSufficientException;
 import com.example.demo.Exception.BankAccountNotFoundException;
 import com.example.demo.Exception.CustomerNotFoundException;
+import com.example.demo.Exception.VelocityLimitExceededException;
+import com.example.demo.cache.DtoCache;
+import com.example.demo.coalescing.CreditCoalescer;
 import com.example.demo.dtos.*;
 import com.example.demo.entities.AccountOperation;
+import com.example.demo.entities.AccountStatus;
 import com.example.demo.entities.BankAccount;
 import com.example.demo.entities.CurrentAccount;
 import com.example.demo.entities.Customer;
 import com.example.demo.entities.OperationType;
 import com.example.demo.entities.SavingAccount;
+import com.example.demo.journal.OperationJournal;
+import com.example.demo.ledger.LedgerEngine;
 import com.example.demo.mappers.BankAccountMapperImpl;
+import com.example.demo.metrics.LedgerMetrics;
+import com.example.demo.money.Money;
 import com.example.demo.repositories.AccountOperationRepository;
 import com.example.demo.repositories.BankAccountRepository;
 import com.example.demo.repositories.CustomerRepository;
+import com.example.demo.routing.DataSourceRouting;
+import com.example.demo.search.CustomerSearchIndex;
+import com.example.demo.sharding.CustomerReplication;
+import com.example.demo.sharding.DataSourceSharding;
+import com.example.demo.sharding.Shards;
+import com.example.demo.velocity.VelocityLimiter;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -35,24 +64,43 @@ public class BankAccountServiceImpl implements BankAccountService{
     private BankAccountRepository bankAccountRepository;
     private AccountOperationRepository accountOperationRepository;
     private BankAccountMapperImpl bankAccountMapper;
+    private LedgerEngine ledgerEngine;
+    private AccountHistoryExporter accountHistoryExporter;
+    private DtoCache dtoCache;
+    private CustomerSearchIndex customerSearchIndex;
+    private LedgerMetrics ledgerMetrics;
+    private BalanceUpdatePolicy balanceUpdatePolicy;
+    private OperationJournal operationJournal;
+    private CreditCoalescer creditCoalescer;
+    private VelocityLimiter velocityLimiter;
+    private Shards shards;
+    private ObjectProvider<CustomerReplication> customerReplication;
     @Override
     public CustomerDTO saveCustomer(CustomerDTO customerDTO) {
         log.info("Saving new Customer");
        Customer customer =  bankAccountMapper.fromCustomerDTO(customerDTO);
        Customer savedCustomer = customerRepository.save(customer);
+        replicate(savedCustomer.getId());
+        CustomerDTO savedCustomerDTO = bankAccountMapper.fromCustomer(savedCustomer);
+        customerSearchIndex.indexAfterCommit(savedCustomerDTO);
+        return savedCustomerDTO;
+    }
 
-        return bankAccountMapper.fromCustomer(savedCustomer);
+    /** Customers live on every shard, so accounts on any shard can reference them; the copies follow once this commits. */
+    private void replicate(Long customerId) {
+        if (shards.isSharded()) customerReplication.getObject().changed(customerId);
     }
 
     @Override
-    public CurrentAccountDTO saveCurrentBankAccount(double initialBalance, double overDraft, Long customerId) throws CustomerNotFoundException {
+    public CurrentAccountDTO saveCurrentBankAccount(long initialBalance, long overDraft, Long customerId) throws CustomerNotFoundException {
         Customer customer=customerRepository.findById(customerId).orElse(null);
         if(customer==null)
             throw new CustomerNotFoundException("Customer not found");
         CurrentAccount currentAccount=new CurrentAccount();
-        currentAccount.setId(UUID.randomUUID().toString());
+        currentAccount.setId(DataSourceSharding.newAccountId());
         currentAccount.setCreatedAt(new Date());
         currentAccount.setBalance(initialBalance);
+        currentAccount.setOpeningBalance(initialBalance);
         currentAccount.setOverDraft(overDraft);
         currentAccount.setCustomer(customer);
         CurrentAccount savedBankAccount = bankAccountRepository.save(currentAccount);
@@ -60,14 +108,15 @@ public class BankAccountServiceImpl implements BankAccountService{
     }
 
     @Override
-    public SavingAccountDTO saveSavingBankAccount(double initialBalance, double interestRate, Long customerId) throws CustomerNotFoundException {
+    public SavingAccountDTO saveSavingBankAccount(long initialBalance, double interestRate, Long customerId) throws CustomerNotFoundException {
         Customer customer=customerRepository.findById(customerId).orElse(null);
         if(customer==null)
             throw new CustomerNotFoundException("Customer not found");
         SavingAccount savingAccount=new SavingAccount();
-        savingAccount.setId(UUID.randomUUID().toString());
+        savingAccount.setId(DataSourceSharding.newAccountId());
         savingAccount.setCreatedAt(new Date());
         savingAccount.setBalance(initialBalance);
+        savingAccount.setOpeningBalance(initialBalance);
         savingAccount.setInterestRate(interestRate);
         savingAccount.setCustomer(customer);
         SavingAccount savedBankAccount = bankAccountRepository.save(savingAccount);
@@ -75,6 +124,7 @@ public class BankAccountServiceImpl implements BankAccountService{
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<CustomerDTO> listCustomers() {
         List<Customer> customers = customerRepository.findAll();
         List<CustomerDTO> customerDTOS = customers.stream()
@@ -92,19 +142,68 @@ public class BankAccountServiceImpl implements BankAccountService{
     }
 
     @Override
+    @Transactional(readOnly = true)
     public BankAccountDTO getBankAccount(String accountId) throws BankAccountNotFoundException {
-        BankAccount bankAccount=bankAccountRepository.findById(accountId).orElseThrow(()->new BankAccountNotFoundException("BankAccount not found"));
-        if(bankAccount instanceof SavingAccount){
-            SavingAccount savingAccount= (SavingAccount) bankAccount;
-            return bankAccountMapper.fromSavingAccount(savingAccount);
+        BankAccountDTO bankAccountDTO;
+        BankAccountDTO cached = dtoCache.getAccounts().get(accountId);
+        if (cached != null) {
+            // the cached DTO is shared between readers, each gets its own copy to overlay and return
+            bankAccountDTO = bankAccountMapper.copyOf(cached);
         } else {
-            CurrentAccount currentAccount= (CurrentAccount) bankAccount;
-            return bankAccountMapper.fromCurrentAccount(currentAccount);
+            long generation = dtoCache.getAccounts().generation();
+            BankAccount bankAccount=bankAccountRepository.findById(accountId).orElseThrow(()->new BankAccountNotFoundException("BankAccount not found"));
+            bankAccountDTO = bankAccountMapper.fromBankAccount(bankAccount);
+            // a replica may lag behind the primary, so only primary reads are cached
+            if (!DataSourceRouting.readsFromReplica()) {
+                dtoCache.getAccounts().put(accountId, bankAccountMapper.copyOf(bankAccountDTO), generation);
+            }
+        }
+        applyLedgerBalance(bankAccountDTO);
+        return bankAccountDTO;
+    }
+
+    private void applyLedgerBalance(BankAccountDTO bankAccountDTO) {
+        if (bankAccountDTO instanceof SavingAccountDTO savingAccountDTO) {
+            ledgerEngine.balance(savingAccountDTO.getId()).ifPresent(savingAccountDTO::setBalance);
+        } else if (bankAccountDTO instanceof CurrentAccountDTO currentAccountDTO) {
+            ledgerEngine.balance(currentAccountDTO.getId()).ifPresent(currentAccountDTO::setBalance);
         }
     }
 
+    private long balanceOf(BankAccountDTO bankAccountDTO) {
+        if (bankAccountDTO instanceof SavingAccountDTO savingAccountDTO) {
+            return savingAccountDTO.getBalance();
+        }
+        return ((CurrentAccountDTO) bankAccountDTO).getBalance();
+    }
+
     @Override
-    public void debit(String accountId, double amount, String description) throws BankAccountNotFoundException, BalanceNotSufficientException {
+    public void debit(String accountId, long amount, String description) throws BankAccountNotFoundException, BalanceNotSufficientException {
+        dtoCache.invalidateAccount(accountId);
+        VelocityLimiter.Charge charge = velocityLimiter.charge(accountId, amount);
+        try {
+            applyDebit(accountId, amount, description);
+        } catch (BankAccountNotFoundException | BalanceNotSufficientException | RuntimeException e) {
+            charge.refund();
+            throw e;
+        }
+    }
+
+    private void applyDebit(String accountId, long amount, String description) throws BankAccountNotFoundException, BalanceNotSufficientException {
+        if (ledgerEngine.isEnabled()) {
+            ledgerEngine.debit(accountId, amount, description);
+            return;
+        }
+        switch (balanceUpdatePolicy.getMode()) {
+            case CONDITIONAL -> conditionalDebit(accountId, amount, description);
+            case OPTIMISTIC -> balanceUpdatePolicy.retry(() -> readCheckWriteDebit(accountId, amount, description));
+            default -> readCheckWriteDebit(accountId, amount, description);
+        }
+        ledgerMetrics.applied(1);
+        log.info("Debit operation completed for account {}", accountId);
+    }
+
+    private void readCheckWriteDebit(String accountId, long amount, String description) throws BankAccountNotFoundException, BalanceNotSufficientException {
         BankAccount bankAccount = bankAccountRepository.findById(accountId)
                 .orElseThrow(() -> new BankAccountNotFoundException("BankAccount not found"));
         
@@ -119,78 +218,406 @@ public class BankAccountServiceImpl implements BankAccountService{
             }
         }
         
-        AccountOperation accountOperation = new AccountOperation();
-        accountOperation.setType(OperationType.DEBIT);
-        accountOperation.setAmount(amount);
-        accountOperation.setDescription(description);
-        accountOperation.setDate(new Date());
-        accountOperation.setBankAccount(bankAccount);
-        accountOperationRepository.save(accountOperation);
+        saveOperation(operation(bankAccount, OperationType.DEBIT, amount, description, new Date()));
         
         bankAccount.setBalance(bankAccount.getBalance() - amount);
         bankAccountRepository.save(bankAccount);
-        log.info("Debit operation completed for account {}", accountId);
+    }
+
+    private void conditionalDebit(String accountId, long amount, String description) throws BankAccountNotFoundException, BalanceNotSufficientException {
+        if (bankAccountRepository.debitIfCovered(accountId, amount) == 0) {
+            if (!bankAccountRepository.existsById(accountId)) {
+                throw new BankAccountNotFoundException("BankAccount not found");
+            }
+            throw new BalanceNotSufficientException("Balance not sufficient");
+        }
+        saveOperation(operation(bankAccountRepository.getReferenceById(accountId),
+                OperationType.DEBIT, amount, description, new Date()));
     }
 
     @Override
-    public void credit(String accountId, double amount, String description) throws BankAccountNotFoundException {
+    public void credit(String accountId, long amount, String description) throws BankAccountNotFoundException {
+        dtoCache.invalidateAccount(accountId);
+        if (ledgerEngine.isEnabled()) {
+            ledgerEngine.credit(accountId, amount, description);
+            return;
+        }
+        if (creditCoalescer.isHot(accountId)) {
+            creditCoalescer.credit(accountId, amount, description);
+            ledgerMetrics.applied(1);
+            return;
+        }
+        switch (balanceUpdatePolicy.getMode()) {
+            case CONDITIONAL -> conditionalCredit(accountId, amount, description);
+            case OPTIMISTIC -> {
+                try {
+                    balanceUpdatePolicy.retry(() -> readCheckWriteCredit(accountId, amount, description));
+                } catch (BalanceNotSufficientException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            default -> readCheckWriteCredit(accountId, amount, description);
+        }
+        ledgerMetrics.applied(1);
+        log.info("Credit operation completed for account {}", accountId);
+    }
+
+    private void readCheckWriteCredit(String accountId, long amount, String description) throws BankAccountNotFoundException {
         BankAccount bankAccount = bankAccountRepository.findById(accountId)
                 .orElseThrow(() -> new BankAccountNotFoundException("BankAccount not found"));
         
-        AccountOperation accountOperation = new AccountOperation();
-        accountOperation.setType(OperationType.CREDIT);
-        accountOperation.setAmount(amount);
-        accountOperation.setDescription(description);
-        accountOperation.setDate(new Date());
-        accountOperation.setBankAccount(bankAccount);
-        accountOperationRepository.save(accountOperation);
+        saveOperation(operation(bankAccount, OperationType.CREDIT, amount, description, new Date()));
         
         bankAccount.setBalance(bankAccount.getBalance() + amount);
         bankAccountRepository.save(bankAccount);
-        log.info("Credit operation completed for account {}", accountId);
+    }
+
+    private void conditionalCredit(String accountId, long amount, String description) throws BankAccountNotFoundException {
+        if (bankAccountRepository.creditBalance(accountId, amount) == 0) {
+            throw new BankAccountNotFoundException("BankAccount not found");
+        }
+        saveOperation(operation(bankAccountRepository.getReferenceById(accountId),
+                OperationType.CREDIT, amount, description, new Date()));
     }
 
     @Override
-    public void transfer(String accountIdSource, String accountIdDestination, double amount) throws BankAccountNotFoundException, BalanceNotSufficientException {
-        debit(accountIdSource, amount, "Transfer to " + accountIdDestination);
-        credit(accountIdDestination, amount, "Transfer from " + accountIdSource);
+    public void transfer(String accountIdSource, String accountIdDestination, long amount) throws BankAccountNotFoundException, BalanceNotSufficientException {
+        dtoCache.invalidateAccount(accountIdSource);
+        dtoCache.invalidateAccount(accountIdDestination);
+        VelocityLimiter.Charge charge = velocityLimiter.charge(accountIdSource, amount);
+        try {
+            applyTransfer(accountIdSource, accountIdDestination, amount);
+        } catch (BankAccountNotFoundException | BalanceNotSufficientException | RuntimeException e) {
+            charge.refund();
+            throw e;
+        }
+    }
+
+    private void applyTransfer(String accountIdSource, String accountIdDestination, long amount) throws BankAccountNotFoundException, BalanceNotSufficientException {
+        if (ledgerEngine.isEnabled()) {
+            ledgerEngine.transfer(accountIdSource, accountIdDestination, amount);
+            log.info("Transfer operation completed from {} to {}", accountIdSource, accountIdDestination);
+            return;
+        }
+        String debitDescription = "Transfer to " + accountIdDestination;
+        String creditDescription = "Transfer from " + accountIdSource;
+        switch (balanceUpdatePolicy.getMode()) {
+            case CONDITIONAL -> {
+                conditionalDebit(accountIdSource, amount, debitDescription);
+                try {
+                    conditionalCredit(accountIdDestination, amount, creditDescription);
+                } catch (BankAccountNotFoundException e) {
+                    // checked exceptions do not roll back on their own, and the debit already ran
+                    TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                    throw e;
+                }
+            }
+            case OPTIMISTIC -> balanceUpdatePolicy.retry(() -> {
+                readCheckWriteDebit(accountIdSource, amount, debitDescription);
+                readCheckWriteCredit(accountIdDestination, amount, creditDescription);
+            });
+            default -> {
+                readCheckWriteDebit(accountIdSource, amount, debitDescription);
+                readCheckWriteCredit(accountIdDestination, amount, creditDescription);
+            }
+        }
+        ledgerMetrics.applied(2);
         log.info("Transfer operation completed from {} to {}", accountIdSource, accountIdDestination);
     }
 
     @Override
-    public List<BankAccountDTO> bankAccountList() {
-        List<BankAccount> bankAccounts = bankAccountRepository.findAll();
-        return bankAccounts.stream().map(bankAccount -> {
-            if (bankAccount instanceof SavingAccount) {
-                return bankAccountMapper.fromSavingAccount((SavingAccount) bankAccount);
-            } else {
-                return bankAccountMapper.fromCurrentAccount((CurrentAccount) bankAccount);
+    public BatchTransferResultDTO transferBatch(List<TransferDTO> transfers) {
+        List<TransferResultDTO> results = new ArrayList<>(transfers.size());
+        if (ledgerEngine.isEnabled()) {
+            for (int i = 0; i < transfers.size(); i++) {
+                TransferDTO transferDTO = transfers.get(i);
+                TransferResultDTO result = transferResult(i, transferDTO);
+                try {
+                    validateTransfer(transferDTO);
+                    dtoCache.invalidateAccount(transferDTO.getAccountSource());
+                    dtoCache.invalidateAccount(transferDTO.getAccountDestination());
+                    VelocityLimiter.Charge charge = velocityLimiter.charge(transferDTO.getAccountSource(), transferDTO.getAmount());
+                    try {
+                        ledgerEngine.transfer(transferDTO.getAccountSource(), transferDTO.getAccountDestination(), transferDTO.getAmount());
+                    } catch (BankAccountNotFoundException | BalanceNotSufficientException | RuntimeException e) {
+                        charge.refund();
+                        throw e;
+                    }
+                    result.setSuccess(true);
+                } catch (BankAccountNotFoundException | BalanceNotSufficientException | IllegalArgumentException | VelocityLimitExceededException e) {
+                    result.setError(e.getMessage());
+                }
+                results.add(result);
             }
-        }).collect(Collectors.toList());
+            return batchTransferResult(results);
+        }
+
+        // one query for every account involved; balances move through the guarded updates so
+        // concurrent debits and credits on the same accounts cannot fail the whole batch
+        Set<String> accountIds = new HashSet<>();
+        for (TransferDTO transferDTO : transfers) {
+            accountIds.add(transferDTO.getAccountSource());
+            accountIds.add(transferDTO.getAccountDestination());
+        }
+        accountIds.remove(null);
+        accountIds.forEach(dtoCache::invalidateAccount);
+        Map<String, BankAccount> accounts = bankAccountRepository.findAllById(accountIds).stream()
+                .collect(Collectors.toMap(BankAccount::getId, bankAccount -> bankAccount));
+
+        List<AccountOperation> accountOperations = new ArrayList<>();
+        Date date = new Date();
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferDTO transferDTO = transfers.get(i);
+            TransferResultDTO result = transferResult(i, transferDTO);
+            try {
+                validateTransfer(transferDTO);
+                BankAccount source = accounts.get(transferDTO.getAccountSource());
+                BankAccount destination = accounts.get(transferDTO.getAccountDestination());
+                if (source == null || destination == null) {
+                    throw new BankAccountNotFoundException("BankAccount not found");
+                }
+                long amount = transferDTO.getAmount();
+                VelocityLimiter.Charge charge = velocityLimiter.charge(source.getId(), amount);
+                if (bankAccountRepository.debitIfCovered(source.getId(), amount) == 0) {
+                    charge.refund();
+                    throw new BalanceNotSufficientException("Balance not sufficient");
+                }
+                if (bankAccountRepository.creditBalance(destination.getId(), amount) == 0) {
+                    // deleted since it was read: put the money back rather than fail the batch
+                    bankAccountRepository.creditBalance(source.getId(), amount);
+                    charge.refund();
+                    throw new BankAccountNotFoundException("BankAccount not found");
+                }
+                String description = transferDTO.getDescription();
+                accountOperations.add(operation(source, OperationType.DEBIT, amount,
+                        description != null ? description : "Transfer to " + destination.getId(), date));
+                accountOperations.add(operation(destination, OperationType.CREDIT, amount,
+                        description != null ? description : "Transfer from " + source.getId(), date));
+                result.setSuccess(true);
+            } catch (BankAccountNotFoundException | BalanceNotSufficientException | IllegalArgumentException | VelocityLimitExceededException e) {
+                result.setError(e.getMessage());
+            }
+            results.add(result);
+        }
+        saveOperations(accountOperations);
+        ledgerMetrics.applied(accountOperations.size());
+        BatchTransferResultDTO batchTransferResultDTO = batchTransferResult(results);
+        log.info("Batch transfer completed: {} succeeded, {} failed",
+                batchTransferResultDTO.getSucceeded(), batchTransferResultDTO.getFailed());
+        return batchTransferResultDTO;
+    }
+
+    private void validateTransfer(TransferDTO transferDTO) {
+        if (transferDTO.getAmount() <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+        if (transferDTO.getAccountSource() != null && transferDTO.getAccountSource().equals(transferDTO.getAccountDestination())) {
+            throw new IllegalArgumentException("Source and destination accounts must differ");
+        }
+    }
+
+    private void saveOperation(AccountOperation accountOperation) {
+        if (operationJournal.isEnabled()) {
+            operationJournal.record(accountOperation);
+        } else {
+            accountOperationRepository.save(accountOperation);
+        }
+    }
+
+    private void saveOperations(List<AccountOperation> accountOperations) {
+        if (operationJournal.isEnabled()) {
+            accountOperations.forEach(operationJournal::record);
+        } else {
+            accountOperationRepository.saveAll(accountOperations);
+        }
+    }
+
+    private AccountOperation operation(BankAccount bankAccount, OperationType type, long amount, String description, Date date) {
+        AccountOperation accountOperation = new AccountOperation();
+        accountOperation.setType(type);
+        accountOperation.setAmount(amount);
+        accountOperation.setDescription(description);
+        accountOperation.setDate(date);
+        accountOperation.setBankAccount(bankAccount);
+        return accountOperation;
+    }
+
+    private TransferResultDTO transferResult(int index, TransferDTO transferDTO) {
+        TransferResultDTO result = new TransferResultDTO();
+        result.setIndex(index);
+        result.setAccountSource(transferDTO.getAccountSource());
+        result.setAccountDestination(transferDTO.getAccountDestination());
+        result.setAmount(transferDTO.getAmount());
+        return result;
+    }
+
+    private BatchTransferResultDTO batchTransferResult(List<TransferResultDTO> results) {
+        BatchTransferResultDTO batchTransferResultDTO = new BatchTransferResultDTO();
+        int succeeded = (int) results.stream().filter(TransferResultDTO::isSuccess).count();
+        batchTransferResultDTO.setTotal(results.size());
+        batchTransferResultDTO.setSucceeded(succeeded);
+        batchTransferResultDTO.setFailed(results.size() - succeeded);
+        batchTransferResultDTO.setResults(results);
+        return batchTransferResultDTO;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<BankAccountDTO> bankAccountList() {
+        return shards.fanOut(() -> bankAccountRepository.findAllWithCustomer().stream()
+                        .map(bankAccountMapper::fromBankAccount)
+                        .toList())
+                .stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public AccountPageDTO bankAccountPage(String type, AccountStatus status, Long customerId, int page, int size) {
+        Class<? extends BankAccount> accountClass = accountClass(type);
+        List<BankAccount> content;
+        boolean hasNext;
+        if (shards.isSharded()) {
+            // the first (page + 1) * size accounts of every shard, merged in the query's order
+            int limit = (page + 1) * size;
+            List<Slice<BankAccount>> slices = shards.fanOut(() ->
+                    bankAccountRepository.findSlice(accountClass, status, customerId, PageRequest.of(0, limit)));
+            List<BankAccount> merged = slices.stream()
+                    .flatMap(slice -> slice.getContent().stream())
+                    .sorted(Comparator.comparing(BankAccount::getCreatedAt, Comparator.nullsLast(Comparator.<Date>reverseOrder()))
+                            .thenComparing(BankAccount::getId))
+                    .toList();
+            content = merged.subList(Math.min(page * size, merged.size()), Math.min(limit, merged.size()));
+            hasNext = merged.size() > limit || slices.stream().anyMatch(Slice::hasNext);
+        } else {
+            Slice<BankAccount> bankAccounts = bankAccountRepository.findSlice(
+                    accountClass, status, customerId, PageRequest.of(page, size));
+            content = bankAccounts.getContent();
+            hasNext = bankAccounts.hasNext();
+        }
+        AccountPageDTO accountPageDTO = new AccountPageDTO();
+        accountPageDTO.setCurrentPage(page);
+        accountPageDTO.setPageSize(size);
+        accountPageDTO.setHasNext(hasNext);
+        accountPageDTO.setAccounts(content.stream()
+                .map(bankAccountMapper::fromBankAccount)
+                .collect(Collectors.toList()));
+        return accountPageDTO;
+    }
+
+    private Class<? extends BankAccount> accountClass(String type) {
+        if (type == null || type.isEmpty()) return null;
+        if (type.equalsIgnoreCase("CurrentAccount") || type.equalsIgnoreCase("current")) return CurrentAccount.class;
+        if (type.equalsIgnoreCase("SavingAccount") || type.equalsIgnoreCase("saving")) return SavingAccount.class;
+        throw new IllegalArgumentException("Unknown account type " + type);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public CustomerDTO getCustomer(Long customerId) throws CustomerNotFoundException {
+        CustomerDTO cached = dtoCache.getCustomers().get(customerId);
+        if (cached != null) {
+            // like accounts, every reader gets its own copy of the shared cached DTO
+            return bankAccountMapper.copyOf(cached);
+        }
+        long generation = dtoCache.getCustomers().generation();
         Customer customer = customerRepository.findById(customerId)
                 .orElseThrow(() -> new CustomerNotFoundException("Customer not found"));
-        return bankAccountMapper.fromCustomer(customer);
+        CustomerDTO customerDTO = bankAccountMapper.fromCustomer(customer);
+        if (!DataSourceRouting.readsFromReplica()) {
+            dtoCache.getCustomers().put(customerId, bankAccountMapper.copyOf(customerDTO), generation);
+        }
+        return customerDTO;
+    }
+
+    /**
+     * The customer, their accounts and each account's latest operations in two queries per
+     * shard: one fetch join for the accounts and one windowed top-N query for the operations.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CustomerOverviewDTO getCustomerOverview(Long customerId, int operations) throws CustomerNotFoundException {
+        List<OverviewPart> parts = shards.fanOut(() -> overviewPart(customerId, operations));
+        Customer customer = parts.getFirst().customer();
+        if (customer == null) {
+            throw new CustomerNotFoundException("Customer not found");
+        }
+        List<BankAccount> bankAccounts = new ArrayList<>();
+        Map<String, List<OperationDTO>> recentOperations = new HashMap<>();
+        for (OverviewPart part : parts) {
+            bankAccounts.addAll(part.bankAccounts());
+            recentOperations.putAll(part.recentOperations());
+        }
+        List<AccountOverviewDTO> accounts = new ArrayList<>(bankAccounts.size());
+        bankAccounts.stream()
+                .sorted(Comparator.comparing(BankAccount::getCreatedAt, Comparator.nullsLast(Comparator.naturalOrder()))
+                        .thenComparing(BankAccount::getId))
+                .forEach(bankAccount -> {
+                    BankAccountDTO bankAccountDTO = bankAccountMapper.fromBankAccount(bankAccount);
+                    applyLedgerBalance(bankAccountDTO);
+                    AccountOverviewDTO accountOverviewDTO = new AccountOverviewDTO();
+                    accountOverviewDTO.setAccount(bankAccountDTO);
+                    accountOverviewDTO.setRecentOperations(recentOperations.getOrDefault(bankAccount.getId(), List.of()));
+                    accounts.add(accountOverviewDTO);
+                });
+        CustomerOverviewDTO customerOverviewDTO = new CustomerOverviewDTO();
+        customerOverviewDTO.setCustomer(bankAccountMapper.fromCustomer(customer));
+        customerOverviewDTO.setAccounts(accounts);
+        return customerOverviewDTO;
+    }
+
+    private OverviewPart overviewPart(Long customerId, int operations) {
+        Customer customer = customerRepository.findWithAccounts(customerId).orElse(null);
+        if (customer == null) {
+            return new OverviewPart(null, List.of(), Map.of());
+        }
+        Map<String, List<OperationDTO>> recentOperations = new HashMap<>();
+        if (operations > 0 && !customer.getBankAccounts().isEmpty()) {
+            for (Object[] row : accountOperationRepository.findRecentByCustomer(customerId, operations)) {
+                OperationDTO operationDTO = new OperationDTO();
+                operationDTO.setId(((Number) row[1]).longValue());
+                operationDTO.setDate(row[2] instanceof LocalDateTime dateTime ? Timestamp.valueOf(dateTime) : (Date) row[2]);
+                operationDTO.setAmount(Money.ofMajor((Number) row[3]));
+                operationDTO.setType(row[4] != null ? OperationType.valueOf((String) row[4]) : null);
+                operationDTO.setDescription((String) row[5]);
+                recentOperations.computeIfAbsent((String) row[0], key -> new ArrayList<>()).add(operationDTO);
+            }
+        }
+        return new OverviewPart(customer, new ArrayList<>(customer.getBankAccounts()), recentOperations);
+    }
+
+    private record OverviewPart(Customer customer, List<BankAccount> bankAccounts,
+                                Map<String, List<OperationDTO>> recentOperations) {
     }
 
     @Override
     public CustomerDTO updateCustomer(CustomerDTO customerDTO) {
         log.info("Updating customer {}", customerDTO.getId());
+        dtoCache.invalidateCustomer(customerDTO.getId());
         Customer customer = bankAccountMapper.fromCustomerDTO(customerDTO);
         Customer savedCustomer = customerRepository.save(customer);
-        return bankAccountMapper.fromCustomer(savedCustomer);
+        replicate(savedCustomer.getId());
+        CustomerDTO savedCustomerDTO = bankAccountMapper.fromCustomer(savedCustomer);
+        customerSearchIndex.indexAfterCommit(savedCustomerDTO);
+        return savedCustomerDTO;
     }
 
     @Override
     public void deleteCustomer(Long customerId) {
         log.info("Deleting customer {}", customerId);
+        // the foreign key only guards this shard, accounts on the others are checked before anything is deleted
+        if (shards.isSharded() && shards.fanOut(() -> bankAccountRepository.existsByCustomerId(customerId)).contains(true)) {
+            throw new DataIntegrityViolationException("Customer " + customerId + " still has accounts");
+        }
+        dtoCache.invalidateCustomer(customerId);
         customerRepository.deleteById(customerId);
+        replicate(customerId);
+        customerSearchIndex.removeAfterCommit(customerId);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<OperationDTO> accountHistory(String accountId) {
         List<AccountOperation> accountOperations = accountOperationRepository.findByBankAccountIdOrderByDateDesc(accountId);
         return accountOperations.stream()
@@ -199,16 +626,28 @@ public class BankAccountServiceImpl implements BankAccountService{
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public void exportAccountHistory(String accountId, String format, OutputStream outputStream) throws IOException {
+        try (Stream<AccountOperation> accountOperations = accountOperationRepository.streamByBankAccountId(accountId)) {
+            if ("csv".equalsIgnoreCase(format)) {
+                accountHistoryExporter.writeCsv(accountOperations, outputStream);
+            } else {
+                accountHistoryExporter.writeNdjson(accountOperations, outputStream);
+            }
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public AccountHistoryDTO getAccountHistory(String accountId, int page, int size) throws BankAccountNotFoundException {
-        BankAccount bankAccount = bankAccountRepository.findById(accountId)
-                .orElseThrow(() -> new BankAccountNotFoundException("BankAccount not found"));
+        BankAccountDTO bankAccountDTO = getBankAccount(accountId);
         
         Page<AccountOperation> accountOperations = accountOperationRepository.findByBankAccountIdOrderByDateDesc(
                 accountId, PageRequest.of(page, size));
         
         AccountHistoryDTO accountHistoryDTO = new AccountHistoryDTO();
         accountHistoryDTO.setAccountId(accountId);
-        accountHistoryDTO.setBalance(bankAccount.getBalance());
+        accountHistoryDTO.setBalance(balanceOf(bankAccountDTO));
         accountHistoryDTO.setCurrentPage(page);
         accountHistoryDTO.setPageSize(size);
         accountHistoryDTO.setTotalPages(accountOperations.getTotalPages());
@@ -222,9 +661,56 @@ public class BankAccountServiceImpl implements BankAccountService{
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public AccountHistoryDTO getAccountHistory(String accountId, String cursor, int size) throws BankAccountNotFoundException {
+        BankAccountDTO bankAccountDTO = getBankAccount(accountId);
+
+        // seek on (date, id) instead of OFFSET, and fetch one extra row to know if there is a next page
+        Limit limit = Limit.of(size + 1);
+        List<AccountOperation> accountOperations;
+        if (cursor == null || cursor.isEmpty()) {
+            accountOperations = accountOperationRepository.findByBankAccountIdOrderByDateDescIdDesc(accountId, limit);
+        } else {
+            HistoryCursor historyCursor = HistoryCursor.decode(cursor);
+            accountOperations = accountOperationRepository.findPageAfter(
+                    accountId, historyCursor.date(), historyCursor.id(), limit);
+        }
+        boolean hasNext = accountOperations.size() > size;
+        if (hasNext) {
+            accountOperations = accountOperations.subList(0, size);
+        }
+
+        AccountHistoryDTO accountHistoryDTO = new AccountHistoryDTO();
+        accountHistoryDTO.setAccountId(accountId);
+        accountHistoryDTO.setBalance(balanceOf(bankAccountDTO));
+        accountHistoryDTO.setPageSize(size);
+        accountHistoryDTO.setAccountOperationDTOS(
+                accountOperations.stream()
+                        .map(bankAccountMapper::fromAccountOperation)
+                        .collect(Collectors.toList())
+        );
+        if (hasNext) {
+            AccountOperation last = accountOperations.get(accountOperations.size() - 1);
+            accountHistoryDTO.setNextCursor(HistoryCursor.encode(last.getDate(), last.getId()));
+        }
+        return accountHistoryDTO;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public List<CustomerDTO> searchCustomers(String keyword) {
+        return searchCustomers(keyword, customerSearchIndex.getDefaultLimit());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<CustomerDTO> searchCustomers(String keyword, int limit) {
+        if (customerSearchIndex.isReady()) {
+            return customerSearchIndex.search(keyword, limit);
+        }
         List<Customer> customers = customerRepository.searcheCustomer("%" + keyword + "%");
         return customers.stream()
+                .limit(limit)
                 .map(bankAccountMapper::fromCustomer)
                 .collect(Collectors.toList());
     }
@@ -0,0 +1,222 @@
+package com.example.demo.sharding;
+
+import com.example.demo.Exception.BalanceNotSufficientException;
+import com.example.demo.Exception.BankAccountNotFoundException;
+import com.example.demo.Exception.VelocityLimitExceededException;
+import com.example.demo.dtos.BatchTransferResultDTO;
+import com.example.demo.dtos.TransferDTO;
+import com.example.demo.dtos.TransferResultDTO;
+import com.example.demo.entities.ShardTransfer;
+import com.example.demo.entities.ShardTransferStatus;
+import com.example.demo.metrics.MetricsRegistry;
+import com.example.demo.repositories.BankAccountRepository;
+import com.example.demo.repositories.ShardTransferRepository;
+import com.example.demo.services.BankAccountService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Transfers between accounts on different shards, in two local transactions tied by an
+ * outbox row instead of one distributed transaction:
+ * <ol>
+ * <li>on the source shard, the debit and a PENDING {@link ShardTransfer} commit together;</li>
+ * <li>on the destination shard, the credit commits together with a DELIVERED copy of that
+ * row, whose primary key makes the delivery happen at most once;</li>
+ * <li>back on the source shard, the outbox row is marked SETTLED.</li>
+ * </ol>
+ * The transfer is accepted once step 1 commits. If a later step fails, the relay
+ * redelivers PENDING rows older than {@code sharding.transfer-relay-millis}; a destination
+ * that no longer exists gets the debit reversed and the row COMPENSATED instead. Until
+ * then the money is in flight, on neither balance.
+ */
+@Component
+@ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+@Slf4j
+public class CrossShardTransfers {
+    private final Shards shards;
+    private final ShardTransferRepository shardTransferRepository;
+    private final BankAccountRepository bankAccountRepository;
+    private final ObjectProvider<BankAccountService> bankAccountService;
+    private final TransactionTemplate transactionTemplate;
+    private final long relayMillis;
+    private final int relayBatchSize;
+    private final LongAdder settled;
+    private final LongAdder compensated;
+    private final LongAdder redelivered;
+
+    public CrossShardTransfers(Shards shards,
+                               ShardTransferRepository shardTransferRepository,
+                               BankAccountRepository bankAccountRepository,
+                               ObjectProvider<BankAccountService> bankAccountService,
+                               PlatformTransactionManager transactionManager,
+                               MetricsRegistry metricsRegistry,
+                               @Value("${sharding.transfer-relay-millis:5000}") long relayMillis,
+                               @Value("${sharding.transfer-relay-batch-size:500}") int relayBatchSize) {
+        this.shards = shards;
+        this.shardTransferRepository = shardTransferRepository;
+        this.bankAccountRepository = bankAccountRepository;
+        this.bankAccountService = bankAccountService;
+        // each step commits on its own shard, whatever transaction the caller has open
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.relayMillis = relayMillis;
+        this.relayBatchSize = relayBatchSize;
+        String help = "Cross-shard transfers by final outcome";
+        this.settled = metricsRegistry.counter("ebank_cross_shard_transfers_total", help, MetricsRegistry.labels("outcome", "settled"));
+        this.compensated = metricsRegistry.counter("ebank_cross_shard_transfers_total", help, MetricsRegistry.labels("outcome", "compensated"));
+        this.redelivered = metricsRegistry.counter("ebank_cross_shard_redeliveries_total",
+                "Pending cross-shard transfers picked up by the relay", "");
+    }
+
+    public void transfer(String source, String destination, long amount) throws BankAccountNotFoundException, BalanceNotSufficientException {
+        if (!shards.onShardOf(destination, () -> bankAccountRepository.existsById(destination))) {
+            throw new BankAccountNotFoundException("BankAccount not found");
+        }
+        ShardTransfer shardTransfer = new ShardTransfer(UUID.randomUUID().toString(), source, destination, amount,
+                ShardTransferStatus.PENDING, new Date());
+        Throwable failure = shards.onShardOf(source, () -> transactionTemplate.execute(status -> {
+            try {
+                bankAccountService.getObject().debit(source, amount, "Transfer to " + destination);
+            } catch (BankAccountNotFoundException | BalanceNotSufficientException e) {
+                status.setRollbackOnly();
+                return e;
+            }
+            shardTransferRepository.save(shardTransfer);
+            return null;
+        }));
+        if (failure instanceof BankAccountNotFoundException e) throw e;
+        if (failure instanceof BalanceNotSufficientException e) throw e;
+        try {
+            if (!deliver(shardTransfer)) throw new BankAccountNotFoundException("BankAccount not found");
+        } catch (RuntimeException e) {
+            log.warn("Cross-shard transfer {} left pending for the relay", shardTransfer.getId(), e);
+        }
+    }
+
+    /**
+     * Splits a batch by shard: transfers within one shard run as a batch there, transfers
+     * between shards one by one after them. Results keep the batch's indexes.
+     */
+    public BatchTransferResultDTO transferBatch(List<TransferDTO> transfers) {
+        TransferResultDTO[] results = new TransferResultDTO[transfers.size()];
+        Map<Integer, List<Integer>> local = new TreeMap<>();
+        List<Integer> crossing = new ArrayList<>();
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferDTO transferDTO = transfers.get(i);
+            int source = shards.shardOf(transferDTO.getAccountSource());
+            if (transferDTO.getAccountDestination() == null || source == shards.shardOf(transferDTO.getAccountDestination())) {
+                local.computeIfAbsent(source, key -> new ArrayList<>()).add(i);
+            } else {
+                crossing.add(i);
+            }
+        }
+        local.forEach((shard, indexes) -> {
+            BatchTransferResultDTO part = shards.onShard(shard, () -> bankAccountService.getObject()
+                    .transferBatch(indexes.stream().map(transfers::get).toList()));
+            for (TransferResultDTO result : part.getResults()) {
+                result.setIndex(indexes.get(result.getIndex()));
+                results[result.getIndex()] = result;
+            }
+        });
+        for (int i : crossing) {
+            TransferDTO transferDTO = transfers.get(i);
+            TransferResultDTO result = new TransferResultDTO();
+            result.setIndex(i);
+            result.setAccountSource(transferDTO.getAccountSource());
+            result.setAccountDestination(transferDTO.getAccountDestination());
+            result.setAmount(transferDTO.getAmount());
+            try {
+                if (transferDTO.getAmount() <= 0) throw new IllegalArgumentException("Amount must be positive");
+                transfer(transferDTO.getAccountSource(), transferDTO.getAccountDestination(), transferDTO.getAmount());
+                result.setSuccess(true);
+            } catch (BankAccountNotFoundException | BalanceNotSufficientException | IllegalArgumentException | VelocityLimitExceededException e) {
+                result.setError(e.getMessage());
+            }
+            results[i] = result;
+        }
+        BatchTransferResultDTO batchTransferResultDTO = new BatchTransferResultDTO();
+        int succeeded = (int) Arrays.stream(results).filter(TransferResultDTO::isSuccess).count();
+        batchTransferResultDTO.setTotal(results.length);
+        batchTransferResultDTO.setSucceeded(succeeded);
+        batchTransferResultDTO.setFailed(results.length - succeeded);
+        batchTransferResultDTO.setResults(Arrays.asList(results));
+        return batchTransferResultDTO;
+    }
+
+    @Scheduled(fixedDelayString = "${sharding.transfer-relay-millis:5000}")
+    public void relay() {
+        Date before = new Date(System.currentTimeMillis() - relayMillis);
+        for (int shard = 0; shard < shards.count(); shard++) {
+            List<ShardTransfer> pending = shards.onShard(shard, () -> shardTransferRepository
+                    .findByStatusAndCreatedAtBeforeOrderByCreatedAt(ShardTransferStatus.PENDING, before, Limit.of(relayBatchSize)));
+            for (ShardTransfer shardTransfer : pending) {
+                redelivered.increment();
+                try {
+                    deliver(shardTransfer);
+                } catch (RuntimeException e) {
+                    log.warn("Redelivery of cross-shard transfer {} failed, retrying later", shardTransfer.getId(), e);
+                }
+            }
+        }
+    }
+
+    /** Steps 2 and 3; false when the destination is gone and the debit was reversed. */
+    private boolean deliver(ShardTransfer shardTransfer) {
+        String source = shardTransfer.getSourceAccountId();
+        String destination = shardTransfer.getDestinationAccountId();
+        boolean delivered;
+        try {
+            delivered = shards.onShardOf(destination, () -> transactionTemplate.execute(status -> {
+                if (shardTransferRepository.existsById(shardTransfer.getId())) return true;
+                shardTransferRepository.saveAndFlush(new ShardTransfer(shardTransfer.getId(), source, destination,
+                        shardTransfer.getAmount(), ShardTransferStatus.DELIVERED, new Date()));
+                try {
+                    bankAccountService.getObject().credit(destination, shardTransfer.getAmount(), "Transfer from " + source);
+                } catch (BankAccountNotFoundException e) {
+                    status.setRollbackOnly();
+                    return false;
+                }
+                return true;
+            }));
+        } catch (DataIntegrityViolationException e) {
+            // delivered concurrently, by the relay or the original request
+            delivered = true;
+        }
+        boolean credited = delivered;
+        shards.onShardOf(source, () -> transactionTemplate.execute(status -> {
+            if (credited) {
+                if (shardTransferRepository.complete(shardTransfer.getId(), ShardTransferStatus.SETTLED) == 1) settled.increment();
+                return null;
+            }
+            if (shardTransferRepository.complete(shardTransfer.getId(), ShardTransferStatus.COMPENSATED) == 1) {
+                try {
+                    bankAccountService.getObject().credit(source, shardTransfer.getAmount(), "Reversal of transfer to " + destination);
+                } catch (BankAccountNotFoundException e) {
+                    throw new IllegalStateException("Source account " + source + " of transfer " + shardTransfer.getId() + " is gone", e);
+                }
+                compensated.increment();
+                log.warn("Cross-shard transfer {} reversed, destination account {} not found", shardTransfer.getId(), destination);
+            }
+            return null;
+        }));
+        return delivered;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.demo.sharding;
+
+import com.example.demo.entities.Customer;
+import com.example.demo.entities.CustomerChange;
+import com.example.demo.repositories.CustomerChangeRepository;
+import com.example.demo.repositories.CustomerRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Keeps the copies of customers on the other shards in line with the first shard, which
+ * owns them. A customer change writes a {@link CustomerChange} on the first shard in its
+ * own transaction, and the copies are written once that commits, so a rolled back change
+ * never reaches them. A sync copies the first shard's committed row, or deletes the
+ * copies when it is gone, while holding that row's lock, so it can neither interleave
+ * with a later change nor write an older state over a newer one. Changes whose sync
+ * failed are retried by the relay until every shard has taken them.
+ */
+@Component
+@ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+@Slf4j
+public class CustomerReplication {
+    private static final int FIRST_SHARD = 0;
+
+    private final Shards shards;
+    private final CustomerRepository customerRepository;
+    private final CustomerChangeRepository customerChangeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long relayMillis;
+    private final int relayBatchSize;
+
+    public CustomerReplication(Shards shards,
+                               CustomerRepository customerRepository,
+                               CustomerChangeRepository customerChangeRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${sharding.customer-relay-millis:5000}") long relayMillis,
+                               @Value("${sharding.customer-relay-batch-size:500}") int relayBatchSize) {
+        this.shards = shards;
+        this.customerRepository = customerRepository;
+        this.customerChangeRepository = customerChangeRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.relayMillis = relayMillis;
+        this.relayBatchSize = relayBatchSize;
+    }
+
+    /** Records a change of the customer in the caller's transaction on the first shard. */
+    public void changed(Long customerId) {
+        customerChangeRepository.save(new CustomerChange(null, customerId, new Date()));
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            push(customerId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                push(customerId);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${sharding.customer-relay-millis:5000}")
+    public void relay() {
+        Date before = new Date(System.currentTimeMillis() - relayMillis);
+        Set<Long> customerIds = new LinkedHashSet<>();
+        shards.onShard(FIRST_SHARD, () -> customerChangeRepository.findByCreatedAtBeforeOrderById(before, Limit.of(relayBatchSize)))
+                .forEach(customerChange -> customerIds.add(customerChange.getCustomerId()));
+        customerIds.forEach(this::push);
+    }
+
+    private void push(Long customerId) {
+        try {
+            sync(customerId);
+        } catch (RuntimeException e) {
+            log.warn("Copying customer {} to the other shards failed, retrying later", customerId, e);
+        }
+    }
+
+    private void sync(Long customerId) {
+        shards.onShard(FIRST_SHARD, () -> transactionTemplate.execute(status -> {
+            Customer customer = customerRepository.lockById(customerId).orElse(null);
+            Long upTo = customerChangeRepository.findLastId(customerId);
+            if (upTo == null) return null;
+            shards.onOtherShards(() -> {
+                if (customer == null) {
+                    customerRepository.deleteCopy(customerId);
+                } else if (customerRepository.updateCopy(customerId, customer.getName(), customer.getEmail()) == 0) {
+                    customerRepository.insertCopy(customerId, customer.getName(), customer.getEmail());
+                }
+            });
+            customerChangeRepository.deleteUpTo(customerId, upTo);
+            return null;
+        }));
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.demo.sharding;
+
+import java.util.UUID;
+
+/**
+ * Per-thread shard selection read by {@link ShardedDataSource} when a connection is
+ * taken. Nothing selected means the first shard.
+ */
+public final class DataSourceSharding {
+    private static final ThreadLocal<Integer> SHARD = new ThreadLocal<>();
+    private static final ThreadLocal<String> NEW_ACCOUNT_ID = new ThreadLocal<>();
+
+    private DataSourceSharding() {
+    }
+
+    /** The selected shard, or -1 when none is. */
+    public static int current() {
+        Integer shard = SHARD.get();
+        return shard == null ? -1 : shard;
+    }
+
+    /**
+     * Id for an account about to be created: the one the shard was picked for, when the
+     * call was routed to a shard by it, a random UUID otherwise.
+     */
+    public static String newAccountId() {
+        String accountId = NEW_ACCOUNT_ID.get();
+        if (accountId == null) return UUID.randomUUID().toString();
+        NEW_ACCOUNT_ID.remove();
+        return accountId;
+    }
+
+    static void use(int shard) {
+        if (shard < 0) {
+            SHARD.remove();
+        } else {
+            SHARD.set(shard);
+        }
+    }
+
+    static void reserveAccountId(String accountId) {
+        if (accountId == null) {
+            NEW_ACCOUNT_ID.remove();
+        } else {
+            NEW_ACCOUNT_ID.set(accountId);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.demo.sharding;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+
+import java.util.List;
+
+/** Connection settings of one shard after the first, from {@code sharding.additional-shards[i].*}. */
+@Data
+public class ShardProperties {
+    private String url;
+    private String username;
+    private String password;
+    private String driverClassName;
+
+    static List<ShardProperties> additionalShards(Environment environment) {
+        if (!environment.getProperty("sharding.enabled", Boolean.class, false)) return List.of();
+        return Binder.get(environment)
+                .bind("sharding.additional-shards", Bindable.listOf(ShardProperties.class))
+                .orElse(List.of());
+    }
+}
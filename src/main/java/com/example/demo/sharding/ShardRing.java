@@ -0,0 +1,49 @@
+package com.example.demo.sharding;
+
+import java.util.Arrays;
+
+/**
+ * Consistent hash ring over the shards. Each shard owns {@code virtualNodes} points on
+ * the ring and an account belongs to the shard of the first point at or after the hash
+ * of its id, so adding a shard moves roughly 1/N of the accounts instead of nearly all
+ * of them. Existing rows are not moved: changing the shard list needs those accounts
+ * migrated first.
+ */
+public final class ShardRing {
+    private final long[] points;
+    private final int[] owners;
+
+    public ShardRing(int shardCount, int virtualNodes) {
+        long[][] ring = new long[shardCount * virtualNodes][];
+        for (int shard = 0; shard < shardCount; shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                ring[shard * virtualNodes + node] = new long[]{hash("shard-" + shard + "#" + node), shard};
+            }
+        }
+        Arrays.sort(ring, (a, b) -> Long.compare(a[0], b[0]));
+        points = new long[ring.length];
+        owners = new int[ring.length];
+        for (int i = 0; i < ring.length; i++) {
+            points[i] = ring[i][0];
+            owners[i] = (int) ring[i][1];
+        }
+    }
+
+    public int shardOf(String accountId) {
+        if (accountId == null || points.length == 0) return 0;
+        int index = Arrays.binarySearch(points, hash(accountId));
+        if (index < 0) index = -index - 1;
+        return owners[index == points.length ? 0 : index];
+    }
+
+    /** FNV-1a with a murmur finalizer, so ids differing in one character land far apart. */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.demo.sharding;
+
+import com.example.demo.dtos.TransferDTO;
+import com.example.demo.services.BankAccountService;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.AnnotatedMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Routes {@link BankAccountService} calls to the shard of the account they act on, the
+ * parameter marked {@link ShardKey}, outside the transaction interceptor so the
+ * transaction opens on that shard. New accounts get their id here, before the shard is
+ * picked by it. Transfers between shards, single or in a batch, go to
+ * {@link CrossShardTransfers}; calls without a key run on the first shard, which fans out
+ * itself where it needs the others.
+ * <p>
+ * A call joining a transaction that has not picked a shard yet binds the shard until
+ * that transaction completes, so the writes made around it land on the same shard.
+ */
+@Component
+@ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+public class ShardRoutingPostProcessor implements BeanPostProcessor {
+    private static final int[] NO_KEYS = new int[0];
+
+    private final ObjectProvider<Shards> shards;
+    private final ObjectProvider<CrossShardTransfers> crossShardTransfers;
+    private final Map<Method, int[]> keys = new ConcurrentHashMap<>();
+
+    public ShardRoutingPostProcessor(ObjectProvider<Shards> shards, ObjectProvider<CrossShardTransfers> crossShardTransfers) {
+        this.shards = shards;
+        this.crossShardTransfers = crossShardTransfers;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof BankAccountService)) return bean;
+        MethodInterceptor interceptor = this::route;
+        if (bean instanceof Advised advised) {
+            advised.addAdvice(0, interceptor);
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.addAdvice(interceptor);
+        return proxyFactory.getProxy();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object route(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        Object[] arguments = invocation.getArguments();
+        Shards shards = this.shards.getObject();
+        int[] keyIndexes = keys.computeIfAbsent(method, ShardRoutingPostProcessor::keyIndexes);
+        int current = DataSourceSharding.current();
+        if (keyIndexes.length == 0) {
+            switch (method.getName()) {
+                case "saveCurrentBankAccount", "saveSavingBankAccount" -> {
+                    String accountId = UUID.randomUUID().toString();
+                    DataSourceSharding.reserveAccountId(accountId);
+                    try {
+                        return proceedOn(invocation, shards.shardOf(accountId), current);
+                    } finally {
+                        DataSourceSharding.reserveAccountId(null);
+                    }
+                }
+                case "transferBatch" -> {
+                    if (current < 0) return crossShardTransfers.getObject().transferBatch((List<TransferDTO>) arguments[0]);
+                }
+                default -> {
+                }
+            }
+            return invocation.proceed();
+        }
+        List<Integer> targets = new ArrayList<>(2);
+        for (int index : keyIndexes) {
+            int shard = shards.shardOf((String) arguments[index]);
+            if (!targets.contains(shard)) targets.add(shard);
+        }
+        if (targets.size() > 1) {
+            if (current >= 0) {
+                throw new IllegalStateException(method.getName() + " spans shards inside a call bound to shard " + current);
+            }
+            crossShardTransfers.getObject().transfer((String) arguments[0], (String) arguments[1], (Long) arguments[2]);
+            return null;
+        }
+        return proceedOn(invocation, targets.getFirst(), current);
+    }
+
+    private static Object proceedOn(MethodInvocation invocation, int shard, int current) throws Throwable {
+        if (current >= 0) {
+            if (current != shard) {
+                throw new IllegalStateException(invocation.getMethod().getName() + " targets shard " + shard
+                        + " inside a call bound to shard " + current);
+            }
+            return invocation.proceed();
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            DataSourceSharding.use(shard);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    DataSourceSharding.use(-1);
+                }
+            });
+            return invocation.proceed();
+        }
+        DataSourceSharding.use(shard);
+        try {
+            return invocation.proceed();
+        } finally {
+            DataSourceSharding.use(-1);
+        }
+    }
+
+    private static int[] keyIndexes(Method method) {
+        AnnotatedMethod annotatedMethod = new AnnotatedMethod(method);
+        List<Integer> indexes = new ArrayList<>(2);
+        for (int i = 0; i < method.getParameterCount(); i++) {
+            if (annotatedMethod.getMethodParameters()[i].hasParameterAnnotation(ShardKey.class)) indexes.add(i);
+        }
+        return indexes.isEmpty() ? NO_KEYS : indexes.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
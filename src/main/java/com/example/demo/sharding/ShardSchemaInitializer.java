@@ -0,0 +1,87 @@
+package com.example.demo.sharding;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Hibernate builds the schema on the first shard only. This creates it on every other
+ * shard that has no tables yet, and starts each new shard's operation id sequence
+ * {@value #SEQUENCE_STRIDE} ids after the previous one's, so operation ids stay unique
+ * across shards. Later schema changes on existing shards are migrated like the first one's.
+ * When Hibernate recreates the first shard's schema ({@code ddl-auto} create or
+ * create-drop), the others are recreated too, so no shard keeps rows the first one lost.
+ */
+@Component
+@ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+@Slf4j
+public class ShardSchemaInitializer implements SmartInitializingSingleton {
+    static final long SEQUENCE_STRIDE = 1L << 44;
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final DataSource dataSource;
+    private final Shards shards;
+    private final boolean recreate;
+
+    public ShardSchemaInitializer(EntityManagerFactory entityManagerFactory, DataSource dataSource, Shards shards,
+                                  @Value("${spring.jpa.hibernate.ddl-auto:none}") String ddlAuto) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.dataSource = dataSource;
+        this.shards = shards;
+        this.recreate = ddlAuto.equals("create") || ddlAuto.equals("create-drop");
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        Dialect dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        for (int shard = 1; shard < shards.count(); shard++) {
+            int target = shard;
+            shards.onShard(shard, () -> {
+                if (hasTables()) {
+                    if (!recreate) return null;
+                    entityManagerFactory.getSchemaManager().drop(true);
+                }
+                entityManagerFactory.getSchemaManager().create(true);
+                offsetOperationSequence(dialect, target * SEQUENCE_STRIDE + 1);
+                log.info("Created the schema on shard {}", target);
+                return null;
+            });
+        }
+    }
+
+    private boolean hasTables() {
+        try (Connection connection = dataSource.getConnection();
+             ResultSet tables = connection.getMetaData().getTables(connection.getCatalog(), null, "%", new String[]{"TABLE"})) {
+            while (tables.next()) {
+                if ("bank_account".equalsIgnoreCase(tables.getString("TABLE_NAME"))) return true;
+            }
+            return false;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not read the schema of shard " + DataSourceSharding.current(), e);
+        }
+    }
+
+    private void offsetOperationSequence(Dialect dialect, long start) {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            if (dialect.getSequenceSupport().supportsSequences()) {
+                statement.execute("alter sequence account_operation_seq restart with " + start);
+            } else {
+                statement.execute("update account_operation_seq set next_val = " + start);
+            }
+            if (!connection.getAutoCommit()) connection.commit();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not offset the operation ids of shard " + DataSourceSharding.current(), e);
+        }
+    }
+}
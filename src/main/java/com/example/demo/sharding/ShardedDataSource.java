@@ -0,0 +1,39 @@
+package com.example.demo.sharding;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Hands out connections to the shard selected through {@link DataSourceSharding}. */
+public class ShardedDataSource extends AbstractRoutingDataSource implements DisposableBean {
+    private final List<DataSource> shards;
+
+    public ShardedDataSource(List<DataSource> shards) {
+        this.shards = List.copyOf(shards);
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            targets.put(i, shards.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.getFirst());
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return Math.max(DataSourceSharding.current(), 0);
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        for (DataSource shard : shards) {
+            if (shard instanceof Closeable closeable) closeable.close();
+        }
+    }
+}
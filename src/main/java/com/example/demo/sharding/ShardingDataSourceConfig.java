@@ -0,0 +1,61 @@
+package com.example.demo.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the single datasource with one pool per shard behind a
+ * {@link ShardedDataSource}. Shard 0 is {@code spring.datasource.*}, the others come from
+ * {@code sharding.additional-shards}; every pool takes the {@code spring.datasource.hikari.*}
+ * settings.
+ * <p>
+ * The ledger engine, the operation journal and credit coalescing commit outside the
+ * request transaction and so outside its shard, and the read replica routes on its own;
+ * none of them can be combined with sharding.
+ */
+@Configuration
+@ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+public class ShardingDataSourceConfig {
+    @Bean
+    public DataSource dataSource(DataSourceProperties dataSourceProperties, Environment environment) {
+        for (String incompatible : List.of("ledger.enabled", "journal.enabled", "datasource.replica.enabled")) {
+            if (environment.getProperty(incompatible, Boolean.class, false)) {
+                throw new IllegalStateException("sharding.enabled cannot be combined with " + incompatible);
+            }
+        }
+        if (!environment.getProperty("credit.coalescing.accounts", "").isBlank()) {
+            throw new IllegalStateException("sharding.enabled cannot be combined with credit.coalescing.accounts");
+        }
+        Binder binder = Binder.get(environment);
+        List<DataSource> shards = new ArrayList<>();
+        HikariDataSource first = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        shards.add(first);
+        for (ShardProperties shardProperties : ShardProperties.additionalShards(environment)) {
+            shards.add(DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(shardProperties.getUrl())
+                    .username(shardProperties.getUsername() != null ? shardProperties.getUsername() : dataSourceProperties.determineUsername())
+                    .password(shardProperties.getPassword() != null ? shardProperties.getPassword() : dataSourceProperties.determinePassword())
+                    .driverClassName(shardProperties.getDriverClassName() != null ? shardProperties.getDriverClassName()
+                            : dataSourceProperties.determineDriverClassName())
+                    .build());
+        }
+        for (int i = 0; i < shards.size(); i++) {
+            HikariDataSource shard = (HikariDataSource) shards.get(i);
+            binder.bind("spring.datasource.hikari", Bindable.ofInstance(shard));
+            shard.setPoolName("shard-" + i);
+        }
+        return new ShardedDataSource(shards);
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.demo.sharding;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Which shard an account lives on, and helpers to run work on one shard, on each of
+ * them, or on all of them in parallel. Without sharding there is a single shard and
+ * everything runs inline on the calling thread.
+ */
+@Component
+public class Shards {
+    private final int count;
+    private final ShardRing ring;
+    private final TransactionTemplate readOnly;
+    private final TransactionTemplate requiresNew;
+    private final ExecutorService fanOut;
+
+    public Shards(Environment environment,
+                  PlatformTransactionManager transactionManager,
+                  @Value("${sharding.virtual-nodes:128}") int virtualNodes,
+                  @Value("${sharding.fan-out-threads:8}") int fanOutThreads) {
+        this.count = 1 + ShardProperties.additionalShards(environment).size();
+        this.ring = new ShardRing(count, virtualNodes);
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.fanOut = count == 1 ? null : Executors.newFixedThreadPool(fanOutThreads, runnable -> {
+            Thread thread = new Thread(runnable, "shard-fan-out-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public boolean isSharded() {
+        return count > 1;
+    }
+
+    public int shardOf(String accountId) {
+        return ring.shardOf(accountId);
+    }
+
+    /** Runs {@code work} with connections taken from {@code shard}. */
+    public <T> T onShard(int shard, Supplier<T> work) {
+        int previous = DataSourceSharding.current();
+        DataSourceSharding.use(shard);
+        try {
+            return work.get();
+        } finally {
+            DataSourceSharding.use(previous);
+        }
+    }
+
+    /** Runs {@code work} on the shard of {@code accountId}. */
+    public <T> T onShardOf(String accountId, Supplier<T> work) {
+        return isSharded() ? onShard(shardOf(accountId), work) : work.get();
+    }
+
+    /**
+     * Runs the read-only {@code query} on every shard in parallel, each in a transaction of
+     * its own, and returns the results in shard order.
+     */
+    public <T> List<T> fanOut(Supplier<T> query) {
+        if (!isSharded()) return Collections.singletonList(query.get());
+        List<CompletableFuture<T>> futures = new ArrayList<>(count);
+        for (int shard = 0; shard < count; shard++) {
+            int target = shard;
+            futures.add(CompletableFuture.supplyAsync(
+                    () -> onShard(target, () -> readOnly.execute(status -> query.get())), fanOut));
+        }
+        List<T> results = new ArrayList<>(count);
+        try {
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+        return results;
+    }
+
+    /** Runs {@code work} on each shard in turn, in a new transaction per shard. */
+    public void forEachShard(Runnable work) {
+        for (int shard = 0; shard < count; shard++) {
+            onShard(shard, () -> requiresNew.execute(status -> {
+                work.run();
+                return null;
+            }));
+        }
+    }
+
+    /**
+     * Runs {@code work} on every shard but the current one, in a new transaction per
+     * shard, for reference data kept on all of them.
+     */
+    public void onOtherShards(Runnable work) {
+        int current = Math.max(DataSourceSharding.current(), 0);
+        for (int shard = 0; shard < count; shard++) {
+            if (shard == current) continue;
+            onShard(shard, () -> requiresNew.execute(status -> {
+                work.run();
+                return null;
+            }));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (fanOut != null) fanOut.shutdownNow();
+    }
+}
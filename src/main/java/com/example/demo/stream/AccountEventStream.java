@@ -0,0 +1,257 @@
+package com.example.demo.stream;
+
+import com.example.demo.dtos.AccountEventDTO;
+import com.example.demo.entities.AccountOperation;
+import com.example.demo.entities.OperationType;
+import com.example.demo.journal.OperationJournal;
+import com.example.demo.mappers.BankAccountMapperImpl;
+import com.example.demo.metrics.MetricsRegistry;
+import com.example.demo.repositories.BankAccountRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live operation and balance feed per account over Server-Sent Events.
+ * <p>
+ * Operations inserted for an account that has subscribers are collected per transaction
+ * and handed to a dispatcher thread once it commits; accounts nobody watches cost one map
+ * lookup. Just before the commit the transaction reads each watched account's balance,
+ * which its own update keeps locked, and works back from it to the balance after every
+ * one of its operations. With the journal enabled operations are inserted later by the
+ * drainer, so their events carry no balance.
+ * <p>
+ * The dispatcher serializes each event once and offers it to every subscriber's bounded
+ * buffer. Buffers are written out on virtual threads, one per subscriber with pending
+ * events, so a client whose socket stalls only holds its own thread; a subscriber whose
+ * buffer fills up is disconnected, and browsers' {@code EventSource} reconnects on its own.
+ */
+@Component
+@Slf4j
+public class AccountEventStream {
+    private static final Set<ResponseBodyEmitter.DataWithMediaType> HEARTBEAT = SseEmitter.event().comment("").build();
+
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final BankAccountRepository bankAccountRepository;
+    private final OperationJournal operationJournal;
+    private final BankAccountMapperImpl bankAccountMapper;
+    private final JsonMapper jsonMapper;
+    private final BlockingQueue<List<CommittedOperation>> committed;
+    private final ExecutorService senders;
+    private final Thread dispatcher;
+    private final int maxSubscribers;
+    private final int bufferSize;
+    private final long timeoutMillis;
+    private final LongAdder slowDisconnects;
+    private final LongAdder droppedBatches;
+    private volatile boolean running = true;
+
+    public AccountEventStream(BankAccountRepository bankAccountRepository,
+                              OperationJournal operationJournal,
+                              BankAccountMapperImpl bankAccountMapper,
+                              JsonMapper jsonMapper,
+                              MetricsRegistry metricsRegistry,
+                              @Value("${stream.max-subscribers:50000}") int maxSubscribers,
+                              @Value("${stream.buffer-size:64}") int bufferSize,
+                              @Value("${stream.timeout-millis:1800000}") long timeoutMillis,
+                              @Value("${stream.dispatch-queue-capacity:10000}") int dispatchQueueCapacity) {
+        this.bankAccountRepository = bankAccountRepository;
+        this.operationJournal = operationJournal;
+        this.bankAccountMapper = bankAccountMapper;
+        this.jsonMapper = jsonMapper;
+        this.maxSubscribers = maxSubscribers;
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeoutMillis;
+        this.committed = new ArrayBlockingQueue<>(dispatchQueueCapacity);
+        this.senders = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("stream-sender-", 0).factory());
+        this.slowDisconnects = metricsRegistry.counter("ebank_stream_slow_disconnects_total",
+                "Stream subscribers disconnected because their buffer was full", "");
+        this.droppedBatches = metricsRegistry.counter("ebank_stream_dropped_batches_total",
+                "Committed operation batches not streamed because the dispatcher was behind", "");
+        metricsRegistry.gauge("ebank_stream_subscribers", "Open account streams", "", subscriberCount::get);
+        this.dispatcher = new Thread(this::dispatchLoop, "stream-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Opens a stream for the account.
+     *
+     * @throws IllegalStateException when the node already holds {@code stream.max-subscribers} streams, or is shutting down
+     */
+    public SseEmitter subscribe(String accountId) {
+        if (!running) throw new IllegalStateException("Shutting down");
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new IllegalStateException("Too many open streams");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(accountId, emitter, bufferSize, senders);
+        subscribers.compute(accountId, (key, watching) -> {
+            if (watching == null) watching = ConcurrentHashMap.newKeySet();
+            watching.add(subscriber);
+            return watching;
+        });
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+        return emitter;
+    }
+
+    /** Called for every operation about to be inserted; only watched accounts are collected. */
+    public void record(AccountOperation accountOperation) {
+        if (subscribers.isEmpty() || !subscribers.containsKey(accountOperation.getBankAccount().getId())) return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(List.of(new CommittedOperation(accountOperation, null)));
+            return;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof StreamSynchronization streamSynchronization) {
+                streamSynchronization.operations.add(accountOperation);
+                return;
+            }
+        }
+        StreamSynchronization streamSynchronization = new StreamSynchronization();
+        streamSynchronization.operations.add(accountOperation);
+        TransactionSynchronizationManager.registerSynchronization(streamSynchronization);
+    }
+
+    @Scheduled(fixedDelayString = "${stream.heartbeat-millis:15000}")
+    public void heartbeat() {
+        subscribers.values().forEach(set -> set.forEach(subscriber -> offer(subscriber, HEARTBEAT)));
+    }
+
+    private void enqueue(List<CommittedOperation> operations) {
+        if (!committed.offer(operations)) {
+            droppedBatches.increment();
+        }
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                dispatch(committed.take());
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Failed to stream committed operations", e);
+            }
+        }
+    }
+
+    private void dispatch(List<CommittedOperation> operations) {
+        for (CommittedOperation committedOperation : operations) {
+            AccountOperation accountOperation = committedOperation.operation();
+            String accountId = accountOperation.getBankAccount().getId();
+            Set<Subscriber> watching = subscribers.get(accountId);
+            if (watching == null || watching.isEmpty()) continue;
+            AccountEventDTO accountEventDTO = new AccountEventDTO();
+            accountEventDTO.setAccountId(accountId);
+            accountEventDTO.setBalance(committedOperation.balance());
+            accountEventDTO.setOperation(bankAccountMapper.fromAccountOperation(accountOperation));
+            Set<ResponseBodyEmitter.DataWithMediaType> event = SseEmitter.event()
+                    .id(String.valueOf(accountOperation.getId()))
+                    .name("operation")
+                    .data(jsonMapper.writeValueAsString(accountEventDTO), MediaType.APPLICATION_JSON)
+                    .build();
+            watching.forEach(subscriber -> offer(subscriber, event));
+        }
+    }
+
+    private void offer(Subscriber subscriber, Set<ResponseBodyEmitter.DataWithMediaType> event) {
+        if (!subscriber.offer(event)) {
+            slowDisconnects.increment();
+            subscriber.close();
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.accountId(), (key, watching) -> {
+            if (watching.remove(subscriber)) subscriberCount.decrementAndGet();
+            return watching.isEmpty() ? null : watching;
+        });
+    }
+
+    /**
+     * Ends every open stream as soon as the context starts closing. The web server's graceful
+     * shutdown, which comes before {@code @PreDestroy}, waits for in-flight requests, and a
+     * stream only finishes on its own after {@code stream.timeout-millis}.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void closeStreams() {
+        running = false;
+        subscribers.values().forEach(set -> set.forEach(Subscriber::close));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        closeStreams();
+        dispatcher.interrupt();
+        senders.shutdown();
+    }
+
+    /** An operation with the account balance right after it, or {@code null} when that is not known. */
+    private record CommittedOperation(AccountOperation operation, Long balance) {
+    }
+
+    private final class StreamSynchronization implements TransactionSynchronization {
+        private final List<AccountOperation> operations = new ArrayList<>();
+        private List<CommittedOperation> committedOperations = List.of();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            Map<String, Long> balances = new HashMap<>();
+            if (!operationJournal.isEnabled()) {
+                // the query flushes this transaction's balance updates, whose row locks keep the value until commit
+                for (AccountOperation accountOperation : operations) {
+                    String accountId = accountOperation.getBankAccount().getId();
+                    if (!balances.containsKey(accountId)) {
+                        balances.put(accountId, bankAccountRepository.findBalanceById(accountId).orElse(null));
+                    }
+                }
+            }
+            CommittedOperation[] committed = new CommittedOperation[operations.size()];
+            for (int i = operations.size() - 1; i >= 0; i--) {
+                AccountOperation accountOperation = operations.get(i);
+                String accountId = accountOperation.getBankAccount().getId();
+                Long balance = balances.get(accountId);
+                committed[i] = new CommittedOperation(accountOperation, balance);
+                if (balance != null) {
+                    long amount = accountOperation.getAmount();
+                    balances.put(accountId, accountOperation.getType() == OperationType.CREDIT ? balance - amount : balance + amount);
+                }
+            }
+            committedOperations = Arrays.asList(committed);
+        }
+
+        @Override
+        public void afterCommit() {
+            enqueue(committedOperations);
+        }
+    }
+}
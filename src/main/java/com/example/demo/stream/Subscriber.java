@@ -0,0 +1,96 @@
+package com.example.demo.stream;
+
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One open stream. Events wait in a small per-subscriber buffer and are written by at
+ * most one sender thread at a time; an idle subscriber holds no buffer storage. Closing
+ * only flags the stream: its own sender completes the emitter, so a write stuck on a
+ * stalled client never blocks the thread that gave up on it.
+ */
+final class Subscriber {
+    private final String accountId;
+    private final SseEmitter emitter;
+    private final int bufferSize;
+    private final Executor senders;
+    private final Queue<Set<ResponseBodyEmitter.DataWithMediaType>> buffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger buffered = new AtomicInteger();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean completed = new AtomicBoolean();
+    private volatile boolean closed;
+
+    Subscriber(String accountId, SseEmitter emitter, int bufferSize, Executor senders) {
+        this.accountId = accountId;
+        this.emitter = emitter;
+        this.bufferSize = bufferSize;
+        this.senders = senders;
+    }
+
+    String accountId() {
+        return accountId;
+    }
+
+    SseEmitter emitter() {
+        return emitter;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    /** Buffers the event and makes sure a sender is on it; returns false when the buffer is full. */
+    boolean offer(Set<ResponseBodyEmitter.DataWithMediaType> event) {
+        if (closed) return true;
+        if (buffered.incrementAndGet() > bufferSize) {
+            buffered.decrementAndGet();
+            return false;
+        }
+        buffer.add(event);
+        schedule();
+        return true;
+    }
+
+    void close() {
+        if (closed) return;
+        closed = true;
+        schedule();
+    }
+
+    private void schedule() {
+        if (draining.compareAndSet(false, true)) {
+            senders.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Set<ResponseBodyEmitter.DataWithMediaType> event;
+            while ((event = buffer.poll()) != null) {
+                buffered.decrementAndGet();
+                if (closed) continue;
+                try {
+                    emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    // the client went away; the emitter's completion callback unsubscribes it
+                    closed = true;
+                    if (completed.compareAndSet(false, true)) emitter.completeWithError(e);
+                }
+            }
+            if (closed && completed.compareAndSet(false, true)) {
+                emitter.complete();
+            }
+            draining.set(false);
+            // an event offered, or a close, after the last poll but before the flag was cleared still needs a sender
+            if ((buffer.isEmpty() && (!closed || completed.get())) || !draining.compareAndSet(false, true)) return;
+        }
+    }
+}
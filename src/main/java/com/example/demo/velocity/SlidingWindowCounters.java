@@ -0,0 +1,204 @@
+package com.example.demo.velocity;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Debit count and amount per key over a sliding window, in a fixed-size table of
+ * primitive arrays. Each entry keeps the current and the previous fixed window; the
+ * sliding total weighs the previous one by how much of it still overlaps the sliding
+ * window, which is exact for evenly spread traffic and never off by more than the
+ * previous window's share otherwise.
+ * <p>
+ * The table is split into stripes, each behind its own lock, and a key may only sit in
+ * the few slots after its hash. When they are all taken the entry with the oldest window
+ * is overwritten, so memory stays fixed however many keys come by; losing a still active
+ * entry forgets its recent debits, counted in {@link #activeEvictions()}.
+ * <p>
+ * Each entry also carries a tag, an opaque long the caller can attach to the key.
+ */
+final class SlidingWindowCounters {
+    private static final int STRIPES = 64;
+    private static final int PROBES = 8;
+
+    private final long windowMillis;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final LongAdder activeEvictions = new LongAdder();
+
+    SlidingWindowCounters(int capacity, long windowMillis) {
+        this.windowMillis = windowMillis;
+        int slots = Integer.highestOneBit(Math.max(PROBES, capacity / STRIPES - 1) << 1);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(slots);
+        }
+    }
+
+    /** 64-bit hash of an account id; never 0, which marks a free slot. */
+    static long key(String id) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            hash = (hash ^ id.charAt(i)) * 0x100000001b3L;
+        }
+        return key(hash);
+    }
+
+    static long key(long id) {
+        long hash = id;
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+
+    /** The tag attached to the key, or 0 when the key is not in the table. */
+    long tag(long key) {
+        Stripe stripe = stripe(key);
+        stripe.lock.lock();
+        try {
+            int slot = stripe.find(key);
+            return slot < 0 ? 0 : stripe.tags[slot];
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    void tag(long key, long tag, long nowMillis) {
+        Stripe stripe = stripe(key);
+        stripe.lock.lock();
+        try {
+            stripe.tags[stripe.slot(key, nowMillis / windowMillis)] = tag;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Adds one debit of {@code amount} unless that would take the key over {@code maxCount}
+     * debits or {@code maxAmount} within the window; a limit of 0 is no limit.
+     */
+    boolean tryAcquire(long key, long amount, long nowMillis, int maxCount, long maxAmount) {
+        long window = nowMillis / windowMillis;
+        long elapsed = nowMillis - window * windowMillis;
+        Stripe stripe = stripe(key);
+        stripe.lock.lock();
+        try {
+            int slot = stripe.slot(key, window);
+            if (maxCount > 0 && stripe.counts[slot] + 1 + overlap(stripe.previousCounts[slot], elapsed) > maxCount) {
+                return false;
+            }
+            if (maxAmount > 0 && stripe.amounts[slot] + amount + overlap(stripe.previousAmounts[slot], elapsed) > maxAmount) {
+                return false;
+            }
+            stripe.counts[slot]++;
+            stripe.amounts[slot] += amount;
+            return true;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /** Takes back a debit acquired at {@code acquiredAtMillis}, if its window is still tracked. */
+    void release(long key, long amount, long acquiredAtMillis) {
+        long window = acquiredAtMillis / windowMillis;
+        Stripe stripe = stripe(key);
+        stripe.lock.lock();
+        try {
+            int slot = stripe.find(key);
+            if (slot < 0) return;
+            if (stripe.windows[slot] == window) {
+                stripe.counts[slot] = Math.max(0, stripe.counts[slot] - 1);
+                stripe.amounts[slot] = Math.max(0, stripe.amounts[slot] - amount);
+            } else if (stripe.windows[slot] == window + 1) {
+                stripe.previousCounts[slot] = Math.max(0, stripe.previousCounts[slot] - 1);
+                stripe.previousAmounts[slot] = Math.max(0, stripe.previousAmounts[slot] - amount);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    long activeEvictions() {
+        return activeEvictions.sum();
+    }
+
+    /** The part of the previous window's total still inside the sliding window. */
+    private long overlap(long previous, long elapsed) {
+        long expired = previous / windowMillis * elapsed + previous % windowMillis * elapsed / windowMillis;
+        return previous - expired;
+    }
+
+    private Stripe stripe(long key) {
+        return stripes[(int) (key >>> 58)];
+    }
+
+    private final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final int mask;
+        private final long[] keys;
+        private final long[] tags;
+        private final long[] windows;
+        private final int[] counts;
+        private final int[] previousCounts;
+        private final long[] amounts;
+        private final long[] previousAmounts;
+
+        Stripe(int slots) {
+            mask = slots - 1;
+            keys = new long[slots];
+            tags = new long[slots];
+            windows = new long[slots];
+            counts = new int[slots];
+            previousCounts = new int[slots];
+            amounts = new long[slots];
+            previousAmounts = new long[slots];
+        }
+
+        int find(long key) {
+            int start = (int) key & mask;
+            for (int i = 0; i < PROBES; i++) {
+                int slot = (start + i) & mask;
+                if (keys[slot] == key) return slot;
+            }
+            return -1;
+        }
+
+        /** The key's slot rolled forward to {@code window}, claiming one if the key is new. */
+        int slot(long key, long window) {
+            int start = (int) key & mask;
+            int victim = start;
+            for (int i = 0; i < PROBES; i++) {
+                int slot = (start + i) & mask;
+                if (keys[slot] == key) {
+                    roll(slot, window);
+                    return slot;
+                }
+                if (keys[slot] == 0) {
+                    victim = slot;
+                    break;
+                }
+                if (windows[slot] < windows[victim]) victim = slot;
+            }
+            if (keys[victim] != 0 && windows[victim] >= window - 1) {
+                activeEvictions.increment();
+            }
+            keys[victim] = key;
+            tags[victim] = 0;
+            windows[victim] = window;
+            counts[victim] = 0;
+            previousCounts[victim] = 0;
+            amounts[victim] = 0;
+            previousAmounts[victim] = 0;
+            return victim;
+        }
+
+        private void roll(int slot, long window) {
+            if (windows[slot] >= window) return;
+            boolean adjacent = windows[slot] == window - 1;
+            previousCounts[slot] = adjacent ? counts[slot] : 0;
+            previousAmounts[slot] = adjacent ? amounts[slot] : 0;
+            counts[slot] = 0;
+            amounts[slot] = 0;
+            windows[slot] = window;
+        }
+    }
+}
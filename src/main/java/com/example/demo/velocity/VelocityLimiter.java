@@ -0,0 +1,148 @@
+package com.example.demo.velocity;
+
+import com.example.demo.Exception.VelocityLimitExceededException;
+import com.example.demo.entities.SavingAccount;
+import com.example.demo.metrics.MetricsRegistry;
+import com.example.demo.repositories.BankAccountRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-account and per-customer debit velocity limits, checked in memory before a debit
+ * touches the database. Account limits depend on the account type; customer limits
+ * apply to the debits of all the customer's accounts together. An account's type and
+ * customer are read once and then kept in its counter entry.
+ * <p>
+ * A debit is charged up front and refunded if it fails or its transaction rolls back,
+ * so only debits that went through count against the limits. Counters live in this
+ * process only; with several nodes each enforces its own share.
+ */
+@Component
+public class VelocityLimiter {
+    private static final long CURRENT = 1;
+    private static final long SAVING = 2;
+
+    private final BankAccountRepository bankAccountRepository;
+    private final VelocityLimits currentLimits;
+    private final VelocityLimits savingLimits;
+    private final VelocityLimits customerLimits;
+    private final SlidingWindowCounters accounts;
+    private final SlidingWindowCounters customers;
+    private final LongAdder accountRejections;
+    private final LongAdder customerRejections;
+
+    public VelocityLimiter(BankAccountRepository bankAccountRepository,
+                           MetricsRegistry metricsRegistry,
+                           @Value("${velocity.window-millis:60000}") long windowMillis,
+                           @Value("${velocity.max-tracked:1048576}") int maxTracked,
+                           @Value("${velocity.current.max-debits:0}") int currentMaxDebits,
+                           @Value("${velocity.current.max-amount:0}") String currentMaxAmount,
+                           @Value("${velocity.saving.max-debits:0}") int savingMaxDebits,
+                           @Value("${velocity.saving.max-amount:0}") String savingMaxAmount,
+                           @Value("${velocity.customer.max-debits:0}") int customerMaxDebits,
+                           @Value("${velocity.customer.max-amount:0}") String customerMaxAmount) {
+        this.bankAccountRepository = bankAccountRepository;
+        this.currentLimits = VelocityLimits.of(currentMaxDebits, currentMaxAmount);
+        this.savingLimits = VelocityLimits.of(savingMaxDebits, savingMaxAmount);
+        this.customerLimits = VelocityLimits.of(customerMaxDebits, customerMaxAmount);
+        boolean enabled = !currentLimits.isUnlimited() || !savingLimits.isUnlimited() || !customerLimits.isUnlimited();
+        this.accounts = enabled ? new SlidingWindowCounters(maxTracked, windowMillis) : null;
+        this.customers = enabled && !customerLimits.isUnlimited() ? new SlidingWindowCounters(maxTracked, windowMillis) : null;
+        String help = "Debits refused by a velocity limit";
+        this.accountRejections = metricsRegistry.counter("ebank_velocity_rejections_total", help,
+                MetricsRegistry.labels("scope", "account"));
+        this.customerRejections = metricsRegistry.counter("ebank_velocity_rejections_total", help,
+                MetricsRegistry.labels("scope", "customer"));
+        metricsRegistry.gauge("ebank_velocity_evicted_active_counters",
+                "Active velocity counters overwritten because the table was full", "",
+                () -> (accounts == null ? 0 : accounts.activeEvictions()) + (customers == null ? 0 : customers.activeEvictions()));
+    }
+
+    public boolean isEnabled() {
+        return accounts != null;
+    }
+
+    /**
+     * Counts a debit of {@code amount} against the account and its customer. The charge
+     * is refunded by itself if the surrounding transaction rolls back; a caller whose
+     * debit fails without rolling back refunds it.
+     *
+     * @throws VelocityLimitExceededException when the debit would exceed a limit
+     */
+    public Charge charge(String accountId, long amount) {
+        if (accounts == null || accountId == null) return Charge.NONE;
+        long now = System.currentTimeMillis();
+        long accountKey = SlidingWindowCounters.key(accountId);
+        long profile = accounts.tag(accountKey);
+        if (profile == 0) {
+            List<Object[]> rows = bankAccountRepository.findTypeAndCustomerId(accountId);
+            // an unknown account is left for the debit itself to report
+            if (rows.isEmpty()) return Charge.NONE;
+            profile = profile((Class<?>) rows.getFirst()[0], (Long) rows.getFirst()[1]);
+            accounts.tag(accountKey, profile, now);
+        }
+        VelocityLimits limits = (profile & 3) == SAVING ? savingLimits : currentLimits;
+        if (!accounts.tryAcquire(accountKey, amount, now, limits.maxDebits(), limits.maxAmount())) {
+            accountRejections.increment();
+            throw new VelocityLimitExceededException("Debit velocity limit exceeded for account " + accountId);
+        }
+        long customerKey = 0;
+        if (customers != null && profile >>> 2 != 0) {
+            customerKey = SlidingWindowCounters.key(profile >>> 2);
+            if (!customers.tryAcquire(customerKey, amount, now, customerLimits.maxDebits(), customerLimits.maxAmount())) {
+                accounts.release(accountKey, amount, now);
+                customerRejections.increment();
+                throw new VelocityLimitExceededException("Debit velocity limit exceeded for the customer of account " + accountId);
+            }
+        }
+        Charge charge = new Charge(this, accountKey, customerKey, amount, now);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(charge);
+        }
+        return charge;
+    }
+
+    /** Type in the low two bits, customer id plus one above them (0 when there is none). */
+    private static long profile(Class<?> type, Long customerId) {
+        long kind = SavingAccount.class.isAssignableFrom(type) ? SAVING : CURRENT;
+        return (customerId == null ? 0 : (customerId + 1) << 2) | kind;
+    }
+
+    public static final class Charge implements TransactionSynchronization {
+        static final Charge NONE = new Charge(null, 0, 0, 0, 0);
+
+        private final VelocityLimiter limiter;
+        private final long accountKey;
+        private final long customerKey;
+        private final long amount;
+        private final long chargedAt;
+        private boolean refunded;
+
+        private Charge(VelocityLimiter limiter, long accountKey, long customerKey, long amount, long chargedAt) {
+            this.limiter = limiter;
+            this.accountKey = accountKey;
+            this.customerKey = customerKey;
+            this.amount = amount;
+            this.chargedAt = chargedAt;
+        }
+
+        public void refund() {
+            if (limiter == null || refunded) return;
+            refunded = true;
+            limiter.accounts.release(accountKey, amount, chargedAt);
+            if (customerKey != 0) {
+                limiter.customers.release(customerKey, amount, chargedAt);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status == STATUS_ROLLED_BACK) refund();
+        }
+    }
+}
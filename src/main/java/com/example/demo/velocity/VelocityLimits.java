@@ -0,0 +1,14 @@
+package com.example.demo.velocity;
+
+import com.example.demo.money.Money;
+
+/** Most debits and most debited amount (minor units) per window; 0 means no limit. */
+record VelocityLimits(int maxDebits, long maxAmount) {
+    static VelocityLimits of(int maxDebits, String maxAmount) {
+        return new VelocityLimits(maxDebits, Money.parse(maxAmount.isBlank() ? "0" : maxAmount));
+    }
+
+    boolean isUnlimited() {
+        return maxDebits <= 0 && maxAmount <= 0;
+    }
+}
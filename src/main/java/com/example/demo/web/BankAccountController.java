@@ -3,10 +3,13 @@ package com.example.demo.web;
 import com.example.demo.Exception.CustomerNotFoundException;
 import com.example.demo.dtos.CurrentAccountDTO;
 import com.example.demo.dtos.SavingAccountDTO;
+import com.example.demo.money.Money;
 import com.example.demo.services.BankAccountService;
 import lombok.AllArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
+
 @RestController
 @RequestMapping("/api/bankAccounts")
 @AllArgsConstructor
@@ -16,18 +19,18 @@ public class BankAccountController {
 
     @PostMapping("/currentAccount")
     public CurrentAccountDTO saveCurrentBankAccount(
-            @RequestParam double initialBalance,
-            @RequestParam double overDraft,
+            @RequestParam BigDecimal initialBalance,
+            @RequestParam BigDecimal overDraft,
             @RequestParam Long customerId) throws CustomerNotFoundException {
-        return bankAccountService.saveCurrentBankAccount(initialBalance, overDraft, customerId);
+        return bankAccountService.saveCurrentBankAccount(Money.ofMajor(initialBalance), Money.ofMajor(overDraft), customerId);
     }
 
     @PostMapping("/savingAccount")
     public SavingAccountDTO saveSavingBankAccount(
-            @RequestParam double initialBalance,
+            @RequestParam BigDecimal initialBalance,
             @RequestParam double interestRate,
             @RequestParam Long customerId) throws CustomerNotFoundException {
-        return bankAccountService.saveSavingBankAccount(initialBalance, interestRate, customerId);
+        return bankAccountService.saveSavingBankAccount(Money.ofMajor(initialBalance), interestRate, customerId);
     }
 }
 
@@ -4,10 +4,23 @@ import com.example.demo.Exception.BalanceNotSufficientException;
 import com.example.demo.Exception.BankAccountNotFoundException;
 import com.example.demo.Exception.CustomerNotFoundException;
 import com.example.demo.dtos.*;
+import com.example.demo.entities.AccountStatus;
+import com.example.demo.entities.RollupGranularity;
+import com.example.demo.idempotency.IdempotencyService;
+import com.example.demo.rollup.AccountRollupService;
 import com.example.demo.services.BankAccountService;
+import com.example.demo.stream.AccountEventStream;
 import lombok.AllArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -16,12 +29,25 @@ import java.util.List;
 @CrossOrigin("*")
 public class BankAccountRestController {
     private BankAccountService bankAccountService;
+    private AccountRollupService accountRollupService;
+    private IdempotencyService idempotencyService;
+    private AccountEventStream accountEventStream;
 
     @GetMapping
     public List<BankAccountDTO> bankAccountList() {
         return bankAccountService.bankAccountList();
     }
 
+    @GetMapping("/page")
+    public AccountPageDTO bankAccountPage(
+            @RequestParam(name = "type", required = false) String type,
+            @RequestParam(name = "status", required = false) AccountStatus status,
+            @RequestParam(name = "customerId", required = false) Long customerId,
+            @RequestParam(name = "page", defaultValue = "0") int page,
+            @RequestParam(name = "size", defaultValue = "20") int size) {
+        return bankAccountService.bankAccountPage(type, status, customerId, page, size);
+    }
+
     @GetMapping("/{accountId}")
     public BankAccountDTO getBankAccount(@PathVariable String accountId) throws BankAccountNotFoundException {
         return bankAccountService.getBankAccount(accountId);
@@ -32,33 +58,93 @@ public class BankAccountRestController {
         return bankAccountService.accountHistory(accountId);
     }
 
+    @GetMapping("/{accountId}/history/export")
+    public ResponseEntity<StreamingResponseBody> exportHistory(
+            @PathVariable String accountId,
+            @RequestParam(name = "format", defaultValue = "ndjson") String format) throws BankAccountNotFoundException {
+        bankAccountService.getBankAccount(accountId);
+        MediaType mediaType = "csv".equalsIgnoreCase(format)
+                ? MediaType.parseMediaType("text/csv")
+                : MediaType.parseMediaType("application/x-ndjson");
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .body(outputStream -> bankAccountService.exportAccountHistory(accountId, format, outputStream));
+    }
+
+    @GetMapping(path = "/{accountId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream(@PathVariable String accountId) throws BankAccountNotFoundException {
+        bankAccountService.getBankAccount(accountId);
+        try {
+            return ResponseEntity.ok(accountEventStream.subscribe(accountId));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .build();
+        }
+    }
+
     @GetMapping("/{accountId}/pageHistory")
     public AccountHistoryDTO getAccountHistory(
             @PathVariable String accountId,
             @RequestParam(name = "page", defaultValue = "0") int page,
-            @RequestParam(name = "size", defaultValue = "5") int size) throws BankAccountNotFoundException {
+            @RequestParam(name = "size", defaultValue = "5") int size,
+            @RequestParam(name = "cursor", required = false) String cursor) throws BankAccountNotFoundException {
+        if (cursor != null) {
+            return bankAccountService.getAccountHistory(accountId, cursor, size);
+        }
         return bankAccountService.getAccountHistory(accountId, page, size);
     }
 
+    @GetMapping("/{accountId}/summary")
+    public AccountSummaryDTO getSummary(
+            @PathVariable String accountId,
+            @RequestParam(name = "granularity", defaultValue = "day") String granularity,
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) throws BankAccountNotFoundException {
+        bankAccountService.getBankAccount(accountId);
+        RollupGranularity rollupGranularity = RollupGranularity.valueOf(granularity.toUpperCase());
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from
+                : rollupGranularity == RollupGranularity.MONTH ? end.minusMonths(11) : end.minusDays(29);
+        return accountRollupService.summary(accountId, rollupGranularity, start, end);
+    }
+
     @PostMapping("/debit")
-    public DebitDTO debit(@RequestBody DebitDTO debitDTO) throws BankAccountNotFoundException, BalanceNotSufficientException {
-        bankAccountService.debit(debitDTO.getAccountId(), debitDTO.getAmount(), debitDTO.getDescription());
+    public DebitDTO debit(@RequestBody DebitDTO debitDTO,
+                          @RequestHeader(name = IdempotencyService.HEADER, required = false) String idempotencyKey)
+            throws BankAccountNotFoundException, BalanceNotSufficientException {
+        idempotencyService.execute(idempotencyKey,
+                IdempotencyService.fingerprint("debit", debitDTO.getAccountId(), debitDTO.getAmount(), debitDTO.getDescription()),
+                () -> bankAccountService.debit(debitDTO.getAccountId(), debitDTO.getAmount(), debitDTO.getDescription()));
         return debitDTO;
     }
 
     @PostMapping("/credit")
-    public CreditDTO credit(@RequestBody CreditDTO creditDTO) throws BankAccountNotFoundException {
-        bankAccountService.credit(creditDTO.getAccountId(), creditDTO.getAmount(), creditDTO.getDescription());
+    public CreditDTO credit(@RequestBody CreditDTO creditDTO,
+                            @RequestHeader(name = IdempotencyService.HEADER, required = false) String idempotencyKey)
+            throws BankAccountNotFoundException, BalanceNotSufficientException {
+        idempotencyService.execute(idempotencyKey,
+                IdempotencyService.fingerprint("credit", creditDTO.getAccountId(), creditDTO.getAmount(), creditDTO.getDescription()),
+                () -> bankAccountService.credit(creditDTO.getAccountId(), creditDTO.getAmount(), creditDTO.getDescription()));
         return creditDTO;
     }
 
     @PostMapping("/transfer")
-    public void transfer(@RequestBody TransferDTO transferDTO) throws BankAccountNotFoundException, BalanceNotSufficientException {
-        bankAccountService.transfer(
-                transferDTO.getAccountSource(),
-                transferDTO.getAccountDestination(),
-                transferDTO.getAmount()
-        );
+    public void transfer(@RequestBody TransferDTO transferDTO,
+                         @RequestHeader(name = IdempotencyService.HEADER, required = false) String idempotencyKey)
+            throws BankAccountNotFoundException, BalanceNotSufficientException {
+        idempotencyService.execute(idempotencyKey,
+                IdempotencyService.fingerprint("transfer", transferDTO.getAccountSource(),
+                        transferDTO.getAccountDestination(), transferDTO.getAmount()),
+                () -> bankAccountService.transfer(
+                        transferDTO.getAccountSource(),
+                        transferDTO.getAccountDestination(),
+                        transferDTO.getAmount()
+                ));
     }
-}
 
+    @PostMapping("/transfers/batch")
+    public BatchTransferResultDTO transferBatch(@RequestBody List<TransferDTO> transfers) {
+        return bankAccountService.transferBatch(transfers);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.demo.web;
+
+import com.example.demo.cache.DtoCache;
+import com.example.demo.dtos.CacheStatsDTO;
+import lombok.AllArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/cache")
+@AllArgsConstructor
+@CrossOrigin("*")
+public class CacheRestController {
+    private DtoCache dtoCache;
+
+    @GetMapping("/stats")
+    public List<CacheStatsDTO> stats() {
+        return dtoCache.stats();
+    }
+}
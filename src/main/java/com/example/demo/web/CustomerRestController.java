@@ -2,6 +2,7 @@ package com.example.demo.web;
 
 import com.example.demo.Exception.CustomerNotFoundException;
 import com.example.demo.dtos.CustomerDTO;
+import com.example.demo.dtos.CustomerOverviewDTO;
 import com.example.demo.services.BankAccountService;
 import lombok.AllArgsConstructor;
 import org.springframework.web.bind.annotation.*;
@@ -25,8 +26,18 @@ public class CustomerRestController {
         return bankAccountService.getCustomer(customerId);
     }
 
+    @GetMapping("/{id}/overview")
+    public CustomerOverviewDTO getCustomerOverview(@PathVariable(name = "id") Long customerId,
+                                                   @RequestParam(name = "operations", defaultValue = "5") int operations) throws CustomerNotFoundException {
+        return bankAccountService.getCustomerOverview(customerId, Math.min(Math.max(operations, 0), 50));
+    }
+
     @GetMapping("/search")
-    public List<CustomerDTO> searchCustomers(@RequestParam(name = "keyword", defaultValue = "") String keyword) {
+    public List<CustomerDTO> searchCustomers(@RequestParam(name = "keyword", defaultValue = "") String keyword,
+                                             @RequestParam(name = "limit", required = false) Integer limit) {
+        if (limit != null) {
+            return bankAccountService.searchCustomers(keyword, limit);
+        }
         return bankAccountService.searchCustomers(keyword);
     }
 
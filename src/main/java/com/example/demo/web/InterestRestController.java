@@ -0,0 +1,29 @@
+package com.example.demo.web;
+
+import com.example.demo.dtos.InterestAccrualResultDTO;
+import com.example.demo.interest.InterestAccrualService;
+import lombok.AllArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/interest")
+@AllArgsConstructor
+@CrossOrigin("*")
+public class InterestRestController {
+    private InterestAccrualService interestAccrualService;
+
+    @PostMapping("/accruals")
+    public ResponseEntity<InterestAccrualResultDTO> accrue(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        try {
+            return ResponseEntity.ok(interestAccrualService.accrue(date != null ? date : interestAccrualService.today()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+}
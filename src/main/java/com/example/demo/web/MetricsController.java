@@ -0,0 +1,35 @@
+package com.example.demo.web;
+
+import com.example.demo.metrics.MetricsRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+@RestController
+public class MetricsController {
+    private static final MediaType PROMETHEUS_TEXT = MediaType.parseMediaType("text/plain;version=0.0.4;charset=utf-8");
+
+    private final MetricsRegistry metricsRegistry;
+    private final boolean localOnly;
+
+    public MetricsController(MetricsRegistry metricsRegistry,
+                             @Value("${metrics.local-only:true}") boolean localOnly) {
+        this.metricsRegistry = metricsRegistry;
+        this.localOnly = localOnly;
+    }
+
+    @GetMapping("/metrics")
+    public ResponseEntity<String> metrics(HttpServletRequest request) throws UnknownHostException {
+        if (localOnly && !InetAddress.getByName(request.getRemoteAddr()).isLoopbackAddress()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok().contentType(PROMETHEUS_TEXT).body(metricsRegistry.scrape());
+    }
+}
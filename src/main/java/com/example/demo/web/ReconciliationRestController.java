@@ -0,0 +1,31 @@
+package com.example.demo.web;
+
+import com.example.demo.dtos.ReconciliationReportDTO;
+import com.example.demo.reconciliation.ReconciliationService;
+import lombok.AllArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/reconciliation")
+@AllArgsConstructor
+@CrossOrigin("*")
+public class ReconciliationRestController {
+    private ReconciliationService reconciliationService;
+
+    @PostMapping("/runs")
+    public ResponseEntity<ReconciliationReportDTO> reconcile(@RequestParam(name = "full", defaultValue = "false") boolean full) {
+        try {
+            return ResponseEntity.ok(reconciliationService.reconcile(full));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    @GetMapping("/runs/latest")
+    public ResponseEntity<ReconciliationReportDTO> latest() {
+        ReconciliationReportDTO reportDTO = reconciliationService.latestReport();
+        return reportDTO != null ? ResponseEntity.ok(reportDTO) : ResponseEntity.notFound().build();
+    }
+}
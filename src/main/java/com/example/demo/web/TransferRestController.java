@@ -0,0 +1,41 @@
+package com.example.demo.web;
+
+import com.example.demo.dtos.TransferDTO;
+import com.example.demo.dtos.TransferStatusDTO;
+import com.example.demo.services.AsyncTransferExecutor;
+import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@RequestMapping("/api/transfers")
+@AllArgsConstructor
+@CrossOrigin("*")
+public class TransferRestController {
+    private AsyncTransferExecutor asyncTransferExecutor;
+
+    @PostMapping
+    public ResponseEntity<TransferStatusDTO> submit(@RequestBody TransferDTO transferDTO) {
+        try {
+            TransferStatusDTO transferStatusDTO = asyncTransferExecutor.submit(transferDTO);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/transfers/" + transferStatusDTO.getId()))
+                    .body(transferStatusDTO);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
+        }
+    }
+
+    @GetMapping("/{transferId}")
+    public ResponseEntity<TransferStatusDTO> status(@PathVariable String transferId) {
+        TransferStatusDTO transferStatusDTO = asyncTransferExecutor.status(transferId);
+        return transferStatusDTO != null ? ResponseEntity.ok(transferStatusDTO) : ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.demo.benchmarks;
+
+import com.example.demo.EbankingBachendApplication;
+import com.example.demo.Exception.BalanceNotSufficientException;
+import com.example.demo.dtos.CurrentAccountDTO;
+import com.example.demo.dtos.CustomerDTO;
+import com.example.demo.dtos.OperationDTO;
+import com.example.demo.entities.OperationType;
+import com.example.demo.repositories.BankAccountRepository;
+import com.example.demo.services.BankAccountService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many threads debiting and crediting a few hot accounts with no overdraft, once per
+ * {@code balance.update-mode}. Balances are kept small so the sufficiency check is
+ * contended. Per-thread counters report rejected debits and operations that gave up on a
+ * version conflict; at the end of the trial every account balance is checked against its
+ * operation history and against the zero overdraft.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Threads(16)
+@Fork(1)
+public class ContentionBenchmark {
+    private static final long OPENING_BALANCE = 5_000;
+    private static final long AMOUNT = 1_000;
+
+    @Param({"read-check-write", "conditional", "optimistic"})
+    public String mode;
+
+    @Param({"4"})
+    public int hotAccounts;
+
+    private ConfigurableApplicationContext context;
+    private BankAccountService bankAccountService;
+    private String[] accountIds;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+        public long rejected;
+        public long conflicts;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        context = new SpringApplicationBuilder(EbankingBachendApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("h2")
+                .run("--balance.update-mode=" + mode,
+                        "--spring.datasource.url=jdbc:h2:mem:contention-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                        "--logging.level.root=WARN");
+        bankAccountService = context.getBean(BankAccountService.class);
+        CustomerDTO customerDTO = new CustomerDTO();
+        customerDTO.setName("hot");
+        customerDTO.setEmail("hot@example.com");
+        Long customerId = bankAccountService.saveCustomer(customerDTO).getId();
+        accountIds = new String[hotAccounts];
+        for (int i = 0; i < hotAccounts; i++) {
+            CurrentAccountDTO account = bankAccountService.saveCurrentBankAccount(OPENING_BALANCE, 0, customerId);
+            accountIds[i] = account.getId();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BankAccountRepository bankAccountRepository = context.getBean(BankAccountRepository.class);
+        int inconsistent = 0;
+        int overdrawn = 0;
+        for (String accountId : accountIds) {
+            long expected = OPENING_BALANCE;
+            for (OperationDTO operationDTO : bankAccountService.accountHistory(accountId)) {
+                expected += operationDTO.getType() == OperationType.CREDIT ? operationDTO.getAmount() : -operationDTO.getAmount();
+            }
+            long balance = bankAccountRepository.findById(accountId).orElseThrow().getBalance();
+            if (balance != expected) inconsistent++;
+            if (balance < 0) overdrawn++;
+        }
+        System.out.printf("%n%s: %d of %d accounts disagree with their history, %d overdrawn%n",
+                mode, inconsistent, accountIds.length, overdrawn);
+        context.close();
+    }
+
+    @Benchmark
+    public void debitOrCredit(Outcomes outcomes) throws Throwable {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String accountId = accountIds[random.nextInt(accountIds.length)];
+        try {
+            if (random.nextBoolean()) {
+                bankAccountService.debit(accountId, AMOUNT, "contention");
+            } else {
+                bankAccountService.credit(accountId, AMOUNT, "contention");
+            }
+        } catch (BalanceNotSufficientException e) {
+            outcomes.rejected++;
+        } catch (OptimisticLockingFailureException e) {
+            outcomes.conflicts++;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.demo.benchmarks;
+
+import com.example.demo.EbankingBachendApplication;
+import com.example.demo.coalescing.CreditCoalescer;
+import com.example.demo.dtos.CustomerDTO;
+import com.example.demo.services.BankAccountService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every thread credits the same merchant account, with and without credit coalescing.
+ * The coalescing ratio for the run is on {@code /metrics} as {@code ebank_credit_coalescing_ratio}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Threads(32)
+@Fork(1)
+public class HotAccountBenchmark {
+    @Param({"false", "true"})
+    public boolean coalescing;
+
+    @Param({"2000"})
+    public long windowMicros;
+
+    private ConfigurableApplicationContext context;
+    private BankAccountService bankAccountService;
+    private String merchantAccountId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        context = new SpringApplicationBuilder(EbankingBachendApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("h2")
+                .run("--credit.coalescing.window-micros=" + windowMicros,
+                        "--spring.datasource.url=jdbc:h2:mem:hot-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                        "--logging.level.root=WARN");
+        bankAccountService = context.getBean(BankAccountService.class);
+        CustomerDTO customerDTO = new CustomerDTO();
+        customerDTO.setName("merchant");
+        customerDTO.setEmail("merchant@example.com");
+        Long customerId = bankAccountService.saveCustomer(customerDTO).getId();
+        merchantAccountId = bankAccountService.saveCurrentBankAccount(0, 0, customerId).getId();
+        if (coalescing) {
+            context.getBean(CreditCoalescer.class).designate(merchantAccountId);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void credit() throws Throwable {
+        bankAccountService.credit(merchantAccountId, 1, "payment");
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.demo.benchmarks;
+
+import com.example.demo.dtos.CurrentAccountDTO;
+import com.example.demo.dtos.CustomerDTO;
+import com.example.demo.dtos.SavingAccountDTO;
+import com.example.demo.entities.AccountStatus;
+import com.example.demo.entities.BankAccount;
+import com.example.demo.entities.CurrentAccount;
+import com.example.demo.entities.Customer;
+import com.example.demo.entities.SavingAccount;
+import com.example.demo.mappers.BankAccountMapperImpl;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.BeanUtils;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the hand-written mapper with the BeanUtils.copyProperties mapping it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+    private final BankAccountMapperImpl mapper = new BankAccountMapperImpl();
+    private final ReflectiveMapper reflectiveMapper = new ReflectiveMapper();
+    private Customer customer;
+    private CustomerDTO customerDTO;
+    private BankAccount[] accounts;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        customer = new Customer();
+        customer.setId(1L);
+        customer.setName("alice");
+        customer.setEmail("alice@example.com");
+        customerDTO = mapper.fromCustomer(customer);
+
+        CurrentAccount currentAccount = new CurrentAccount();
+        currentAccount.setId(UUID.randomUUID().toString());
+        currentAccount.setBalance(1000);
+        currentAccount.setCreatedAt(new Date());
+        currentAccount.setStatus(AccountStatus.ACTIVATED);
+        currentAccount.setOverDraft(500);
+        currentAccount.setCustomer(customer);
+
+        SavingAccount savingAccount = new SavingAccount();
+        savingAccount.setId(UUID.randomUUID().toString());
+        savingAccount.setBalance(2000);
+        savingAccount.setCreatedAt(new Date());
+        savingAccount.setStatus(AccountStatus.ACTIVATED);
+        savingAccount.setInterestRate(3.5);
+        savingAccount.setCustomer(customer);
+
+        accounts = new BankAccount[]{currentAccount, savingAccount};
+    }
+
+    private BankAccount nextAccount() {
+        return accounts[next++ & 1];
+    }
+
+    @Benchmark
+    public Object accountHandWritten() {
+        return mapper.fromBankAccount(nextAccount());
+    }
+
+    @Benchmark
+    public Object accountReflective() {
+        return reflectiveMapper.fromBankAccount(nextAccount());
+    }
+
+    @Benchmark
+    public Object customerDtoHandWritten() {
+        return mapper.fromCustomerDTO(customerDTO);
+    }
+
+    @Benchmark
+    public Object customerDtoReflective() {
+        return reflectiveMapper.fromCustomerDTO(customerDTO);
+    }
+
+    /**
+     * The previous BeanUtils based mapping, kept here as the baseline.
+     */
+    static class ReflectiveMapper {
+        Object fromBankAccount(BankAccount bankAccount) {
+            if (bankAccount instanceof SavingAccount savingAccount) {
+                SavingAccountDTO savingAccountDTO = new SavingAccountDTO();
+                BeanUtils.copyProperties(savingAccount, savingAccountDTO);
+                savingAccountDTO.setCustomerDTO(fromCustomer(savingAccount.getCustomer()));
+                return savingAccountDTO;
+            }
+            CurrentAccount currentAccount = (CurrentAccount) bankAccount;
+            CurrentAccountDTO currentAccountDTO = new CurrentAccountDTO();
+            BeanUtils.copyProperties(currentAccount, currentAccountDTO);
+            currentAccountDTO.setCustomerDTO(fromCustomer(currentAccount.getCustomer()));
+            currentAccountDTO.setType(currentAccount.getClass().getSimpleName());
+            return currentAccountDTO;
+        }
+
+        CustomerDTO fromCustomer(Customer customer) {
+            CustomerDTO customerDTO = new CustomerDTO();
+            customerDTO.setId(customer.getId());
+            customerDTO.setName(customer.getName());
+            customerDTO.setEmail(customer.getEmail());
+            return customerDTO;
+        }
+
+        Customer fromCustomerDTO(CustomerDTO customerDTO) {
+            Customer customer = new Customer();
+            BeanUtils.copyProperties(customerDTO, customer);
+            return customer;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.demo.benchmarks;
+
+import com.example.demo.money.MoneyAmount;
+import lombok.Data;
+import org.openjdk.jmh.annotations.*;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Amounts as {@code double}, {@code BigDecimal} and minor-unit {@code long}: applying a
+ * run of debits (with the overdraft check) and credits to a balance, and a JSON round
+ * trip of a transfer-shaped DTO. Run with {@code -prof gc} to compare allocation per op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+    private static final int OPERATIONS = 1024;
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+    private double[] doubleAmounts;
+    private BigDecimal[] decimalAmounts;
+    private long[] minorAmounts;
+    private DoubleTransfer doubleTransfer;
+    private DecimalTransfer decimalTransfer;
+    private MinorTransfer minorTransfer;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        doubleAmounts = new double[OPERATIONS];
+        decimalAmounts = new BigDecimal[OPERATIONS];
+        minorAmounts = new long[OPERATIONS];
+        for (int i = 0; i < OPERATIONS; i++) {
+            long cents = 1 + random.nextInt(100_000);
+            minorAmounts[i] = cents;
+            decimalAmounts[i] = BigDecimal.valueOf(cents, 2);
+            doubleAmounts[i] = cents / 100.0;
+        }
+        doubleTransfer = new DoubleTransfer();
+        doubleTransfer.setAccountSource("a");
+        doubleTransfer.setAccountDestination("b");
+        doubleTransfer.setAmount(1234.56);
+        decimalTransfer = new DecimalTransfer();
+        decimalTransfer.setAccountSource("a");
+        decimalTransfer.setAccountDestination("b");
+        decimalTransfer.setAmount(new BigDecimal("1234.56"));
+        minorTransfer = new MinorTransfer();
+        minorTransfer.setAccountSource("a");
+        minorTransfer.setAccountDestination("b");
+        minorTransfer.setAmount(123456);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public double applyDouble() {
+        double balance = 500;
+        double overDraft = 200;
+        for (int i = 0; i < OPERATIONS; i++) {
+            double amount = doubleAmounts[i];
+            if ((i & 1) == 0 && balance + overDraft >= amount) {
+                balance -= amount;
+            } else {
+                balance += amount;
+            }
+        }
+        return balance;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public BigDecimal applyBigDecimal() {
+        BigDecimal balance = BigDecimal.valueOf(50_000, 2);
+        BigDecimal overDraft = BigDecimal.valueOf(20_000, 2);
+        for (int i = 0; i < OPERATIONS; i++) {
+            BigDecimal amount = decimalAmounts[i];
+            if ((i & 1) == 0 && balance.add(overDraft).compareTo(amount) >= 0) {
+                balance = balance.subtract(amount);
+            } else {
+                balance = balance.add(amount);
+            }
+        }
+        return balance;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public long applyMinorUnits() {
+        long balance = 50_000;
+        long overDraft = 20_000;
+        for (int i = 0; i < OPERATIONS; i++) {
+            long amount = minorAmounts[i];
+            if ((i & 1) == 0 && balance + overDraft >= amount) {
+                balance -= amount;
+            } else {
+                balance += amount;
+            }
+        }
+        return balance;
+    }
+
+    @Benchmark
+    public Object jsonDouble() {
+        return jsonMapper.readValue(jsonMapper.writeValueAsBytes(doubleTransfer), DoubleTransfer.class);
+    }
+
+    @Benchmark
+    public Object jsonBigDecimal() {
+        return jsonMapper.readValue(jsonMapper.writeValueAsBytes(decimalTransfer), DecimalTransfer.class);
+    }
+
+    @Benchmark
+    public Object jsonMinorUnits() {
+        return jsonMapper.readValue(jsonMapper.writeValueAsBytes(minorTransfer), MinorTransfer.class);
+    }
+
+    @Data
+    public static class DoubleTransfer {
+        private String accountSource;
+        private String accountDestination;
+        private double amount;
+    }
+
+    @Data
+    public static class DecimalTransfer {
+        private String accountSource;
+        private String accountDestination;
+        private BigDecimal amount;
+    }
+
+    @Data
+    public static class MinorTransfer {
+        private String accountSource;
+        private String accountDestination;
+        @MoneyAmount
+        private long amount;
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.demo.benchmarks;
+
+import com.example.demo.EbankingBachendApplication;
+import com.example.demo.dtos.CurrentAccountDTO;
+import com.example.demo.dtos.CustomerDTO;
+import com.example.demo.dtos.TransferDTO;
+import com.example.demo.services.BankAccountService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service hot paths against an embedded H2 database seeded with {@code accounts}
+ * current accounts and one account holding {@code historyDepth} operations.
+ * Thread counts are set with {@code -t}, or swept by {@link ServiceBenchmarkRunner}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"1000", "10000"})
+    public int accounts;
+
+    @Param({"10000"})
+    public int historyDepth;
+
+    protected ConfigurableApplicationContext context;
+    protected BankAccountService bankAccountService;
+    protected String[] accountIds;
+    protected String deepAccountId;
+    private int deepPage;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        context = new SpringApplicationBuilder(EbankingBachendApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("h2")
+                .run(contextArguments());
+        bankAccountService = context.getBean(BankAccountService.class);
+
+        accountIds = new String[accounts];
+        for (int i = 0; i < accounts; i++) {
+            CustomerDTO customerDTO = new CustomerDTO();
+            customerDTO.setName("customer" + i);
+            customerDTO.setEmail("customer" + i + "@example.com");
+            CustomerDTO savedCustomer = bankAccountService.saveCustomer(customerDTO);
+            CurrentAccountDTO account = bankAccountService.saveCurrentBankAccount(1_000_000_000, 1000, savedCustomer.getId());
+            accountIds[i] = account.getId();
+        }
+
+        deepAccountId = accountIds[0];
+        List<TransferDTO> transfers = new ArrayList<>();
+        for (int i = 0; i < historyDepth; i++) {
+            TransferDTO transferDTO = new TransferDTO();
+            transferDTO.setAccountSource(accountIds[1]);
+            transferDTO.setAccountDestination(deepAccountId);
+            transferDTO.setAmount(1);
+            transfers.add(transferDTO);
+            if (transfers.size() == 1000 || i == historyDepth - 1) {
+                bankAccountService.transferBatch(transfers);
+                transfers.clear();
+            }
+        }
+        deepPage = Math.max(0, historyDepth / PAGE_SIZE - 1);
+    }
+
+    protected String[] contextArguments() {
+        return new String[]{
+                "--spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "--logging.level.root=WARN"
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private String randomAccount() {
+        return accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)];
+    }
+
+    @Benchmark
+    public void debit() throws Throwable {
+        bankAccountService.debit(randomAccount(), 1, "bench");
+    }
+
+    @Benchmark
+    public void credit() throws Throwable {
+        bankAccountService.credit(randomAccount(), 1, "bench");
+    }
+
+    @Benchmark
+    public void transfer() throws Throwable {
+        bankAccountService.transfer(randomAccount(), randomAccount(), 1);
+    }
+
+    @Benchmark
+    public Object historyShallowPage() throws Throwable {
+        return bankAccountService.getAccountHistory(deepAccountId, 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Object historyDeepPage() throws Throwable {
+        return bankAccountService.getAccountHistory(deepAccountId, deepPage, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Object bankAccountList() {
+        return bankAccountService.bankAccountList();
+    }
+
+    @Benchmark
+    public Object searchCustomers() {
+        return bankAccountService.searchCustomers("customer" + ThreadLocalRandom.current().nextInt(accountIds.length));
+    }
+}
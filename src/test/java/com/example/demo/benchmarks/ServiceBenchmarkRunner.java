@@ -0,0 +1,34 @@
+package com.example.demo.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Runs a benchmark class once per thread count and writes one JSON result file each,
+ * under {@code target/jmh}.
+ * <p>
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.main=com.example.demo.benchmarks.ServiceBenchmarkRunner -Djmh.args="ServiceBenchmark 1,4,8"}
+ */
+public class ServiceBenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        String include = args.length > 0 ? args[0] : ServiceBenchmark.class.getSimpleName();
+        String threads = args.length > 1 ? args[1] : "1,4,8";
+        Files.createDirectories(Path.of("target/jmh"));
+        for (String count : threads.split(",")) {
+            int threadCount = Integer.parseInt(count.trim());
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threadCount)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("target/jmh/" + include + "-t" + threadCount + ".json")
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
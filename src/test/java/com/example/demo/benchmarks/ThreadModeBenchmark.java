@@ -0,0 +1,99 @@
+package com.example.demo.benchmarks;
+
+import com.example.demo.EbankingBachendApplication;
+import com.example.demo.dtos.CurrentAccountDTO;
+import com.example.demo.dtos.CustomerDTO;
+import com.example.demo.dtos.TransferDTO;
+import com.example.demo.services.BankAccountService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares platform-thread and virtual-thread request handling through the full HTTP
+ * stack on H2. The Tomcat worker pool is scaled down to 32 so that 128 clients
+ * oversubscribe it the way production traffic oversubscribes the default 200 workers;
+ * the worker limit does not apply in virtual-thread mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 3)
+@Threads(128)
+@Fork(1)
+public class ThreadModeBenchmark {
+    private static final int ACCOUNTS = 200;
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private String baseUrl;
+    private String[] accountIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        context = new SpringApplicationBuilder(EbankingBachendApplication.class)
+                .profiles("h2")
+                .run("--server.port=0",
+                        "--server.tomcat.threads.max=32",
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--spring.datasource.url=jdbc:h2:mem:threads-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                        "--logging.level.root=WARN");
+        BankAccountService bankAccountService = context.getBean(BankAccountService.class);
+        accountIds = new String[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            CustomerDTO customerDTO = new CustomerDTO();
+            customerDTO.setName("customer" + i);
+            customerDTO.setEmail("customer" + i + "@example.com");
+            CustomerDTO savedCustomer = bankAccountService.saveCustomer(customerDTO);
+            CurrentAccountDTO account = bankAccountService.saveCurrentBankAccount(1_000_000, 0, savedCustomer.getId());
+            accountIds[i] = account.getId();
+        }
+        List<TransferDTO> transfers = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS * 50; i++) {
+            TransferDTO transferDTO = new TransferDTO();
+            transferDTO.setAccountSource(accountIds[i % ACCOUNTS]);
+            transferDTO.setAccountDestination(accountIds[(i + 1) % ACCOUNTS]);
+            transferDTO.setAmount(1);
+            transfers.add(transferDTO);
+        }
+        bankAccountService.transferBatch(transfers);
+
+        baseUrl = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private int get(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    @Benchmark
+    public int pageHistory() throws Exception {
+        String accountId = accountIds[ThreadLocalRandom.current().nextInt(ACCOUNTS)];
+        return get("/api/accounts/" + accountId + "/pageHistory?page=1&size=20");
+    }
+
+    @Benchmark
+    public int accountPage() throws Exception {
+        return get("/api/accounts/page?size=50&page=" + ThreadLocalRandom.current().nextInt(4));
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.demo.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BoundedCacheTest {
+    private static final long HOUR_MILLIS = 3_600_000;
+
+    @Test
+    void dropsAValueLoadedBeforeAnInvalidation() {
+        BoundedCache<String, String> cache = new BoundedCache<>("test", 10, HOUR_MILLIS);
+        long generation = cache.generation();
+        // a write commits and invalidates while the loader is still reading
+        cache.invalidate("a");
+        cache.put("a", "stale", generation);
+        assertNull(cache.get("a"));
+
+        cache.put("a", "fresh", cache.generation());
+        assertEquals("fresh", cache.get("a"));
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntry() {
+        BoundedCache<String, String> cache = new BoundedCache<>("test", 2, HOUR_MILLIS);
+        cache.put("a", "1", cache.generation());
+        cache.put("b", "2", cache.generation());
+        cache.get("a");
+        cache.put("c", "3", cache.generation());
+
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("3", cache.get("c"));
+        assertEquals(1, cache.stats().getEvictions());
+        assertEquals(2, cache.stats().getSize());
+    }
+
+    @Test
+    void expiresEntriesAfterTheirTimeToLive() throws InterruptedException {
+        BoundedCache<String, String> cache = new BoundedCache<>("test", 10, 50);
+        cache.put("a", "1", cache.generation());
+        assertEquals("1", cache.get("a"));
+
+        Thread.sleep(100);
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.stats().getSize());
+    }
+
+    @Test
+    void cachesNothingWhenTheSizeIsZero() {
+        BoundedCache<String, String> cache = new BoundedCache<>("test", 0, HOUR_MILLIS);
+        cache.put("a", "1", cache.generation());
+        assertNull(cache.get("a"));
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.demo.cache;
+
+import com.example.demo.dtos.CurrentAccountDTO;
+import com.example.demo.dtos.CustomerDTO;
+import com.example.demo.services.BankAccountService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class DtoCacheTest {
+    @Autowired
+    private BankAccountService bankAccountService;
+    @Autowired
+    private DtoCache dtoCache;
+
+    private Long customerId;
+    private String accountId;
+
+    @BeforeEach
+    void openAccount() throws Throwable {
+        CustomerDTO customerDTO = new CustomerDTO();
+        customerDTO.setName("cached");
+        customerDTO.setEmail("cached@example.com");
+        customerId = bankAccountService.saveCustomer(customerDTO).getId();
+        accountId = bankAccountService.saveCurrentBankAccount(10_000, 0, customerId).getId();
+    }
+
+    @Test
+    void handsOutACopyOfACachedAccount() throws Throwable {
+        CurrentAccountDTO first = account();
+        first.setBalance(1);
+        first.getCustomerDTO().setName("changed by a caller");
+        long hits = dtoCache.getAccounts().stats().getHits();
+
+        CurrentAccountDTO second = account();
+
+        assertEquals(hits + 1, dtoCache.getAccounts().stats().getHits(), "served from the cache");
+        assertNotSame(first, second);
+        assertEquals(10_000, second.getBalance());
+        assertEquals("cached", second.getCustomerDTO().getName());
+    }
+
+    @Test
+    void handsOutACopyOfACachedCustomer() throws Throwable {
+        CustomerDTO first = bankAccountService.getCustomer(customerId);
+        first.setName("changed by a caller");
+        long hits = dtoCache.getCustomers().stats().getHits();
+
+        CustomerDTO second = bankAccountService.getCustomer(customerId);
+
+        assertEquals(hits + 1, dtoCache.getCustomers().stats().getHits(), "served from the cache");
+        assertNotSame(first, second);
+        assertEquals("cached", second.getName());
+    }
+
+    @Test
+    void rereadsAnAccountAfterEveryWrite() throws Throwable {
+        String otherId = bankAccountService.saveCurrentBankAccount(10_000, 0, customerId).getId();
+        // both accounts cached before each write
+        account();
+        bankAccountService.getBankAccount(otherId);
+
+        bankAccountService.credit(accountId, 500, "credit");
+        assertEquals(10_500, account().getBalance());
+        bankAccountService.debit(accountId, 200, "debit");
+        assertEquals(10_300, account().getBalance());
+        bankAccountService.transfer(accountId, otherId, 300);
+        assertEquals(10_000, account().getBalance());
+        assertEquals(10_300, ((CurrentAccountDTO) bankAccountService.getBankAccount(otherId)).getBalance());
+    }
+
+    @Test
+    void rereadsAccountsAfterTheirCustomerChanges() throws Throwable {
+        account();
+        CustomerDTO customerDTO = bankAccountService.getCustomer(customerId);
+        customerDTO.setName("renamed");
+
+        bankAccountService.updateCustomer(customerDTO);
+
+        assertEquals("renamed", bankAccountService.getCustomer(customerId).getName());
+        assertEquals("renamed", account().getCustomerDTO().getName());
+    }
+
+    private CurrentAccountDTO account() throws Throwable {
+        return (CurrentAccountDTO) bankAccountService.getBankAccount(accountId);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.demo.coalescing;
+
+import com.example.demo.Exception.BankAccountNotFoundException;
+import com.example.demo.dtos.CurrentAccountDTO;
+import com.example.demo.dtos.CustomerDTO;
+import com.example.demo.dtos.OperationDTO;
+import com.example.demo.entities.OperationType;
+import com.example.demo.journal.OperationJournal;
+import com.example.demo.metrics.MetricsRegistry;
+import com.example.demo.repositories.AccountOperationRepository;
+import com.example.demo.repositories.BankAccountRepository;
+import com.example.demo.services.BankAccountService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class CreditCoalescerTest {
+    private static final int CREDITS = 20;
+
+    @Autowired
+    private BankAccountService bankAccountService;
+    @Autowired
+    private CreditCoalescer creditCoalescer;
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+    @Autowired
+    private AccountOperationRepository accountOperationRepository;
+    @Autowired
+    private OperationJournal operationJournal;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final MetricsRegistry metricsRegistry = new MetricsRegistry();
+    private CreditCoalescer wideWindow;
+    private String accountId;
+
+    @BeforeEach
+    void hotAccount() throws Throwable {
+        CustomerDTO customerDTO = new CustomerDTO();
+        customerDTO.setName("merchant");
+        customerDTO.setEmail("merchant@example.com");
+        Long customerId = bankAccountService.saveCustomer(customerDTO).getId();
+        accountId = bankAccountService.saveCurrentBankAccount(1_000, 0, customerId).getId();
+        // a window wide enough that credits sent together always land in one batch
+        wideWindow = new CreditCoalescer(bankAccountRepository, accountOperationRepository, operationJournal,
+                transactionManager, metricsRegistry, List.of(accountId), 200_000, 500);
+    }
+
+    @AfterEach
+    void close() throws InterruptedException {
+        wideWindow.shutdown();
+    }
+
+    @Test
+    void appliesConcurrentCreditsWithOneBalanceUpdateAndARowEach() throws Throwable {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> credits = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(CREDITS)) {
+            for (long amount = 1; amount <= CREDITS; amount++) {
+                long credit = amount;
+                credits.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        wideWindow.credit(accountId, credit, "sale " + credit);
+                    } catch (BankAccountNotFoundException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> credit : credits) {
+                credit.get();
+            }
+        }
+
+        assertEquals(1_000 + CREDITS * (CREDITS + 1) / 2, balance());
+        List<OperationDTO> operations = bankAccountService.accountHistory(accountId);
+        assertEquals(LongStream.rangeClosed(1, CREDITS).boxed().toList(),
+                operations.stream().map(OperationDTO::getAmount).sorted().toList());
+        assertTrue(operations.stream().allMatch(operationDTO -> operationDTO.getType() == OperationType.CREDIT));
+        long updates = metricsRegistry.counter("ebank_coalesced_balance_updates_total", "",
+                MetricsRegistry.labels("account", accountId)).sum();
+        assertTrue(updates < CREDITS, CREDITS + " credits took " + updates + " balance updates");
+    }
+
+    @Test
+    void routesServiceCreditsForADesignatedAccount() throws Throwable {
+        creditCoalescer.designate(accountId);
+
+        bankAccountService.credit(accountId, 250, "through the service");
+
+        assertTrue(creditCoalescer.isHot(accountId));
+        assertEquals(1_250, balance());
+        assertEquals(List.of("through the service"), bankAccountService.accountHistory(accountId).stream()
+                .map(OperationDTO::getDescription).toList());
+    }
+
+    @Test
+    void failsEveryCreditOfABatchForAMissingAccount() {
+        wideWindow.designate("missing-merchant");
+
+        assertThrows(BankAccountNotFoundException.class, () -> wideWindow.credit("missing-merchant", 100, "lost"));
+    }
+
+    private long balance() throws Throwable {
+        return ((CurrentAccountDTO) bankAccountService.getBankAccount(accountId)).getBalance();
+    }
+}
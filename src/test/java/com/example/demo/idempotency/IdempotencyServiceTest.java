@@ -0,0 +1,194 @@
+package com.example.demo.idempotency;
+
+import com.example.demo.Exception.BalanceNotSufficientException;
+import com.example.demo.Exception.IdempotencyKeyConflictException;
+import com.example.demo.Exception.IdempotencyKeyMismatchException;
+import com.example.demo.dtos.CurrentAccountDTO;
+import com.example.demo.dtos.CustomerDTO;
+import com.example.demo.metrics.MetricsRegistry;
+import com.example.demo.repositories.IdempotencyRecordRepository;
+import com.example.demo.services.BankAccountService;
+import com.example.demo.sharding.Shards;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class IdempotencyServiceTest {
+    @Autowired
+    private IdempotencyService idempotencyService;
+    @Autowired
+    private BankAccountService bankAccountService;
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+    @Autowired
+    private Shards shards;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long customerId;
+
+    @BeforeEach
+    void customer() throws Throwable {
+        CustomerDTO customerDTO = new CustomerDTO();
+        customerDTO.setName("idempotency");
+        customerDTO.setEmail("idempotency@example.com");
+        customerId = bankAccountService.saveCustomer(customerDTO).getId();
+    }
+
+    @Test
+    void replaysARetryFromMemoryAndThenFromTheDatabase() throws Throwable {
+        String accountId = account(10_000);
+        String key = key();
+        long fingerprint = IdempotencyService.fingerprint("debit", accountId, 2_500);
+        AtomicInteger runs = new AtomicInteger();
+        IdempotentOperation debit = () -> {
+            runs.incrementAndGet();
+            bankAccountService.debit(accountId, 2_500, "keyed");
+        };
+
+        idempotencyService.execute(key, fingerprint, debit);
+        idempotencyService.execute(key, fingerprint, debit);
+        // a second instance has an empty memory store, like a restarted or different node
+        otherInstance().execute(key, fingerprint, debit);
+
+        assertEquals(1, runs.get());
+        assertEquals(7_500, balance(accountId));
+        assertTrue(idempotencyRecordRepository.existsById(key));
+    }
+
+    @Test
+    void replaysARecordedFailureWithoutRunningAgain() throws Throwable {
+        String accountId = account(1_000);
+        String key = key();
+        long fingerprint = IdempotencyService.fingerprint("debit", accountId, 5_000);
+        AtomicInteger runs = new AtomicInteger();
+        IdempotentOperation debit = () -> {
+            runs.incrementAndGet();
+            bankAccountService.debit(accountId, 5_000, "too much");
+        };
+
+        assertThrows(BalanceNotSufficientException.class, () -> idempotencyService.execute(key, fingerprint, debit));
+        assertThrows(BalanceNotSufficientException.class, () -> idempotencyService.execute(key, fingerprint, debit));
+        assertThrows(BalanceNotSufficientException.class, () -> otherInstance().execute(key, fingerprint, debit));
+
+        assertEquals(1, runs.get());
+        assertEquals(1_000, balance(accountId));
+    }
+
+    @Test
+    void refusesAKeyReusedForADifferentRequest() throws Throwable {
+        String accountId = account(10_000);
+        String key = key();
+        idempotencyService.execute(key, IdempotencyService.fingerprint("debit", accountId, 100),
+                () -> bankAccountService.debit(accountId, 100, "first"));
+
+        IdempotentOperation other = () -> bankAccountService.debit(accountId, 900, "second");
+        long otherFingerprint = IdempotencyService.fingerprint("debit", accountId, 900);
+        assertThrows(IdempotencyKeyMismatchException.class, () -> idempotencyService.execute(key, otherFingerprint, other));
+        assertThrows(IdempotencyKeyMismatchException.class, () -> otherInstance().execute(key, otherFingerprint, other));
+
+        assertEquals(9_900, balance(accountId));
+    }
+
+    @Test
+    void refusesARetryWhileTheFirstAttemptIsRunning() throws Throwable {
+        String accountId = account(10_000);
+        String key = key();
+        long fingerprint = IdempotencyService.fingerprint("debit", accountId, 300);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> first = executeAsync(key, fingerprint, () -> {
+            bankAccountService.debit(accountId, 300, "slow");
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        assertThrows(IdempotencyKeyConflictException.class, () -> idempotencyService.execute(key, fingerprint,
+                () -> bankAccountService.debit(accountId, 300, "retry")));
+
+        release.countDown();
+        first.get(10, TimeUnit.SECONDS);
+        idempotencyService.execute(key, fingerprint, () -> bankAccountService.debit(accountId, 300, "late retry"));
+        assertEquals(9_700, balance(accountId));
+    }
+
+    @Test
+    void rollsBackTheLoserWhenTwoInstancesRunTheSameKey() throws Throwable {
+        String slowAccount = account(10_000);
+        String fastAccount = account(10_000);
+        String key = key();
+        long fingerprint = IdempotencyService.fingerprint("race");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> slow = executeAsync(key, fingerprint, () -> {
+            bankAccountService.debit(slowAccount, 400, "slow");
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        otherInstance().execute(key, fingerprint, () -> bankAccountService.debit(fastAccount, 400, "fast"));
+        release.countDown();
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> slow.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IdempotencyKeyConflictException.class, failure.getCause());
+        assertEquals(10_000, balance(slowAccount));
+        assertEquals(9_600, balance(fastAccount));
+    }
+
+    private CompletableFuture<Void> executeAsync(String key, long fingerprint, IdempotentOperation operation) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                idempotencyService.execute(key, fingerprint, operation);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private IdempotencyService otherInstance() {
+        return new IdempotencyService(idempotencyRecordRepository, shards, transactionManager, new MetricsRegistry(),
+                1_000, 600_000, 24);
+    }
+
+    private String account(long balance) throws Throwable {
+        return bankAccountService.saveCurrentBankAccount(balance, 0, customerId).getId();
+    }
+
+    private long balance(String accountId) throws Throwable {
+        return ((CurrentAccountDTO) bankAccountService.getBankAccount(accountId)).getBalance();
+    }
+
+    private static String key() {
+        return UUID.randomUUID().toString();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(10, TimeUnit.SECONDS)) throw new IllegalStateException("Not released");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
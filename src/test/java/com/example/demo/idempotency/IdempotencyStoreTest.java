@@ -0,0 +1,82 @@
+package com.example.demo.idempotency;
+
+import com.example.demo.entities.IdempotencyOutcome;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdempotencyStoreTest {
+    private static final long HOUR_MILLIS = 3_600_000;
+
+    @Test
+    void claimsCompletesAndReleasesKeys() {
+        IdempotencyStore store = new IdempotencyStore(100, HOUR_MILLIS);
+        StoredOutcome outcome = new StoredOutcome(42, IdempotencyOutcome.SUCCEEDED, null);
+
+        assertNull(store.claim("a"));
+        assertSame(IdempotencyStore.IN_FLIGHT, store.claim("a"));
+        store.complete("a", outcome);
+        assertEquals(outcome, store.get("a"));
+        assertEquals(outcome, store.claim("a"));
+
+        assertNull(store.claim("b"));
+        store.release("b");
+        assertNull(store.get("b"));
+        assertNull(store.claim("b"));
+    }
+
+    @Test
+    void dropsTheOldestGenerationWhenTheSizeShareIsReached() {
+        // four generations of ten keys each
+        IdempotencyStore store = new IdempotencyStore(40, HOUR_MILLIS);
+        for (int i = 0; i < 100; i++) {
+            complete(store, "key-" + i);
+        }
+
+        assertNull(store.get("key-0"), "the oldest generations should have been dropped");
+        for (int i = 80; i < 100; i++) {
+            assertNotNull(store.get("key-" + i), "key-" + i);
+        }
+        assertTrue(store.size() <= 40, "size " + store.size());
+    }
+
+    @Test
+    void expiresEveryGenerationAfterAnIdleSpell() throws InterruptedException {
+        IdempotencyStore store = new IdempotencyStore(100, 60);
+        complete(store, "a");
+        assertNotNull(store.get("a"));
+
+        Thread.sleep(150);
+
+        assertNull(store.get("a"));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void keepsAKeyClaimedInAnOlderGenerationAcrossRotations() {
+        IdempotencyStore store = new IdempotencyStore(8, HOUR_MILLIS);
+        assertNull(store.claim("slow"));
+        complete(store, "key-0");
+        complete(store, "key-1");
+
+        assertSame(IdempotencyStore.IN_FLIGHT, store.claim("slow"), "still in flight after rotating");
+        StoredOutcome outcome = new StoredOutcome(7, IdempotencyOutcome.BALANCE_NOT_SUFFICIENT, "Balance not sufficient");
+        store.complete("slow", outcome);
+        assertEquals(outcome, store.claim("slow"), "the older in-flight marker must not shadow the outcome");
+
+        assertNull(store.claim("abandoned"));
+        complete(store, "key-2");
+        complete(store, "key-3");
+        store.release("abandoned");
+        assertNull(store.claim("abandoned"), "a release must clear the marker from an older generation");
+    }
+
+    private static void complete(IdempotencyStore store, String key) {
+        assertNull(store.claim(key));
+        store.complete(key, new StoredOutcome(key.hashCode(), IdempotencyOutcome.SUCCEEDED, null));
+    }
+}
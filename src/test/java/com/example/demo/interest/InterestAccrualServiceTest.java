@@ -0,0 +1,96 @@
+package com.example.demo.interest;
+
+import com.example.demo.dtos.CustomerDTO;
+import com.example.demo.dtos.InterestAccrualResultDTO;
+import com.example.demo.dtos.SavingAccountDTO;
+import com.example.demo.entities.OperationType;
+import com.example.demo.entities.SavingAccount;
+import com.example.demo.repositories.BankAccountRepository;
+import com.example.demo.services.BankAccountService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class InterestAccrualServiceTest {
+    // far enough ahead that no other test's accounts are already accrued for it
+    private static final LocalDate RUN_DATE = LocalDate.of(2040, 1, 10);
+
+    @Autowired
+    private InterestAccrualService interestAccrualService;
+    @Autowired
+    private BankAccountService bankAccountService;
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+
+    private Long customerId;
+
+    @BeforeEach
+    void customer() throws Throwable {
+        CustomerDTO customerDTO = new CustomerDTO();
+        customerDTO.setName("interest");
+        customerDTO.setEmail("interest@example.com");
+        customerId = bankAccountService.saveCustomer(customerDTO).getId();
+    }
+
+    @Test
+    void carriesDaysOverUntilTheInterestReachesACent() throws Throwable {
+        // 100.00 at 1% earns 0.27 cents a day
+        String accountId = bankAccountService.saveSavingBankAccount(10_000, 1, customerId).getId();
+
+        interestAccrualService.accrue(RUN_DATE);
+        assertEquals(10_000, balance(accountId), "a day rounds to nothing");
+        assertEquals(RUN_DATE.minusDays(1), lastAccruedOn(accountId), "the day is carried over, not marked accrued");
+
+        InterestAccrualResultDTO resultDTO = interestAccrualService.accrue(RUN_DATE.plusDays(1));
+        assertEquals(10_001, balance(accountId), "two days round to a cent");
+        assertEquals(RUN_DATE.plusDays(1), lastAccruedOn(accountId));
+        assertTrue(resultDTO.getAccounts() >= 1);
+        assertTrue(resultDTO.getTotalInterest() >= 1);
+
+        interestAccrualService.accrue(RUN_DATE.plusDays(1));
+        assertEquals(10_001, balance(accountId), "rerunning a date credits nothing");
+        assertEquals(1, bankAccountService.accountHistory(accountId).stream()
+                .filter(operationDTO -> operationDTO.getType() == OperationType.CREDIT)
+                .filter(operationDTO -> operationDTO.getDescription().startsWith("Interest"))
+                .count());
+    }
+
+    @Test
+    void creditsADayThatIsWorthACentStraightAway() throws Throwable {
+        // 1000.00 at 3.65% earns exactly 10 cents a day
+        String accountId = bankAccountService.saveSavingBankAccount(100_000, 3.65, customerId).getId();
+
+        interestAccrualService.accrue(RUN_DATE.plusDays(10));
+        assertEquals(100_010, balance(accountId));
+        interestAccrualService.accrue(RUN_DATE.plusDays(13));
+        assertEquals(100_040, balance(accountId), "missed days are credited together");
+        assertEquals(RUN_DATE.plusDays(13), lastAccruedOn(accountId));
+    }
+
+    @Test
+    void movesAnAccountThatEarnsNothingStraightToTheRunDate() throws Throwable {
+        String accountId = bankAccountService.saveSavingBankAccount(10_000, 0, customerId).getId();
+
+        interestAccrualService.accrue(RUN_DATE.plusDays(20));
+
+        assertEquals(10_000, balance(accountId));
+        assertEquals(RUN_DATE.plusDays(20), lastAccruedOn(accountId));
+    }
+
+    private long balance(String accountId) throws Throwable {
+        return ((SavingAccountDTO) bankAccountService.getBankAccount(accountId)).getBalance();
+    }
+
+    private LocalDate lastAccruedOn(String accountId) {
+        return ((SavingAccount) bankAccountRepository.findById(accountId).orElseThrow()).getLastAccruedOn();
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.demo.journal;
+
+import com.example.demo.entities.OperationType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalFileTest {
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsBackOperationsAndAborts() throws IOException {
+        JournalFile file = new JournalFile(directory, SEGMENT_SIZE);
+        assertTrue(file.open(1).isEmpty());
+        file.append(operation(1, "acc-1", 1_050, "rent"));
+        file.append(operation(2, "acc-2", 7, null));
+        file.append(JournalRecord.abort(2));
+        file.pendingForce().force();
+
+        List<JournalRecord> records = new JournalFile(directory, SEGMENT_SIZE).open(3);
+
+        assertEquals(List.of(operation(1, "acc-1", 1_050, "rent"), operation(2, "acc-2", 7, null),
+                JournalRecord.abort(2)), records);
+        assertNull(records.get(1).description());
+    }
+
+    @Test
+    void discardsATornTailAndAppendsInItsPlace() throws IOException {
+        JournalFile file = new JournalFile(directory, SEGMENT_SIZE);
+        file.open(1);
+        file.append(operation(1, "acc-1", 100, "first"));
+        file.append(operation(2, "acc-1", 200, "second"));
+        file.append(operation(3, "acc-1", 300, "torn"));
+        file.pendingForce().force();
+        // flip a byte of the last body, as if the crash hit while it was being written
+        Path segment = onlySegment();
+        int lastBody = recordOffset(segment, 2) + 8;
+        corrupt(segment, lastBody);
+
+        JournalFile reopened = new JournalFile(directory, SEGMENT_SIZE);
+        assertEquals(List.of(operation(1, "acc-1", 100, "first"), operation(2, "acc-1", 200, "second")),
+                reopened.open(3));
+        reopened.append(operation(3, "acc-1", 333, "rewritten"));
+        reopened.pendingForce().force();
+
+        assertEquals(List.of(operation(1, "acc-1", 100, "first"), operation(2, "acc-1", 200, "second"),
+                operation(3, "acc-1", 333, "rewritten")), new JournalFile(directory, SEGMENT_SIZE).open(4));
+    }
+
+    @Test
+    void rollsSegmentsAndDeletesOnlyDrainedSealedOnes() throws IOException {
+        JournalFile file = new JournalFile(directory, 256);
+        file.open(1);
+        long seq = 1;
+        for (; seq <= 12; seq++) {
+            JournalRecord record = operation(seq, "acc-" + seq, seq, "operation " + seq);
+            if (!file.fits(record)) file.roll(seq);
+            file.append(record);
+        }
+        file.pendingForce().force();
+        List<Path> segments = segments();
+        assertTrue(segments.size() >= 3, "expected several segments, got " + segments);
+        assertEquals(12, new JournalFile(directory, 256).open(seq).size());
+
+        long secondBase = baseSeq(segments.get(1));
+        file.deleteSegmentsUpTo(secondBase - 2);
+        assertEquals(segments, segments(), "a segment with undrained records must be kept");
+
+        file.deleteSegmentsUpTo(secondBase - 1);
+        assertEquals(segments.subList(1, segments.size()), segments());
+
+        file.deleteSegmentsUpTo(Long.MAX_VALUE);
+        assertEquals(List.of(segments.getLast()), segments(), "the active segment is never deleted");
+    }
+
+    static JournalRecord operation(long seq, String accountId, long amount, String description) {
+        return new JournalRecord(seq, JournalRecord.Kind.OPERATION, accountId, OperationType.CREDIT, amount,
+                1_700_000_000_000L + seq, description);
+    }
+
+    private Path onlySegment() throws IOException {
+        List<Path> segments = segments();
+        assertEquals(1, segments.size());
+        return segments.getFirst();
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static long baseSeq(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring("journal-".length(), name.length() - ".log".length()));
+    }
+
+    /** Offset of the record at {@code index}, walking the length prefixes. */
+    private static int recordOffset(Path segment, int index) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(segment));
+        int offset = 0;
+        for (int i = 0; i < index; i++) {
+            offset += 8 + bytes.getInt(offset);
+        }
+        return offset;
+    }
+
+    private static void corrupt(Path segment, int offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer one = ByteBuffer.allocate(1);
+            channel.read(one, offset);
+            one.flip();
+            one.put(0, (byte) (one.get(0) ^ 0xFF));
+            channel.write(one, offset);
+        }
+    }
+}
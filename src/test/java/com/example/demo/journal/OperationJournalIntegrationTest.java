@@ -0,0 +1,75 @@
+package com.example.demo.journal;
+
+import com.example.demo.dtos.CurrentAccountDTO;
+import com.example.demo.dtos.CustomerDTO;
+import com.example.demo.dtos.OperationDTO;
+import com.example.demo.repositories.JournalCheckpointRepository;
+import com.example.demo.repositories.JournalCommitRepository;
+import com.example.demo.services.BankAccountService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "journal.enabled=true",
+        "journal.drain.interval-millis=10",
+        "spring.datasource.url=jdbc:h2:mem:journal;DB_CLOSE_DELAY=-1"
+})
+@ActiveProfiles("h2")
+class OperationJournalIntegrationTest {
+    @Autowired
+    private BankAccountService bankAccountService;
+    @Autowired
+    private JournalCommitRepository journalCommitRepository;
+    @Autowired
+    private JournalCheckpointRepository journalCheckpointRepository;
+
+    @DynamicPropertySource
+    static void journalDirectory(DynamicPropertyRegistry registry) throws IOException {
+        String directory = Files.createTempDirectory("journal").toString();
+        registry.add("journal.directory", () -> directory);
+    }
+
+    @Test
+    void drainsCommittedOperationsTogetherWithTheirCommitMarkers() throws Throwable {
+        CustomerDTO customerDTO = new CustomerDTO();
+        customerDTO.setName("journaled");
+        customerDTO.setEmail("journaled@example.com");
+        Long customerId = bankAccountService.saveCustomer(customerDTO).getId();
+        String accountId = bankAccountService.saveCurrentBankAccount(10_000, 0, customerId).getId();
+
+        bankAccountService.credit(accountId, 2_500, "journaled credit");
+        bankAccountService.debit(accountId, 1_000, "journaled debit");
+
+        await(() -> history(accountId).size() >= 2, "the journaled operations reach the database");
+        List<String> descriptions = history(accountId).stream().map(OperationDTO::getDescription).toList();
+        assertTrue(descriptions.containsAll(List.of("journaled credit", "journaled debit")), descriptions.toString());
+        await(() -> journalCommitRepository.count() == 0, "the commit markers are removed with the drained operations");
+        assertTrue(journalCheckpointRepository.findById(OperationJournal.CHECKPOINT).orElseThrow().getDrainedSeq() >= 2);
+        assertEquals(11_500, ((CurrentAccountDTO) bankAccountService.getBankAccount(accountId)).getBalance());
+    }
+
+    private List<OperationDTO> history(String accountId) {
+        return bankAccountService.accountHistory(accountId);
+    }
+
+    private static void await(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) throw new AssertionError(message);
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.demo.journal;
+
+import com.example.demo.entities.AccountOperation;
+import com.example.demo.entities.CurrentAccount;
+import com.example.demo.entities.JournalCheckpoint;
+import com.example.demo.entities.JournalCommit;
+import com.example.demo.entities.OperationType;
+import com.example.demo.metrics.MetricsRegistry;
+import com.example.demo.repositories.AccountOperationRepository;
+import com.example.demo.repositories.BankAccountRepository;
+import com.example.demo.repositories.JournalCheckpointRepository;
+import com.example.demo.repositories.JournalCommitRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static com.example.demo.journal.JournalFileTest.operation;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OperationJournalTest {
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    private final AccountOperationRepository accountOperationRepository = mock(AccountOperationRepository.class);
+    private final BankAccountRepository bankAccountRepository = mock(BankAccountRepository.class);
+    private final JournalCheckpointRepository journalCheckpointRepository = mock(JournalCheckpointRepository.class);
+    private final JournalCommitRepository journalCommitRepository = mock(JournalCommitRepository.class);
+    // commit markers found in the database on startup
+    private final List<JournalCommit> commits = new ArrayList<>();
+    private OperationJournal journal;
+
+    @BeforeEach
+    void accounts() {
+        when(bankAccountRepository.getReferenceById(anyString())).thenAnswer(invocation -> {
+            CurrentAccount account = new CurrentAccount();
+            account.setId(invocation.getArgument(0));
+            return account;
+        });
+        when(journalCommitRepository.findByLastSeqGreaterThan(anyLong())).thenReturn(commits);
+    }
+
+    @AfterEach
+    void close() throws InterruptedException {
+        if (journal != null) journal.shutdown();
+    }
+
+    @Test
+    void replaysOnlyOperationsPastTheCheckpointThatWereNotAborted() throws IOException {
+        JournalFile file = new JournalFile(directory, SEGMENT_SIZE);
+        file.open(1);
+        for (long seq = 1; seq <= 5; seq++) {
+            file.append(operation(seq, "acc-" + seq, seq * 100, null));
+        }
+        file.append(JournalRecord.abort(4));
+        file.pendingForce().force();
+        checkpointAt(2);
+        committed(3, 3);
+        committed(4, 5);
+
+        journal = open();
+
+        assertEquals(List.of(300L, 500L), drainedAmounts());
+        verify(journalCheckpointRepository, timeout(5_000))
+                .save(new JournalCheckpoint(OperationJournal.CHECKPOINT, 5));
+    }
+
+    @Test
+    void continuesTheSequenceAfterRecoveryAndKeepsNewRecordsDurable() throws IOException, InterruptedException {
+        JournalFile file = new JournalFile(directory, SEGMENT_SIZE);
+        file.open(1);
+        file.append(operation(1, "acc-1", 100, null));
+        file.append(operation(2, "acc-1", 200, null));
+        file.pendingForce().force();
+        checkpointAt(2);
+
+        journal = open();
+        journal.record(accountOperation("acc-9", 900));
+        verify(journalCommitRepository).insert(3, 3);
+        journal.shutdown();
+        journal = null;
+
+        List<JournalRecord> records = new JournalFile(directory, SEGMENT_SIZE).open(4);
+        JournalRecord last = records.getLast();
+        assertEquals(3, last.seq());
+        assertEquals("acc-9", last.accountId());
+        assertEquals(List.of(900L), drainedAmounts());
+    }
+
+    @Test
+    void dropsReplayedOperationsWhoseTransactionDidNotCommit() throws IOException {
+        JournalFile file = new JournalFile(directory, SEGMENT_SIZE);
+        file.open(1);
+        for (long seq = 1; seq <= 4; seq++) {
+            file.append(operation(seq, "acc-1", seq * 100, null));
+        }
+        file.pendingForce().force();
+        // the crash came after the second transaction's records were forced but before it committed
+        committed(1, 2);
+
+        journal = open();
+
+        assertEquals(List.of(100L, 200L), drainedAmounts());
+        verify(journalCheckpointRepository, timeout(5_000))
+                .save(new JournalCheckpoint(OperationJournal.CHECKPOINT, 4));
+        verify(journalCommitRepository, timeout(5_000)).deleteUpTo(4);
+    }
+
+    @Test
+    void settlesAnUnknownCommitOutcomeFromTheCommitMarker() throws IOException {
+        journal = open();
+        when(journalCommitRepository.existsById(1L)).thenReturn(true);
+
+        commitWithUnknownOutcome(accountOperation("acc-1", 100), accountOperation("acc-2", 200));
+        commitWithUnknownOutcome(accountOperation("acc-3", 300));
+
+        verify(journalCommitRepository).insert(1, 2);
+        verify(journalCommitRepository).insert(3, 3);
+        verify(journalCheckpointRepository, timeout(5_000))
+                .save(new JournalCheckpoint(OperationJournal.CHECKPOINT, 3));
+        assertEquals(List.of(100L, 200L), drainedAmounts());
+    }
+
+    private void commitWithUnknownOutcome(AccountOperation... accountOperations) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            for (AccountOperation accountOperation : accountOperations) {
+                journal.record(accountOperation);
+            }
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            synchronizations.forEach(synchronization -> synchronization.beforeCommit(false));
+            synchronizations.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_UNKNOWN));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private void committed(long firstSeq, long lastSeq) {
+        commits.add(new JournalCommit(firstSeq, lastSeq));
+    }
+
+    private OperationJournal open() throws IOException {
+        return new OperationJournal(accountOperationRepository, bankAccountRepository, journalCheckpointRepository,
+                journalCommitRepository, mock(PlatformTransactionManager.class), new MetricsRegistry(), true, directory.toString(),
+                SEGMENT_SIZE, 100, 10);
+    }
+
+    private void checkpointAt(long drainedSeq) {
+        when(journalCheckpointRepository.findById(OperationJournal.CHECKPOINT))
+                .thenReturn(Optional.of(new JournalCheckpoint(OperationJournal.CHECKPOINT, drainedSeq)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> drainedAmounts() {
+        ArgumentCaptor<List<AccountOperation>> saved = ArgumentCaptor.forClass(List.class);
+        verify(accountOperationRepository, timeout(5_000).atLeastOnce()).saveAll(saved.capture());
+        List<Long> amounts = new ArrayList<>();
+        saved.getAllValues().forEach(batch -> batch.forEach(operation -> amounts.add(operation.getAmount())));
+        return amounts;
+    }
+
+    private static AccountOperation accountOperation(String accountId, long amount) {
+        CurrentAccount account = new CurrentAccount();
+        account.setId(accountId);
+        AccountOperation accountOperation = new AccountOperation();
+        accountOperation.setBankAccount(account);
+        accountOperation.setType(OperationType.DEBIT);
+        accountOperation.setAmount(amount);
+        accountOperation.setDate(new Date());
+        return accountOperation;
+    }
+}
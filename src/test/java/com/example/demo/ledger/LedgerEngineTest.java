@@ -0,0 +1,161 @@
+package com.example.demo.ledger;
+
+import com.example.demo.entities.AccountOperation;
+import com.example.demo.entities.CurrentAccount;
+import com.example.demo.metrics.LedgerMetrics;
+import com.example.demo.metrics.MetricsRegistry;
+import com.example.demo.repositories.AccountOperationRepository;
+import com.example.demo.repositories.BankAccountRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LedgerEngineTest {
+    @TempDir
+    Path directory;
+
+    private final AccountOperationRepository accountOperationRepository = mock(AccountOperationRepository.class);
+    private final BankAccountRepository bankAccountRepository = mock(BankAccountRepository.class);
+    // the balance column, moved only by creditBalance
+    private final Map<String, Long> stored = new ConcurrentHashMap<>();
+    private volatile CountDownLatch writesReleased = new CountDownLatch(0);
+    private LedgerEngine engine;
+
+    @BeforeEach
+    void database() {
+        when(bankAccountRepository.findById(anyString())).thenAnswer(invocation -> {
+            String accountId = invocation.getArgument(0);
+            if (!stored.containsKey(accountId)) return Optional.empty();
+            CurrentAccount account = new CurrentAccount();
+            account.setId(accountId);
+            account.setBalance(stored.get(accountId));
+            return Optional.of(account);
+        });
+        when(bankAccountRepository.getReferenceById(anyString())).thenAnswer(invocation -> {
+            CurrentAccount account = new CurrentAccount();
+            account.setId(invocation.getArgument(0));
+            return account;
+        });
+        when(bankAccountRepository.creditBalance(anyString(), anyLong())).thenAnswer(invocation -> {
+            stored.merge(invocation.getArgument(0), invocation.getArgument(1), Long::sum);
+            return 1;
+        });
+        doAnswer(invocation -> {
+            writesReleased.await(10, TimeUnit.SECONDS);
+            List<AccountOperation> operations = invocation.getArgument(0);
+            if (operations.stream().anyMatch(operation -> "poison".equals(operation.getDescription()))) {
+                throw new DataIntegrityViolationException("poison");
+            }
+            return operations;
+        }).when(accountOperationRepository).saveAll(any());
+    }
+
+    @AfterEach
+    void close() throws InterruptedException {
+        writesReleased.countDown();
+        if (engine != null) engine.shutdown();
+    }
+
+    @Test
+    void keepsTheDatabaseAndMemoryInStepWhenAnEntryIsDeadLettered() throws Throwable {
+        stored.put("a", 10_000L);
+        engine = open(100);
+
+        engine.credit("a", 500, "poison");
+        engine.debit("a", 200, "fine");
+
+        verify(bankAccountRepository, timeout(5_000)).creditBalance("a", -200L);
+        await(() -> engine.balance("a").equals(OptionalLong.of(9_800)), "the dead-lettered credit is reverted in memory");
+        assertEquals(9_800, stored.get("a"), "only the written debit reached the balance column");
+        verify(bankAccountRepository, never()).creditBalance(eq("a"), eq(300L));
+        verify(bankAccountRepository, never()).creditBalance(eq("a"), eq(500L));
+        assertTrue(Files.readString(directory.resolve("dead-letters.ndjson")).contains("poison"));
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedAccountsOnceWritten() throws Throwable {
+        stored.put("a", 1_000L);
+        stored.put("b", 2_000L);
+        stored.put("c", 3_000L);
+        engine = open(2);
+
+        engine.credit("a", 100, "a");
+        engine.credit("b", 100, "b");
+        verify(bankAccountRepository, timeout(5_000)).creditBalance("b", 100L);
+        engine.credit("c", 100, "c");
+
+        assertFalse(engine.balance("a").isPresent(), "the eldest account was dropped");
+        assertEquals(OptionalLong.of(2_100), engine.balance("b"));
+        assertEquals(OptionalLong.of(3_100), engine.balance("c"));
+
+        engine.debit("a", 50, "reloaded");
+        assertEquals(OptionalLong.of(1_050), engine.balance("a"), "reloaded with its written credit");
+    }
+
+    @Test
+    void keepsAnAccountWhoseEntriesAreStillBeingWritten() throws Throwable {
+        stored.put("a", 1_000L);
+        stored.put("b", 2_000L);
+        stored.put("c", 3_000L);
+        writesReleased = new CountDownLatch(1);
+        engine = open(1);
+
+        engine.credit("a", 100, "held");
+        engine.credit("b", 100, "held");
+        assertEquals(OptionalLong.of(1_100), engine.balance("a"), "a reload now would miss the queued credit");
+
+        writesReleased.countDown();
+        verify(bankAccountRepository, timeout(5_000)).creditBalance("b", 100L);
+        engine.credit("c", 100, "c");
+
+        assertFalse(engine.balance("a").isPresent());
+        assertFalse(engine.balance("b").isPresent());
+        assertEquals(OptionalLong.of(3_100), engine.balance("c"));
+    }
+
+    private LedgerEngine open(int maxAccounts) {
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        LedgerWriter writer = new LedgerWriter(bankAccountRepository, accountOperationRepository,
+                mock(PlatformTransactionManager.class), JsonMapper.builder().build(), metricsRegistry,
+                100, 1_000, 1, directory.resolve("dead-letters.ndjson").toString());
+        return new LedgerEngine(new LedgerAccountLoader(bankAccountRepository), writer,
+                new LedgerMetrics(metricsRegistry), true, 1, maxAccounts);
+    }
+
+    private static void await(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) throw new AssertionError(message);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.demo.money;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+
+    @Test
+    void parsesPlainDecimals() {
+        assertEquals(12_345, Money.parse("123.45"));
+        assertEquals(1_250, Money.parse("12.5"));
+        assertEquals(1_200, Money.parse("12"));
+        assertEquals(1_200, Money.parse("12."));
+        assertEquals(50, Money.parse(".5"));
+        assertEquals(0, Money.parse("0.00"));
+        assertEquals(7, Money.parse("0.070000"));
+    }
+
+    @Test
+    void parsesSigns() {
+        assertEquals(-1_250, Money.parse("-12.50"));
+        assertEquals(1_250, Money.parse("+12.50"));
+        assertEquals(-5, Money.parse("-0.05"));
+        assertEquals(0, Money.parse("-0"));
+    }
+
+    @Test
+    void parsesASliceOfABuffer() {
+        char[] buffer = "[ 42.10 ]".toCharArray();
+        assertEquals(4_210, Money.parse(buffer, 2, 5));
+    }
+
+    @Test
+    void rejectsMoreThanTwoSignificantDecimals() {
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("1.001"));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("0.125"));
+    }
+
+    @Test
+    void rejectsWhatIsNotAPlainDecimal() {
+        for (String text : new String[]{"", "-", ".", "1e3", "1.2.3", "12a", " 1", "1,5", "--1"}) {
+            assertThrows(IllegalArgumentException.class, () -> Money.parse(text), text);
+        }
+    }
+
+    @Test
+    void rejectsAmountsBeyondTheMinorUnitRange() {
+        assertEquals(Long.MAX_VALUE, Money.parse("92233720368547758.07"));
+        assertEquals(-Long.MAX_VALUE, Money.parse("-92233720368547758.07"));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("92233720368547758.08"));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("92233720368547759"));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("99999999999999999999"));
+    }
+
+    @Test
+    void formatsWithTwoDecimals() {
+        assertEquals("123.45", Money.toString(12_345));
+        assertEquals("0.05", Money.toString(5));
+        assertEquals("0.00", Money.toString(0));
+        assertEquals("-12.50", Money.toString(-1_250));
+        assertEquals("-0.01", Money.toString(-1));
+        assertEquals("92233720368547758.07", Money.toString(Long.MAX_VALUE));
+        assertEquals("-92233720368547758.08", Money.toString(Long.MIN_VALUE));
+    }
+
+    @Test
+    void formatsIntoABufferAtAnOffset() {
+        char[] buffer = new char[2 + Money.MAX_CHARS];
+        int length = Money.format(-99, buffer, 2);
+        assertEquals("-0.99", new String(buffer, 2, length));
+    }
+
+    @Test
+    void formatThenParseRoundTrips() {
+        for (long minor : new long[]{0, 1, -1, 99, 100, -100, 123_456_789, Long.MAX_VALUE, -Long.MAX_VALUE}) {
+            assertEquals(minor, Money.parse(Money.toString(minor)));
+        }
+    }
+
+    @Test
+    void roundsMajorUnitsHalfEven() {
+        assertEquals(1_002, Money.ofMajor(new BigDecimal("10.015")));
+        assertEquals(1_002, Money.ofMajor(new BigDecimal("10.025")));
+        assertEquals(-1_002, Money.ofMajor(new BigDecimal("-10.025")));
+        assertEquals(1_003, Money.ofMajor(new BigDecimal("10.0251")));
+        assertEquals(1_000, Money.ofMajor(10L));
+        // a DOUBLE column value goes through its shortest decimal form, not its binary expansion
+        assertEquals(10, Money.ofMajor((Number) 0.1d));
+        assertEquals(12_346, Money.ofMajor((Number) 123.455d));
+        assertEquals(12_345, Money.ofMajor((Number) new BigDecimal("123.45")));
+    }
+
+    @Test
+    void rejectsMajorUnitsBeyondTheMinorUnitRange() {
+        assertThrows(ArithmeticException.class, () -> Money.ofMajor(Long.MAX_VALUE / 10));
+        assertThrows(ArithmeticException.class, () -> Money.ofMajor(new BigDecimal("1e30")));
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.demo.reconciliation;
+
+import com.example.demo.dtos.CustomerDTO;
+import com.example.demo.dtos.ReconciliationDiscrepancyDTO;
+import com.example.demo.dtos.ReconciliationReportDTO;
+import com.example.demo.entities.DiscrepancyKind;
+import com.example.demo.metrics.MetricsRegistry;
+import com.example.demo.repositories.ReconciliationDiscrepancyRepository;
+import com.example.demo.repositories.ReconciliationRunRepository;
+import com.example.demo.repositories.ReconciliationStateRepository;
+import com.example.demo.services.BankAccountService;
+import com.example.demo.sharding.Shards;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class ReconciliationServiceTest {
+    @Autowired
+    private BankAccountService bankAccountService;
+    @Autowired
+    private ReconciliationStateRepository reconciliationStateRepository;
+    @Autowired
+    private ReconciliationRunRepository reconciliationRunRepository;
+    @Autowired
+    private ReconciliationDiscrepancyRepository reconciliationDiscrepancyRepository;
+    @Autowired
+    private Shards shards;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private ReconciliationService reconciliationService;
+    private String accountId;
+
+    @BeforeEach
+    void account() throws Throwable {
+        // no settling delay, so every operation written so far is folded into the checkpoints
+        reconciliationService = new ReconciliationService(reconciliationStateRepository, reconciliationRunRepository,
+                reconciliationDiscrepancyRepository, shards, transactionManager, new MetricsRegistry(), 2, 2, 0, 10_000);
+        CustomerDTO customerDTO = new CustomerDTO();
+        customerDTO.setName("reconciled");
+        customerDTO.setEmail("reconciled@example.com");
+        Long customerId = bankAccountService.saveCustomer(customerDTO).getId();
+        accountId = bankAccountService.saveCurrentBankAccount(10_000, 0, customerId).getId();
+        bankAccountService.credit(accountId, 500, "deposit");
+        bankAccountService.debit(accountId, 200, "withdrawal");
+    }
+
+    @AfterEach
+    void close() {
+        reconciliationService.shutdown();
+    }
+
+    @Test
+    void incrementalRunCatchesABalanceChangedBehindTheOperations() throws Throwable {
+        assertEquals(List.of(), discrepancies(reconciliationService.reconcile(false)));
+
+        bankAccountService.credit(accountId, 50, "after the checkpoint");
+        tamper(1);
+        ReconciliationReportDTO tampered = reconciliationService.reconcile(false);
+
+        List<ReconciliationDiscrepancyDTO> found = discrepancies(tampered);
+        assertEquals(1, found.size());
+        ReconciliationDiscrepancyDTO discrepancyDTO = found.getFirst();
+        assertEquals(DiscrepancyKind.MISMATCH, discrepancyDTO.getKind());
+        assertEquals(10_350, discrepancyDTO.getExpected());
+        assertEquals(10_450, discrepancyDTO.getBalance());
+        assertEquals(100, discrepancyDTO.getDifference());
+        assertTrue(tampered.getAccountsChecked() >= 1);
+        assertEquals(1, discrepancies(reconciliationService.reconcile(true)).size(), "a full run agrees");
+
+        // a mismatched account is checked again even without new operations
+        tamper(-1);
+        assertEquals(List.of(), discrepancies(reconciliationService.reconcile(false)));
+    }
+
+    @Test
+    void fullRunRecomputesFromTheOpeningBalance() {
+        reconciliationService.reconcile(false);
+        tamper(-2);
+
+        List<ReconciliationDiscrepancyDTO> found = discrepancies(reconciliationService.reconcile(true));
+
+        assertEquals(1, found.size());
+        assertEquals(10_300, found.getFirst().getExpected());
+        assertEquals(-200, found.getFirst().getDifference());
+    }
+
+    /** Moves the balance column by whole units without writing an operation. */
+    private void tamper(int units) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                jdbcTemplate.update("update bank_account set balance = balance + ? where id = ?", units, accountId));
+    }
+
+    private List<ReconciliationDiscrepancyDTO> discrepancies(ReconciliationReportDTO reportDTO) {
+        return reportDTO.getDiscrepancyList().stream()
+                .filter(discrepancyDTO -> discrepancyDTO.getAccountId().equals(accountId))
+                .toList();
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.demo.rollup;
+
+import com.example.demo.dtos.AccountSummaryDTO;
+import com.example.demo.dtos.CustomerDTO;
+import com.example.demo.entities.RollupGranularity;
+import com.example.demo.services.BankAccountService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class AccountRollupServiceTest {
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 10;
+
+    @Autowired
+    private AccountRollupService accountRollupService;
+    @Autowired
+    private BankAccountService bankAccountService;
+
+    private String source;
+    private String destination;
+
+    @BeforeEach
+    void accounts() throws Throwable {
+        CustomerDTO customerDTO = new CustomerDTO();
+        customerDTO.setName("rollup");
+        customerDTO.setEmail("rollup@example.com");
+        Long customerId = bankAccountService.saveCustomer(customerDTO).getId();
+        source = bankAccountService.saveCurrentBankAccount(1_000_000, 0, customerId).getId();
+        destination = bankAccountService.saveCurrentBankAccount(0, 0, customerId).getId();
+    }
+
+    @Test
+    void countsEveryOperationWhenFreshRowsAreWrittenConcurrently() throws Throwable {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS * 2)) {
+            for (int thread = 0; thread < THREADS; thread++) {
+                // both accounts' rollup rows are created by whichever transaction gets there first
+                workers.add(executor.submit(worker(start, () -> bankAccountService.transfer(source, destination, 100))));
+                workers.add(executor.submit(worker(start, () -> bankAccountService.credit(destination, 7, "tip"))));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        }
+
+        int transfers = THREADS * ROUNDS;
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            AccountSummaryDTO sourceSummary = summary(source, granularity);
+            assertEquals(0, sourceSummary.getTotalCredits(), granularity.name());
+            assertEquals(transfers * 100L, sourceSummary.getTotalDebits(), granularity.name());
+            assertEquals(transfers, sourceSummary.getOperationCount(), granularity.name());
+
+            AccountSummaryDTO destinationSummary = summary(destination, granularity);
+            assertEquals(transfers * 107L, destinationSummary.getTotalCredits(), granularity.name());
+            assertEquals(0, destinationSummary.getTotalDebits(), granularity.name());
+            assertEquals(transfers * 2L, destinationSummary.getOperationCount(), granularity.name());
+        }
+    }
+
+    private AccountSummaryDTO summary(String accountId, RollupGranularity granularity) {
+        LocalDate today = LocalDate.now();
+        // a day either side, in case the run crosses midnight
+        return accountRollupService.summary(accountId, granularity, today.minusDays(1), today.plusDays(1));
+    }
+
+    private static Callable<Void> worker(CountDownLatch start, Operation operation) {
+        return () -> {
+            start.await();
+            for (int round = 0; round < ROUNDS; round++) {
+                try {
+                    operation.run();
+                } catch (Throwable e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return null;
+        };
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        void run() throws Throwable;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.demo.routing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ReadYourWritesFilterTest {
+    private static final long WINDOW_MILLIS = 5_000;
+
+    private final ReadYourWritesFilter filter = new ReadYourWritesFilter(WINDOW_MILLIS);
+    private final List<Boolean> pinned = new ArrayList<>();
+    private final FilterChain chain = (request, response) -> pinned.add(DataSourceRouting.isPrimaryPinned());
+
+    @Test
+    void pinsAClientToThePrimaryAfterItsWrite() throws Exception {
+        MockHttpServletResponse write = run(new MockHttpServletRequest("POST", "/accounts/debit"));
+        String until = write.getHeader(ReadYourWritesFilter.HEADER);
+        assertNotNull(until);
+        assertNotNull(write.getCookie(ReadYourWritesFilter.COOKIE));
+
+        MockHttpServletRequest withHeader = new MockHttpServletRequest("GET", "/accounts/a");
+        withHeader.addHeader(ReadYourWritesFilter.HEADER, until);
+        run(withHeader);
+        MockHttpServletRequest withCookie = new MockHttpServletRequest("GET", "/accounts/a");
+        withCookie.setCookies(new Cookie(ReadYourWritesFilter.COOKIE, until));
+        run(withCookie);
+
+        assertEquals(List.of(true, true, true), pinned);
+        assertFalse(DataSourceRouting.isPrimaryPinned(), "the pin does not outlive the request");
+    }
+
+    @Test
+    void letsReadsGoToTheReplicaOnceTheDeadlineHasPassed() throws Exception {
+        MockHttpServletRequest fresh = new MockHttpServletRequest("GET", "/accounts/a");
+        MockHttpServletResponse response = run(fresh);
+        MockHttpServletRequest expired = new MockHttpServletRequest("GET", "/accounts/a");
+        expired.addHeader(ReadYourWritesFilter.HEADER, String.valueOf(System.currentTimeMillis() - 1));
+        run(expired);
+        MockHttpServletRequest garbled = new MockHttpServletRequest("GET", "/accounts/a");
+        garbled.addHeader(ReadYourWritesFilter.HEADER, "soon");
+        run(garbled);
+
+        assertEquals(List.of(false, false, false), pinned);
+        assertNull(response.getHeader(ReadYourWritesFilter.HEADER), "a read hands out no deadline");
+    }
+
+    private MockHttpServletResponse run(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.demo.routing;
+
+import com.example.demo.dtos.CustomerDTO;
+import com.example.demo.dtos.OperationDTO;
+import com.example.demo.metrics.MetricsRegistry;
+import com.example.demo.services.BankAccountService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:replica-primary;DB_CLOSE_DELAY=-1")
+@ActiveProfiles({"h2", "h2-replica"})
+class ReplicaRoutingTest {
+    @Autowired
+    private BankAccountService bankAccountService;
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private String accountId;
+
+    @BeforeEach
+    void account() throws Throwable {
+        CustomerDTO customerDTO = new CustomerDTO();
+        customerDTO.setName("replicated");
+        customerDTO.setEmail("replicated@example.com");
+        Long customerId = bankAccountService.saveCustomer(customerDTO).getId();
+        accountId = bankAccountService.saveCurrentBankAccount(10_000, 0, customerId).getId();
+    }
+
+    @Test
+    void readsFromTheReplicaAndWritesToThePrimary() throws Throwable {
+        long replica = connections("replica");
+        bankAccountService.credit(accountId, 500, "written to the primary");
+        assertEquals(replica, connections("replica"), "a write never touches the replica");
+
+        List<OperationDTO> history = bankAccountService.accountHistory(accountId);
+
+        assertEquals(List.of("written to the primary"), history.stream().map(OperationDTO::getDescription).toList());
+        assertTrue(connections("replica") > replica, "a read-only call uses the replica");
+        assertFalse(DataSourceRouting.readsFromReplica(), "the flag does not outlive the call");
+    }
+
+    @Test
+    void keepsAPinnedClientOnThePrimary() {
+        long replica = connections("replica");
+        long primary = connections("primary");
+
+        DataSourceRouting.pinPrimary(true);
+        try {
+            bankAccountService.accountHistory(accountId);
+        } finally {
+            DataSourceRouting.pinPrimary(false);
+        }
+
+        assertEquals(replica, connections("replica"));
+        assertTrue(connections("primary") > primary);
+    }
+
+    @Test
+    void keepsReadsInsideATransactionOnItsConnection() {
+        long replica = connections("replica");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                bankAccountService.accountHistory(accountId));
+
+        assertEquals(replica, connections("replica"));
+    }
+
+    private long connections(String target) {
+        LongAdder counter = metricsRegistry.counter("ebank_datasource_connections_total", "",
+                MetricsRegistry.labels("target", target));
+        return counter.sum();
+    }
+}
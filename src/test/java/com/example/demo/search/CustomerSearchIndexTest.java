@@ -0,0 +1,104 @@
+package com.example.demo.search;
+
+import com.example.demo.dtos.CustomerDTO;
+import com.example.demo.entities.Customer;
+import com.example.demo.mappers.BankAccountMapperImpl;
+import com.example.demo.repositories.CustomerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CustomerSearchIndexTest {
+    private final CustomerRepository customerRepository = mock(CustomerRepository.class);
+    private CustomerSearchIndex index;
+
+    @BeforeEach
+    void customers() {
+        when(customerRepository.findAll()).thenReturn(List.of(
+                customer(1L, "Anna", "anna@example.com"),
+                customer(2L, "Hannah", "hannah@example.com"),
+                customer(3L, "Joanna", "jo@bank.org"),
+                customer(4L, "Mark", "manna@example.com"),
+                customer(5L, "Zoe", "zoe@example.com")));
+        index = new CustomerSearchIndex(customerRepository, new BankAccountMapperImpl(), true, 50);
+        index.rebuild();
+    }
+
+    @AfterEach
+    void clear() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void ranksExactThenPrefixThenSubstringThenEmail() {
+        assertTrue(index.isReady());
+        assertEquals(List.of(1L, 2L, 3L, 4L), ids(index.search("Anna", 50)));
+        assertEquals(List.of(1L, 2L), ids(index.search("anna", 2)), "the limit keeps the best ranked");
+    }
+
+    @Test
+    void matchesLikeTheSubstringQuery() {
+        assertEquals(List.of(3L), ids(index.search("bank", 50)), "email grams are indexed");
+        assertEquals(List.of(), ids(index.search("nnaz", 50)), "every gram must match");
+        assertEquals(List.of(2L), ids(index.search("annah@", 50)));
+        assertEquals(List.of(5L), ids(index.search("zo", 50)), "short keywords are scanned");
+        assertEquals(5, index.search("", 50).size());
+    }
+
+    @Test
+    void appliesChangesOnlyOnceTheTransactionCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        index.indexAfterCommit(dto(6L, "Annabel", "bel@example.com"));
+        index.removeAfterCommit(1L);
+
+        assertEquals(List.of(1L, 2L, 3L, 4L), ids(index.search("anna", 50)), "nothing changes before the commit");
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+
+        assertEquals(List.of(6L, 2L, 3L, 4L), ids(index.search("anna", 50)));
+    }
+
+    @Test
+    void reindexesARenamedCustomerUnderItsNewGrams() {
+        index.indexAfterCommit(dto(5L, "Zoey Banks", "zoe@example.com"));
+
+        assertEquals(List.of(5L, 3L), ids(index.search("bank", 50)));
+        assertEquals(List.of(5L), ids(index.search("zoey", 50)));
+
+        index.indexAfterCommit(dto(5L, "Zed", "zed@example.com"));
+        assertFalse(ids(index.search("bank", 50)).contains(5L), "the old grams no longer point at it");
+    }
+
+    private static List<Long> ids(List<CustomerDTO> customerDTOS) {
+        return customerDTOS.stream().map(CustomerDTO::getId).toList();
+    }
+
+    private static Customer customer(Long id, String name, String email) {
+        Customer customer = new Customer();
+        customer.setId(id);
+        customer.setName(name);
+        customer.setEmail(email);
+        return customer;
+    }
+
+    private static CustomerDTO dto(Long id, String name, String email) {
+        CustomerDTO customerDTO = new CustomerDTO();
+        customerDTO.setId(id);
+        customerDTO.setName(name);
+        customerDTO.setEmail(email);
+        return customerDTO;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.demo.services;
+
+import com.example.demo.dtos.CustomerDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class AccountHistoryExportTest {
+    @Autowired
+    private BankAccountService bankAccountService;
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    private String accountId;
+
+    @BeforeEach
+    void account() throws Throwable {
+        CustomerDTO customerDTO = new CustomerDTO();
+        customerDTO.setName("export");
+        customerDTO.setEmail("export@example.com");
+        Long customerId = bankAccountService.saveCustomer(customerDTO).getId();
+        accountId = bankAccountService.saveCurrentBankAccount(10_000, 0, customerId).getId();
+        bankAccountService.credit(accountId, 1_250, "rent, march");
+        Thread.sleep(5);
+        bankAccountService.debit(accountId, 5, "fee \"monthly\"");
+    }
+
+    @Test
+    void exportsCsvNewestFirstWithQuotedFields() throws Throwable {
+        List<String> lines = export("csv").lines().toList();
+
+        assertEquals(3, lines.size());
+        assertEquals("id,date,type,amount,description", lines.get(0));
+        assertEquals("DEBIT,0.05,\"fee \"\"monthly\"\"\"", afterIdAndDate(lines.get(1)));
+        assertEquals("CREDIT,12.50,\"rent, march\"", afterIdAndDate(lines.get(2)));
+    }
+
+    @Test
+    void exportsOneJsonObjectPerLine() throws Throwable {
+        List<String> lines = export("ndjson").lines().toList();
+
+        assertEquals(2, lines.size());
+        JsonNode debit = jsonMapper.readTree(lines.get(0));
+        JsonNode credit = jsonMapper.readTree(lines.get(1));
+        assertEquals("DEBIT", debit.get("type").asString());
+        assertTrue(lines.get(0).contains("\"amount\":0.05"), lines.get(0));
+        assertEquals("fee \"monthly\"", debit.get("description").asString());
+        assertEquals("CREDIT", credit.get("type").asString());
+        assertTrue(lines.get(1).contains("\"amount\":12.50"), "amounts keep both decimals: " + lines.get(1));
+    }
+
+    @Test
+    void exportsNothingButTheHeaderForAnAccountWithoutOperations() throws Throwable {
+        assertEquals("id,date,type,amount,description\n", export("csv", "no-such-account"));
+        assertEquals("", export("ndjson", "no-such-account"));
+    }
+
+    private static String afterIdAndDate(String line) {
+        return line.split(",", 3)[2];
+    }
+
+    private String export(String format) throws Throwable {
+        return export(format, accountId);
+    }
+
+    private String export(String format, String accountId) throws Throwable {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        bankAccountService.exportAccountHistory(accountId, format, outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.demo.services;
+
+import com.example.demo.dtos.CurrentAccountDTO;
+import com.example.demo.dtos.CustomerDTO;
+import com.example.demo.dtos.TransferDTO;
+import com.example.demo.dtos.TransferStatus;
+import com.example.demo.dtos.TransferStatusDTO;
+import com.example.demo.entities.AsyncTransfer;
+import com.example.demo.idempotency.IdempotencyService;
+import com.example.demo.repositories.AsyncTransferRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class AsyncTransferExecutorTest {
+    @Autowired
+    private AsyncTransferExecutor asyncTransferExecutor;
+    @Autowired
+    private BankAccountService bankAccountService;
+    @Autowired
+    private IdempotencyService idempotencyService;
+    @Autowired
+    private AsyncTransferRepository asyncTransferRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private String source;
+    private String destination;
+
+    @BeforeEach
+    void accounts() throws Throwable {
+        CustomerDTO customerDTO = new CustomerDTO();
+        customerDTO.setName("async");
+        customerDTO.setEmail("async@example.com");
+        Long customerId = bankAccountService.saveCustomer(customerDTO).getId();
+        source = bankAccountService.saveCurrentBankAccount(10_000, 0, customerId).getId();
+        destination = bankAccountService.saveCurrentBankAccount(0, 0, customerId).getId();
+    }
+
+    @Test
+    void runsASubmittedTransferAndReportsItsOutcome() throws Throwable {
+        TransferStatusDTO queued = asyncTransferExecutor.submit(transfer(2_500));
+        TransferStatusDTO tooLarge = asyncTransferExecutor.submit(transfer(1_000_000));
+
+        assertEquals(TransferStatus.QUEUED, queued.getStatus(), "the returned status is never updated in place");
+        TransferStatusDTO succeeded = awaitCompletion(queued.getId());
+        assertEquals(TransferStatus.SUCCEEDED, succeeded.getStatus());
+        assertNull(succeeded.getError());
+        TransferStatusDTO failed = awaitCompletion(tooLarge.getId());
+        assertEquals(TransferStatus.FAILED, failed.getStatus());
+        assertEquals("Balance not sufficient", failed.getError());
+
+        assertEquals(7_500, balance(source));
+        assertEquals(2_500, balance(destination));
+        assertEquals(TransferStatus.SUCCEEDED, asyncTransferRepository.findById(queued.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void resumesUnfinishedTransfersWithoutMovingCommittedOnesTwice() throws Throwable {
+        // left behind by a stop: one never picked up, one that committed before its status was saved
+        AsyncTransfer queued = accepted(1_000, TransferStatus.QUEUED);
+        AsyncTransfer committed = accepted(2_000, TransferStatus.RUNNING);
+        idempotencyService.execute("async-transfer:" + committed.getId(),
+                IdempotencyService.fingerprint("async-transfer", source, destination, committed.getAmount()),
+                () -> bankAccountService.transfer(source, destination, committed.getAmount()));
+        assertEquals(8_000, balance(source));
+
+        asyncTransferExecutor.resume();
+
+        assertEquals(TransferStatus.SUCCEEDED, awaitCompletion(queued.getId()).getStatus());
+        assertEquals(TransferStatus.SUCCEEDED, awaitCompletion(committed.getId()).getStatus());
+        assertEquals(7_000, balance(source));
+        assertEquals(3_000, balance(destination));
+    }
+
+    private AsyncTransfer accepted(long amount, TransferStatus status) {
+        AsyncTransfer asyncTransfer = new AsyncTransfer(UUID.randomUUID().toString(), source, destination, amount,
+                status, null, new Date(), null);
+        new TransactionTemplate(transactionManager).executeWithoutResult(transaction ->
+                asyncTransferRepository.save(asyncTransfer));
+        return asyncTransfer;
+    }
+
+    private TransferStatusDTO awaitCompletion(String transferId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (true) {
+            TransferStatusDTO transferStatusDTO = asyncTransferExecutor.status(transferId);
+            if (transferStatusDTO.getStatus() == TransferStatus.SUCCEEDED
+                    || transferStatusDTO.getStatus() == TransferStatus.FAILED) {
+                return transferStatusDTO;
+            }
+            if (System.nanoTime() > deadline) throw new AssertionError("transfer " + transferId + " did not finish");
+            Thread.sleep(10);
+        }
+    }
+
+    private long balance(String accountId) throws Throwable {
+        return ((CurrentAccountDTO) bankAccountService.getBankAccount(accountId)).getBalance();
+    }
+
+    private TransferDTO transfer(long amount) {
+        TransferDTO transferDTO = new TransferDTO();
+        transferDTO.setAccountSource(source);
+        transferDTO.setAccountDestination(destination);
+        transferDTO.setAmount(amount);
+        return transferDTO;
+    }
+}
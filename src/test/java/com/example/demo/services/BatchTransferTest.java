@@ -0,0 +1,145 @@
+package com.example.demo.services;
+
+import com.example.demo.Exception.BalanceNotSufficientException;
+import com.example.demo.Exception.BankAccountNotFoundException;
+import com.example.demo.dtos.BankAccountDTO;
+import com.example.demo.dtos.BatchTransferResultDTO;
+import com.example.demo.dtos.CurrentAccountDTO;
+import com.example.demo.dtos.CustomerDTO;
+import com.example.demo.dtos.OperationDTO;
+import com.example.demo.dtos.TransferDTO;
+import com.example.demo.dtos.TransferResultDTO;
+import com.example.demo.entities.OperationType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class BatchTransferTest {
+    @Autowired
+    private BankAccountService bankAccountService;
+
+    private Long customerId;
+
+    @BeforeEach
+    void customer() {
+        CustomerDTO customerDTO = new CustomerDTO();
+        customerDTO.setName("batch");
+        customerDTO.setEmail("batch@example.com");
+        customerId = bankAccountService.saveCustomer(customerDTO).getId();
+    }
+
+    @Test
+    void appliesTheValidItemsAndReportsEachFailure() throws Throwable {
+        String source = account(10_000);
+        String destination = account(0);
+
+        BatchTransferResultDTO resultDTO = bankAccountService.transferBatch(List.of(
+                transfer(source, destination, 3_000),
+                transfer(source, destination, 8_000),
+                transfer(source, "missing", 100),
+                transfer(source, source, 100),
+                transfer(source, destination, 0),
+                transfer(destination, source, 1_000)));
+
+        assertEquals(6, resultDTO.getTotal());
+        assertEquals(2, resultDTO.getSucceeded());
+        assertEquals(4, resultDTO.getFailed());
+        List<TransferResultDTO> results = resultDTO.getResults();
+        assertEquals(List.of(true, false, false, false, false, true),
+                results.stream().map(TransferResultDTO::isSuccess).toList());
+        assertEquals("Balance not sufficient", results.get(1).getError());
+        assertEquals("BankAccount not found", results.get(2).getError());
+        assertNotNull(results.get(3).getError());
+        assertEquals(4, results.get(4).getIndex());
+
+        assertEquals(8_000, balance(source));
+        assertEquals(2_000, balance(destination));
+        assertEquals(List.of(OperationType.CREDIT, OperationType.DEBIT), types(source));
+        assertEquals(List.of(OperationType.CREDIT, OperationType.DEBIT), types(destination));
+    }
+
+    @Test
+    void neverOverdrawsUnderConcurrentBatchesAndDebits() throws Throwable {
+        String source = account(10_000);
+        String destination = account(0);
+        List<TransferDTO> transfers = Collections.nCopies(50, transfer(source, destination, 100));
+        Callable<Boolean> debit = () -> {
+            try {
+                bankAccountService.debit(source, 2_000, "concurrent debit");
+                return true;
+            } catch (BalanceNotSufficientException e) {
+                return false;
+            } catch (BankAccountNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+
+        List<Future<BatchTransferResultDTO>> batches = new ArrayList<>();
+        List<Future<Boolean>> debits = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 4; i++) {
+                batches.add(executor.submit(() -> bankAccountService.transferBatch(transfers)));
+                debits.add(executor.submit(debit));
+            }
+        }
+
+        int transferred = 0;
+        for (Future<BatchTransferResultDTO> batch : batches) {
+            BatchTransferResultDTO resultDTO = batch.get();
+            assertEquals(50, resultDTO.getSucceeded() + resultDTO.getFailed(), "every item is answered");
+            transferred += resultDTO.getSucceeded() * 100;
+        }
+        int debited = 0;
+        for (Future<Boolean> applied : debits) {
+            if (applied.get()) debited += 2_000;
+        }
+
+        long sourceBalance = balance(source);
+        assertFalse(sourceBalance < 0, "overdrawn to " + sourceBalance);
+        assertEquals(10_000 - transferred - debited, sourceBalance);
+        assertEquals(transferred, balance(destination));
+        assertTrue(transferred > 0);
+        assertEquals(transferred / 100, types(destination).size(), "one credit row per applied transfer");
+    }
+
+    private String account(long balance) throws Throwable {
+        return bankAccountService.saveCurrentBankAccount(balance, 0, customerId).getId();
+    }
+
+    private long balance(String accountId) throws Throwable {
+        BankAccountDTO bankAccountDTO = bankAccountService.getBankAccount(accountId);
+        return ((CurrentAccountDTO) bankAccountDTO).getBalance();
+    }
+
+    private List<OperationType> types(String accountId) {
+        return bankAccountService.accountHistory(accountId).stream()
+                .map(OperationDTO::getType)
+                .sorted()
+                .toList();
+    }
+
+    private static TransferDTO transfer(String source, String destination, long amount) {
+        TransferDTO transferDTO = new TransferDTO();
+        transferDTO.setAccountSource(source);
+        transferDTO.setAccountDestination(destination);
+        transferDTO.setAmount(amount);
+        return transferDTO;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.demo.services;
+
+import com.example.demo.Exception.BalanceNotSufficientException;
+import com.example.demo.Exception.BankAccountNotFoundException;
+import com.example.demo.dtos.CurrentAccountDTO;
+import com.example.demo.dtos.CustomerDTO;
+import com.example.demo.dtos.OperationDTO;
+import com.example.demo.entities.OperationType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class ConditionalDebitTest {
+    @Autowired
+    private BankAccountService bankAccountService;
+    @Autowired
+    private BalanceUpdatePolicy balanceUpdatePolicy;
+
+    private Long customerId;
+
+    @BeforeEach
+    void customer() {
+        CustomerDTO customerDTO = new CustomerDTO();
+        customerDTO.setName("conditional");
+        customerDTO.setEmail("conditional@example.com");
+        customerId = bankAccountService.saveCustomer(customerDTO).getId();
+    }
+
+    @Test
+    void letsExactlyTheCoveredDebitsThroughUnderContention() throws Throwable {
+        assertEquals(BalanceUpdateMode.CONDITIONAL, balanceUpdatePolicy.getMode());
+        String accountId = bankAccountService.saveCurrentBankAccount(10_000, 0, customerId).getId();
+
+        assertEquals(10, concurrentDebits(accountId, 20, 1_000));
+        assertEquals(0, balance(accountId));
+        assertEquals(10, debits(accountId));
+    }
+
+    @Test
+    void coversADebitWithTheOverdraft() throws Throwable {
+        String accountId = bankAccountService.saveCurrentBankAccount(1_000, 500, customerId).getId();
+
+        assertThrows(BalanceNotSufficientException.class, () -> bankAccountService.debit(accountId, 1_600, "too much"));
+        bankAccountService.debit(accountId, 1_500, "into the overdraft");
+
+        assertEquals(-500, balance(accountId));
+        assertEquals(1, debits(accountId), "the refused debit wrote no operation");
+        assertThrows(BankAccountNotFoundException.class, () -> bankAccountService.debit("missing", 1, "unknown"));
+    }
+
+    private int concurrentDebits(String accountId, int debits, long amount) throws Exception {
+        Callable<Boolean> debit = () -> {
+            try {
+                bankAccountService.debit(accountId, amount, "concurrent debit");
+                return true;
+            } catch (BalanceNotSufficientException e) {
+                return false;
+            } catch (BankAccountNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        List<Future<Boolean>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < debits; i++) {
+                results.add(executor.submit(debit));
+            }
+        }
+        int applied = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) applied++;
+        }
+        return applied;
+    }
+
+    private long balance(String accountId) throws Throwable {
+        return ((CurrentAccountDTO) bankAccountService.getBankAccount(accountId)).getBalance();
+    }
+
+    private long debits(String accountId) {
+        return bankAccountService.accountHistory(accountId).stream()
+                .map(OperationDTO::getType)
+                .filter(type -> type == OperationType.DEBIT)
+                .count();
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.demo.services;
+
+import com.example.demo.Exception.CustomerNotFoundException;
+import com.example.demo.dtos.AccountOverviewDTO;
+import com.example.demo.dtos.CurrentAccountDTO;
+import com.example.demo.dtos.CustomerDTO;
+import com.example.demo.dtos.CustomerOverviewDTO;
+import com.example.demo.dtos.OperationDTO;
+import com.example.demo.dtos.SavingAccountDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class CustomerOverviewTest {
+    @Autowired
+    private BankAccountService bankAccountService;
+
+    private Long customerId;
+
+    @BeforeEach
+    void customer() {
+        CustomerDTO customerDTO = new CustomerDTO();
+        customerDTO.setName("overview");
+        customerDTO.setEmail("overview@example.com");
+        customerId = bankAccountService.saveCustomer(customerDTO).getId();
+    }
+
+    @Test
+    void returnsEveryAccountWithItsLatestOperations() throws Throwable {
+        String current = bankAccountService.saveCurrentBankAccount(10_000, 0, customerId).getId();
+        Thread.sleep(5);
+        String saving = bankAccountService.saveSavingBankAccount(5_000, 1, customerId).getId();
+        for (int i = 1; i <= 3; i++) {
+            bankAccountService.credit(current, 100, "current " + i);
+            Thread.sleep(5);
+        }
+        bankAccountService.debit(saving, 200, "saving 1");
+
+        CustomerOverviewDTO overviewDTO = bankAccountService.getCustomerOverview(customerId, 2);
+
+        assertEquals(customerId, overviewDTO.getCustomer().getId());
+        List<AccountOverviewDTO> accounts = overviewDTO.getAccounts();
+        assertEquals(2, accounts.size());
+        CurrentAccountDTO currentAccountDTO = (CurrentAccountDTO) accounts.get(0).getAccount();
+        assertEquals(current, currentAccountDTO.getId(), "oldest account first");
+        assertEquals(10_300, currentAccountDTO.getBalance());
+        assertEquals(List.of("current 3", "current 2"), descriptions(accounts.get(0)), "the latest two, newest first");
+        SavingAccountDTO savingAccountDTO = (SavingAccountDTO) accounts.get(1).getAccount();
+        assertEquals(saving, savingAccountDTO.getId());
+        assertEquals(4_800, savingAccountDTO.getBalance());
+        assertEquals(List.of("saving 1"), descriptions(accounts.get(1)));
+    }
+
+    @Test
+    void leavesTheOperationsOutWhenNoneAreAskedFor() throws Throwable {
+        String accountId = bankAccountService.saveCurrentBankAccount(10_000, 0, customerId).getId();
+        bankAccountService.credit(accountId, 100, "not listed");
+
+        CustomerOverviewDTO overviewDTO = bankAccountService.getCustomerOverview(customerId, 0);
+
+        assertEquals(1, overviewDTO.getAccounts().size());
+        assertTrue(overviewDTO.getAccounts().getFirst().getRecentOperations().isEmpty());
+    }
+
+    @Test
+    void coversACustomerWithoutAccountsAndRejectsAnUnknownOne() throws Throwable {
+        assertTrue(bankAccountService.getCustomerOverview(customerId, 5).getAccounts().isEmpty());
+        assertThrows(CustomerNotFoundException.class, () -> bankAccountService.getCustomerOverview(-1L, 5));
+    }
+
+    private static List<String> descriptions(AccountOverviewDTO accountOverviewDTO) {
+        return accountOverviewDTO.getRecentOperations().stream().map(OperationDTO::getDescription).toList();
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.demo.services;
+
+import com.example.demo.dtos.AccountHistoryDTO;
+import com.example.demo.dtos.CustomerDTO;
+import com.example.demo.dtos.OperationDTO;
+import com.example.demo.dtos.TransferDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class HistoryCursorTest {
+    @Autowired
+    private BankAccountService bankAccountService;
+
+    private String source;
+    private String destination;
+
+    @BeforeEach
+    void accounts() throws Throwable {
+        CustomerDTO customerDTO = new CustomerDTO();
+        customerDTO.setName("cursor");
+        customerDTO.setEmail("cursor@example.com");
+        Long customerId = bankAccountService.saveCustomer(customerDTO).getId();
+        source = bankAccountService.saveCurrentBankAccount(100_000, 0, customerId).getId();
+        destination = bankAccountService.saveCurrentBankAccount(0, 0, customerId).getId();
+    }
+
+    @Test
+    void pagesThroughOperationsThatShareADate() throws Throwable {
+        // the items of one batch are all stamped with the same date
+        bankAccountService.transferBatch(IntStream.rangeClosed(1, 7).mapToObj(this::transfer).toList());
+        List<OperationDTO> all = bankAccountService.accountHistory(destination);
+        assertEquals(1, all.stream().map(OperationDTO::getDate).distinct().count());
+
+        List<Integer> pageSizes = new ArrayList<>();
+        List<OperationDTO> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            AccountHistoryDTO page = bankAccountService.getAccountHistory(destination, cursor, 3);
+            pageSizes.add(page.getAccountOperationDTOS().size());
+            paged.addAll(page.getAccountOperationDTOS());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(List.of(3, 3, 1), pageSizes);
+        assertEquals(all.stream().map(OperationDTO::getId).sorted(Comparator.reverseOrder()).toList(),
+                paged.stream().map(OperationDTO::getId).toList(), "every operation once, newest id first");
+    }
+
+    @Test
+    void keepsItsPlaceWhenNewerOperationsArrive() throws Throwable {
+        for (int i = 1; i <= 4; i++) {
+            bankAccountService.credit(destination, i, "credit " + i);
+        }
+        AccountHistoryDTO first = bankAccountService.getAccountHistory(destination, null, 2);
+        assertNotNull(first.getNextCursor());
+
+        bankAccountService.credit(destination, 99, "arrived later");
+        AccountHistoryDTO second = bankAccountService.getAccountHistory(destination, first.getNextCursor(), 2);
+
+        assertEquals(List.of("credit 4", "credit 3"), descriptions(first));
+        assertEquals(List.of("credit 2", "credit 1"), descriptions(second));
+        assertNull(second.getNextCursor(), "an exactly full last page has no next cursor");
+    }
+
+    @Test
+    void rejectsACursorItDidNotIssue() {
+        assertThrows(IllegalArgumentException.class,
+                () -> bankAccountService.getAccountHistory(destination, "not-a-cursor", 2));
+    }
+
+    private List<String> descriptions(AccountHistoryDTO accountHistoryDTO) {
+        return accountHistoryDTO.getAccountOperationDTOS().stream().map(OperationDTO::getDescription).toList();
+    }
+
+    private TransferDTO transfer(int amount) {
+        TransferDTO transferDTO = new TransferDTO();
+        transferDTO.setAccountSource(source);
+        transferDTO.setAccountDestination(destination);
+        transferDTO.setAmount(amount);
+        return transferDTO;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.demo.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardRingTest {
+    private static final int ACCOUNTS = 30_000;
+
+    @Test
+    void spreadsAccountsEvenly() {
+        ShardRing ring = new ShardRing(3, 128);
+        int[] counts = new int[3];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            counts[ring.shardOf(UUID.randomUUID().toString())]++;
+        }
+        for (int shard = 0; shard < counts.length; shard++) {
+            double share = (double) counts[shard] / ACCOUNTS;
+            assertTrue(share > 0.25 && share < 0.42, "shard " + shard + " got " + share);
+        }
+    }
+
+    @Test
+    void placesAnAccountTheSameWayEveryTime() {
+        ShardRing ring = new ShardRing(3, 128);
+        ShardRing rebuilt = new ShardRing(3, 128);
+        for (int i = 0; i < 1_000; i++) {
+            String accountId = UUID.randomUUID().toString();
+            int shard = ring.shardOf(accountId);
+            assertEquals(shard, ring.shardOf(accountId));
+            assertEquals(shard, rebuilt.shardOf(accountId));
+        }
+        assertEquals(0, ring.shardOf(null));
+        assertEquals(0, new ShardRing(1, 128).shardOf("any"));
+    }
+
+    @Test
+    void addingAShardOnlyMovesAccountsOntoIt() {
+        ShardRing three = new ShardRing(3, 128);
+        ShardRing four = new ShardRing(4, 128);
+        int moved = 0;
+        for (int i = 0; i < ACCOUNTS; i++) {
+            String accountId = UUID.randomUUID().toString();
+            int before = three.shardOf(accountId);
+            int after = four.shardOf(accountId);
+            if (before != after) {
+                assertEquals(3, after, "an account moved between two existing shards");
+                moved++;
+            }
+        }
+        double share = (double) moved / ACCOUNTS;
+        assertTrue(share > 0.17 && share < 0.33, "moved " + share + " of the accounts, about a quarter expected");
+    }
+}
@@ -0,0 +1,300 @@
+package com.example.demo.sharding;
+
+import com.example.demo.Exception.BalanceNotSufficientException;
+import com.example.demo.dtos.AccountPageDTO;
+import com.example.demo.dtos.BankAccountDTO;
+import com.example.demo.dtos.CurrentAccountDTO;
+import com.example.demo.dtos.CustomerDTO;
+import com.example.demo.dtos.SavingAccountDTO;
+import com.example.demo.entities.BankAccount;
+import com.example.demo.entities.Customer;
+import com.example.demo.entities.CustomerChange;
+import com.example.demo.entities.ShardTransfer;
+import com.example.demo.entities.ShardTransferStatus;
+import com.example.demo.repositories.BankAccountRepository;
+import com.example.demo.repositories.CustomerChangeRepository;
+import com.example.demo.repositories.CustomerRepository;
+import com.example.demo.repositories.ShardTransferRepository;
+import com.example.demo.services.BankAccountService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles({"h2", "h2-shards"})
+class ShardingIntegrationTest {
+    @Autowired
+    private BankAccountService bankAccountService;
+    @Autowired
+    private CrossShardTransfers crossShardTransfers;
+    @Autowired
+    private CustomerReplication customerReplication;
+    @Autowired
+    private Shards shards;
+    @Autowired
+    private ShardTransferRepository shardTransferRepository;
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+    @Autowired
+    private CustomerRepository customerRepository;
+    @Autowired
+    private CustomerChangeRepository customerChangeRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long customerId;
+
+    @BeforeEach
+    void customer() throws Throwable {
+        customerId = customer("sharded");
+    }
+
+    @Test
+    void placesAccountsOnTheShardOfTheirId() throws Throwable {
+        assertEquals(3, shards.count());
+        List<String> accountIds = accounts(12);
+        for (String accountId : accountIds) {
+            int shard = shards.shardOf(accountId);
+            for (int other = 0; other < shards.count(); other++) {
+                boolean stored = shards.onShard(other, () -> bankAccountRepository.existsById(accountId));
+                assertEquals(other == shard, stored, "account " + accountId + " on shard " + other);
+            }
+        }
+    }
+
+    @Test
+    void settlesATransferBetweenShards() throws Throwable {
+        String[] pair = pairOnDifferentShards();
+        String source = pair[0];
+        String destination = pair[1];
+
+        bankAccountService.transfer(source, destination, 2_500);
+
+        assertEquals(7_500, balance(source));
+        assertEquals(12_500, balance(destination));
+        ShardTransfer outbox = transfersFrom(source).getFirst();
+        assertEquals(ShardTransferStatus.SETTLED, outbox.getStatus());
+        assertEquals(ShardTransferStatus.DELIVERED, shards.onShardOf(destination,
+                () -> shardTransferRepository.findById(outbox.getId())).orElseThrow().getStatus());
+    }
+
+    @Test
+    void leavesNoOutboxRowWhenTheDebitFails() throws Throwable {
+        String[] pair = pairOnDifferentShards();
+
+        assertThrows(BalanceNotSufficientException.class,
+                () -> bankAccountService.transfer(pair[0], pair[1], 1_000_000));
+
+        assertTrue(transfersFrom(pair[0]).isEmpty());
+        assertEquals(10_000, balance(pair[0]));
+        assertEquals(10_000, balance(pair[1]));
+    }
+
+    @Test
+    void relayRedeliversAPendingTransferOnce() throws Throwable {
+        String[] pair = pairOnDifferentShards();
+        String source = pair[0];
+        String destination = pair[1];
+        // as left by a crash between the debit commit and the delivery
+        String id = pending(source, destination, 700);
+
+        crossShardTransfers.relay();
+        // as left by a crash between the delivery and the settlement
+        shards.onShardOf(source, () -> new TransactionTemplate(transactionManager).execute(status -> jdbcTemplate.update(
+                "update shard_transfer set status = 'PENDING' where id = ?", id)));
+        crossShardTransfers.relay();
+
+        assertEquals(9_300, balance(source));
+        assertEquals(10_700, balance(destination), "credited exactly once");
+        assertEquals(ShardTransferStatus.SETTLED, status(source, id));
+    }
+
+    @Test
+    void relayReversesATransferToAMissingAccount() throws Throwable {
+        String source = accounts(1).getFirst();
+        String missing;
+        do {
+            missing = "missing-" + UUID.randomUUID();
+        } while (shards.shardOf(missing) == shards.shardOf(source));
+        String id = pending(source, missing, 300);
+
+        crossShardTransfers.relay();
+        crossShardTransfers.relay();
+
+        assertEquals(10_000, balance(source), "the debit is reversed exactly once");
+        assertEquals(ShardTransferStatus.COMPENSATED, status(source, id));
+    }
+
+    @Test
+    void mergesPagesFromAllShardsInTheQueryOrder() throws Throwable {
+        List<String> accountIds = accounts(13);
+        List<String> expected = accountIds.stream()
+                .map(accountId -> shards.onShardOf(accountId, () -> bankAccountRepository.findById(accountId)).orElseThrow())
+                .sorted(Comparator.comparing(BankAccount::getCreatedAt, Comparator.reverseOrder())
+                        .thenComparing(BankAccount::getId))
+                .map(BankAccount::getId)
+                .toList();
+
+        List<String> paged = new ArrayList<>();
+        AccountPageDTO page;
+        int number = 0;
+        do {
+            page = bankAccountService.bankAccountPage(null, null, customerId, number++, 5);
+            assertTrue(page.getAccounts().size() <= 5);
+            page.getAccounts().forEach(account -> paged.add(id(account)));
+        } while (page.isHasNext());
+
+        assertEquals(3, number);
+        assertEquals(expected, paged);
+        AccountPageDTO beyond = bankAccountService.bankAccountPage(null, null, customerId, 3, 5);
+        assertTrue(beyond.getAccounts().isEmpty());
+        assertFalse(beyond.isHasNext());
+    }
+
+    @Test
+    void copiesCustomerChangesToEveryShard() throws Throwable {
+        assertEquals(List.of("sharded", "sharded", "sharded"), names(customerId));
+
+        CustomerDTO customerDTO = bankAccountService.getCustomer(customerId);
+        customerDTO.setName("renamed");
+        bankAccountService.updateCustomer(customerDTO);
+
+        assertEquals(List.of("renamed", "renamed", "renamed"), names(customerId));
+        assertNull(shards.onShard(0, () -> customerChangeRepository.findLastId(customerId)), "no change left to copy");
+    }
+
+    @Test
+    void leavesNoCopyWhenTheCustomerIsRolledBack() {
+        Long rolledBack = new TransactionTemplate(transactionManager).execute(status -> {
+            Long id = customer("rolled back");
+            status.setRollbackOnly();
+            return id;
+        });
+
+        assertEquals(Arrays.asList(null, null, null), names(rolledBack));
+    }
+
+    @Test
+    void refusesToDeleteACustomerWithAccountsOnAnotherShard() throws Throwable {
+        Long owner;
+        do {
+            // an account on the first shard would be caught by its foreign key anyway
+            owner = customer("owner");
+        } while (shards.shardOf(bankAccountService.saveCurrentBankAccount(10_000, 0, owner).getId()) == 0);
+        Long customerWithAccount = owner;
+
+        assertThrows(DataIntegrityViolationException.class, () -> bankAccountService.deleteCustomer(customerWithAccount));
+
+        assertEquals(List.of("owner", "owner", "owner"), names(customerWithAccount));
+    }
+
+    @Test
+    void deletesACustomerFromEveryShard() {
+        Long deleted = customer("deleted");
+
+        bankAccountService.deleteCustomer(deleted);
+
+        assertEquals(Arrays.asList(null, null, null), names(deleted));
+    }
+
+    @Test
+    void relayCopiesAChangeThatWasNotPushed() {
+        // as left by a crash between the commit on the first shard and the copies
+        shards.onShard(0, () -> new TransactionTemplate(transactionManager).execute(status -> {
+            jdbcTemplate.update("update customer set name = 'relayed' where id = ?", customerId);
+            return customerChangeRepository.save(new CustomerChange(null, customerId, new Date(0)));
+        }));
+        assertEquals(List.of("relayed", "sharded", "sharded"), names(customerId));
+
+        customerReplication.relay();
+
+        assertEquals(List.of("relayed", "relayed", "relayed"), names(customerId));
+        assertNull(shards.onShard(0, () -> customerChangeRepository.findLastId(customerId)));
+    }
+
+    private Long customer(String name) {
+        CustomerDTO customerDTO = new CustomerDTO();
+        customerDTO.setName(name);
+        customerDTO.setEmail(name.replace(' ', '.') + "@example.com");
+        return bankAccountService.saveCustomer(customerDTO).getId();
+    }
+
+    /** The customer's name on each shard, {@code null} where it has no row. */
+    private List<String> names(Long id) {
+        List<String> names = new ArrayList<>();
+        for (int shard = 0; shard < shards.count(); shard++) {
+            names.add(shards.onShard(shard, () -> customerRepository.findById(id)).map(Customer::getName).orElse(null));
+        }
+        return names;
+    }
+
+    private List<String> accounts(int count) throws Throwable {
+        List<String> accountIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            accountIds.add(i % 2 == 0
+                    ? bankAccountService.saveCurrentBankAccount(10_000, 0, customerId).getId()
+                    : bankAccountService.saveSavingBankAccount(10_000, 2.5, customerId).getId());
+        }
+        return accountIds;
+    }
+
+    private String[] pairOnDifferentShards() throws Throwable {
+        String source = bankAccountService.saveCurrentBankAccount(10_000, 0, customerId).getId();
+        while (true) {
+            String destination = bankAccountService.saveCurrentBankAccount(10_000, 0, customerId).getId();
+            if (shards.shardOf(destination) != shards.shardOf(source)) return new String[]{source, destination};
+        }
+    }
+
+    /** Writes what step 1 of a transfer leaves behind: the debit and a PENDING outbox row, old enough to relay. */
+    private String pending(String source, String destination, long amount) throws Throwable {
+        bankAccountService.debit(source, amount, "Transfer to " + destination);
+        String id = UUID.randomUUID().toString();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        shards.onShardOf(source, () -> transactionTemplate.execute(status -> shardTransferRepository.save(
+                new ShardTransfer(id, source, destination, amount, ShardTransferStatus.PENDING, new Date(0)))));
+        return id;
+    }
+
+    private List<ShardTransfer> transfersFrom(String source) {
+        return shards.onShardOf(source, () -> shardTransferRepository.findAll()).stream()
+                .filter(transfer -> transfer.getSourceAccountId().equals(source))
+                .toList();
+    }
+
+    private ShardTransferStatus status(String source, String id) {
+        return shards.onShardOf(source, () -> shardTransferRepository.findById(id)).orElseThrow().getStatus();
+    }
+
+    private long balance(String accountId) throws Throwable {
+        BankAccountDTO bankAccountDTO = bankAccountService.getBankAccount(accountId);
+        return bankAccountDTO instanceof CurrentAccountDTO currentAccountDTO ? currentAccountDTO.getBalance()
+                : ((SavingAccountDTO) bankAccountDTO).getBalance();
+    }
+
+    private static String id(BankAccountDTO bankAccountDTO) {
+        return bankAccountDTO instanceof CurrentAccountDTO currentAccountDTO ? currentAccountDTO.getId()
+                : ((SavingAccountDTO) bankAccountDTO).getId();
+    }
+}
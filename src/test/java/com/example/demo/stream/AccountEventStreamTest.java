@@ -0,0 +1,91 @@
+package com.example.demo.stream;
+
+import com.example.demo.EbankingBachendApplication;
+import com.example.demo.dtos.CustomerDTO;
+import com.example.demo.services.BankAccountService;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountEventStreamTest {
+    private static final String END = "\u0000end";
+
+    @Test
+    void streamsOperationsAndEndsOpenStreamsOnShutdown() throws Throwable {
+        // its own application and database, since closing it is the point of the test
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(EbankingBachendApplication.class)
+                .profiles("h2")
+                .properties("server.port=0",
+                        "server.shutdown=graceful",
+                        "spring.lifecycle.timeout-per-shutdown-phase=30s",
+                        "spring.datasource.url=jdbc:h2:mem:stream-shutdown;DB_CLOSE_DELAY=-1")
+                .run();
+        BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+        try {
+            BankAccountService bankAccountService = context.getBean(BankAccountService.class);
+            CustomerDTO customerDTO = new CustomerDTO();
+            customerDTO.setName("stream");
+            customerDTO.setEmail("stream@example.com");
+            Long customerId = bankAccountService.saveCustomer(customerDTO).getId();
+            String accountId = bankAccountService.saveCurrentBankAccount(10_000, 0, customerId).getId();
+
+            String port = context.getEnvironment().getProperty("local.server.port");
+            HttpResponse<InputStream> response = HttpClient.newHttpClient().send(HttpRequest.newBuilder(
+                    URI.create("http://localhost:" + port + "/api/accounts/" + accountId + "/stream")).build(),
+                    HttpResponse.BodyHandlers.ofInputStream());
+            assertEquals(200, response.statusCode());
+            CompletableFuture.runAsync(() -> read(response.body(), lines));
+
+            bankAccountService.credit(accountId, 2_500, "streamed");
+            String data = nextData(lines);
+            assertTrue(data.contains("\"balance\":125.00"), data);
+            assertTrue(data.contains("\"description\":\"streamed\""), data);
+        } finally {
+            long start = System.nanoTime();
+            context.close();
+            long closeMillis = (System.nanoTime() - start) / 1_000_000;
+            assertTrue(closeMillis < 10_000, "shutdown waited " + closeMillis + " ms on an open stream");
+        }
+        String line;
+        do {
+            line = lines.poll(10, TimeUnit.SECONDS);
+        } while (line != null && !line.equals(END));
+        assertEquals(END, line, "the stream should have been ended by the server");
+    }
+
+    private static String nextData(BlockingQueue<String> lines) throws InterruptedException {
+        while (true) {
+            String line = lines.poll(10, TimeUnit.SECONDS);
+            if (line == null || line.equals(END)) throw new AssertionError("no event received");
+            if (line.startsWith("data:")) return line;
+        }
+    }
+
+    private static void read(InputStream body, BlockingQueue<String> lines) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } catch (Exception e) {
+            // a reset connection ends the stream as well
+        }
+        lines.add(END);
+    }
+}
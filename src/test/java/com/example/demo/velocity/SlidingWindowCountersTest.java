@@ -0,0 +1,87 @@
+package com.example.demo.velocity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlidingWindowCountersTest {
+    private static final long WINDOW = 1_000;
+    private static final long START = 10_000;
+
+    private final SlidingWindowCounters counters = new SlidingWindowCounters(1_024, WINDOW);
+    private final long key = SlidingWindowCounters.key("acc-1");
+
+    @Test
+    void letsDebitsBackInAsThePreviousWindowSlidesOut() {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(counters.tryAcquire(key, 1, START, 3, 0));
+        }
+        assertFalse(counters.tryAcquire(key, 1, START + 999, 3, 0), "same window");
+        assertFalse(counters.tryAcquire(key, 1, START + WINDOW, 3, 0), "the previous window still fully overlaps");
+        // halfway through the next window only two of the three still count
+        assertTrue(counters.tryAcquire(key, 1, START + WINDOW + 500, 3, 0));
+        assertFalse(counters.tryAcquire(key, 1, START + WINDOW + 500, 3, 0));
+    }
+
+    @Test
+    void forgetsEverythingOnceAWholeWindowHasPassed() {
+        assertTrue(counters.tryAcquire(key, 900, START, 0, 1_000));
+        assertFalse(counters.tryAcquire(key, 200, START, 0, 1_000));
+        assertTrue(counters.tryAcquire(key, 100, START, 0, 1_000));
+
+        assertTrue(counters.tryAcquire(key, 1_000, START + 2 * WINDOW, 0, 1_000), "the old windows no longer count");
+    }
+
+    @Test
+    void releasesADebitFromTheWindowItWasTakenIn() {
+        assertTrue(counters.tryAcquire(key, 1, START, 1, 0));
+        counters.release(key, 1, START);
+        assertTrue(counters.tryAcquire(key, 1, START, 1, 0));
+
+        // by now the debit has moved to the previous window
+        assertFalse(counters.tryAcquire(key, 1, START + WINDOW, 1, 0));
+        counters.release(key, 1, START);
+        assertTrue(counters.tryAcquire(key, 1, START + WINDOW, 1, 0));
+    }
+
+    @Test
+    void keepsATagPerKey() {
+        assertEquals(0, counters.tag(key));
+        counters.tag(key, 42, START);
+        assertEquals(42, counters.tag(key));
+    }
+
+    @Test
+    void overwritesTheOldestEntryWhenAKeysSlotsAreTaken() {
+        SlidingWindowCounters small = new SlidingWindowCounters(1, WINDOW);
+        // nine keys that compete for the same eight slots
+        List<Long> keys = collidingKeys(9);
+        assertTrue(small.tryAcquire(keys.getFirst(), 1, START - 5 * WINDOW, 1, 0));
+        for (long colliding : keys.subList(1, 8)) {
+            assertTrue(small.tryAcquire(colliding, 1, START, 1, 0));
+        }
+
+        assertTrue(small.tryAcquire(keys.getLast(), 1, START, 1, 0));
+        assertEquals(0, small.activeEvictions(), "the stale entry made room");
+        assertTrue(small.tryAcquire(keys.getFirst(), 1, START, 1, 0), "its old debit is gone");
+        assertEquals(1, small.activeEvictions(), "this time an active entry had to go");
+    }
+
+    /** Keys with the same stripe and the same first slot in a table of 16 slots per stripe. */
+    private static List<Long> collidingKeys(int count) {
+        List<Long> keys = new ArrayList<>();
+        long first = SlidingWindowCounters.key(0L);
+        for (long id = 0; keys.size() < count; id++) {
+            long candidate = SlidingWindowCounters.key(id);
+            if (candidate >>> 58 == first >>> 58 && (candidate & 15) == (first & 15)) {
+                keys.add(candidate);
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.demo.velocity;
+
+import com.example.demo.Exception.VelocityLimitExceededException;
+import com.example.demo.entities.CurrentAccount;
+import com.example.demo.entities.SavingAccount;
+import com.example.demo.metrics.MetricsRegistry;
+import com.example.demo.repositories.BankAccountRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VelocityLimiterTest {
+    private static final long WINDOW_MILLIS = 100;
+
+    private final BankAccountRepository bankAccountRepository = mock(BankAccountRepository.class);
+
+    @Test
+    void refusesDebitsOverTheLimitUntilTheWindowHasPassed() throws InterruptedException {
+        account("current", CurrentAccount.class, 1L);
+        VelocityLimiter limiter = limiter(2, "0", 0, "0");
+        // start early in a window, so all three debits land in it
+        while (System.currentTimeMillis() % WINDOW_MILLIS > 20) {
+            Thread.sleep(1);
+        }
+
+        limiter.charge("current", 100);
+        limiter.charge("current", 100);
+        assertThrows(VelocityLimitExceededException.class, () -> limiter.charge("current", 100));
+
+        Thread.sleep(2 * WINDOW_MILLIS + 20);
+        assertDoesNotThrow(() -> limiter.charge("current", 100));
+        verify(bankAccountRepository, times(1)).findTypeAndCustomerId("current");
+    }
+
+    @Test
+    void appliesTheLimitsOfTheAccountTypeAndTheCustomer() {
+        account("saving", SavingAccount.class, 7L);
+        account("current-a", CurrentAccount.class, 7L);
+        account("current-b", CurrentAccount.class, 7L);
+        VelocityLimiter limiter = limiter(0, "0", 1, "0", 0, "5.00");
+
+        limiter.charge("saving", 100);
+        assertThrows(VelocityLimitExceededException.class, () -> limiter.charge("saving", 100), "one saving debit");
+        limiter.charge("current-a", 300);
+        assertThrows(VelocityLimitExceededException.class, () -> limiter.charge("current-b", 200),
+                "the customer's three accounts share 5.00");
+        limiter.charge("current-b", 100);
+    }
+
+    @Test
+    void refundsTheChargeWhenTheTransactionRollsBack() {
+        account("current", CurrentAccount.class, 1L);
+        VelocityLimiter limiter = limiter(1, "0", 0, "0");
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            limiter.charge("current", 100);
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertDoesNotThrow(() -> limiter.charge("current", 100), "the rolled back debit no longer counts");
+        assertThrows(VelocityLimitExceededException.class, () -> limiter.charge("current", 100));
+    }
+
+    @Test
+    void refundsAChargeOnlyOnce() {
+        account("current", CurrentAccount.class, 1L);
+        VelocityLimiter limiter = limiter(1, "0", 0, "0");
+
+        VelocityLimiter.Charge charge = limiter.charge("current", 100);
+        charge.refund();
+        charge.refund();
+
+        limiter.charge("current", 100);
+        assertThrows(VelocityLimitExceededException.class, () -> limiter.charge("current", 100));
+    }
+
+    @Test
+    void leavesUnknownAccountsAndUnlimitedSetupsAlone() {
+        when(bankAccountRepository.findTypeAndCustomerId("missing")).thenReturn(List.of());
+        VelocityLimiter limiter = limiter(1, "0", 0, "0");
+        limiter.charge("missing", 100);
+        limiter.charge("missing", 100);
+
+        assertFalse(limiter(0, "0", 0, "0").isEnabled());
+    }
+
+    private void account(String accountId, Class<?> type, Long customerId) {
+        when(bankAccountRepository.findTypeAndCustomerId(accountId)).thenReturn(List.<Object[]>of(new Object[]{type, customerId}));
+    }
+
+    private VelocityLimiter limiter(int currentMaxDebits, String currentMaxAmount, int savingMaxDebits, String savingMaxAmount) {
+        return limiter(currentMaxDebits, currentMaxAmount, savingMaxDebits, savingMaxAmount, 0, "0");
+    }
+
+    private VelocityLimiter limiter(int currentMaxDebits, String currentMaxAmount, int savingMaxDebits, String savingMaxAmount,
+                                    int customerMaxDebits, String customerMaxAmount) {
+        return new VelocityLimiter(bankAccountRepository, new MetricsRegistry(), WINDOW_MILLIS, 1_024,
+                currentMaxDebits, currentMaxAmount, savingMaxDebits, savingMaxAmount, customerMaxDebits, customerMaxAmount);
+    }
+}